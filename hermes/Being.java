@@ -4,6 +4,7 @@ import hermes.hshape.HShape;
 import hermes.hshape.HRectangle;
 
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import processing.core.*;
 
@@ -37,7 +38,18 @@ public abstract class Being extends HObject {
 	protected HShape _shape; 		 // the Being's shape
 	
 	private boolean _done = true;	// if the Being does not need more steps this update
-	protected long _time;			// the time of the last step	
+	protected long _time;			// the time of the last step, or NO_TIME before the first simulated step
+	
+	private static final long NO_TIME = Long.MIN_VALUE;
+	
+	private Integrator _integrator;	// the Being's integrator, null to use its groups' or world's
+	private Integrator _inherited;	// the integrator from its groups or world, cached by getIntegrator
+	private int _inheritedAt;		// the value of INTEGRATORS_SET when _inherited was found
+	private boolean _inheritedStale = true;	// whether the groups have changed since _inherited was found
+	
+	// counts integrators set on groups and worlds, so the cached integrators know to look again
+	private static final AtomicInteger INTEGRATORS_SET = new AtomicInteger();
+	protected double _lastStep;		// length of the last step, for integrators that carry over between steps
 	
 	/**
 	 * Creates a <code>Being</code>. Should be called by a class that extends <code>Being</code>.
@@ -70,15 +82,21 @@ public abstract class Being extends HObject {
 		_shape = collisionShape;
 		_position = collisionShape.getPosition();
 		_velocity = velocity;
-		_time = System.nanoTime();
+		// with a time step, the clock is the World's, so it starts on the first update
+		_time = Hermes.getTimeStep() == 0 ? Hermes.nanoTime() : NO_TIME;
 	}
 	
 	/**
-	 * Updates the internal recorded time of the <code>Being</code> using the current system time.
+	 * Updates the internal recorded time of the <code>Being</code> using the current system time,
+	 * or the simulated time if <code>Hermes.setTimeStep</code> has been used.
 	 * @return	time elaspsed since the last call to updateTime
 	 */
 	protected long updateTime() { 
-		long time = System.nanoTime();
+		long time = Hermes.nanoTime();
+		if(_time == NO_TIME) {
+			_time = time;
+			return 0;
+		}
 		long elapsed = time - _time;
 		if(elapsed > 0) 
 			_time = time;
@@ -229,6 +247,59 @@ public abstract class Being extends HObject {
 		return _shape.getBoundingBox();
 	}
 	
+	/**
+	 * Sets the integrator used to move this <code>Being</code>, overriding any set on its groups or world.
+	 * @param integrator	the integrator, or null to use the one from its groups or world
+	 */
+	public void setIntegrator(Integrator integrator) {
+		_integrator = integrator;
+	}
+	
+	/**
+	 * Gets the integrator used to move this <code>Being</code>.
+	 * This is the <code>Being</code>'s own integrator if it has one, otherwise the integrator of the
+	 * 	first of its groups that has one, otherwise that of its groups' world.
+	 * 	The one from its groups or world is cached until its groups change or an integrator is set on any.
+	 * @return	the integrator, or null if the default Euler integration is used
+	 */
+	public Integrator getIntegrator() {
+		if(_integrator != null)
+			return _integrator;
+		int set = INTEGRATORS_SET.get();
+		if(_inheritedStale || _inheritedAt != set) {
+			_inherited = findInheritedIntegrator();
+			_inheritedAt = set;
+			_inheritedStale = false;
+		}
+		return _inherited;
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private Integrator findInheritedIntegrator() {
+		World world = null;
+		for(Iterator<GenericGroup> iter = getGroups(); iter.hasNext(); ) {
+			GenericGroup group = iter.next();
+			if(group.getIntegrator() != null)
+				return group.getIntegrator();
+			if(world == null)
+				world = group.getWorld();
+		}
+		return world == null ? null : world.getIntegrator();
+	}
+	
+	/**
+	 * Called when an integrator is set on a group or world, which any being may inherit.
+	 */
+	static void integratorSet() {
+		INTEGRATORS_SET.incrementAndGet();
+	}
+	
+	@Override
+	void groupsChanged() {
+		super.groupsChanged();
+		_inheritedStale = true;
+	}
+	
 	protected void setDone(boolean done) {
 		_done = done;
 	}
@@ -265,7 +336,34 @@ public abstract class Being extends HObject {
 	 */
 	protected void step() {
 		double elapsed = (double)updateTime();
-		EulerIntegratePosition(elapsed/1e9*Hermes.getTimeScale());
+		integrate(elapsed/1e9*Hermes.getTimeScale());
+	}
+	
+	/**
+	 * Moves the <code>Being</code> forward by <code>dt</code> using its integrator, 
+	 * 	or Euler integration if it has none.
+	 * @param dt	the time step
+	 */
+	protected void integrate(double dt) {
+		Integrator integrator = getIntegrator();
+		if(integrator == null)
+			EulerIntegratePosition(dt);
+		else
+			integrator.integrate(this, dt);
+	}
+	
+	/**
+	 * Computes the <code>Being</code>'s acceleration at the given position and velocity, used by integrators.
+	 * A plain <code>Being</code> does not accelerate.
+	 * <p>
+	 * Override to add forces that depend on position or velocity (such as a spring to a fixed point),
+	 * 	so that integrators can re-evaluate them within a step. 
+	 * @param position		the position to evaluate at
+	 * @param velocity		the velocity to evaluate at
+	 * @param result		vector the acceleration is stored in
+	 */
+	protected void acceleration(PVector position, PVector velocity, PVector result) {
+		result.set(0, 0, 0);
 	}
 	
 	/**
@@ -0,0 +1,18 @@
+package hermes;
+
+/**
+ * Receives the beings found by one of the <code>World</code>'s spatial queries.
+ * <p>
+ * Visitors are called while the query is running, so they should not make another query on the same World.
+ * 	A visitor can be kept and reused, so that queries don't allocate anything.
+ */
+public interface BeingVisitor {
+
+	/**
+	 * Called for each being found.
+	 * @param being		the being found
+	 * @return			true to keep searching, false to stop the query
+	 */
+	public boolean visit(Being being);
+
+}
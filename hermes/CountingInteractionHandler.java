@@ -0,0 +1,44 @@
+package hermes;
+
+import java.util.LinkedList;
+
+/**
+ * An <code>InteractionHandler</code> that counts the pairs it tests and the interactions it detects.
+ * <p>
+ * Internal -- used by the World only while it keeps statistics, so the plain handler has no counting to do.
+ */
+@SuppressWarnings({ "rawtypes" })
+class CountingInteractionHandler<A extends HObject, B extends HObject> extends InteractionHandler<A,B> {
+
+	private long _tested = 0;
+	private long _hits = 0;
+
+	CountingInteractionHandler(Interaction<A,B> interaction, LinkedList<DetectedInteraction> detectedInteractionsQ) {
+		super(interaction, detectedInteractionsQ);
+	}
+
+	@Override
+	public boolean interactionHandler(A being1, B being2) {
+		_tested++;
+		if(super.interactionHandler(being1, being2)) {
+			_hits++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return	the number of pairs tested
+	 */
+	long getTested() {
+		return _tested;
+	}
+
+	/**
+	 * @return	the number of interactions detected
+	 */
+	long getHits() {
+		return _hits;
+	}
+
+}
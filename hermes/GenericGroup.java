@@ -34,6 +34,9 @@ public class GenericGroup<A extends HObject, B extends Collection<A>>
 	private LinkedList<A> _needsMoreSamples;	// keeps track of any beings that need 
 													// more samples this update
   protected World _world;	// the world containing the groups
+	private Integrator _integrator;	// integrator for beings in the group, null to use the world's
+	private boolean _static = false;	// whether the group makes its members static
+	private int _modifications = 0;		// counts changes to the group's membership
 	
 	/**
 	 * Instantiates a group storing HObjects in the given collection.
@@ -162,6 +165,55 @@ public class GenericGroup<A extends HObject, B extends Collection<A>>
 		return _world;
 	}
 
+	/**
+	 * Sets the integrator used to move the beings in this group, overriding the world's.
+	 * Beings with their own integrator, or in an earlier group with an integrator, are unaffected.
+	 * @param integrator	the integrator, or null to use the world's
+	 */
+	public void setIntegrator(Integrator integrator) {
+		_integrator = integrator;
+		Being.integratorSet();
+	}
+	
+	/**
+	 * @return	the integrator used to move the beings in this group, or null if none is set
+	 */
+	public Integrator getIntegrator() {
+		return _integrator;
+	}
+
+	/**
+	 * Sets whether the group is static. Its members are static while they are in a static group, unless
+	 * 	their own <code>setStatic</code> has been called.
+	 * @param isStatic	whether the group is static
+	 * @see hermes.HObject#setStatic(boolean)
+	 */
+	public void setStatic(boolean isStatic) {
+		_static = isStatic;
+		for(Iterator<A> iter = iterator(); iter.hasNext(); )
+			iter.next().updateStatic();
+	}
+	
+	/**
+	 * @return	whether the group makes its members static
+	 */
+	public boolean isStatic() {
+		return _static;
+	}
+	
+	/**
+	 * Counts changes to the group, for optimizers that cache data about it.
+	 * This changes whenever an object is added or removed, or a member's static flag changes.
+	 * @return	the number of changes made to the group
+	 */
+	public int getModifications() {
+		return _modifications;
+	}
+	
+	void modified() {
+		_modifications++;
+	}
+
 	void addNeedsMoreSamples(A object) {
 		_needsMoreSamples.addLast(object);
 	}
@@ -47,10 +47,21 @@ public class HCamera extends Being {
 /**
 	Default HCamera constructor. 
 	Passing no arguments gives HCamera a 1-to-1 world pixel ratio (the world coordinate units are the same size as the screen's pixel coordinates)
+	Needs a PApplet; when running headless, give the camera its dimensions instead.
 	 
  */
 	public HCamera() {
-		this(0,0,Hermes.getPApplet().width,Hermes.getPApplet().height);
+		this(0,0,screenWidth(),screenHeight());
+	}
+
+	private static float screenWidth() {
+		assert !Hermes.isHeadless() : "HCamera constructor: running headless, so the camera's width and height must be given";
+		return Hermes.getPApplet().width;
+	}
+
+	private static float screenHeight() {
+		assert !Hermes.isHeadless() : "HCamera constructor: running headless, so the camera's width and height must be given";
+		return Hermes.getPApplet().height;
 	}
 
 
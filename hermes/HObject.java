@@ -17,6 +17,8 @@ import java.util.LinkedList;
 public abstract class HObject implements KeySubscriber, MouseSubscriber, MouseWheelSubscriber, OscSubscriber {
 	
 	private LinkedList<GenericGroup> _groups;	// groups the being is a member of
+	private boolean _static = false;			// whether the object never moves, set or from its groups
+	private boolean _staticSet = false;			// whether setStatic was called, overriding the groups
 	
 	protected HObject() {
 		_groups = new LinkedList<GenericGroup>();
@@ -32,7 +34,9 @@ public abstract class HObject implements KeySubscriber, MouseSubscriber, MouseWh
 		synchronized(group) {
 			group.getObjects().add(this);
 			_groups.add(group);
+			group.modified();
 		}
+		groupsChanged();
 	}
 	
 	/**
@@ -45,7 +49,9 @@ public abstract class HObject implements KeySubscriber, MouseSubscriber, MouseWh
 		synchronized(group) {
 			group.getObjects().remove(this);
 			_groups.remove(group);
+			group.modified();
 		}
+		groupsChanged();
 	}
 	
 	/**
@@ -59,8 +65,10 @@ public abstract class HObject implements KeySubscriber, MouseSubscriber, MouseWh
 			synchronized(group) {
 				group.getObjects().remove(this);
 				iter.remove();
+				group.modified();
 			}
 		}
+		groupsChanged();
 	}
 	
 	/**
@@ -71,6 +79,61 @@ public abstract class HObject implements KeySubscriber, MouseSubscriber, MouseWh
 		return _groups.iterator();
 	}
 	
+	/**
+	 * Whether the object is static, ie never moves (such as level geometry).
+	 * Interactions are never checked between two static objects.
+	 * <p>
+	 * Unless <code>setStatic</code> has been called, an object is static while it is in a static group.
+	 * @return	true if the object is static
+	 */
+	public boolean isStatic() {
+		return _static;
+	}
+	
+	/**
+	 * Sets whether the object is static, ie never moves (such as level geometry).
+	 * Interactions are never checked between two static objects, and optimizers such as
+	 * 	<code>StaticIndexOptimizer</code> may index static objects once rather than on every update.
+	 * <p>
+	 * Once set, this overrides the groups the object is in, which otherwise make it static while it is in a
+	 * 	static group.
+	 * @param isStatic	whether the object is static
+	 */
+	public void setStatic(boolean isStatic) {
+		_staticSet = true;
+		changeStatic(isStatic);
+	}
+	
+	/**
+	 * Called after the object joins or leaves groups.
+	 */
+	void groupsChanged() {
+		updateStatic();
+	}
+	
+	/**
+	 * Makes the object static if it is in a static group, unless <code>setStatic</code> has been called.
+	 * 	Called when its groups, or whether they are static, change.
+	 */
+	@SuppressWarnings("rawtypes")
+	void updateStatic() {
+		if(_staticSet)
+			return;
+		boolean inStatic = false;
+		for(Iterator<GenericGroup> iter = _groups.iterator(); iter.hasNext() && !inStatic; )
+			inStatic = iter.next().isStatic();
+		changeStatic(inStatic);
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private void changeStatic(boolean isStatic) {
+		if(_static == isStatic)
+			return;
+		_static = isStatic;
+		for(Iterator<GenericGroup> iter = _groups.iterator(); iter.hasNext(); )
+			iter.next().modified();
+	}
+	
 	/**
 	 * Used for multisampling -- if true the object needs to be sampled more on the current update.
 	 * @return	whether the object needs more samples this update
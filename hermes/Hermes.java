@@ -4,11 +4,17 @@ import processing.core.PApplet;
 
 /**
  * Library class for broad scale static helpers, storage of <code>PApplet</code>
+ * <p>
+ * Hermes can run headless, without a <code>PApplet</code>, e.g. for simulating on a server or benchmarking.
+ * 	Never set the PApplet (or set it to null), give each <code>HCamera</code> its dimensions, and use
+ * 	<code>setTimeStep</code> to run the World's updates as fast as they can be calculated.
  */
 public class Hermes {
 	
-	private static PApplet _parentApplet = null; //Storage of sketch's PApplet. 
+	private static volatile PApplet _parentApplet = null; //Storage of sketch's PApplet. 
 	private static float _timeScale = 1.0f; // the time scale used by Hermes motion and physics calculations
+	private static volatile long _timeStep = 0; // nanoseconds of simulated time per update, or 0 for real time
+	private static final ThreadLocal<World> _updating = new ThreadLocal<World>(); // the World updating on each thread
 	
 	/**
 	 * Sets the time scale for calculating motion and physics. This is seconds/unit, so a value of 2 will mean
@@ -28,12 +34,68 @@ public class Hermes {
 	}
 	
 	/**
-	 * Returns the <code>PApplet</code> that Hermes is running in.
+	 * Sets a fixed amount of time for each World update to move beings by, instead of the time that
+	 * 	actually passed. The simulation is then the same however fast it runs, and runs faster than real
+	 * 	time when the World's update rate is unlocked. Set it before creating any beings.
+	 * @param seconds	the time each update simulates, or 0 to use real time (the default)
+	 */
+	public static void setTimeStep(double seconds) {
+		assert seconds >= 0 : "Hermes.setTimeStep: seconds must not be negative";
+		_timeStep = (long)(seconds * 1e9);
+	}
+	
+	/**
+	 * @return	the time each update simulates in seconds, or 0 if real time is used
+	 */
+	public static double getTimeStep() {
+		return _timeStep / 1e9;
+	}
+	
+	/**
+	 * Returns the time beings move by, in nanoseconds. This is <code>System.nanoTime</code>, unless a
+	 * 	time step is set, when it is the simulated time of the World updating on the calling thread
+	 * 	(see <code>World.getSimulatedTime</code>), or 0 outside an update. Each World has its own
+	 * 	simulated time, so several can run at once.
+	 */
+	public static long nanoTime() {
+		if(_timeStep == 0)
+			return System.nanoTime();
+		World world = _updating.get();
+		return world == null ? 0 : world.getSimulatedTime();
+	}
+	
+	/**
+	 * @return	the time each update simulates in nanoseconds, or 0 if real time is used
+	 */
+	static long getTimeStepNanos() {
+		return _timeStep;
+	}
+	
+	/**
+	 * Sets the World updating on the calling thread, whose simulated time <code>nanoTime</code> returns.
+	 * @return	the World that was updating before, or null
+	 */
+	static World setUpdating(World world) {
+		World previous = _updating.get();
+		if(world == null)
+			_updating.remove();
+		else
+			_updating.set(world);
+		return previous;
+	}
+	
+	/**
+	 * Returns the <code>PApplet</code> that Hermes is running in, or null when running headless.
 	 */
 	public static PApplet getPApplet() {
-		synchronized(_parentApplet) {
-			return _parentApplet;
-		}
+		return _parentApplet;
+	}
+	
+	/**
+	 * @return	whether Hermes is running without a <code>PApplet</code>
+	 */
+	public static boolean isHeadless() {
+		return _parentApplet == null;
 	}
 	
 	/**
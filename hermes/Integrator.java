@@ -0,0 +1,63 @@
+package hermes;
+
+import processing.core.PVector;
+
+/**
+ * Advances a <code>Being</code>'s position and velocity over a time step.
+ * <p>
+ * By default beings are moved with Euler-Cromer integration (velocity first, then position).
+ * 	An <code>Integrator</code> can be set on a <code>Being</code>, a <code>GenericGroup</code>, or a <code>World</code>
+ * 	to replace this. A being uses its own integrator if it has one, otherwise that of the first of its groups
+ * 	that has one, otherwise that of its groups' <code>World</code>.
+ * <p>
+ * Integrators get the being's acceleration from <code>Being.acceleration</code>, which may be called
+ * 	several times per step at trial positions and velocities. Forces added by interactions are only
+ * 	computed once per update, so within a step they are treated as constant; override
+ * 	<code>acceleration</code> on the being to add forces that should be re-evaluated.
+ * <p>
+ * Integrators may keep scratch state, so an instance should only be shared within a single <code>World</code>.
+ *
+ * @see hermes.physics.SemiImplicitEulerIntegrator
+ * @see hermes.physics.VelocityVerletIntegrator
+ * @see hermes.physics.RK4Integrator
+ */
+public abstract class Integrator {
+
+	/**
+	 * Moves the being forward by <code>dt</code> seconds, updating its position and velocity in place.
+	 * @param being		the being to integrate
+	 * @param dt		the time step, in seconds
+	 */
+	public abstract void integrate(Being being, double dt);
+
+	/**
+	 * Gets the acceleration of a being at a given position and velocity.
+	 * @param being			the being
+	 * @param position		the position to evaluate at
+	 * @param velocity		the velocity to evaluate at
+	 * @param result		vector the acceleration is stored in
+	 */
+	protected static void acceleration(Being being, PVector position, PVector velocity, PVector result) {
+		being.acceleration(position, velocity, result);
+	}
+
+	/**
+	 * Gets the length of the last step taken by the being, for integrators whose steps carry over between updates.
+	 * @param being		the being
+	 * @return			the value last given to <code>setLastStep</code>, 0 if the being's last step did not carry over
+	 */
+	protected static double getLastStep(Being being) {
+		return being._lastStep;
+	}
+
+	/**
+	 * Records the length of the step just taken by the being.
+	 * Integrators that do not carry state between updates should set this to 0.
+	 * @param being		the being
+	 * @param dt		the step length
+	 */
+	protected static void setLastStep(Being being, double dt) {
+		being._lastStep = dt;
+	}
+
+}
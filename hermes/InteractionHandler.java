@@ -31,13 +31,15 @@ public class InteractionHandler<A extends HObject, B extends HObject> {
 	 * If the interaction is immediate,
 	 * synchronizes on the beings and handles the interaction,
 	 * otherwise adds a new DetectedInteraction object to the detectedInteractionsQueue.
+	 * Pairs of static objects are skipped without calling detect.
 	 * @param being1				the first interacting Being
 	 * @param being2				the second interacting Being
 	 * @return 						whether an interaction was detected
 	 */
 	public boolean interactionHandler(A being1, B being2) {
-		// see if an interaction was detected
-		if(being1 != being2 && _interaction.getInteractor().detect(being1, being2)) {
+		// see if an interaction was detected (static objects never interact with each other)
+		if(being1 != being2 && !(being1.isStatic() && being2.isStatic()) 
+				&& _interaction.getInteractor().detect(being1, being2)) {
 			if(_interaction.getInteractor().appliedImmediately()) { // if immediate, handle it now
 					synchronized(being1) {
 						synchronized(being2) {
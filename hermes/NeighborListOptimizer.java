@@ -0,0 +1,234 @@
+package hermes;
+
+import java.util.Iterator;
+
+import processing.core.PVector;
+
+/**
+ * An <code>Optimizer</code> for short-range interactions, using Verlet neighbor lists.
+ * <p>
+ * Every being in the first group keeps a list of the beings in the second group whose positions
+ * 	are within <code>cutoff + skin</code> of its own, found using a grid of cells of that size.
+ * 	On each update only the pairs in these lists are passed to the <code>Interactor</code>.
+ * 	The lists stay valid until some being has moved more than half the skin distance since they
+ * 	were built (two beings can then have closed the skin between them), or the groups' membership
+ * 	has changed, so on most updates no neighbor search is done at all.
+ * <p>
+ * <code>cutoff</code> must be the largest distance between two beings' positions at which they can interact,
+ * 	e.g. the <code>maxRange</code> of an <code>InverseSquareInteractor</code>, or the sum of the largest
+ * 	shape radii for a <code>Collider</code>. A larger skin means fewer rebuilds but more pairs to check per update.
+ * <p>
+ * If both groups are the same, each pair is checked only once, as in <code>SelfInteractionOptimizer</code>,
+ * 	so the interaction should be commutative.
+ *
+ * @param <A>	the type of Being in the first group
+ * @param <B>	the type of Being in the second group
+ */
+public class NeighborListOptimizer<A extends Being, B extends Being>
+				implements Optimizer<A, B, GenericGroup<A,?>, GenericGroup<B,?>> {
+
+	private float _cutoff;		// the interaction range
+	private float _skin;		// extra range the lists are built with
+
+	private GenericGroup<?,?> _group1, _group2;	// the groups the lists were built for
+
+	// the members of each group and their positions when the lists were built
+	private Object[] _beings1 = new Object[0], _beings2 = new Object[0];
+	private float[] _x1 = new float[0], _y1 = new float[0];
+	private float[] _x2 = new float[0], _y2 = new float[0];
+	private int _count1, _count2;
+
+	// the neighbor lists, neighbors of being i are _neighbors[_start[i]] to _neighbors[_start[i+1] - 1]
+	private int[] _start = new int[1];
+	private int[] _neighbors = new int[0];
+
+	// spatial hash of the second group, used while building
+	private int[] _cellX = new int[0], _cellY = new int[0];
+	private int[] _head = new int[0], _next = new int[0];
+
+	private int _rebuilds = 0;	// number of times the lists have been built
+
+	/**
+	 * Creates a neighbor list optimizer.
+	 * @param cutoff	the largest distance between positions at which beings can interact
+	 * @param skin		the extra distance included in the lists
+	 */
+	public NeighborListOptimizer(float cutoff, float skin) {
+		assert cutoff > 0 : "NeighborListOptimizer constructor: cutoff must be positive";
+		assert skin > 0 : "NeighborListOptimizer constructor: skin must be positive";
+
+		_cutoff = cutoff;
+		_skin = skin;
+	}
+
+	/**
+	 * @return	the interaction range
+	 */
+	public float getCutoff() {
+		return _cutoff;
+	}
+
+	/**
+	 * @return	the extra distance included in the neighbor lists
+	 */
+	public float getSkin() {
+		return _skin;
+	}
+
+	/**
+	 * @return	the number of times the neighbor lists have been built
+	 */
+	public int getRebuilds() {
+		return _rebuilds;
+	}
+
+	/**
+	 * Forces the neighbor lists to be rebuilt on the next update.
+	 * Use this if beings have been teleported while the lists may not notice, ie by more than
+	 * 	half the skin and back again.
+	 */
+	public void invalidate() {
+		_group1 = _group2 = null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public void detect(GenericGroup<A,?> group1, GenericGroup<B,?> group2, InteractionHandler<A,B> handler) {
+		boolean self = group1 == group2;
+		if(needsRebuild(group1, group2))
+			rebuild(group1, group2);
+
+		for(int i = 0; i < _count1; i++) {
+			A being1 = (A)_beings1[i];
+			for(int n = _start[i]; n < _start[i + 1]; n++) {
+				handler.interactionHandler(being1, (B)(self ? _beings1[_neighbors[n]] : _beings2[_neighbors[n]]));
+			}
+		}
+	}
+
+	/**
+	 * Checks if the groups have changed or a being has moved more than half the skin.
+	 */
+	private boolean needsRebuild(GenericGroup<A,?> group1, GenericGroup<B,?> group2) {
+		if(group1 != _group1 || group2 != _group2)
+			return true;
+		float limit = _skin * _skin / 4;
+		return moved(group1, _beings1, _x1, _y1, _count1, limit)
+				|| (group1 != group2 && moved(group2, _beings2, _x2, _y2, _count2, limit));
+	}
+
+	private static boolean moved(GenericGroup<?,?> group, Object[] beings, float[] x, float[] y, int count, float limit) {
+		if(group.size() != count)
+			return true;
+		int i = 0;
+		for(Iterator<? extends HObject> iter = group.iterator(); iter.hasNext(); i++) {
+			Being being = (Being)iter.next();
+			if(being != beings[i])
+				return true;
+			PVector position = being.getPosition();
+			float dx = position.x - x[i];
+			float dy = position.y - y[i];
+			if(dx * dx + dy * dy > limit)
+				return true;
+		}
+		return false;
+	}
+
+	private void rebuild(GenericGroup<A,?> group1, GenericGroup<B,?> group2) {
+		boolean self = group1 == group2;
+		_group1 = group1;
+		_group2 = group2;
+		_rebuilds++;
+
+		// record the members and their positions
+		_count1 = group1.size();
+		if(_beings1.length < _count1) {
+			_beings1 = new Object[_count1];
+			_x1 = new float[_count1];
+			_y1 = new float[_count1];
+		}
+		snapshot(group1, _beings1, _x1, _y1);
+		float[] x2 = _x1, y2 = _y1;
+		_count2 = _count1;
+		if(!self) {
+			_count2 = group2.size();
+			if(_beings2.length < _count2) {
+				_beings2 = new Object[_count2];
+				_x2 = new float[_count2];
+				_y2 = new float[_count2];
+			}
+			snapshot(group2, _beings2, _x2, _y2);
+			x2 = _x2;
+			y2 = _y2;
+		}
+
+		// hash the second group into cells of size cutoff + skin
+		float range = _cutoff + _skin;
+		float inverse = 1 / range;
+		int tableSize = Integer.highestOneBit(Math.max(_count2, 1) * 2);
+		if(_head.length < tableSize)
+			_head = new int[tableSize];
+		if(_next.length < _count2) {
+			_next = new int[_count2];
+			_cellX = new int[_count2];
+			_cellY = new int[_count2];
+		}
+		int mask = tableSize - 1;
+		for(int i = 0; i < tableSize; i++)
+			_head[i] = -1;
+		for(int j = 0; j < _count2; j++) {
+			int cx = (int)Math.floor(x2[j] * inverse);
+			int cy = (int)Math.floor(y2[j] * inverse);
+			int h = hash(cx, cy) & mask;
+			_cellX[j] = cx;
+			_cellY[j] = cy;
+			_next[j] = _head[h];
+			_head[h] = j;
+		}
+
+		// search the neighboring cells of every being in the first group
+		if(_start.length < _count1 + 1)
+			_start = new int[_count1 + 1];
+		float range2 = range * range;
+		int count = 0;
+		for(int i = 0; i < _count1; i++) {
+			_start[i] = count;
+			float x = _x1[i], y = _y1[i];
+			int cx = (int)Math.floor(x * inverse);
+			int cy = (int)Math.floor(y * inverse);
+			for(int ox = cx - 1; ox <= cx + 1; ox++) {
+				for(int oy = cy - 1; oy <= cy + 1; oy++) {
+					for(int j = _head[hash(ox, oy) & mask]; j != -1; j = _next[j]) {
+						if(_cellX[j] != ox || _cellY[j] != oy || (self && j <= i))
+							continue;
+						float dx = x2[j] - x, dy = y2[j] - y;
+						if(dx * dx + dy * dy > range2)
+							continue;
+						if(count == _neighbors.length) {
+							int[] neighbors = new int[Math.max(16, count * 2)];
+							System.arraycopy(_neighbors, 0, neighbors, 0, count);
+							_neighbors = neighbors;
+						}
+						_neighbors[count++] = j;
+					}
+				}
+			}
+		}
+		_start[_count1] = count;
+	}
+
+	private static void snapshot(GenericGroup<?,?> group, Object[] beings, float[] x, float[] y) {
+		int i = 0;
+		for(Iterator<? extends HObject> iter = group.iterator(); iter.hasNext(); i++) {
+			Being being = (Being)iter.next();
+			beings[i] = being;
+			x[i] = being.getX();
+			y[i] = being.getY();
+		}
+	}
+
+	private static int hash(int cx, int cy) {
+		int h = cx * 0x9E3779B1 + cy * 0x85EBCA77;
+		return h ^ (h >>> 15);
+	}
+
+}
@@ -0,0 +1,18 @@
+package hermes;
+
+/**
+ * Receives the beings hit by a ray cast with <code>World.raycast</code>, nearest first.
+ * <p>
+ * Visitors are called while the query is running, so they should not make another query on the same World.
+ */
+public interface RayVisitor {
+
+	/**
+	 * Called for each being hit, in order of distance along the ray.
+	 * @param being		the being hit
+	 * @param distance	the distance along the ray to where the ray first hits the being's shape
+	 * @return			true to keep following the ray, false to stop
+	 */
+	public boolean visit(Being being, float distance);
+
+}
@@ -0,0 +1,436 @@
+package hermes;
+
+import hermes.hshape.HRectangle;
+import hermes.hshape.HShape;
+
+import processing.core.PVector;
+
+/**
+ * A hashed grid of beings' bounding boxes, recorded when the index is built.
+ * Each being is stored in every cell its box overlaps.
+ * <p>
+ * Internal -- used by <code>World</code>'s queries and <code>StaticIndexOptimizer</code>.
+ * 	Besides box queries, it finds the beings nearest a point by searching rings of cells outwards,
+ * 	and follows rays through the grid cell by cell.
+ * 	Building allocates only when the index grows; queries never allocate.
+ */
+class SpatialIndex {
+
+	private float _cellSize;
+
+	// the beings and their bounding boxes (minX minY maxX maxY) when added
+	private Being[] _beings = new Being[0];
+	private float[] _boxes = new float[0];
+	private int _count = 0;
+	private float _minX, _minY, _maxX, _maxY;	// bounds of all boxes
+
+	// open addressing table from cell to its run of being indices in _items
+	private long[] _keys = new long[0];
+	private int[] _start = new int[0], _cellCount = new int[0];
+	private boolean[] _used = new boolean[0];
+	private int[] _items = new int[0];
+
+	// query results (with squared distances or hit distances, for nearest and raycast),
+	// and the query each being was last found by (to skip duplicates)
+	private int[] _results = new int[0];
+	private float[] _distances = new float[0];
+	private int _found;
+	private int[] _seen = new int[0];
+	private int _query = 0;
+
+	SpatialIndex(float cellSize) {
+		assert cellSize > 0 : "SpatialIndex constructor: cellSize must be positive";
+
+		_cellSize = cellSize;
+	}
+
+	float getCellSize() {
+		return _cellSize;
+	}
+
+	/**
+	 * Sets the cell size, taking effect on the next build.
+	 */
+	void setCellSize(float cellSize) {
+		assert cellSize > 0 : "SpatialIndex.setCellSize: cellSize must be positive";
+
+		_cellSize = cellSize;
+	}
+
+	/**
+	 * Removes all beings, ready for them to be added again.
+	 */
+	void clear() {
+		for(int i = 0; i < _count; i++)
+			_beings[i] = null;
+		_count = 0;
+		_minX = _minY = Float.POSITIVE_INFINITY;
+		_maxX = _maxY = Float.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Records a being and its current bounding box. It can be found once <code>build</code> has been called.
+	 */
+	void add(Being being) {
+		if(_count == _beings.length) {
+			int capacity = Math.max(16, _count * 2);
+			Being[] beings = new Being[capacity];
+			System.arraycopy(_beings, 0, beings, 0, _count);
+			_beings = beings;
+			float[] boxes = new float[4 * capacity];
+			System.arraycopy(_boxes, 0, boxes, 0, 4 * _count);
+			_boxes = boxes;
+			_results = new int[capacity];
+			_distances = new float[capacity];
+			_seen = new int[capacity];
+			_query = 0;
+		}
+		HRectangle box = being.getBoundingBox();
+		PVector min = box.getAbsMin(), max = box.getAbsMax();
+		int b = 4 * _count;
+		_boxes[b] = min.x;
+		_boxes[b + 1] = min.y;
+		_boxes[b + 2] = max.x;
+		_boxes[b + 3] = max.y;
+		_minX = Math.min(_minX, min.x);
+		_minY = Math.min(_minY, min.y);
+		_maxX = Math.max(_maxX, max.x);
+		_maxY = Math.max(_maxY, max.y);
+		_beings[_count++] = being;
+	}
+
+	/**
+	 * Builds the grid over the beings added since the last <code>clear</code>.
+	 */
+	void build() {
+		int cells = 0;
+		for(int i = 0; i < _count; i++) {
+			int b = 4 * i;
+			cells += (cell(_boxes[b + 2]) - cell(_boxes[b]) + 1) * (cell(_boxes[b + 3]) - cell(_boxes[b + 1]) + 1);
+		}
+		int tableSize = Integer.highestOneBit(Math.max(cells, 1) * 4 - 1);
+		if(_keys.length < tableSize) {
+			_keys = new long[tableSize];
+			_start = new int[tableSize];
+			_cellCount = new int[tableSize];
+			_used = new boolean[tableSize];
+		} else {
+			tableSize = _keys.length;
+		}
+		for(int i = 0; i < tableSize; i++) {
+			_used[i] = false;
+			_cellCount[i] = 0;
+		}
+		// count the beings in each cell
+		for(int i = 0; i < _count; i++) {
+			int b = 4 * i;
+			for(int cx = cell(_boxes[b]); cx <= cell(_boxes[b + 2]); cx++) {
+				for(int cy = cell(_boxes[b + 1]); cy <= cell(_boxes[b + 3]); cy++) {
+					_cellCount[slot(cx, cy, true)]++;
+				}
+			}
+		}
+		// lay out the runs, then fill them
+		int total = 0;
+		for(int i = 0; i < tableSize; i++) {
+			_start[i] = total;
+			total += _cellCount[i];
+			_cellCount[i] = 0;
+		}
+		if(_items.length < total)
+			_items = new int[total];
+		for(int i = 0; i < _count; i++) {
+			int b = 4 * i;
+			for(int cx = cell(_boxes[b]); cx <= cell(_boxes[b + 2]); cx++) {
+				for(int cy = cell(_boxes[b + 1]); cy <= cell(_boxes[b + 3]); cy++) {
+					int slot = slot(cx, cy, false);
+					_items[_start[slot] + _cellCount[slot]++] = i;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return	the number of beings in the index
+	 */
+	int size() {
+		return _count;
+	}
+
+	Being get(int index) {
+		return _beings[index];
+	}
+
+	float getMinX(int index) {
+		return _boxes[4 * index];
+	}
+
+	float getMinY(int index) {
+		return _boxes[4 * index + 1];
+	}
+
+	float getMaxX(int index) {
+		return _boxes[4 * index + 2];
+	}
+
+	float getMaxY(int index) {
+		return _boxes[4 * index + 3];
+	}
+
+	/**
+	 * @return	bounds of all the boxes in the index
+	 */
+	float getMinX() {
+		return _minX;
+	}
+
+	float getMinY() {
+		return _minY;
+	}
+
+	float getMaxX() {
+		return _maxX;
+	}
+
+	float getMaxY() {
+		return _maxY;
+	}
+
+	/**
+	 * Finds the beings whose boxes overlap the given box.
+	 * The indices found are given by <code>getResult</code>, until the next query.
+	 * @return	the number of beings found
+	 */
+	int query(float minX, float minY, float maxX, float maxY) {
+		_found = 0;
+		if(_count == 0 || minX > _maxX || maxX < _minX || minY > _maxY || maxY < _minY)
+			return 0;
+		// don't walk cells outside the index
+		minX = Math.max(minX, _minX);
+		minY = Math.max(minY, _minY);
+		maxX = Math.min(maxX, _maxX);
+		maxY = Math.min(maxY, _maxY);
+		nextQuery();
+		for(int cx = cell(minX); cx <= cell(maxX); cx++) {
+			for(int cy = cell(minY); cy <= cell(maxY); cy++) {
+				int slot = slot(cx, cy, false);
+				if(slot < 0)
+					continue;
+				for(int i = _start[slot]; i < _start[slot] + _cellCount[slot]; i++) {
+					int index = _items[i];
+					int b = 4 * index;
+					if(_seen[index] == _query || _boxes[b] > maxX || _boxes[b + 2] < minX
+							|| _boxes[b + 1] > maxY || _boxes[b + 3] < minY)
+						continue;
+					_seen[index] = _query;
+					_results[_found++] = index;
+				}
+			}
+		}
+		return _found;
+	}
+
+	/**
+	 * Finds the beings stored in a single cell that have not been found since <code>nextQuery</code> was called.
+	 * For walking cells in a custom order, the indices found are given by <code>getResult</code>.
+	 * @return	the number of beings found
+	 */
+	int queryCell(int cx, int cy) {
+		_found = 0;
+		int slot = slot(cx, cy, false);
+		if(slot < 0)
+			return 0;
+		for(int i = _start[slot]; i < _start[slot] + _cellCount[slot]; i++) {
+			int index = _items[i];
+			if(_seen[index] == _query)
+				continue;
+			_seen[index] = _query;
+			_results[_found++] = index;
+		}
+		return _found;
+	}
+
+	/**
+	 * Starts a new query, so beings found before can be found again by <code>queryCell</code>.
+	 */
+	void nextQuery() {
+		if(++_query == 0) {	// wrapped around, clear the stamps
+			for(int i = 0; i < _seen.length; i++)
+				_seen[i] = 0;
+			_query = 1;
+		}
+	}
+
+	/**
+	 * Finds the k beings whose bounding boxes (when added) are nearest the given point, measured to the nearest
+	 * 	point of each box, so it is 0 for every box containing the point.
+	 * The indices found are given by <code>getResult</code> in order of distance, until the next query.
+	 * @return	the number of beings found, which is k unless the index has fewer beings
+	 */
+	int nearest(float x, float y, int k) {
+		_found = 0;
+		if(_count == 0 || k <= 0)
+			return 0;
+		k = Math.min(k, _count);
+		nextQuery();
+		int cx = cell(x), cy = cell(y);
+		int minCX = cell(_minX), minCY = cell(_minY), maxCX = cell(_maxX), maxCY = cell(_maxY);
+		// rings that lie entirely outside the index are skipped
+		int first = Math.max(0, Math.max(Math.max(minCX - cx, cx - maxCX), Math.max(minCY - cy, cy - maxCY)));
+		int last = Math.max(Math.max(cx - minCX, maxCX - cx), Math.max(cy - minCY, maxCY - cy));
+		for(int ring = first; ring <= last; ring++) {
+			for(int ox = Math.max(cx - ring, minCX); ox <= Math.min(cx + ring, maxCX); ox++) {
+				// whole columns at the ring's sides, only the top and bottom cells in between
+				boolean side = ox == cx - ring || ox == cx + ring;
+				for(int oy = cy - ring; oy <= cy + ring; oy += side ? 1 : 2 * ring) {
+					if(oy >= minCY && oy <= maxCY)
+						nearestInCell(ox, oy, x, y, k);
+				}
+			}
+			// any being not found yet has its box outside the rings searched, at least ring cells away
+			float searched = ring * _cellSize;
+			if(_found == k && _distances[k - 1] <= searched * searched)
+				break;
+		}
+		return _found;
+	}
+
+	/**
+	 * Adds the beings in a cell to the k nearest found so far, kept sorted by squared distance.
+	 */
+	private void nearestInCell(int cx, int cy, float x, float y, int k) {
+		int slot = slot(cx, cy, false);
+		if(slot < 0)
+			return;
+		for(int i = _start[slot]; i < _start[slot] + _cellCount[slot]; i++) {
+			int index = _items[i];
+			if(_seen[index] == _query)
+				continue;
+			_seen[index] = _query;
+			int b = 4 * index;
+			float dx = Math.max(Math.max(_boxes[b] - x, x - _boxes[b + 2]), 0);
+			float dy = Math.max(Math.max(_boxes[b + 1] - y, y - _boxes[b + 3]), 0);
+			float distance = dx * dx + dy * dy;
+			if(_found == k && distance >= _distances[k - 1])
+				continue;
+			int j = _found < k ? _found++ : k - 1;
+			for(; j > 0 && _distances[j - 1] > distance; j--) {
+				_distances[j] = _distances[j - 1];
+				_results[j] = _results[j - 1];
+			}
+			_distances[j] = distance;
+			_results[j] = index;
+		}
+	}
+
+	/**
+	 * Follows a ray through the grid, passing the beings whose shapes it hits to the visitor in order of distance.
+	 * Each cell's beings are tested with <code>HShape.raycast</code> as the ray enters it, and hits are held
+	 * 	back until the ray has left every cell a nearer, untested being could be in.
+	 * @param dirX			x component of the ray's direction, which must have unit length
+	 * @param dirY			y component of the ray's direction
+	 * @param maxDistance	how far along the ray to look
+	 */
+	void raycast(float x, float y, float dirX, float dirY, float maxDistance, RayVisitor visitor) {
+		_found = 0;
+		if(_count == 0)
+			return;
+		// start where the ray enters the index
+		float t = HShape.raycastBox(_minX, _minY, _maxX, _maxY, x, y, dirX, dirY, maxDistance);
+		if(t < 0)
+			return;
+		nextQuery();
+		int minCX = cell(_minX), minCY = cell(_minY), maxCX = cell(_maxX), maxCY = cell(_maxY);
+		float startX = x + dirX * t, startY = y + dirY * t;
+		int cx = Math.min(Math.max(cell(startX), minCX), maxCX);
+		int cy = Math.min(Math.max(cell(startY), minCY), maxCY);
+		int stepX = dirX > 0 ? 1 : -1, stepY = dirY > 0 ? 1 : -1;
+		// distance along the ray to the next column and row boundaries, and between boundaries
+		float deltaX = dirX == 0 ? Float.POSITIVE_INFINITY : Math.abs(_cellSize / dirX);
+		float deltaY = dirY == 0 ? Float.POSITIVE_INFINITY : Math.abs(_cellSize / dirY);
+		float nextX = dirX == 0 ? Float.POSITIVE_INFINITY : t + ((cx + (dirX > 0 ? 1 : 0)) * _cellSize - startX) / dirX;
+		float nextY = dirY == 0 ? Float.POSITIVE_INFINITY : t + ((cy + (dirY > 0 ? 1 : 0)) * _cellSize - startY) / dirY;
+
+		int visited = 0;	// hits already passed to the visitor; the rest are sorted by distance
+		while(true) {
+			int slot = slot(cx, cy, false);
+			if(slot >= 0) {
+				for(int i = _start[slot]; i < _start[slot] + _cellCount[slot]; i++) {
+					int index = _items[i];
+					if(_seen[index] == _query)
+						continue;
+					_seen[index] = _query;
+					float hit = _beings[index].getShape().raycast(x, y, dirX, dirY, maxDistance);
+					if(hit < 0)
+						continue;
+					int j = _found++;
+					for(; j > visited && _distances[j - 1] > hit; j--) {
+						_distances[j] = _distances[j - 1];
+						_results[j] = _results[j - 1];
+					}
+					_distances[j] = hit;
+					_results[j] = index;
+				}
+			}
+			// beings not tested yet are only in cells further along, so nearer hits are final
+			float exit = Math.min(nextX, nextY);
+			for(; visited < _found && _distances[visited] <= exit; visited++) {
+				if(!visitor.visit(_beings[_results[visited]], _distances[visited]))
+					return;
+			}
+			if(exit > maxDistance)
+				break;
+			if(nextX < nextY) {
+				nextX += deltaX;
+				cx += stepX;
+				if(cx < minCX || cx > maxCX)
+					break;
+			} else {
+				nextY += deltaY;
+				cy += stepY;
+				if(cy < minCY || cy > maxCY)
+					break;
+			}
+		}
+		for(; visited < _found; visited++) {
+			if(!visitor.visit(_beings[_results[visited]], _distances[visited]))
+				return;
+		}
+	}
+
+	/**
+	 * @param i		which result, less than the number found by the last query
+	 * @return		the index of the being
+	 */
+	int getResult(int i) {
+		return _results[i];
+	}
+
+	int cell(float coordinate) {
+		return (int)Math.floor(coordinate / _cellSize);
+	}
+
+	/**
+	 * Finds the table slot for a cell, optionally inserting it.
+	 * @return	the slot, or -1 if the cell is not in the table and insert is false
+	 */
+	private int slot(int cx, int cy, boolean insert) {
+		if(_keys.length == 0)
+			return -1;
+		long key = ((long)cx << 32) | (cy & 0xFFFFFFFFL);
+		int mask = _keys.length - 1;
+		long h = key * 0x9E3779B97F4A7C15L;
+		int slot = (int)(h ^ (h >>> 32)) & mask;
+		while(_used[slot]) {
+			if(_keys[slot] == key)
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+		if(!insert)
+			return -1;
+		_used[slot] = true;
+		_keys[slot] = key;
+		return slot;
+	}
+
+}
@@ -0,0 +1,180 @@
+package hermes;
+
+import hermes.hshape.HRectangle;
+
+import java.util.Iterator;
+
+import processing.core.PVector;
+
+/**
+ * An <code>Optimizer</code> for interactions involving static beings, such as level geometry.
+ * <p>
+ * The static members of each group are put in a grid of cells (each being in every cell its bounding
+ * 	box overlaps), built once and only rebuilt when a group's membership or static flags change.
+ * 	On each update, dynamic beings are checked only against the static beings in the cells they overlap,
+ * 	dynamic beings are checked against each other directly, and pairs of static beings are skipped.
+ * <p>
+ * Static beings are assumed not to move. If one is moved, call <code>invalidate</code>.
+ * 	The cell size should be around the size of a typical static being.
+ * <p>
+ * A dynamic being is only paired with the static beings whose bounding boxes come within the margin
+ * 	of its own. With no margin, that is those it overlaps, which suits collisions. For interactions with
+ * 	a range, such as attraction towards static bodies, give the range as the margin, or pairs farther
+ * 	apart than the boxes will be missed.
+ * <p>
+ * If both groups are the same, each pair is checked only once, as in <code>SelfInteractionOptimizer</code>,
+ * 	so the interaction should be commutative.
+ *
+ * @param <A>	the type of Being in the first group
+ * @param <B>	the type of Being in the second group
+ */
+public class StaticIndexOptimizer<A extends Being, B extends Being>
+				implements Optimizer<A, B, GenericGroup<A,?>, GenericGroup<B,?>> {
+
+	private float _cellSize;
+	private float _margin;			// how far beyond a dynamic being's box to look for static beings
+	private Index _index1, _index2;	// static index of each group
+
+	/**
+	 * Creates an optimizer with a static index using the given cell size, for interactions between
+	 * 	overlapping beings.
+	 * @param cellSize	the width and height of the index's cells
+	 */
+	public StaticIndexOptimizer(float cellSize) {
+		this(cellSize, 0);
+	}
+
+	/**
+	 * Creates an optimizer with a static index using the given cell size, that pairs dynamic beings with
+	 * 	the static beings up to a margin away.
+	 * @param cellSize	the width and height of the index's cells
+	 * @param margin	the range of the interaction, how far apart the beings' bounding boxes can be
+	 */
+	public StaticIndexOptimizer(float cellSize, float margin) {
+		assert cellSize > 0 : "StaticIndexOptimizer constructor: cellSize must be positive";
+		assert margin >= 0 : "StaticIndexOptimizer constructor: margin must not be negative";
+
+		_cellSize = cellSize;
+		_margin = margin;
+		_index1 = new Index();
+		_index2 = new Index();
+	}
+
+	/**
+	 * @return	the width and height of the index's cells
+	 */
+	public float getCellSize() {
+		return _cellSize;
+	}
+
+	/**
+	 * @return	how far apart the bounding boxes of paired dynamic and static beings can be
+	 */
+	public float getMargin() {
+		return _margin;
+	}
+
+	/**
+	 * Forces the static index to be rebuilt on the next update.
+	 * Use this if a static being has been moved.
+	 */
+	public void invalidate() {
+		_index1.group = _index2.group = null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public void detect(GenericGroup<A,?> group1, GenericGroup<B,?> group2, InteractionHandler<A,B> handler) {
+		boolean self = group1 == group2;
+		_index1.update(group1);
+		if(!self)
+			_index2.update(group2);
+		Index index2 = self ? _index1 : _index2;
+
+		// dynamic beings in group1 against the static beings of group2
+		for(int i = 0; i < _index1.dynamicCount; i++) {
+			A being1 = (A)_index1.dynamic[i];
+			int found = index2.query(being1.getBoundingBox());
+			for(int c = 0; c < found; c++) {
+				handler.interactionHandler(being1, (B)index2.statics.get(index2.statics.getResult(c)));
+			}
+		}
+		if(self) {
+			// dynamic beings against each other, once per pair
+			for(int i = 0; i < _index1.dynamicCount - 1; i++) {
+				A being1 = (A)_index1.dynamic[i];
+				for(int j = i + 1; j < _index1.dynamicCount; j++) {
+					handler.interactionHandler(being1, (B)_index1.dynamic[j]);
+				}
+			}
+			return;
+		}
+		// static beings in group1 against dynamic beings of group2
+		for(int j = 0; j < _index2.dynamicCount; j++) {
+			B being2 = (B)_index2.dynamic[j];
+			int found = _index1.query(being2.getBoundingBox());
+			for(int c = 0; c < found; c++) {
+				handler.interactionHandler((A)_index1.statics.get(_index1.statics.getResult(c)), being2);
+			}
+		}
+		// dynamic beings against each other
+		for(int i = 0; i < _index1.dynamicCount; i++) {
+			A being1 = (A)_index1.dynamic[i];
+			for(int j = 0; j < _index2.dynamicCount; j++) {
+				handler.interactionHandler(being1, (B)_index2.dynamic[j]);
+			}
+		}
+	}
+
+	/**
+	 * The static members of a group in a spatial index, and a list of its dynamic members.
+	 */
+	private class Index {
+
+		GenericGroup<?,?> group;	// the group indexed
+		int modifications;			// the group's modification count when indexed
+
+		Object[] dynamic = new Object[0];
+		int dynamicCount;
+
+		SpatialIndex statics = new SpatialIndex(_cellSize);
+
+		/**
+		 * Rebuilds the index if the group has changed.
+		 */
+		void update(GenericGroup<?,?> group) {
+			if(group == this.group && group.getModifications() == modifications) {
+				return;
+			}
+			this.group = group;
+			modifications = group.getModifications();
+
+			// split the group into static and dynamic members
+			int size = group.size();
+			if(dynamic.length < size)
+				dynamic = new Object[size];
+			for(int i = 0; i < dynamicCount; i++)	// don't hold on to removed beings
+				dynamic[i] = null;
+			dynamicCount = 0;
+			statics.clear();
+			for(Iterator<? extends HObject> iter = group.iterator(); iter.hasNext(); ) {
+				Being being = (Being)iter.next();
+				if(being.isStatic())
+					statics.add(being);
+				else
+					dynamic[dynamicCount++] = being;
+			}
+			statics.build();
+		}
+
+		/**
+		 * Finds the static beings whose boxes come within the margin of the given box.
+		 * @return	the number found, given by <code>statics.getResult</code>
+		 */
+		int query(HRectangle box) {
+			PVector min = box.getAbsMin(), max = box.getAbsMax();
+			return statics.query(min.x - _margin, min.y - _margin, max.x + _margin, max.y + _margin);
+		}
+
+	}
+
+}
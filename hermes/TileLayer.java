@@ -0,0 +1,36 @@
+package hermes;
+
+import hermes.hshape.HTileMap;
+
+/**
+ * A static <code>Being</code> whose shape is an <code>HTileMap</code>, for building levels out of a grid of tiles.
+ * <p>
+ * A whole level can be a single <code>TileLayer</code> rather than one <code>Being</code> per platform,
+ * 	so an interaction with it is a single check that only looks at the tiles near the other being.
+ * 	Override <code>draw</code> to draw the tiles with images; by default solid tiles are drawn as rectangles.
+ */
+public class TileLayer extends Being {
+
+	/**
+	 * Creates a tile layer with the given map. The layer is static, so it is never checked against other
+	 * 	static objects, and <code>StaticIndexOptimizer</code> indexes it once.
+	 * @param map	the tile map, its position is the layer's position
+	 */
+	public TileLayer(HTileMap map) {
+		super(map);
+		setStatic(true);
+	}
+
+	/**
+	 * @return	the layer's tile map
+	 */
+	public HTileMap getTileMap() {
+		return (HTileMap)getShape();
+	}
+
+	@Override
+	public void draw() {
+		getShape().draw();
+	}
+
+}
@@ -1,17 +1,24 @@
 package hermes;
 
 import hermes.hshape.HShape;
+import hermes.postoffice.EventSubscriber;
 import hermes.postoffice.KeySubscriber;
+import hermes.postoffice.Message;
 import hermes.postoffice.MouseSubscriber;
 import hermes.postoffice.MouseWheelSubscriber;
 import hermes.postoffice.OscSubscriber;
 import hermes.postoffice.POCodes;
 import hermes.postoffice.PostOffice;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Collection;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.management.ObjectName;
 
 
 
@@ -54,6 +61,23 @@ public class World extends Thread {
 	private LinkedList<GenericGroup<?,?>> _groupsToUpdate; //used to hold all the being groups to be updated individually
 	
 	private long _updateLength = 0;
+	private volatile long _simulatedTime = 0; // nanoseconds simulated, when Hermes has a time step
+	private volatile boolean _wakeOnInput = false; // whether input is delivered while waiting for the next update
+	
+	private Integrator _integrator; // the default integrator for beings in the world, null for Euler integration
+	
+	// spatial index over the registered beings, used by the queries
+	private SpatialIndex _index = new SpatialIndex(50);
+	private boolean _indexStale = true;		// whether beings may have moved since the index was built
+	private boolean _querying = false;		// whether a query is running (its visitor is being called)
+	private FirstHit _firstHit = new FirstHit();	// reused by the single result raycast
+	
+	// statistics about each update, or null when they aren't kept
+	private volatile WorldStats _stats = null;
+	private ObjectName _statsName = null;	// the name the statistics are registered with JMX under
+	
+	// records updates for Flight Recorder, or null if it isn't available
+	private static final WorldRecorder RECORDER = loadRecorder();
 	
 	/**
 	 * Instantiates the world with a PostOffice to handle I/O and a Camera to handle drawing.
@@ -195,6 +219,18 @@ public class World extends Thread {
 	 * Resolves the add, remove, and delete queues, in that order.
 	 */
 	public void resolveGroupQueues() {
+		WorldStats stats = _stats;
+		if(stats != null)
+			stats.count(WorldStats.Metric.QUEUED_CHANGES, _addQueue.size() + _removeQueue.size() + _removeFromAllGroupsQueue.size());
+		WorldRecorder recorder = recorder();
+		Object resolve = null;
+		int added = 0, removed = 0, deleted = 0;
+		if(recorder != null) {
+			resolve = recorder.beginResolve();
+			added = _addQueue.size();
+			removed = _removeQueue.size();
+			deleted = _removeFromAllGroupsQueue.size();
+		}
 		// resolve the add queue first
 		for(Iterator<Pair<HObject,GenericGroup<?,?>>> iter = _addQueue.iterator(); iter.hasNext(); ) {
 			Pair<HObject,GenericGroup<?,?>> pair = iter.next();
@@ -219,6 +255,8 @@ public class World extends Thread {
 			iter.remove(); // remove from the queue
       */
 		}
+		if(recorder != null)
+			recorder.endResolve(resolve, added, removed, deleted);
 	}
 	
 	/**
@@ -357,6 +395,33 @@ public class World extends Thread {
 		_postOffice.subscribe(sub, address);
 	}
 
+	/**
+	 * Registers a subscription to a type of event posted with <code>post</code>.
+	 * @param sub	the EventSubscriber signing up
+	 * @param type	the class of the events the subscriber wants
+	 */
+	public <E extends Message> void subscribe(EventSubscriber<? super E> sub, Class<E> type) {
+		_postOffice.subscribe(sub, type);
+	}
+
+	/**
+	 * Gets an event to fill in and post, reusing one that has been delivered if possible.
+	 * @param type	the class of event, which must have a public constructor with no arguments
+	 * @return		the event
+	 */
+	public <E extends Message> E obtainEvent(Class<E> type) {
+		return _postOffice.obtainEvent(type);
+	}
+
+	/**
+	 * Posts an event, to be delivered to the subscribers to its type at the start of the next update.
+	 * Must be called from the World's thread.
+	 * @param event	the event, usually from <code>obtainEvent</code>
+	 */
+	public void post(Message event) {
+		_postOffice.post(event);
+	}
+
 	/**
 	 * DO NOT CALL THIS METHOD. <br>
 	 * This starts the update loop, but this should be done by calling <code>World.start</code> 
@@ -402,26 +467,47 @@ public class World extends Thread {
 	public void update() {
 
 		long time = System.currentTimeMillis();
+		World outer = Hermes.setUpdating(this); // so beings move by this World's simulated time
+		_indexStale = true;
+		WorldStats stats = _stats;
+		long start = stats == null ? 0 : System.nanoTime();
+		long mark = start; // when the current phase started
+		WorldRecorder recorder = recorder();
+		Object update = recorder == null ? null : recorder.beginUpdate();
+		int rounds = 0; // multisample rounds
 		
 		// 1. handle the message queue from the post office if post office is defined
 		_postOffice.checkMail();
+		if(stats != null)
+			mark = stats.time(WorldStats.Metric.CHECK_MAIL, mark);
 		
 		// 3. go through the registered groups and update them
 		for(Iterator<GenericGroup<?,?>> iter = _groupsToUpdate.iterator(); iter.hasNext(); ) {
 			GenericGroup group = iter.next();
 			group.update();
 		}
+		if(stats != null)
+			mark = stats.time(WorldStats.Metric.GROUP_UPDATE, mark);
 		
 		resolveGroupQueues();
+		if(stats != null)
+			mark = stats.time(WorldStats.Metric.RESOLVE_QUEUES, mark);
 		
 		// 4. apply being updates
 		List<Being> unresolvedUpdates = updateHelper(_updateGroup.getObjects());
+		if(stats != null)
+			mark = stats.time(WorldStats.Metric.BEING_UPDATE, mark);
 		
 		// 2. go through the registered interactions in order
 		LinkedList<DetectedInteraction> detectedInteractionsQ = new LinkedList<DetectedInteraction>();
+		// when recording, the interactions that deferred pairs and how many, in the order they were queued
+		List<Interaction> deferredBy = recorder == null ? null : new ArrayList<Interaction>();
+		List<Integer> deferredCounts = recorder == null ? null : new ArrayList<Integer>();
 		for(Iterator<Interaction> iter = _interactions.iterator(); iter.hasNext(); ) {
 			Interaction interaction = iter.next();
-			InteractionHandler handler = new InteractionHandler(interaction, detectedInteractionsQ);
+			InteractionHandler handler = makeHandler(interaction, detectedInteractionsQ, stats != null || recorder != null);
+			Object detect = recorder == null ? null : recorder.beginDetect();
+			int queued = detectedInteractionsQ.size();
 			
 			if(interaction.getA().equals(_cameraGroup)) {
 				_camera.collisionsReset();
@@ -446,19 +532,37 @@ public class World extends Thread {
 			if(interaction.getA().equals(_cameraGroup)) {
 				_camera.collisionsComplete();
 			}
+			if(stats != null)
+				countPairs(stats, handler);
+			if(recorder != null) {
+				recordDetect(recorder, detect, interaction, A.size(), B.size(), handler);
+				if(detectedInteractionsQ.size() > queued) {
+					deferredBy.add(interaction);
+					deferredCounts.add(detectedInteractionsQ.size() - queued);
+				}
+			}
+		}
+		if(stats != null) {
+			mark = stats.time(WorldStats.Metric.DETECT, mark);
+			stats.count(WorldStats.Metric.DEFERRED, detectedInteractionsQ.size());
 		}
 		//handle all detected interactions here (for not immediate interactions)
-		for(Iterator<DetectedInteraction> iter = detectedInteractionsQ.iterator(); iter.hasNext();) {
-			DetectedInteraction di = iter.next();
-			Interactor interactor = di.get_interactor();
-			HObject being1 = di.get_being1();
-			HObject being2 = di.get_being2();
-			synchronized(being1) {
-				synchronized(being2) {
-					interactor.handle(being1, being2);
-				}
+		Iterator<DetectedInteraction> deferredIter = detectedInteractionsQ.iterator();
+		if(recorder == null) {
+			handleDeferred(deferredIter, detectedInteractionsQ.size());
+		} else {
+			// one event for each interaction's pairs
+			for(int i = 0; i < deferredBy.size(); i++) {
+				Interaction interaction = deferredBy.get(i);
+				int count = deferredCounts.get(i);
+				Object handle = recorder.beginHandle();
+				handleDeferred(deferredIter, count);
+				recorder.endHandle(handle, interaction.getInteractor().getClass(), 
+						interaction.getA().size(), interaction.getB().size(), count);
 			}
 		}
+		if(stats != null)
+			mark = stats.time(WorldStats.Metric.HANDLE, mark);
 		
 //		// 3. go through the registered groups and update them
 //		for(Iterator<GenericGroup<?,?>> iter = _groupsToUpdate.iterator(); iter.hasNext(); ) {
@@ -473,6 +577,11 @@ public class World extends Thread {
 		
 		// deal with anything unresolved
 		while(!unresolvedUpdates.isEmpty()) {
+			rounds++;
+			if(stats != null)
+				stats.count(WorldStats.Metric.MULTISAMPLE_ROUNDS, 1);
+			Object multisample = recorder == null ? null : recorder.beginMultisample();
+			int sampled = unresolvedUpdates.size();
 	
 			// handle unresolved interactions
 			detectedInteractionsQ = new LinkedList<DetectedInteraction>();
@@ -483,7 +592,9 @@ public class World extends Thread {
 						(!interaction.getA().hasNeedsMoreSamples() && !interaction.getB().hasNeedsMoreSamples()))
 					continue;
 				
-				InteractionHandler handler = new InteractionHandler(interaction, detectedInteractionsQ);
+				InteractionHandler handler = makeHandler(interaction, detectedInteractionsQ, stats != null || recorder != null);
+				Object detect = recorder == null ? null : recorder.beginDetect();
+				int queued = detectedInteractionsQ.size();
 				
 				if(interaction.getOptimizer() == null) { // if this is a non-optimized interaction
 					for(Iterator iterA = interaction.getA().getNeedsMoreSamples(); iterA.hasNext(); ) {
@@ -516,6 +627,13 @@ public class World extends Thread {
 					Optimizer optimizer = interaction.getOptimizer();
 					optimizer.detect(interaction.getA(), interaction.getB(), handler);
 				}
+				if(stats != null) {
+					countPairs(stats, handler);
+					// the queue is shared by the interactions, so count only what this one added
+					stats.count(WorldStats.Metric.DEFERRED, detectedInteractionsQ.size() - queued);
+				}
+				if(recorder != null)
+					recordDetect(recorder, detect, interaction, interaction.getA().size(), interaction.getB().size(), handler);
 				
 				//handle all detected interactions here (for not immediate interactions)
 				for(Iterator<DetectedInteraction> diIter = detectedInteractionsQ.iterator(); diIter.hasNext();) {
@@ -537,6 +655,8 @@ public class World extends Thread {
 			// perform updates
 			unresolvedUpdates = updateHelper(unresolvedUpdates);
 			
+			if(recorder != null)
+				recorder.endMultisample(multisample, rounds, sampled);
 		}
 		
 		// make sure there's nothing list in the needsMoreSamples lists
@@ -548,18 +668,301 @@ public class World extends Thread {
 			if(interaction.getB().hasNeedsMoreSamples())
 				interaction.getB().clearNeedsMoreSamples();
 		}
+		if(stats != null)
+			mark = stats.time(WorldStats.Metric.MULTISAMPLE, mark);
+		
+		// send any OSC messages batched during the update
+		_postOffice.flushOsc();
+		
+		// move on the simulated time, if there is any
+		_simulatedTime += Hermes.getTimeStepNanos();
+		Hermes.setUpdating(outer);
+		
+		_indexStale = true;
+		
+		if(stats != null) {
+			stats.time(WorldStats.Metric.UPDATE, start);
+			stats.endUpdate();
+		}
+		if(recorder != null)
+			recorder.endUpdate(update, _masterGroup.size(), _interactions.size(), rounds);
 		
 		long elapsed = System.currentTimeMillis() - time;
 		if(elapsed < _updateLength) {
-			try {
-				sleep(_updateLength - elapsed);
-			} catch (InterruptedException e) {}
+			if(_wakeOnInput) {
+				waitForInput(_updateLength - elapsed);
+			} else {
+				try {
+					sleep(_updateLength - elapsed);
+				} catch (InterruptedException e) {}
+			}
 		}
 
 	}
 	
 	
 
+	/**
+	 * Sets the size of the cells in the spatial index used by the queries. Queries are fastest
+	 * 	when this is around the size of a typical being. The default is 50.
+	 * @param cellSize	the width and height of the index's cells
+	 */
+	public void setQueryCellSize(float cellSize) {
+		assert cellSize > 0 : "World.setQueryCellSize: cellSize must be positive";
+		
+		_index.setCellSize(cellSize);
+		_indexStale = true;
+	}
+	
+	/**
+	 * Finds the registered beings whose bounding boxes overlap a rectangle.
+	 * <p>
+	 * The queries use a spatial index of the beings registered with the world, built when the first query is made
+	 * 	after the beings have moved: at most once per update, and once per multisample round. They can be called
+	 * 	from a being's <code>update</code> method or an interactor's <code>handle</code>, and
+	 * 	don't allocate anything once the index has grown to the number of beings. The camera is never found.
+	 * @param x			x coordinate of the rectangle's upper left corner
+	 * @param y			y coordinate of the rectangle's upper left corner
+	 * @param width		width of the rectangle
+	 * @param height	height of the rectangle
+	 * @param visitor	called with each being found, until it returns false
+	 */
+	public void queryRect(float x, float y, float width, float height, BeingVisitor visitor) {
+		assert visitor != null : "World.queryRect: visitor must be a valid BeingVisitor";
+		
+		startQuery();
+		try {
+			int found = _index.query(x, y, x + width, y + height);
+			for(int i = 0; i < found; i++) {
+				if(!visitor.visit(_index.get(_index.getResult(i))))
+					break;
+			}
+		} finally {
+			_querying = false;
+		}
+	}
+	
+	/**
+	 * Finds the registered beings whose bounding boxes overlap a circle.
+	 * @param x			x coordinate of the circle's center
+	 * @param y			y coordinate of the circle's center
+	 * @param radius	radius of the circle
+	 * @param visitor	called with each being found, until it returns false
+	 */
+	public void queryCircle(float x, float y, float radius, BeingVisitor visitor) {
+		assert radius >= 0 : "World.queryCircle: radius must be non-negative";
+		assert visitor != null : "World.queryCircle: visitor must be a valid BeingVisitor";
+		
+		startQuery();
+		try {
+			int found = _index.query(x - radius, y - radius, x + radius, y + radius);
+			for(int i = 0; i < found; i++) {
+				int index = _index.getResult(i);
+				// distance from the center to the nearest point of the box
+				float dx = Math.max(Math.max(_index.getMinX(index) - x, x - _index.getMaxX(index)), 0);
+				float dy = Math.max(Math.max(_index.getMinY(index) - y, y - _index.getMaxY(index)), 0);
+				if(dx * dx + dy * dy > radius * radius)
+					continue;
+				if(!visitor.visit(_index.get(index)))
+					break;
+			}
+		} finally {
+			_querying = false;
+		}
+	}
+	
+	/**
+	 * Finds the registered beings whose shapes contain a point.
+	 * @param x			x coordinate of the point
+	 * @param y			y coordinate of the point
+	 * @param visitor	called with each being found, until it returns false
+	 */
+	public void queryPoint(float x, float y, BeingVisitor visitor) {
+		assert visitor != null : "World.queryPoint: visitor must be a valid BeingVisitor";
+		
+		startQuery();
+		try {
+			int found = _index.query(x, y, x, y);
+			for(int i = 0; i < found; i++) {
+				Being being = _index.get(_index.getResult(i));
+				if(being.getShape().contains(x, y) && !visitor.visit(being))
+					break;
+			}
+		} finally {
+			_querying = false;
+		}
+	}
+	
+	/**
+	 * Finds the k registered beings whose bounding boxes are nearest a point, and visits them nearest first.
+	 * 	Distances are to the nearest point of each box, so beings whose boxes contain the point come first,
+	 * 	in no particular order.
+	 * @param x			x coordinate of the point
+	 * @param y			y coordinate of the point
+	 * @param k			the number of beings to find
+	 * @param visitor	called with each being found, until it returns false
+	 */
+	public void nearest(float x, float y, int k, BeingVisitor visitor) {
+		assert k >= 0 : "World.nearest: k must be non-negative";
+		assert visitor != null : "World.nearest: visitor must be a valid BeingVisitor";
+		
+		startQuery();
+		try {
+			int found = _index.nearest(x, y, k);
+			for(int i = 0; i < found; i++) {
+				if(!visitor.visit(_index.get(_index.getResult(i))))
+					break;
+			}
+		} finally {
+			_querying = false;
+		}
+	}
+	
+	/**
+	 * Finds the registered being whose bounding box is nearest a point.
+	 * @param x		x coordinate of the point
+	 * @param y		y coordinate of the point
+	 * @return		the nearest being, or null if there are none
+	 */
+	public Being nearest(float x, float y) {
+		startQuery();
+		try {
+			return _index.nearest(x, y, 1) == 0 ? null : _index.get(_index.getResult(0));
+		} finally {
+			_querying = false;
+		}
+	}
+	
+	/**
+	 * Casts a ray through the world, and visits the registered beings whose shapes it hits, nearest first.
+	 * @param x				x coordinate of the ray's origin
+	 * @param y				y coordinate of the ray's origin
+	 * @param dirX			x component of the ray's direction
+	 * @param dirY			y component of the ray's direction
+	 * @param maxDistance	how far along the ray to look
+	 * @param visitor		called with each being hit and the distance to it, until it returns false
+	 */
+	public void raycast(float x, float y, float dirX, float dirY, float maxDistance, RayVisitor visitor) {
+		assert dirX != 0 || dirY != 0 : "World.raycast: direction must not be zero";
+		assert maxDistance >= 0 : "World.raycast: maxDistance must be non-negative";
+		assert visitor != null : "World.raycast: visitor must be a valid RayVisitor";
+		
+		float length = (float)Math.sqrt(dirX * dirX + dirY * dirY);
+		startQuery();
+		try {
+			_index.raycast(x, y, dirX / length, dirY / length, maxDistance, visitor);
+		} finally {
+			_querying = false;
+		}
+	}
+	
+	/**
+	 * Casts a ray through the world.
+	 * @param x				x coordinate of the ray's origin
+	 * @param y				y coordinate of the ray's origin
+	 * @param dirX			x component of the ray's direction
+	 * @param dirY			y component of the ray's direction
+	 * @param maxDistance	how far along the ray to look
+	 * @return				the first being whose shape the ray hits, or null if there are none
+	 */
+	public Being raycast(float x, float y, float dirX, float dirY, float maxDistance) {
+		_firstHit.being = null;
+		raycast(x, y, dirX, dirY, maxDistance, _firstHit);
+		Being hit = _firstHit.being;
+		_firstHit.being = null;
+		return hit;
+	}
+	
+	/**
+	 * Stops a ray at the first being it hits.
+	 */
+	private static class FirstHit implements RayVisitor {
+		Being being;
+		
+		public boolean visit(Being being, float distance) {
+			this.being = being;
+			return false;
+		}
+	}
+	
+	/**
+	 * Rebuilds the spatial index if beings may have moved, and marks a query as running.
+	 */
+	private void startQuery() {
+		assert !_querying : "World query: queries cannot be made from inside a query's visitor";
+		
+		_querying = true;
+		if(!_indexStale)
+			return;
+		_index.clear();
+		for(Iterator<Being> iter = _masterGroup.iterator(); iter.hasNext(); ) {
+			Being being = iter.next();
+			if(being != _camera)
+				_index.add(being);
+		}
+		_index.build();
+		_indexStale = false;
+	}
+	
+	/**
+	 * Makes the handler for an interaction, one that counts pairs if statistics are kept or updates recorded.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private InteractionHandler makeHandler(Interaction interaction, LinkedList<DetectedInteraction> detectedInteractionsQ, boolean counting) {
+		if(!counting)
+			return new InteractionHandler(interaction, detectedInteractionsQ);
+		return new CountingInteractionHandler(interaction, detectedInteractionsQ);
+	}
+	
+	/**
+	 * Handles the next <code>count</code> detected interactions from the queue.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private void handleDeferred(Iterator<DetectedInteraction> iter, int count) {
+		for(int i = 0; i < count; i++) {
+			DetectedInteraction di = iter.next();
+			Interactor interactor = di.get_interactor();
+			HObject being1 = di.get_being1();
+			HObject being2 = di.get_being2();
+			synchronized(being1) {
+				synchronized(being2) {
+					interactor.handle(being1, being2);
+				}
+			}
+		}
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private void recordDetect(WorldRecorder recorder, Object detect, Interaction interaction, int sizeA, int sizeB, InteractionHandler handler) {
+		CountingInteractionHandler counter = (CountingInteractionHandler)handler;
+		recorder.endDetect(detect, interaction.getInteractor().getClass(), sizeA, sizeB, counter.getTested(), counter.getHits());
+	}
+	
+	/**
+	 * @return	the Flight Recorder recorder if something is being recorded, otherwise null
+	 */
+	private static WorldRecorder recorder() {
+		return RECORDER != null && RECORDER.isRecording() ? RECORDER : null;
+	}
+	
+	/**
+	 * Loads the Flight Recorder recorder, which is only there when Hermes was built and is running with Java 11 or later.
+	 */
+	private static WorldRecorder loadRecorder() {
+		try {
+			return (WorldRecorder)Class.forName("hermes.jfr.JfrWorldRecorder").getDeclaredConstructor().newInstance();
+		} catch (Throwable e) {
+			return null; // not built, or no Flight Recorder in this JVM
+		}
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private void countPairs(WorldStats stats, InteractionHandler handler) {
+		CountingInteractionHandler counter = (CountingInteractionHandler)handler;
+		stats.count(WorldStats.Metric.PAIRS_TESTED, counter.getTested());
+		stats.count(WorldStats.Metric.HITS, counter.getHits());
+	}
+	
 	private List<Being> updateHelper(List<Being> beings) {
 		LinkedList<Being> unresolvedUpdates = new LinkedList<Being>();
 		for(Iterator<Being> iter = beings.iterator(); iter.hasNext(); ) {
@@ -573,9 +976,103 @@ public class World extends Thread {
 				}
 			}
 		}
+		_indexStale = true; // the beings have moved
 		return unresolvedUpdates;
 	}
 	
+	/**
+	 * Waits until it's time for the next update, delivering input to subscribers as soon as it arrives.
+	 * @param millis	how long to wait
+	 */
+	private void waitForInput(long millis) {
+		long end = System.nanoTime() + millis * 1000000L;
+		_postOffice.setWakeThread(Thread.currentThread());
+		while(true) {
+			_postOffice.checkMailBetweenUpdates();
+			long remaining = end - System.nanoTime();
+			if(remaining <= 0 || !_wakeOnInput)
+				break;
+			LockSupport.parkNanos(this, remaining);
+		}
+		_postOffice.setWakeThread(null);
+	}
+
+	/**
+	 * Sets whether the World wakes up to deliver input while it waits for its next update.
+	 * <p>
+	 * Normally, input is delivered when the next update starts, so it can wait up to a whole update
+	 * 	(about 16ms at 60Hz) after Processing receives it. When this is on, input received while the
+	 * 	World is waiting is delivered to subscribers right away, on the World's thread, and is still
+	 * 	reported by <code>isKeyJustPressed</code> during the next update. Off by default.
+	 * <p>
+	 * For even lower latency, subscribers that are safe to call from another thread can subscribe
+	 * 	directly with <code>PostOffice.subscribeDirect</code>.
+	 * @param wake	true to deliver input as soon as it arrives
+	 */
+	public void setWakeOnInput(boolean wake) {
+		_wakeOnInput = wake;
+	}
+
+	/**
+	 * @return	whether input is delivered as soon as it arrives while the World waits for its next update
+	 */
+	public boolean isWakeOnInput() {
+		return _wakeOnInput;
+	}
+
+	/**
+	 * Sets whether the World keeps statistics about its updates: how long each phase takes, the number of
+	 * 	pairs tested and interactions detected, and so on, over a rolling window of recent updates.
+	 * <p>
+	 * While enabled, the statistics can be read with <code>getStats</code>, and through JMX (e.g. in JConsole)
+	 * 	as <code>hermes:type=World,name=</code><i>the World's thread name</i>. Off by default, when they cost nothing.
+	 * 	Registering with JMX is only done if it can be: if another World with the same thread name (see
+	 * 	<code>setName</code>) already has its statistics registered, this World's are still kept, but can only
+	 * 	be read with <code>getStats</code>.
+	 * @param enabled	true to keep statistics, false to stop and discard them
+	 */
+	public void setStatsEnabled(boolean enabled) {
+		if(enabled == (_stats != null))
+			return;
+		if(enabled) {
+			WorldStats stats = new WorldStats();
+			_stats = stats;
+			try {
+				ObjectName name = new ObjectName("hermes:type=World,name=" + ObjectName.quote(getName()));
+				ManagementFactory.getPlatformMBeanServer().registerMBean(stats, name);
+				_statsName = name;
+			} catch (Exception e) {
+				System.out.println("Warning: World: statistics for " + getName() + " are kept but not registered with JMX: " + e);
+			}
+		} else {
+			_stats = null;
+			if(_statsName != null) {
+				try {
+					ManagementFactory.getPlatformMBeanServer().unregisterMBean(_statsName);
+				} catch (Exception e) {
+					// already gone
+				}
+				_statsName = null;
+			}
+		}
+	}
+	
+	/**
+	 * @return	the statistics about recent updates, or null if they aren't being kept
+	 */
+	public WorldStats getStats() {
+		return _stats;
+	}
+	
+	/**
+	 * Gets the time this World has simulated, when <code>Hermes.setTimeStep</code> has been used: the number
+	 * 	of updates times the time step. Each World keeps its own, so running several does not speed them up.
+	 * @return	the simulated time in nanoseconds
+	 */
+	public long getSimulatedTime() {
+		return _simulatedTime;
+	}
+	
 	/**
 	 *  Locks the update rate to happen no more than <code>rate</code> times per second.
 	 *  Default value is 60Hz.
@@ -606,6 +1103,23 @@ public class World extends Thread {
 		return _postOffice;
 	}
 	
+	/**
+	 * Sets the integrator used to move beings in the world that have no integrator
+	 * 	of their own or from one of their groups.
+	 * @param integrator	the integrator, or null for Euler integration
+	 */
+	public void setIntegrator(Integrator integrator) {
+		_integrator = integrator;
+		Being.integratorSet();
+	}
+	
+	/**
+	 * @return	the default integrator for beings in the world, or null if Euler integration is used
+	 */
+	public Integrator getIntegrator() {
+		return _integrator;
+	}
+	
 	
 }
 
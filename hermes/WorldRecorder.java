@@ -0,0 +1,67 @@
+package hermes;
+
+/**
+ * Records what happens in each <code>World.update</code> for a profiler, such as Java Flight Recorder.
+ * <p>
+ * Internal -- the World uses the recorder in <code>hermes.jfr</code> when it is present and the JVM has
+ * 	Flight Recorder (Java 11 or later), and none otherwise. Each <code>begin</code> method returns a token
+ * 	for the matching <code>end</code> method. None are called unless <code>isRecording</code> returned
+ * 	true at the start of the update, so a recorder costs nothing while no recording is running.
+ */
+public interface WorldRecorder {
+
+	/**
+	 * @return	whether anything is being recorded
+	 */
+	public boolean isRecording();
+
+	public Object beginUpdate();
+
+	/**
+	 * @param beings				the number of beings registered with the World
+	 * @param interactions			the number of interactions registered
+	 * @param multisampleRounds		the number of multisample rounds the update took
+	 */
+	public void endUpdate(Object update, int beings, int interactions, int multisampleRounds);
+
+	public Object beginDetect();
+
+	/**
+	 * Ends the detection of one interaction, which includes handling it if it is applied immediately.
+	 * @param interactor	the class of the interaction's interactor
+	 * @param sizeA			the size of the first group
+	 * @param sizeB			the size of the second group
+	 * @param pairs			the number of pairs tested
+	 * @param hits			the number of interactions detected
+	 */
+	public void endDetect(Object detect, Class<?> interactor, int sizeA, int sizeB, long pairs, long hits);
+
+	public Object beginHandle();
+
+	/**
+	 * Ends handling the interactions of one interaction that were not applied immediately.
+	 * @param interactor	the class of the interaction's interactor
+	 * @param sizeA			the size of the first group
+	 * @param sizeB			the size of the second group
+	 * @param handled		the number of interactions handled
+	 */
+	public void endHandle(Object handle, Class<?> interactor, int sizeA, int sizeB, int handled);
+
+	public Object beginMultisample();
+
+	/**
+	 * @param round		the number of the round in this update, starting at 1
+	 * @param beings	the number of beings still being sampled
+	 */
+	public void endMultisample(Object multisample, int round, int beings);
+
+	public Object beginResolve();
+
+	/**
+	 * @param added		the number of objects added to groups
+	 * @param removed	the number of objects removed from groups
+	 * @param deleted	the number of objects deleted
+	 */
+	public void endResolve(Object resolve, int added, int removed, int deleted);
+
+}
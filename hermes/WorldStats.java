@@ -0,0 +1,254 @@
+package hermes;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Times and counts what happens in each <code>World.update</code>, over a rolling window of recent updates.
+ * <p>
+ * Enabled with <code>World.setStatsEnabled</code>, and read with <code>World.getStats</code> or, while enabled,
+ * 	through JMX as <code>hermes:type=World,name=</code><i>the World's thread name</i>. When disabled the World
+ * 	keeps no statistics at all, so they cost nothing.
+ * <p>
+ * The World's thread records the statistics, and any thread can read them. Pairs and hits are counted
+ * 	as they pass through an <code>InteractionHandler</code>, so optimizers that bypass it, such as
+ * 	<code>BarnesHutOptimizer</code>, only count the pairs they hand to it.
+ */
+public class WorldStats implements WorldStatsMXBean {
+
+	/**
+	 * What is measured in each update. Phases are timed in nanoseconds, the rest are counts.
+	 */
+	public enum Metric {
+		/** the whole update, not counting the wait for the next one */
+		UPDATE(true),
+		/** delivering input, OSC and events in <code>PostOffice.checkMail</code> */
+		CHECK_MAIL(true),
+		/** the registered groups' <code>update</code> methods */
+		GROUP_UPDATE(true),
+		/** <code>resolveGroupQueues</code> after the group updates */
+		RESOLVE_QUEUES(true),
+		/** the beings' <code>update</code> and first step */
+		BEING_UPDATE(true),
+		/** detecting interactions, and handling those applied immediately */
+		DETECT(true),
+		/** handling the interactions that are not applied immediately */
+		HANDLE(true),
+		/** further rounds of detection, handling and stepping for multisampled beings */
+		MULTISAMPLE(true),
+		/** pairs passed to an interactor's <code>detect</code> */
+		PAIRS_TESTED(false),
+		/** pairs whose interaction was detected */
+		HITS(false),
+		/** detected interactions queued to be handled after detection */
+		DEFERRED(false),
+		/** multisample rounds */
+		MULTISAMPLE_ROUNDS(false),
+		/** objects added to, removed from or deleted from groups by <code>resolveGroupQueues</code> */
+		QUEUED_CHANGES(false);
+
+		private boolean _time;
+
+		private Metric(boolean time) {
+			_time = time;
+		}
+
+		/**
+		 * @return	whether the metric is a time, in nanoseconds
+		 */
+		public boolean isTime() {
+			return _time;
+		}
+	}
+
+	public static final int DEFAULT_WINDOW = 600;	// ten seconds at 60Hz
+
+	private static final Metric[] METRICS = Metric.values();
+
+	private long[] _current = new long[METRICS.length];	// this update's values, recorded on the World's thread
+	private long[][] _history;								// recent updates' values, as rings
+	private int _window;
+	private long _updates = 0;
+
+	/**
+	 * Creates statistics over a window of recent updates.
+	 * @param window	the number of updates to keep
+	 */
+	public WorldStats(int window) {
+		assert window > 0 : "WorldStats constructor: window must be greater than zero";
+		_window = window;
+		_history = new long[METRICS.length][window];
+	}
+
+	/**
+	 * Creates statistics over the last <code>DEFAULT_WINDOW</code> updates.
+	 */
+	public WorldStats() {
+		this(DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Adds the time since <code>since</code> to a phase of the current update.
+	 * @param phase	the phase
+	 * @param since	the <code>System.nanoTime</code> the phase started
+	 * @return		the time now, when the next phase starts
+	 */
+	long time(Metric phase, long since) {
+		long now = System.nanoTime();
+		_current[phase.ordinal()] += now - since;
+		return now;
+	}
+
+	/**
+	 * Adds to a count in the current update.
+	 */
+	void count(Metric metric, long n) {
+		_current[metric.ordinal()] += n;
+	}
+
+	/**
+	 * Records the current update's values, and starts the next update's.
+	 */
+	synchronized void endUpdate() {
+		int slot = (int)(_updates % _window);
+		for(int i = 0; i < METRICS.length; i++) {
+			_history[i][slot] = _current[i];
+			_current[i] = 0;
+		}
+		_updates++;
+	}
+
+	/**
+	 * @return	the number of updates recorded
+	 */
+	public synchronized long getUpdates() {
+		return _updates;
+	}
+
+	/**
+	 * @return	the number of recent updates the statistics are taken over
+	 */
+	public int getWindow() {
+		return _window;
+	}
+
+	/**
+	 * @return	the value of a metric in the last update, or 0 if there hasn't been one
+	 */
+	public synchronized long getLast(Metric metric) {
+		if(_updates == 0)
+			return 0;
+		return _history[metric.ordinal()][(int)((_updates - 1) % _window)];
+	}
+
+	/**
+	 * @return	the mean value of a metric over the recent updates
+	 */
+	public synchronized double getMean(Metric metric) {
+		int n = recorded();
+		if(n == 0)
+			return 0;
+		long[] values = _history[metric.ordinal()];
+		long total = 0;
+		for(int i = 0; i < n; i++)
+			total += values[i];
+		return (double)total / n;
+	}
+
+	/**
+	 * Finds a percentile of a metric over the recent updates, e.g. 0.99 for the value 99% of updates are within.
+	 * @param metric		the metric
+	 * @param percentile	between 0 and 1, where 1 gives the largest value
+	 * @return				the value
+	 */
+	public long getPercentile(Metric metric, double percentile) {
+		assert percentile >= 0 && percentile <= 1 : "WorldStats.getPercentile: percentile must be between 0 and 1";
+		long[] sorted = sorted(metric);
+		if(sorted.length == 0)
+			return 0;
+		return sorted[Math.min(sorted.length - 1, (int)(percentile * sorted.length))];
+	}
+
+	/**
+	 * @return	the largest value of a metric over the recent updates
+	 */
+	public long getMax(Metric metric) {
+		return getPercentile(metric, 1);
+	}
+
+	/**
+	 * Counts the recent updates by the value of a metric, in buckets of powers of two: bucket 0 holds the
+	 * 	updates with a value of 0, and bucket i those from 2^(i-1) up to 2^i.
+	 * @return	the count in each bucket, up to the largest that is not empty
+	 */
+	public synchronized int[] getHistogram(Metric metric) {
+		int[] buckets = new int[65];
+		int top = 0;
+		long[] values = _history[metric.ordinal()];
+		for(int i = 0; i < recorded(); i++) {
+			int bucket = 64 - Long.numberOfLeadingZeros(values[i]);
+			buckets[bucket]++;
+			top = Math.max(top, bucket);
+		}
+		return Arrays.copyOf(buckets, top + 1);
+	}
+
+	private int recorded() {
+		return (int)Math.min(_updates, _window);
+	}
+
+	private synchronized long[] sorted(Metric metric) {
+		long[] values = Arrays.copyOf(_history[metric.ordinal()], recorded());
+		Arrays.sort(values);
+		return values;
+	}
+
+	///////////////////////////////////
+	// the management interface, where times are in milliseconds
+
+	public Map<String, Double> getLast() {
+		Map<String, Double> map = new LinkedHashMap<String, Double>();
+		for(Metric m : METRICS)
+			map.put(m.name(), scale(m, getLast(m)));
+		return map;
+	}
+
+	public Map<String, Double> getMean() {
+		Map<String, Double> map = new LinkedHashMap<String, Double>();
+		for(Metric m : METRICS)
+			map.put(m.name(), scale(m, getMean(m)));
+		return map;
+	}
+
+	public Map<String, Double> getP50() {
+		return percentiles(0.5);
+	}
+
+	public Map<String, Double> getP99() {
+		return percentiles(0.99);
+	}
+
+	public Map<String, Double> getMax() {
+		return percentiles(1);
+	}
+
+	public Map<String, int[]> getHistogram() {
+		Map<String, int[]> map = new LinkedHashMap<String, int[]>();
+		for(Metric m : METRICS)
+			map.put(m.name(), getHistogram(m));
+		return map;
+	}
+
+	private Map<String, Double> percentiles(double percentile) {
+		Map<String, Double> map = new LinkedHashMap<String, Double>();
+		for(Metric m : METRICS)
+			map.put(m.name(), scale(m, getPercentile(m, percentile)));
+		return map;
+	}
+
+	private static double scale(Metric metric, double value) {
+		return metric.isTime() ? value / 1e6 : value;
+	}
+
+}
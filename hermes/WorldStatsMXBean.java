@@ -0,0 +1,39 @@
+package hermes;
+
+import java.util.Map;
+
+/**
+ * The management interface of <code>WorldStats</code>, for watching a running World in JConsole or VisualVM.
+ * <p>
+ * Each map gives a statistic of every metric over the recent updates, keyed by the metric's name.
+ * 	Times are in milliseconds.
+ */
+public interface WorldStatsMXBean {
+
+	/**
+	 * @return	the number of updates recorded since the statistics were enabled
+	 */
+	public long getUpdates();
+
+	/**
+	 * @return	the number of recent updates the statistics are taken over
+	 */
+	public int getWindow();
+
+	public Map<String, Double> getLast();
+
+	public Map<String, Double> getMean();
+
+	public Map<String, Double> getP50();
+
+	public Map<String, Double> getP99();
+
+	public Map<String, Double> getMax();
+
+	/**
+	 * @return	the histogram of every metric, as counts in buckets of powers of two
+	 * @see		WorldStats#getHistogram(WorldStats.Metric)
+	 */
+	public Map<String, int[]> getHistogram();
+
+}
@@ -85,6 +85,18 @@ public class HCircle extends HShape {
 		return opposite == null ? null : reverse(opposite);
 	}
 	
+	@Override
+	public PVector projectionVector(HCompoundShape other) {
+		PVector opposite = other.projectionVector(this);
+		return opposite == null ? null : reverse(opposite);
+	}
+	
+	@Override
+	public PVector projectionVector(HTileMap other) {
+		PVector opposite = other.projectionVector(this);
+		return opposite == null ? null : reverse(opposite);
+	}
+	
 	@Override
 	public PVector projectionVector(HCircle other) {
 		//Get the center of this circle
@@ -197,9 +209,27 @@ public class HCircle extends HShape {
 		else return null;
 	}
 	
+	@Override
+	public float raycast(float x, float y, float dirX, float dirY, float maxDistance) {
+		// solve |origin + t*dir - center| = radius for the smallest t >= 0
+		float toX = x - _position.x - _center.x;
+		float toY = y - _position.y - _center.y;
+		float c = toX*toX + toY*toY - _radius*_radius;
+		if(c <= 0)
+			return 0; // origin inside
+		float b = toX*dirX + toY*dirY;
+		float discriminant = b*b - c;
+		if(b > 0 || discriminant < 0)
+			return -1; // pointing away, or missing
+		float t = -b - (float)Math.sqrt(discriminant);
+		return t <= maxDistance ? t : -1;
+	}
+	
 	@Override
 	public HRectangle getBoundingBox() {
-		return new HRectangle(PVector.sub(PVector.add(_position, _center),new PVector(_radius,_radius)), 2*_radius, 2*_radius);
+		PVector min = new PVector(_center.x - _radius, _center.y - _radius);
+		PVector max = new PVector(_center.x + _radius, _center.y + _radius);
+		return new HRectangle(_position, min, max);
 	}
 	
 	@Override
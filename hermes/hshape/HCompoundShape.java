@@ -1,47 +1,521 @@
 package hermes.hshape;
 
-import java.util.*;
+import hermes.Hermes;
+
+import java.util.ArrayList;
+
+import processing.core.PApplet;
 import processing.core.PVector;
+import static hermes.HermesMath.*;
 
 /**
- * NOTE: do not use, does not work.
+ * Represents a compound shape made of any number of child shapes.
+ * <p>
+ * The position of each child is defined relative to the compound's position. When a child is added,
+ * 	its position vector is taken as this offset, and from then on is managed by the compound,
+ * 	so it should not be shared with anything else.
+ * <p>
+ * The compound keeps a bounding volume hierarchy (a binary tree of bounding boxes) over its children,
+ * 	so collisions and containment only test the children whose boxes overlap the other shape.
+ * 	The hierarchy is built lazily and cached; call <code>invalidate</code> if a child's
+ * 	geometry is changed after it was added.
  * <p>
- * Represents a compound shape containing any number of shapes.
- * The position of contained shapes will be defined relative to the position.
- *
- *//*
-public class CompoundShape extendsHShape {
-
-	private ListHShape> _shapes;
-	
-	*//**
-	 * creates a new compound shape
+ * Concave outlines can be turned into a compound of convex <code>HPolygon</code>s
+ * 	with <code>createFromOutline</code>.
+ */
+public class HCompoundShape extends HShape {
+
+	private ArrayList<HShape> _shapes;		// the child shapes
+	private ArrayList<PVector> _offsets;	// child positions relative to the compound's position
+
+	// the bounding hierarchy, in compound coordinates, with the root at node 0
+	// node i covers [_minX[i],_maxX[i]] x [_minY[i],_maxY[i]]
+	// leaves have _leaf[i] set to the index of their child shape, other nodes have _leaf[i] = -1
+	private float[] _minX, _minY, _maxX, _maxY;
+	private int[] _left, _right, _leaf;
+	private int _nodes;
+	private boolean _dirty = true;	// whether the hierarchy needs to be rebuilt
+
+	private int[] _stack = new int[64];		// scratch for tree traversal
+	private int[] _candidates = new int[0];	// scratch for query results
+
+	/**
+	 * Creates a new, empty compound shape.
 	 * @param position	the shape's position
-	 *//*
-	public CompoundShape(PVector position) {
+	 */
+	public HCompoundShape(PVector position) {
 		super(position);
-		_shapes = new ArrayListHShape>();
+
+		_shapes = new ArrayList<HShape>();
+		_offsets = new ArrayList<PVector>();
+	}
+
+	/**
+	 * Creates a new compound shape containing the given shapes.
+	 * @param position	the shape's position
+	 * @param shapes	the child shapes, positioned relative to position
+	 */
+	public HCompoundShape(PVector position, HShape... shapes) {
+		this(position);
+
+		assert shapes != null : "In HCompoundShape constructor, shapes must be valid HShapes";
+		for(HShape shape : shapes)
+			addShape(shape);
 	}
 
-	*//**
-	 * adds a shape to the compound
-	 * @param shape		
-	 *//*
-	public void addShapeHShape shape) {
+	/**
+	 * Adds a shape to the compound.
+	 * @param shape		the shape to add, its position is taken relative to the compound's position
+	 */
+	public void addShape(HShape shape) {
+		assert shape != null : "HCompoundShape.addShape: shape must be a valid HShape";
+		assert shape != this : "HCompoundShape.addShape: a compound shape cannot contain itself";
+
 		_shapes.add(shape);
+		_offsets.add(new PVector(shape.getPosition().x, shape.getPosition().y));
+		_dirty = true;
+	}
+
+	/**
+	 * @return	the number of child shapes
+	 */
+	public int size() {
+		return _shapes.size();
+	}
+
+	/**
+	 * Returns a child shape. Its position is only up to date with the compound's during collision
+	 * 	and containment checks.
+	 * @param index		the index of the child, in the order added
+	 * @return			the child shape
+	 */
+	public HShape getShape(int index) {
+		return _shapes.get(index);
+	}
+
+	/**
+	 * @param index		the index of the child, in the order added
+	 * @return			the child's position relative to the compound's position
+	 */
+	public PVector getOffset(int index) {
+		return _offsets.get(index);
+	}
+
+	/**
+	 * Marks the bounding hierarchy for rebuilding.
+	 * Call this after changing the geometry of a child shape (for instance rotating an <code>HPolygon</code>).
+	 */
+	public void invalidate() {
+		_dirty = true;
+	}
+
+	/**
+	 * Moves a child to its place in world coordinates, and returns it.
+	 */
+	private HShape place(int index) {
+		HShape shape = _shapes.get(index);
+		PVector offset = _offsets.get(index);
+		PVector position = shape.getPosition();
+		position.x = _position.x + offset.x;
+		position.y = _position.y + offset.y;
+		return shape;
+	}
+
+	///////////////////////////////
+	// Bounding hierarchy
+	///////////////////////////////
+
+	private void build() {
+		int count = _shapes.size();
+		int capacity = Math.max(1, 2 * count - 1);
+		if(_minX == null || _minX.length < capacity) {
+			_minX = new float[capacity];
+			_minY = new float[capacity];
+			_maxX = new float[capacity];
+			_maxY = new float[capacity];
+			_left = new int[capacity];
+			_right = new int[capacity];
+			_leaf = new int[capacity];
+		}
+		// child boxes in compound coordinates
+		float[] boxes = new float[4 * count];
+		int[] order = new int[count];
+		for(int i = 0; i < count; i++) {
+			HRectangle box = place(i).getBoundingBox();
+			PVector min = box.getAbsMin();
+			PVector max = box.getAbsMax();
+			boxes[4 * i] = min.x - _position.x;
+			boxes[4 * i + 1] = min.y - _position.y;
+			boxes[4 * i + 2] = max.x - _position.x;
+			boxes[4 * i + 3] = max.y - _position.y;
+			order[i] = i;
+		}
+		_nodes = 0;
+		if(count > 0)
+			buildNode(boxes, order, 0, count);
+		_candidates = new int[count];
+		_dirty = false;
+	}
+
+	/**
+	 * Builds a node over order[from,to), splitting at the median center along the longer axis.
+	 * @return	the index of the node
+	 */
+	private int buildNode(float[] boxes, int[] order, int from, int to) {
+		int node = _nodes++;
+		float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+		for(int i = from; i < to; i++) {
+			int b = 4 * order[i];
+			minX = Math.min(minX, boxes[b]);
+			minY = Math.min(minY, boxes[b + 1]);
+			maxX = Math.max(maxX, boxes[b + 2]);
+			maxY = Math.max(maxY, boxes[b + 3]);
+		}
+		_minX[node] = minX;
+		_minY[node] = minY;
+		_maxX[node] = maxX;
+		_maxY[node] = maxY;
+		if(to - from == 1) {
+			_leaf[node] = order[from];
+			return node;
+		}
+		_leaf[node] = -1;
+		// sort by center along the longer axis (insertion sort, children lists are short)
+		int axis = (maxX - minX >= maxY - minY) ? 0 : 1;
+		for(int i = from + 1; i < to; i++) {
+			int item = order[i];
+			float key = boxes[4 * item + axis] + boxes[4 * item + axis + 2];
+			int j = i - 1;
+			while(j >= from && boxes[4 * order[j] + axis] + boxes[4 * order[j] + axis + 2] > key) {
+				order[j + 1] = order[j];
+				j--;
+			}
+			order[j + 1] = item;
+		}
+		int middle = (from + to) / 2;
+		_left[node] = buildNode(boxes, order, from, middle);
+		_right[node] = buildNode(boxes, order, middle, to);
+		return node;
+	}
+
+	/**
+	 * Finds the children whose boxes overlap a box given in world coordinates.
+	 * The indices of the children are written to <code>_candidates</code>.
+	 * @return			the number of children found
+	 */
+	private int query(float minX, float minY, float maxX, float maxY) {
+		if(_dirty)
+			build();
+		int[] result = _candidates;
+		if(_nodes == 0)
+			return 0;
+		minX -= _position.x;
+		maxX -= _position.x;
+		minY -= _position.y;
+		maxY -= _position.y;
+		int found = 0;
+		int top = 0;
+		_stack[top++] = 0;
+		while(top > 0) {
+			int node = _stack[--top];
+			if(_minX[node] > maxX || _maxX[node] < minX || _minY[node] > maxY || _maxY[node] < minY)
+				continue;
+			if(_leaf[node] >= 0) {
+				result[found++] = _leaf[node];
+			} else {
+				if(top + 2 > _stack.length) {
+					int[] stack = new int[_stack.length * 2];
+					System.arraycopy(_stack, 0, stack, 0, top);
+					_stack = stack;
+				}
+				_stack[top++] = _left[node];
+				_stack[top++] = _right[node];
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Finds the projection vector from this compound to another shape, as the largest projection
+	 * 	vector from any overlapping child (so moving by it separates the most deeply overlapping child).
+	 */
+	private PVector compoundProjection(HShape other) {
+		HRectangle box = other.getBoundingBox();
+		PVector min = box.getAbsMin();
+		PVector max = box.getAbsMax();
+		int count = query(min.x, min.y, max.x, max.y);
+		PVector result = null;
+		float resultSize = -1;
+		for(int i = 0; i < count; i++) {
+			PVector projection = place(_candidates[i]).projectionVector(other);
+			if(projection != null) {
+				float size = mag2(projection);
+				if(size > resultSize) {
+					result = projection;
+					resultSize = size;
+				}
+			}
+		}
+		return result;
 	}
-	
+
 	@Override
-	public boolean collideHShape other) {
-		assert other != null : "In CompoundShape.collide: other must be a valid shape";
-		
-		// collide individually with each of our shapes
-		for(IteratorHShape> iter = _shapes.iterator(); iter.hasNext(); ) {
-			if(other.collide(iter.next()))
+	public PVector projectionVector(HShape other) {
+		assert other != null : "HCompoundShape.projectionVector: other must be a valid HShape";
+		PVector opposite = other.projectionVector(this);
+		return opposite == null ? null : reverse(opposite);
+	}
+
+	@Override
+	public PVector projectionVector(HRectangle other) {
+		return compoundProjection(other);
+	}
+
+	@Override
+	public PVector projectionVector(HCircle other) {
+		return compoundProjection(other);
+	}
+
+	@Override
+	public PVector projectionVector(HPolygon other) {
+		return compoundProjection(other);
+	}
+
+	@Override
+	public PVector projectionVector(HTileMap other) {
+		return compoundProjection(other);
+	}
+
+	@Override
+	public PVector projectionVector(HCompoundShape other) {
+		if(other == this)	// no self-projection
+			return null;
+		return compoundProjection(other);
+	}
+
+	@Override
+	public boolean contains(PVector point) {
+		return contains(point.x, point.y);
+	}
+
+	@Override
+	public boolean contains(float x, float y) {
+		int count = query(x, y, x, y);
+		for(int i = 0; i < count; i++) {
+			if(place(_candidates[i]).contains(x, y))
 				return true;
 		}
 		return false;
 	}
 
+	@Override
+	public float raycast(float x, float y, float dirX, float dirY, float maxDistance) {
+		float best = -1;
+		for(int i = 0; i < _shapes.size(); i++) {
+			float t = place(i).raycast(x, y, dirX, dirY, best < 0 ? maxDistance : best);
+			if(t >= 0 && (best < 0 || t < best))
+				best = t;
+		}
+		return best;
+	}
+
+	@Override
+	public HRectangle getBoundingBox() {
+		if(_dirty)
+			build();
+		if(_nodes == 0)
+			return new HRectangle(_position, zeroVector(), zeroVector());
+		return new HRectangle(_position, makeVector(_minX[0], _minY[0]), makeVector(_maxX[0], _maxY[0]));
+	}
+
+	@Override
+	public void draw() {
+		PApplet papp = Hermes.getPApplet();
+		for(int i = 0; i < _shapes.size(); i++) {
+			PVector offset = _offsets.get(i);
+			papp.pushMatrix();
+			papp.translate(offset.x, offset.y);
+			_shapes.get(i).draw();
+			papp.popMatrix();
+		}
+	}
+
+	@Override
+	public String toString() {
+		String output = "Position:" + _position;
+		for(int i = 0; i < _shapes.size(); i++) {
+			output += "\nOffset:" + _offsets.get(i) + "\nShape:" + _shapes.get(i);
+		}
+		return output;
+	}
+
+	///////////////////////////////
+	//Factories for HCompoundShapes
+	///////////////////////////////
+	/**
+	 * Creates a compound shape from a simple (non self-intersecting) polygon outline, which may be concave,
+	 * 	by decomposing it into convex <code>HPolygon</code>s.
+	 * <p>
+	 * The outline is triangulated by ear clipping, then neighboring pieces are merged wherever
+	 * 	the result stays convex (Hertel-Mehlhorn), which gives at most four times the minimum number of pieces.
+	 * 	Collinear vertices are dropped. Each piece is positioned at its vertex average.
+	 * @param position	the shape's position
+	 * @param outline	the outline's vertices in order (either winding), relative to position
+	 * @return			the compound shape
+	 */
+	public static HCompoundShape createFromOutline(PVector position, ArrayList<PVector> outline) {
+		assert outline != null : "HCompoundShape.createFromOutline: outline must be a valid List";
+		assert outline.size() > 2 : "HCompoundShape.createFromOutline: outline must contain at least three points";
+
+		// copy the outline counter-clockwise (positive area), dropping repeated and collinear points
+		ArrayList<PVector> points = new ArrayList<PVector>();
+		float area = 0;
+		for(int i = 0; i < outline.size(); i++) {
+			PVector a = outline.get(i), b = outline.get((i + 1) % outline.size());
+			area += a.x * b.y - b.x * a.y;
+		}
+		for(int i = 0; i < outline.size(); i++) {
+			PVector p = outline.get(area > 0 ? i : outline.size() - 1 - i);
+			points.add(new PVector(p.x, p.y));
+		}
+		for(boolean changed = true; changed && points.size() > 2; ) {
+			changed = false;
+			for(int i = 0; i < points.size() && points.size() > 2; i++) {
+				int n = points.size();
+				if(cross(points.get((i + n - 1) % n), points.get(i), points.get((i + 1) % n)) == 0) {
+					points.remove(i);
+					changed = true;
+				}
+			}
+		}
+		assert points.size() > 2 : "HCompoundShape.createFromOutline: outline must have a nonzero area";
+
+		ArrayList<int[]> pieces = triangulate(points);
+		mergeConvex(points, pieces);
+
+		HCompoundShape compound = new HCompoundShape(position);
+		for(int[] piece : pieces) {
+			PVector center = new PVector();
+			for(int index : piece)
+				center.add(points.get(index));
+			center.div(piece.length);
+			ArrayList<PVector> vertices = new ArrayList<PVector>();
+			for(int index : piece)
+				vertices.add(PVector.sub(points.get(index), center));
+			compound.addShape(new HPolygon(center, vertices));
+		}
+		return compound;
+	}
+
+	/**
+	 * z component of (b - a) x (c - b), positive when a, b, c turn counter-clockwise.
+	 */
+	private static float cross(PVector a, PVector b, PVector c) {
+		return (b.x - a.x) * (c.y - b.y) - (b.y - a.y) * (c.x - b.x);
+	}
+
+	/**
+	 * Whether p is inside or on the counter-clockwise triangle abc.
+	 */
+	private static boolean inTriangle(PVector p, PVector a, PVector b, PVector c) {
+		return cross(a, b, p) >= 0 && cross(b, c, p) >= 0 && cross(c, a, p) >= 0;
+	}
+
+	/**
+	 * Triangulates a counter-clockwise simple polygon by ear clipping.
+	 * @return	the triangles, as counter-clockwise index triples into points
+	 */
+	private static ArrayList<int[]> triangulate(ArrayList<PVector> points) {
+		ArrayList<int[]> triangles = new ArrayList<int[]>();
+		ArrayList<Integer> remaining = new ArrayList<Integer>();
+		for(int i = 0; i < points.size(); i++)
+			remaining.add(i);
+		while(remaining.size() > 3) {
+			int n = remaining.size();
+			boolean clipped = false;
+			for(int i = 0; i < n; i++) {
+				int ia = remaining.get((i + n - 1) % n), ib = remaining.get(i), ic = remaining.get((i + 1) % n);
+				PVector a = points.get(ia), b = points.get(ib), c = points.get(ic);
+				if(cross(a, b, c) <= 0)
+					continue; // reflex (or flat) vertex, not an ear
+				boolean ear = true;
+				for(int j = 0; j < n && ear; j++) {
+					int ip = remaining.get(j);
+					if(ip != ia && ip != ib && ip != ic && inTriangle(points.get(ip), a, b, c))
+						ear = false;
+				}
+				if(ear) {
+					triangles.add(new int[] { ia, ib, ic });
+					remaining.remove(i);
+					clipped = true;
+					break;
+				}
+			}
+			// a simple polygon always has an ear, this only triggers on self-intersecting outlines
+			assert clipped : "HCompoundShape.createFromOutline: outline must not intersect itself";
+			if(!clipped)
+				break;
+		}
+		if(remaining.size() == 3)
+			triangles.add(new int[] { remaining.get(0), remaining.get(1), remaining.get(2) });
+		return triangles;
+	}
+
+	/**
+	 * Repeatedly merges pairs of pieces that share an edge, where the merged piece is strictly convex.
+	 */
+	private static void mergeConvex(ArrayList<PVector> points, ArrayList<int[]> pieces) {
+		for(boolean merged = true; merged; ) {
+			merged = false;
+			search:
+			for(int p = 0; p < pieces.size(); p++) {
+				int[] first = pieces.get(p);
+				for(int q = p + 1; q < pieces.size(); q++) {
+					int[] second = pieces.get(q);
+					int[] union = merge(first, second);
+					if(union != null && isConvex(points, union)) {
+						pieces.set(p, union);
+						pieces.remove(q);
+						merged = true;
+						break search;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Joins two counter-clockwise pieces along an edge a->b of first and b->a of second.
+	 * @return	the joined piece, or null if they do not share an edge
+	 */
+	private static int[] merge(int[] first, int[] second) {
+		for(int i = 0; i < first.length; i++) {
+			int a = first[i], b = first[(i + 1) % first.length];
+			for(int j = 0; j < second.length; j++) {
+				if(second[j] != b || second[(j + 1) % second.length] != a)
+					continue;
+				int[] union = new int[first.length + second.length - 2];
+				int k = 0;
+				// first, from b around to a
+				for(int m = 1; m <= first.length; m++)
+					union[k++] = first[(i + m) % first.length];
+				// second, after a and before b
+				for(int m = 2; m < second.length; m++)
+					union[k++] = second[(j + m) % second.length];
+				return union;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isConvex(ArrayList<PVector> points, int[] piece) {
+		int n = piece.length;
+		for(int i = 0; i < n; i++) {
+			if(cross(points.get(piece[i]), points.get(piece[(i + 1) % n]), points.get(piece[(i + 2) % n])) <= 0)
+				return false;
+		}
+		return true;
+	}
+
 }
-*/
\ No newline at end of file
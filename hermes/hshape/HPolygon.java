@@ -403,6 +403,18 @@ public class HPolygon extends HShape {
 		return resolution;
 	}
 
+	@Override
+	public PVector projectionVector(HCompoundShape other) {
+		PVector opposite = other.projectionVector(this);
+		return opposite == null ? null : reverse(opposite);
+	}
+	
+	@Override
+	public PVector projectionVector(HTileMap other) {
+		PVector opposite = other.projectionVector(this);
+		return opposite == null ? null : reverse(opposite);
+	}
+	
 	/*private PVector checkSepAxis(PVector axis, PVector dist, HRectangle other) {
 		
 	}*/
@@ -560,6 +572,29 @@ public class HPolygon extends HShape {
 		return contains(new PVector(x,y,0));
 	}
 	
+	@Override
+	public float raycast(float x, float y, float dirX, float dirY, float maxDistance) {
+		if(contains(x, y))
+			return 0;
+		// nearest crossing of the ray with an edge
+		float ox = x - _position.x, oy = y - _position.y;
+		float best = -1;
+		int n = _points.size();
+		for(int i = 0; i < n; i++) {
+			PVector a = _points.get(i), b = _points.get((i + 1) % n);
+			float edgeX = b.x - a.x, edgeY = b.y - a.y;
+			float denominator = dirX * edgeY - dirY * edgeX;
+			if(denominator == 0)
+				continue; // parallel
+			float toX = a.x - ox, toY = a.y - oy;
+			float t = (toX * edgeY - toY * edgeX) / denominator;	// distance along the ray
+			float s = (toX * dirY - toY * dirX) / denominator;		// fraction along the edge
+			if(t >= 0 && t <= maxDistance && s >= 0 && s <= 1 && (best < 0 || t < best))
+				best = t;
+		}
+		return best;
+	}
+	
 	@Override
 	public HRectangle getBoundingBox() {
 		float xMax = Float.NEGATIVE_INFINITY;
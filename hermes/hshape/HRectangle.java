@@ -27,7 +27,7 @@ public class HRectangle extends HShape {
 	public HRectangle(float a, float b, float c, float d) {
 		super(new PVector(a,b,0));
 		PApplet p = Hermes.getPApplet();
-		if(p != null) {
+		if(p != null && p.g != null) {
 			switch(p.g.rectMode) {
 			case PApplet.CORNER:
 				_min = zeroVector();
@@ -171,6 +171,18 @@ public class HRectangle extends HShape {
 		return opposite == null ? null : reverse(opposite);
 	}
 
+	@Override
+	public PVector projectionVector(HCompoundShape other) {
+		PVector opposite = other.projectionVector(this);
+		return opposite == null ? null : reverse(opposite);
+	}
+	
+	@Override
+	public PVector projectionVector(HTileMap other) {
+		PVector opposite = other.projectionVector(this);
+		return opposite == null ? null : reverse(opposite);
+	}
+	
 	@Override
 	public PVector projectionVector(HRectangle other) {
 		if(other == this)	// no self-projection
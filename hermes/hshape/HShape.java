@@ -55,6 +55,8 @@ public abstract class HShape {
 	public abstract PVector projectionVector(HRectangle other);
 	public abstract PVector projectionVector(HCircle other);
 	public abstract PVector projectionVector(HPolygon other);
+	public abstract PVector projectionVector(HCompoundShape other);
+	public abstract PVector projectionVector(HTileMap other);
 	
 	/**
 	 * Whether the Shape contains the given point coordinates (boundary is inclusive).
@@ -70,6 +72,50 @@ public abstract class HShape {
 	 */
 	public abstract boolean contains(float x, float y);
 	
+	/**
+	 * Finds where a ray first hits the shape.
+	 * <p>
+	 * By default this tests the ray against the shape's bounding box; shapes override it with an exact test.
+	 * @param x				x coordinate of the ray's origin
+	 * @param y				y coordinate of the ray's origin
+	 * @param dirX			x component of the ray's direction, which must have unit length
+	 * @param dirY			y component of the ray's direction
+	 * @param maxDistance	how far along the ray to look
+	 * @return				the distance along the ray to the first hit (0 if the origin is inside the shape),
+	 * 							or -1 if the ray does not hit the shape within maxDistance
+	 */
+	public float raycast(float x, float y, float dirX, float dirY, float maxDistance) {
+		HRectangle box = getBoundingBox();
+		PVector min = box.getAbsMin(), max = box.getAbsMax();
+		return raycastBox(min.x, min.y, max.x, max.y, x, y, dirX, dirY, maxDistance);
+	}
+	
+	/**
+	 * Finds where a ray first hits an axis-aligned box, using the slab method.
+	 * @return	the distance along the ray to the box, 0 if the origin is inside, or -1 if missed within maxDistance
+	 */
+	public static float raycastBox(float minX, float minY, float maxX, float maxY,
+			float x, float y, float dirX, float dirY, float maxDistance) {
+		float near = 0, far = maxDistance;
+		if(dirX == 0) {
+			if(x < minX || x > maxX)
+				return -1;
+		} else {
+			float t1 = (minX - x) / dirX, t2 = (maxX - x) / dirX;
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+		}
+		if(dirY == 0) {
+			if(y < minY || y > maxY)
+				return -1;
+		} else {
+			float t1 = (minY - y) / dirY, t2 = (maxY - y) / dirY;
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+		}
+		return near <= far ? near : -1;
+	}
+	
 	/**
 	 * Finds the smallest Rectangle that encloses the shape.
 	 * @return	the bounding box
@@ -0,0 +1,379 @@
+package hermes.hshape;
+
+import hermes.Hermes;
+
+import processing.core.PVector;
+import static hermes.HermesMath.*;
+
+/**
+ * Represents a grid of equally sized tiles, each of which is either solid or empty.
+ * <p>
+ * Position is the upper left corner of the grid. Solidity is stored as one bit per tile,
+ * 	so a whole level can be a single shape. Collisions only examine the tiles overlapped
+ * 	by the other shape's bounding box, so their cost depends on the size of the other shape
+ * 	rather than the size of the map.
+ * <p>
+ * When resolving a rectangle or circle against the map, faces shared by two solid tiles are ignored,
+ * 	so shapes sliding along a floor or wall made of many tiles are never pushed against the seams.
+ * 	As with <code>HCompoundShape</code>, the projection vector returned is the largest of those
+ * 	from the individual overlapping tiles.
+ */
+public class HTileMap extends HShape {
+
+	private int _columns, _rows;		// size of the grid in tiles
+	private float _tileWidth, _tileHeight;
+	private long[] _solid;				// one bit per tile, row-major
+
+	/**
+	 * Creates a new tile map with all tiles empty.
+	 * @param position		position of the upper left corner of the grid
+	 * @param columns		number of tiles across
+	 * @param rows			number of tiles down
+	 * @param tileWidth		width of each tile
+	 * @param tileHeight	height of each tile
+	 */
+	public HTileMap(PVector position, int columns, int rows, float tileWidth, float tileHeight) {
+		super(position);
+
+		assert columns > 0 && rows > 0 : "In HTileMap constructor, columns and rows must be positive";
+		assert tileWidth > 0 && tileHeight > 0 : "In HTileMap constructor, tile size must be positive";
+
+		_columns = columns;
+		_rows = rows;
+		_tileWidth = tileWidth;
+		_tileHeight = tileHeight;
+		_solid = new long[(int)(((long)columns * rows + 63) / 64)];
+	}
+
+	/**
+	 * Creates a new tile map from rows of characters, where any character in <code>solid</code> marks a solid tile.
+	 * The number of columns is the length of the longest row.
+	 * @param position		position of the upper left corner of the grid
+	 * @param tileWidth		width of each tile
+	 * @param tileHeight	height of each tile
+	 * @param solid			the characters that represent solid tiles
+	 * @param lines			the rows of the map, top to bottom
+	 */
+	public HTileMap(PVector position, float tileWidth, float tileHeight, String solid, String... lines) {
+		this(position, longest(lines), lines.length, tileWidth, tileHeight);
+		for(int row = 0; row < lines.length; row++) {
+			for(int column = 0; column < lines[row].length(); column++) {
+				if(solid.indexOf(lines[row].charAt(column)) >= 0)
+					setSolid(column, row, true);
+			}
+		}
+	}
+
+	private static int longest(String[] lines) {
+		assert lines != null && lines.length > 0 : "In HTileMap constructor, lines must contain at least one row";
+		int longest = 1;
+		for(String line : lines)
+			longest = Math.max(longest, line.length());
+		return longest;
+	}
+
+	/**
+	 * @return	number of tiles across
+	 */
+	public int getColumns() {
+		return _columns;
+	}
+
+	/**
+	 * @return	number of tiles down
+	 */
+	public int getRows() {
+		return _rows;
+	}
+
+	public float getTileWidth() {
+		return _tileWidth;
+	}
+
+	public float getTileHeight() {
+		return _tileHeight;
+	}
+
+	/**
+	 * Whether a tile is solid. Tiles outside the grid are empty.
+	 * @param column	the tile's column
+	 * @param row		the tile's row
+	 * @return			true if the tile is solid
+	 */
+	public boolean isSolid(int column, int row) {
+		if(column < 0 || row < 0 || column >= _columns || row >= _rows)
+			return false;
+		int index = row * _columns + column;
+		return (_solid[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Sets whether a tile is solid.
+	 * @param column	the tile's column
+	 * @param row		the tile's row
+	 * @param solid		whether the tile is solid
+	 */
+	public void setSolid(int column, int row, boolean solid) {
+		assert column >= 0 && row >= 0 && column < _columns && row < _rows : "HTileMap.setSolid: tile must be within the grid";
+
+		int index = row * _columns + column;
+		if(solid)
+			_solid[index >>> 6] |= 1L << index;
+		else
+			_solid[index >>> 6] &= ~(1L << index);
+	}
+
+	/**
+	 * @param x		x coordinate in world coordinates
+	 * @return		the column containing x (may be outside the grid)
+	 */
+	public int getColumn(float x) {
+		return (int)Math.floor((x - _position.x) / _tileWidth);
+	}
+
+	/**
+	 * @param y		y coordinate in world coordinates
+	 * @return		the row containing y (may be outside the grid)
+	 */
+	public int getRow(float y) {
+		return (int)Math.floor((y - _position.y) / _tileHeight);
+	}
+
+	@Override
+	public PVector projectionVector(HShape other) {
+		assert other != null : "HTileMap.projectionVector: other must be a valid HShape";
+		PVector opposite = other.projectionVector(this);
+		return opposite == null ? null : reverse(opposite);
+	}
+
+	@Override
+	public PVector projectionVector(HRectangle other) {
+		PVector min = other.getAbsMin();
+		PVector max = other.getAbsMax();
+		int firstColumn = Math.max(getColumn(min.x), 0), lastColumn = Math.min(getColumn(max.x), _columns - 1);
+		int firstRow = Math.max(getRow(min.y), 0), lastRow = Math.min(getRow(max.y), _rows - 1);
+
+		PVector result = null;
+		float resultSize = -1;
+		for(int row = firstRow; row <= lastRow; row++) {
+			for(int column = firstColumn; column <= lastColumn; column++) {
+				if(!isSolid(column, row))
+					continue;
+				float left = _position.x + column * _tileWidth, right = left + _tileWidth;
+				float top = _position.y + row * _tileHeight, bottom = top + _tileHeight;
+				// distance to push other out through each exposed face, along the axis away from the tile
+				float x = 0, y = 0, size = Float.MAX_VALUE;
+				if(!isSolid(column - 1, row) && max.x - left < size) {
+					size = max.x - left;
+					x = -size;
+					y = 0;
+				}
+				if(!isSolid(column + 1, row) && right - min.x < size) {
+					size = right - min.x;
+					x = size;
+					y = 0;
+				}
+				if(!isSolid(column, row - 1) && max.y - top < size) {
+					size = max.y - top;
+					x = 0;
+					y = -size;
+				}
+				if(!isSolid(column, row + 1) && bottom - min.y < size) {
+					size = bottom - min.y;
+					x = 0;
+					y = size;
+				}
+				if(size != Float.MAX_VALUE && size > resultSize) { // a tile with no exposed faces is left to its neighbors
+					result = new PVector(x, y);
+					resultSize = size;
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public PVector projectionVector(HCircle other) {
+		PVector center = PVector.add(other.getPosition(), other.getCenter());
+		float radius = other.getRadius();
+		int firstColumn = Math.max(getColumn(center.x - radius), 0), lastColumn = Math.min(getColumn(center.x + radius), _columns - 1);
+		int firstRow = Math.max(getRow(center.y - radius), 0), lastRow = Math.min(getRow(center.y + radius), _rows - 1);
+
+		PVector result = null;
+		float resultSize = -1;
+		for(int row = firstRow; row <= lastRow; row++) {
+			for(int column = firstColumn; column <= lastColumn; column++) {
+				if(!isSolid(column, row))
+					continue;
+				float left = _position.x + column * _tileWidth, right = left + _tileWidth;
+				float top = _position.y + row * _tileHeight, bottom = top + _tileHeight;
+				// closest point of the tile to the circle's center
+				float closestX = Math.max(left, Math.min(center.x, right));
+				float closestY = Math.max(top, Math.min(center.y, bottom));
+				float dx = center.x - closestX, dy = center.y - closestY;
+				float x = 0, y = 0, size;
+				if(dx != 0 || dy != 0) {
+					// center outside the tile: push away from the closest point, unless it's on a hidden face
+					if((dy == 0 && isSolid(column + (int)Math.signum(dx), row))
+							|| (dx == 0 && isSolid(column, row + (int)Math.signum(dy))))
+						continue;
+					float distance = (float)Math.sqrt(dx * dx + dy * dy);
+					if(distance > radius)
+						continue;
+					size = radius - distance;
+					x = dx / distance * size;
+					y = dy / distance * size;
+				} else {
+					// center inside the tile: push out through the nearest exposed face
+					size = Float.MAX_VALUE;
+					if(!isSolid(column - 1, row) && center.x - left + radius < size) {
+						size = center.x - left + radius;
+						x = -size;
+						y = 0;
+					}
+					if(!isSolid(column + 1, row) && right - center.x + radius < size) {
+						size = right - center.x + radius;
+						x = size;
+						y = 0;
+					}
+					if(!isSolid(column, row - 1) && center.y - top + radius < size) {
+						size = center.y - top + radius;
+						x = 0;
+						y = -size;
+					}
+					if(!isSolid(column, row + 1) && bottom - center.y + radius < size) {
+						size = bottom - center.y + radius;
+						x = 0;
+						y = size;
+					}
+					if(size == Float.MAX_VALUE)
+						continue;
+				}
+				if(size > resultSize) {
+					result = new PVector(x, y);
+					resultSize = size;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Polygons are tested against each overlapped solid tile as a rectangle, so seams between tiles are not hidden.
+	 */
+	@Override
+	public PVector projectionVector(HPolygon other) {
+		HRectangle box = other.getBoundingBox();
+		PVector min = box.getAbsMin();
+		PVector max = box.getAbsMax();
+		int firstColumn = Math.max(getColumn(min.x), 0), lastColumn = Math.min(getColumn(max.x), _columns - 1);
+		int firstRow = Math.max(getRow(min.y), 0), lastRow = Math.min(getRow(max.y), _rows - 1);
+
+		PVector result = null;
+		float resultSize = -1;
+		for(int row = firstRow; row <= lastRow; row++) {
+			for(int column = firstColumn; column <= lastColumn; column++) {
+				if(!isSolid(column, row))
+					continue;
+				HRectangle tile = new HRectangle(
+						makeVector(_position.x + column * _tileWidth, _position.y + row * _tileHeight),
+						zeroVector(), makeVector(_tileWidth, _tileHeight));
+				PVector projection = tile.projectionVector(other);
+				if(projection != null && mag2(projection) > resultSize) {
+					result = projection;
+					resultSize = mag2(projection);
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public PVector projectionVector(HCompoundShape other) {
+		PVector opposite = other.projectionVector(this);
+		return opposite == null ? null : reverse(opposite);
+	}
+
+	/**
+	 * Tile maps are static level geometry, and never collide with each other.
+	 */
+	@Override
+	public PVector projectionVector(HTileMap other) {
+		return null;
+	}
+
+	@Override
+	public boolean contains(PVector point) {
+		return contains(point.x, point.y);
+	}
+
+	@Override
+	public boolean contains(float x, float y) {
+		return isSolid(getColumn(x), getRow(y));
+	}
+
+	/**
+	 * Walks the tiles along the ray in order, so the cost depends on the distance travelled rather than the size of the map.
+	 */
+	@Override
+	public float raycast(float x, float y, float dirX, float dirY, float maxDistance) {
+		// start where the ray enters the grid
+		float width = _columns * _tileWidth, height = _rows * _tileHeight;
+		float t = raycastBox(_position.x, _position.y, _position.x + width, _position.y + height,
+				x, y, dirX, dirY, maxDistance);
+		if(t < 0)
+			return -1;
+		float localX = x + dirX * t - _position.x, localY = y + dirY * t - _position.y;
+		int column = Math.min(Math.max((int)Math.floor(localX / _tileWidth), 0), _columns - 1);
+		int row = Math.min(Math.max((int)Math.floor(localY / _tileHeight), 0), _rows - 1);
+		int stepColumn = dirX > 0 ? 1 : -1, stepRow = dirY > 0 ? 1 : -1;
+		// distance along the ray to the next column and row boundaries, and between boundaries
+		float deltaX = dirX == 0 ? Float.POSITIVE_INFINITY : Math.abs(_tileWidth / dirX);
+		float deltaY = dirY == 0 ? Float.POSITIVE_INFINITY : Math.abs(_tileHeight / dirY);
+		float nextX = dirX == 0 ? Float.POSITIVE_INFINITY : t + ((column + (dirX > 0 ? 1 : 0)) * _tileWidth - localX) / dirX;
+		float nextY = dirY == 0 ? Float.POSITIVE_INFINITY : t + ((row + (dirY > 0 ? 1 : 0)) * _tileHeight - localY) / dirY;
+		while(t <= maxDistance) {
+			if(isSolid(column, row))
+				return t;
+			if(nextX < nextY) {
+				t = nextX;
+				nextX += deltaX;
+				column += stepColumn;
+				if(column < 0 || column >= _columns)
+					return -1;
+			} else {
+				t = nextY;
+				nextY += deltaY;
+				row += stepRow;
+				if(row < 0 || row >= _rows)
+					return -1;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public HRectangle getBoundingBox() {
+		return new HRectangle(_position, zeroVector(), makeVector(_columns * _tileWidth, _rows * _tileHeight));
+	}
+
+	/**
+	 * Draws every solid tile as a rectangle.
+	 */
+	@Override
+	public void draw() {
+		for(int row = 0; row < _rows; row++) {
+			for(int column = 0; column < _columns; column++) {
+				if(isSolid(column, row))
+					Hermes.getPApplet().rect(column * _tileWidth, row * _tileHeight, _tileWidth, _tileHeight);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Position:" + _position + "\nColumns:" + _columns + "\nRows:" + _rows +
+				"\nTile Width:" + _tileWidth + "\nTile Height:" + _tileHeight;
+	}
+
+}
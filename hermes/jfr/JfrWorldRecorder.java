@@ -0,0 +1,197 @@
+package hermes.jfr;
+
+import hermes.WorldRecorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Records World updates as Java Flight Recorder events, so a recording lines them up with GC, allocation
+ * 	and the rest of the JVM's events.
+ * <p>
+ * The events are in the "Hermes" category: each update, the detection of each interaction, the handling of
+ * 	each interaction's deferred pairs, each multisample round, and each time the group queues are resolved. Enable them
+ * 	like any other event, e.g. <code>-XX:StartFlightRecording</code> or in JDK Mission Control.
+ * <p>
+ * Needs Java 11 or later. This package is compiled separately from the rest of Hermes, and the World only
+ * 	uses it if it can be loaded.
+ */
+public class JfrWorldRecorder implements WorldRecorder {
+
+	@Name("hermes.WorldUpdate")
+	@Label("World Update")
+	@Category("Hermes")
+	@Description("One World.update, not counting the wait for the next")
+	static class UpdateEvent extends Event {
+		@Label("Beings")
+		int beings;
+		@Label("Interactions")
+		int interactions;
+		@Label("Multisample Rounds")
+		int multisampleRounds;
+	}
+
+	@Name("hermes.Detect")
+	@Label("Interaction Detect")
+	@Category("Hermes")
+	@Description("Detecting one interaction, and handling it if it is applied immediately")
+	static class DetectEvent extends Event {
+		@Label("Interactor")
+		Class<?> interactor;
+		@Label("Group A Size")
+		int sizeA;
+		@Label("Group B Size")
+		int sizeB;
+		@Label("Pairs Tested")
+		long pairs;
+		@Label("Hits")
+		long hits;
+	}
+
+	@Name("hermes.Handle")
+	@Label("Deferred Handle")
+	@Category("Hermes")
+	@Description("Handling the pairs one interaction detected that are not applied immediately")
+	static class HandleEvent extends Event {
+		@Label("Interactor")
+		Class<?> interactor;
+		@Label("Group A Size")
+		int sizeA;
+		@Label("Group B Size")
+		int sizeB;
+		@Label("Handled")
+		int handled;
+	}
+
+	@Name("hermes.Multisample")
+	@Label("Multisample Round")
+	@Category("Hermes")
+	@Description("A further round of detection, handling and stepping for multisampled beings")
+	static class MultisampleEvent extends Event {
+		@Label("Round")
+		int round;
+		@Label("Beings")
+		int beings;
+	}
+
+	@Name("hermes.ResolveQueues")
+	@Label("Resolve Group Queues")
+	@Category("Hermes")
+	@Description("Adding, removing and deleting the objects queued during the update")
+	static class ResolveEvent extends Event {
+		@Label("Added")
+		int added;
+		@Label("Removed")
+		int removed;
+		@Label("Deleted")
+		int deleted;
+	}
+
+	private static final EventType[] TYPES = {
+		EventType.getEventType(UpdateEvent.class),
+		EventType.getEventType(DetectEvent.class),
+		EventType.getEventType(HandleEvent.class),
+		EventType.getEventType(MultisampleEvent.class),
+		EventType.getEventType(ResolveEvent.class)
+	};
+
+	public boolean isRecording() {
+		for(EventType type : TYPES) {
+			if(type.isEnabled())
+				return true;
+		}
+		return false;
+	}
+
+	public Object beginUpdate() {
+		UpdateEvent event = new UpdateEvent();
+		event.begin();
+		return event;
+	}
+
+	public void endUpdate(Object update, int beings, int interactions, int multisampleRounds) {
+		UpdateEvent event = (UpdateEvent)update;
+		event.end();
+		if(event.shouldCommit()) {
+			event.beings = beings;
+			event.interactions = interactions;
+			event.multisampleRounds = multisampleRounds;
+			event.commit();
+		}
+	}
+
+	public Object beginDetect() {
+		DetectEvent event = new DetectEvent();
+		event.begin();
+		return event;
+	}
+
+	public void endDetect(Object detect, Class<?> interactor, int sizeA, int sizeB, long pairs, long hits) {
+		DetectEvent event = (DetectEvent)detect;
+		event.end();
+		if(event.shouldCommit()) {
+			event.interactor = interactor;
+			event.sizeA = sizeA;
+			event.sizeB = sizeB;
+			event.pairs = pairs;
+			event.hits = hits;
+			event.commit();
+		}
+	}
+
+	public Object beginHandle() {
+		HandleEvent event = new HandleEvent();
+		event.begin();
+		return event;
+	}
+
+	public void endHandle(Object handle, Class<?> interactor, int sizeA, int sizeB, int handled) {
+		HandleEvent event = (HandleEvent)handle;
+		event.end();
+		if(event.shouldCommit()) {
+			event.interactor = interactor;
+			event.sizeA = sizeA;
+			event.sizeB = sizeB;
+			event.handled = handled;
+			event.commit();
+		}
+	}
+
+	public Object beginMultisample() {
+		MultisampleEvent event = new MultisampleEvent();
+		event.begin();
+		return event;
+	}
+
+	public void endMultisample(Object multisample, int round, int beings) {
+		MultisampleEvent event = (MultisampleEvent)multisample;
+		event.end();
+		if(event.shouldCommit()) {
+			event.round = round;
+			event.beings = beings;
+			event.commit();
+		}
+	}
+
+	public Object beginResolve() {
+		ResolveEvent event = new ResolveEvent();
+		event.begin();
+		return event;
+	}
+
+	public void endResolve(Object resolve, int added, int removed, int deleted) {
+		ResolveEvent event = (ResolveEvent)resolve;
+		event.end();
+		if(event.shouldCommit()) {
+			event.added = added;
+			event.removed = removed;
+			event.deleted = deleted;
+			event.commit();
+		}
+	}
+
+}
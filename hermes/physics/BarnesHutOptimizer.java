@@ -0,0 +1,376 @@
+package hermes.physics;
+
+import hermes.GenericGroup;
+import hermes.InteractionHandler;
+import hermes.Optimizer;
+
+import java.util.Iterator;
+
+import processing.core.PVector;
+
+/**
+ * An <code>Optimizer</code> that approximates an <code>InverseSquareInteractor</code> using a Barnes-Hut quadtree.
+ * <p>
+ * On each update a quadtree is built over the positions of the beings in a group. Every node of the tree
+ * 	stores the total <code>beingFactor</code> of the beings below it, and their weighted center.
+ * 	The force on a being is then accumulated by walking the tree: a node whose width divided by its distance
+ * 	from the being is less than the opening angle theta is treated as a single body at its center, otherwise
+ * 	its children are visited. This reduces the cost of an update from O(n^2) to O(n log n).
+ * <p>
+ * Smaller values of theta are more accurate but slower, a theta of 0 gives the same forces as the pairwise
+ * 	interaction. 0.5 is the default.
+ * <p>
+ * The interactor's <code>detect</code> and <code>handle</code> methods are bypassed, forces are added directly
+ * 	with <code>MassedBeing.addForce</code>. If the interactor has a range limit, it is checked against the center
+ * 	of each approximated node rather than against each individual being.
+ * <p>
+ * If the two groups are different, each group receives forces from a tree built over the other,
+ * 	so the forces are still equal and opposite (within the approximation).
+ * <p>
+ * Example: <code>world.register(planets, planets, gravity, new BarnesHutOptimizer&lt;Planet&gt;(gravity, 0.5f));</code>
+ *
+ * @param <A>	the type of MassedBeing the groups contain
+ */
+public class BarnesHutOptimizer<A extends MassedBeing>
+				implements Optimizer<A, A, GenericGroup<A,?>, GenericGroup<A,?>> {
+
+	public static final float DEFAULT_THETA = 0.5f;
+
+	private static final int MAX_DEPTH = 24;	// coincident beings share a leaf below this depth
+	private static final int INTERNAL = -2;		// _firstBody value marking an internal node
+	private static final int EMPTY = -1;		// _firstBody value marking an empty leaf, ends leaf lists
+
+	private InverseSquareInteractor _interactor;	// the interaction being approximated
+	private float _theta;							// the opening angle
+
+	// the beings in the tree, packed so the tree can be built and walked without touching the beings
+	private MassedBeing[] _beings;
+	private float[] _bodyX;
+	private float[] _bodyY;
+	private float[] _bodyQ;
+	private int[] _nextInLeaf;		// links the beings sharing a leaf
+	private int _bodyCount;
+
+	// the tree nodes, stored in parallel arrays that are reused between updates
+	private int[] _children;		// four per node, EMPTY when the quadrant has no beings
+	private int[] _firstBody;		// first being in a leaf, or INTERNAL
+	private float[] _nodeX;			// min corner of the node
+	private float[] _nodeY;
+	private float[] _nodeSize;		// side length of the node
+	private double[] _nodeQ;		// total factor of the node's beings
+	private double[] _nodeWeight;	// total magnitude of the factors, used to weight the center
+	private double[] _nodeCenterX;	// weighted center of the node's beings
+	private double[] _nodeCenterY;
+	private int _nodeCount;
+
+	private int[] _stack;			// traversal stack
+	private PVector _force;			// scratch vector passed to addForce
+
+	/**
+	 * Creates a Barnes-Hut optimizer for the given interactor.
+	 * @param interactor	the interactor this optimizer is registered with
+	 * @param theta			the opening angle, must be non-negative
+	 */
+	public BarnesHutOptimizer(InverseSquareInteractor interactor, float theta) {
+		assert interactor != null : "BarnesHutOptimizer constructor: interactor must be a valid InverseSquareInteractor";
+		assert theta >= 0 : "BarnesHutOptimizer constructor: theta must be non-negative";
+
+		_interactor = interactor;
+		_theta = theta;
+
+		allocateBodies(16);
+		allocateNodes(64);
+		_stack = new int[4 * (MAX_DEPTH + 2)];
+		_force = new PVector();
+	}
+
+	/**
+	 * Creates a Barnes-Hut optimizer for the given interactor, with the default opening angle.
+	 * @param interactor	the interactor this optimizer is registered with
+	 */
+	public BarnesHutOptimizer(InverseSquareInteractor interactor) {
+		this(interactor, DEFAULT_THETA);
+	}
+
+	/**
+	 * @return	the opening angle
+	 */
+	public float getTheta() {
+		return _theta;
+	}
+
+	/**
+	 * Sets the opening angle. Nodes whose width divided by their distance from a being is less than theta
+	 * 	are approximated by a single body.
+	 * @param theta	the opening angle, must be non-negative
+	 */
+	public void setTheta(float theta) {
+		assert theta >= 0 : "BarnesHutOptimizer.setTheta: theta must be non-negative";
+		_theta = theta;
+	}
+
+	public void detect(GenericGroup<A,?> group1, GenericGroup<A,?> group2, InteractionHandler<A,A> handler) {
+		build(group2);
+		applyForces(group1);
+		if(group1 != group2) {
+			build(group1);
+			applyForces(group2);
+		}
+	}
+
+	/**
+	 * Builds the tree over the beings in a group.
+	 * @param group	the group
+	 */
+	private void build(GenericGroup<A,?> group) {
+		int n = group.size();
+		if(_beings.length < n) {
+			allocateBodies(Math.max(n, 2 * _beings.length));
+		}
+
+		// pack the beings and find their bounds
+		float minX = Float.POSITIVE_INFINITY;
+		float minY = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY;
+		float maxY = Float.NEGATIVE_INFINITY;
+		_bodyCount = 0;
+		for(Iterator<A> iter = group.iterator(); iter.hasNext(); ) {
+			A being = iter.next();
+			PVector position = being.getPosition();
+			int i = _bodyCount++;
+			_beings[i] = being;
+			_bodyX[i] = position.x;
+			_bodyY[i] = position.y;
+			_bodyQ[i] = _interactor.beingFactor(being);
+			_nextInLeaf[i] = EMPTY;
+			if(position.x < minX) minX = position.x;
+			if(position.x > maxX) maxX = position.x;
+			if(position.y < minY) minY = position.y;
+			if(position.y > maxY) maxY = position.y;
+		}
+		// clear references to beings left over from a larger group
+		for(int i = _bodyCount; i < _beings.length && _beings[i] != null; i++) {
+			_beings[i] = null;
+		}
+
+		_nodeCount = 0;
+		if(_bodyCount == 0)
+			return;
+
+		float size = Math.max(maxX - minX, maxY - minY);
+		if(size <= 0)
+			size = 1;
+		newNode(minX, minY, size);
+		for(int i = 0; i < _bodyCount; i++) {
+			insert(i);
+		}
+
+		// turn the weighted sums into centers
+		for(int node = 0; node < _nodeCount; node++) {
+			if(_nodeWeight[node] > 0) {
+				_nodeCenterX[node] /= _nodeWeight[node];
+				_nodeCenterY[node] /= _nodeWeight[node];
+			}
+		}
+	}
+
+	/**
+	 * Inserts a packed being into the tree, splitting leaves as needed.
+	 * @param body	the index of the being
+	 */
+	private void insert(int body) {
+		float x = _bodyX[body];
+		float y = _bodyY[body];
+		int node = 0;
+		int depth = 0;
+		while(true) {
+			accumulate(node, body);
+			int first = _firstBody[node];
+			if(first == EMPTY) {
+				_firstBody[node] = body;
+				return;
+			}
+			if(first != INTERNAL) {
+				if(depth >= MAX_DEPTH) {
+					// too deep to separate them, share the leaf
+					_nextInLeaf[body] = first;
+					_firstBody[node] = body;
+					return;
+				}
+				// split the leaf, moving its being down a level
+				_firstBody[node] = INTERNAL;
+				int child = childFor(node, _bodyX[first], _bodyY[first]);
+				_firstBody[child] = first;
+				accumulate(child, first);
+			}
+			node = childFor(node, x, y);
+			depth++;
+		}
+	}
+
+	/**
+	 * Finds the child of a node containing a point, creating it if needed.
+	 * @param node	the parent node
+	 * @param x		x coordinate of the point
+	 * @param y		y coordinate of the point
+	 * @return		the index of the child node
+	 */
+	private int childFor(int node, float x, float y) {
+		float half = _nodeSize[node] / 2;
+		float midX = _nodeX[node] + half;
+		float midY = _nodeY[node] + half;
+		int quadrant = (x >= midX ? 1 : 0) + (y >= midY ? 2 : 0);
+		int child = _children[4 * node + quadrant];
+		if(child == EMPTY) {
+			child = newNode(x >= midX ? midX : _nodeX[node], y >= midY ? midY : _nodeY[node], half);
+			_children[4 * node + quadrant] = child;
+		}
+		return child;
+	}
+
+	private void accumulate(int node, int body) {
+		float q = _bodyQ[body];
+		float weight = Math.abs(q);
+		_nodeQ[node] += q;
+		_nodeWeight[node] += weight;
+		_nodeCenterX[node] += weight * _bodyX[body];
+		_nodeCenterY[node] += weight * _bodyY[body];
+	}
+
+	private int newNode(float x, float y, float size) {
+		if(_nodeCount == _nodeSize.length) {
+			allocateNodes(2 * _nodeSize.length);
+		}
+		int node = _nodeCount++;
+		_children[4 * node] = EMPTY;
+		_children[4 * node + 1] = EMPTY;
+		_children[4 * node + 2] = EMPTY;
+		_children[4 * node + 3] = EMPTY;
+		_firstBody[node] = EMPTY;
+		_nodeX[node] = x;
+		_nodeY[node] = y;
+		_nodeSize[node] = size;
+		_nodeQ[node] = 0;
+		_nodeWeight[node] = 0;
+		_nodeCenterX[node] = 0;
+		_nodeCenterY[node] = 0;
+		return node;
+	}
+
+	/**
+	 * Adds the force from the current tree to each being in a group.
+	 * @param group	the group
+	 */
+	private void applyForces(GenericGroup<A,?> group) {
+		if(_nodeCount == 0)
+			return;
+		for(Iterator<A> iter = group.iterator(); iter.hasNext(); ) {
+			A being = iter.next();
+			PVector position = being.getPosition();
+			addTreeForce(being, position.x, position.y, _interactor.beingFactor(being));
+		}
+	}
+
+	/**
+	 * Walks the tree, accumulating the force on a single being.
+	 */
+	private void addTreeForce(MassedBeing being, float x, float y, float q) {
+		double k = _interactor.getFactor() * q;
+		float maxRangeSquared = _interactor.getMaxRangeSquared();
+		float theta2 = _theta * _theta;
+		double fx = 0;
+		double fy = 0;
+
+		int top = 0;
+		_stack[top++] = 0;
+		while(top > 0) {
+			int node = _stack[--top];
+			int first = _firstBody[node];
+			if(first != INTERNAL) {
+				// leaf, interact with each being exactly
+				for(int j = first; j != EMPTY; j = _nextInLeaf[j]) {
+					if(_beings[j] == being)
+						continue;
+					double dx = x - _bodyX[j];
+					double dy = y - _bodyY[j];
+					double d_squared = dx*dx + dy*dy;
+					if(d_squared == 0 || d_squared > maxRangeSquared)
+						continue;
+					double F = k * _bodyQ[j] / (d_squared * Math.sqrt(d_squared));
+					fx += F * dx;
+					fy += F * dy;
+				}
+				continue;
+			}
+			double dx = x - _nodeCenterX[node];
+			double dy = y - _nodeCenterY[node];
+			double d_squared = dx*dx + dy*dy;
+			float size = _nodeSize[node];
+			if(size * size < theta2 * d_squared && !inNode(node, x, y)) {
+				// far enough away, treat the node as a single body
+				if(d_squared <= maxRangeSquared) {
+					double F = k * _nodeQ[node] / (d_squared * Math.sqrt(d_squared));
+					fx += F * dx;
+					fy += F * dy;
+				}
+			} else {
+				for(int i = 4 * node; i < 4 * node + 4; i++) {
+					if(_children[i] != EMPTY)
+						_stack[top++] = _children[i];
+				}
+			}
+		}
+
+		_force.set((float)fx, (float)fy, 0);
+		being.addForce(_force);
+	}
+
+	private boolean inNode(int node, float x, float y) {
+		float size = _nodeSize[node];
+		return x >= _nodeX[node] && x <= _nodeX[node] + size &&
+				y >= _nodeY[node] && y <= _nodeY[node] + size;
+	}
+
+	private void allocateBodies(int capacity) {
+		_beings = new MassedBeing[capacity];
+		_bodyX = new float[capacity];
+		_bodyY = new float[capacity];
+		_bodyQ = new float[capacity];
+		_nextInLeaf = new int[capacity];
+	}
+
+	private void allocateNodes(int capacity) {
+		int old = _nodeCount;
+		_children = grow(_children, 4 * capacity, 4 * old);
+		_firstBody = grow(_firstBody, capacity, old);
+		_nodeX = grow(_nodeX, capacity, old);
+		_nodeY = grow(_nodeY, capacity, old);
+		_nodeSize = grow(_nodeSize, capacity, old);
+		_nodeQ = grow(_nodeQ, capacity, old);
+		_nodeWeight = grow(_nodeWeight, capacity, old);
+		_nodeCenterX = grow(_nodeCenterX, capacity, old);
+		_nodeCenterY = grow(_nodeCenterY, capacity, old);
+	}
+
+	private static int[] grow(int[] array, int capacity, int used) {
+		int[] grown = new int[capacity];
+		if(array != null)
+			System.arraycopy(array, 0, grown, 0, used);
+		return grown;
+	}
+
+	private static float[] grow(float[] array, int capacity, int used) {
+		float[] grown = new float[capacity];
+		if(array != null)
+			System.arraycopy(array, 0, grown, 0, used);
+		return grown;
+	}
+
+	private static double[] grow(double[] array, int capacity, int used) {
+		double[] grown = new double[capacity];
+		if(array != null)
+			System.arraycopy(array, 0, grown, 0, used);
+		return grown;
+	}
+
+}
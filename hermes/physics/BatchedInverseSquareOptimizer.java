@@ -0,0 +1,102 @@
+package hermes.physics;
+
+import hermes.GenericGroup;
+import hermes.InteractionHandler;
+import hermes.Optimizer;
+
+import java.util.Iterator;
+
+import processing.core.PVector;
+
+/**
+ * An <code>Optimizer</code> that computes an <code>InverseSquareInteractor</code> exactly, but in batches.
+ * <p>
+ * On each update the positions and <code>beingFactor</code>s of the groups are packed into arrays and passed to
+ * 	<code>InverseSquareInteractor.accumulateForces</code>, which works through every pair without allocating
+ * 	or calling back into the beings. Each being then receives a single <code>addForce</code>.
+ * 	The work is still O(n^2), but each pair is much cheaper than a call to <code>detect</code> and <code>handle</code>.
+ * <p>
+ * The interactor's <code>detect</code> and <code>handle</code> methods are bypassed, so this should only be used with
+ * 	interactors that do not override them. For very large groups use <code>BarnesHutOptimizer</code> or
+ * 	<code>ParticleMeshOptimizer</code> instead.
+ *
+ * @param <A>	the type of MassedBeing the groups contain
+ */
+public class BatchedInverseSquareOptimizer<A extends MassedBeing>
+				implements Optimizer<A, A, GenericGroup<A,?>, GenericGroup<A,?>> {
+
+	private InverseSquareInteractor _interactor;	// the interaction being computed
+
+	// the first group, packed
+	private float[] _x1, _y1, _q1, _fx1, _fy1;
+	// the second group, packed, if it is different from the first
+	private float[] _x2, _y2, _q2, _fx2, _fy2;
+
+	private PVector _force;			// scratch vector passed to addForce
+
+	/**
+	 * Creates a batched optimizer for the given interactor.
+	 * @param interactor	the interactor this optimizer is registered with
+	 */
+	public BatchedInverseSquareOptimizer(InverseSquareInteractor interactor) {
+		assert interactor != null : "BatchedInverseSquareOptimizer constructor: interactor must be a valid InverseSquareInteractor";
+
+		_interactor = interactor;
+		_x1 = _y1 = _q1 = _fx1 = _fy1 = new float[0];
+		_x2 = _y2 = _q2 = _fx2 = _fy2 = new float[0];
+		_force = new PVector();
+	}
+
+	public void detect(GenericGroup<A,?> group1, GenericGroup<A,?> group2, InteractionHandler<A,A> handler) {
+		int count1 = group1.size();
+		if(_x1.length < count1) {
+			_x1 = new float[count1];
+			_y1 = new float[count1];
+			_q1 = new float[count1];
+			_fx1 = new float[count1];
+			_fy1 = new float[count1];
+		}
+		count1 = pack(group1, _x1, _y1, _q1, _fx1, _fy1);
+
+		if(group1 == group2) {
+			_interactor.accumulateForces(_x1, _y1, _q1, count1, _fx1, _fy1);
+		} else {
+			int count2 = group2.size();
+			if(_x2.length < count2) {
+				_x2 = new float[count2];
+				_y2 = new float[count2];
+				_q2 = new float[count2];
+				_fx2 = new float[count2];
+				_fy2 = new float[count2];
+			}
+			count2 = pack(group2, _x2, _y2, _q2, _fx2, _fy2);
+			_interactor.accumulateForces(_x1, _y1, _q1, count1, _x2, _y2, _q2, count2,
+					_fx1, _fy1, _fx2, _fy2);
+			apply(group2, _fx2, _fy2);
+		}
+		apply(group1, _fx1, _fy1);
+	}
+
+	private int pack(GenericGroup<A,?> group, float[] x, float[] y, float[] q, float[] fx, float[] fy) {
+		int i = 0;
+		for(Iterator<A> iter = group.iterator(); iter.hasNext(); i++) {
+			A being = iter.next();
+			PVector position = being.getPosition();
+			x[i] = position.x;
+			y[i] = position.y;
+			q[i] = _interactor.beingFactor(being);
+			fx[i] = 0;
+			fy[i] = 0;
+		}
+		return i;
+	}
+
+	private void apply(GenericGroup<A,?> group, float[] fx, float[] fy) {
+		int i = 0;
+		for(Iterator<A> iter = group.iterator(); iter.hasNext(); i++) {
+			_force.set(fx[i], fy[i], 0);
+			iter.next().addForce(_force);
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+package hermes.physics;
+
+/**
+ * In-place radix-2 fast Fourier transform over a square grid of complex values,
+ * 	stored as separate arrays of real and imaginary parts in row-major order.
+ * <p>
+ * Internal -- used by <code>ParticleMeshOptimizer</code>.
+ */
+class FFT2D {
+
+	private int _n;				// side length of the grid, a power of two
+	private double[] _cos;		// twiddle factors
+	private double[] _sin;
+	private int[] _reversed;	// bit-reversed index permutation
+	private double[] _rowRe;	// scratch for transforming columns
+	private double[] _rowIm;
+
+	/**
+	 * Sets up the transform for an n by n grid.
+	 * @param n	the side length of the grid, must be a power of two
+	 */
+	FFT2D(int n) {
+		assert n > 0 && (n & (n - 1)) == 0 : "FFT2D constructor: n must be a power of two";
+
+		_n = n;
+		_cos = new double[n / 2];
+		_sin = new double[n / 2];
+		for(int i = 0; i < n / 2; i++) {
+			_cos[i] = Math.cos(2 * Math.PI * i / n);
+			_sin[i] = Math.sin(2 * Math.PI * i / n);
+		}
+		_reversed = new int[n];
+		int bits = Integer.numberOfTrailingZeros(n);
+		for(int i = 0; i < n; i++) {
+			_reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+		}
+		_rowRe = new double[n];
+		_rowIm = new double[n];
+	}
+
+	/**
+	 * @return	the side length of the grid
+	 */
+	int size() {
+		return _n;
+	}
+
+	/**
+	 * Transforms the grid in place.
+	 * @param re		real parts, n * n values
+	 * @param im		imaginary parts, n * n values
+	 * @param inverse	if true, performs the inverse transform (including the 1/n^2 normalization)
+	 */
+	void transform(double[] re, double[] im, boolean inverse) {
+		int n = _n;
+		// rows
+		for(int row = 0; row < n; row++) {
+			System.arraycopy(re, row * n, _rowRe, 0, n);
+			System.arraycopy(im, row * n, _rowIm, 0, n);
+			transform1D(_rowRe, _rowIm, inverse);
+			System.arraycopy(_rowRe, 0, re, row * n, n);
+			System.arraycopy(_rowIm, 0, im, row * n, n);
+		}
+		// columns
+		for(int col = 0; col < n; col++) {
+			for(int row = 0; row < n; row++) {
+				_rowRe[row] = re[row * n + col];
+				_rowIm[row] = im[row * n + col];
+			}
+			transform1D(_rowRe, _rowIm, inverse);
+			for(int row = 0; row < n; row++) {
+				re[row * n + col] = _rowRe[row];
+				im[row * n + col] = _rowIm[row];
+			}
+		}
+		if(inverse) {
+			double scale = 1.0 / ((double)n * n);
+			for(int i = 0; i < n * n; i++) {
+				re[i] *= scale;
+				im[i] *= scale;
+			}
+		}
+	}
+
+	private void transform1D(double[] re, double[] im, boolean inverse) {
+		int n = _n;
+		for(int i = 0; i < n; i++) {
+			int j = _reversed[i];
+			if(j > i) {
+				double t = re[i]; re[i] = re[j]; re[j] = t;
+				t = im[i]; im[i] = im[j]; im[j] = t;
+			}
+		}
+		double sign = inverse ? 1 : -1;
+		for(int length = 2; length <= n; length <<= 1) {
+			int half = length >> 1;
+			int step = n / length;
+			for(int start = 0; start < n; start += length) {
+				for(int k = 0; k < half; k++) {
+					double wr = _cos[k * step];
+					double wi = sign * _sin[k * step];
+					int a = start + k;
+					int b = a + half;
+					double xr = re[b] * wr - im[b] * wi;
+					double xi = re[b] * wi + im[b] * wr;
+					re[b] = re[a] - xr;
+					im[b] = im[a] - xi;
+					re[a] += xr;
+					im[a] += xi;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,29 @@
+package hermes.physics;
+
+/**
+ * Accumulates inverse square forces over packed arrays of positions and factors, for
+ * 	<code>InverseSquareInteractor.accumulateForces</code>.
+ * <p>
+ * Internal -- the interactor uses the SIMD kernel in <code>hermes.physics.simd</code> when it is present
+ * 	and the JVM has the Vector API (Java 16 or later, run with <code>--add-modules jdk.incubator.vector</code>),
+ * 	and a plain scalar loop otherwise.
+ */
+public interface ForceKernel {
+
+	/**
+	 * Adds the force between every pair in one group to <code>fx</code> and <code>fy</code>.
+	 * @param k				the force constant factor
+	 * @param rangeSquared	the square of the maximum interaction range
+	 */
+	public void accumulate(float k, float rangeSquared, float[] x, float[] y, float[] q, int count, float[] fx, float[] fy);
+
+	/**
+	 * Adds the force between every pair across two groups to the output arrays.
+	 * @param k				the force constant factor
+	 * @param rangeSquared	the square of the maximum interaction range
+	 */
+	public void accumulate(float k, float rangeSquared, float[] x1, float[] y1, float[] q1, int count1,
+			float[] x2, float[] y2, float[] q2, int count2,
+			float[] fx1, float[] fy1, float[] fx2, float[] fy2);
+
+}
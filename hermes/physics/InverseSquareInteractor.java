@@ -1,6 +1,5 @@
 package hermes.physics;
 
-import static hermes.HermesMath.reverse;
 import hermes.*;
 import processing.core.PVector;
 
@@ -16,6 +15,9 @@ public abstract class InverseSquareInteractor extends Interactor<MassedBeing, Ma
 
 	private float _maxRangeSquared;	// the maximum interaction range
 	private float _k;			 	// the gravity constant
+	private PVector _force;			// scratch vector passed to addForce
+	
+	private static final ForceKernel KERNEL = loadKernel(); // computes accumulateForces
 	
 	/**
 	 * Sets up a <code>ColoumbInteractor</code> with a range limit.
@@ -25,6 +27,7 @@ public abstract class InverseSquareInteractor extends Interactor<MassedBeing, Ma
 	public InverseSquareInteractor(float factor, float maxRange) {
 		_k = factor;
 		_maxRangeSquared = maxRange * maxRange;
+		_force = new PVector();
 	}
 	
 	/**
@@ -34,26 +37,99 @@ public abstract class InverseSquareInteractor extends Interactor<MassedBeing, Ma
 	public InverseSquareInteractor(float factor) {
 		_k = factor;
 		_maxRangeSquared = Float.POSITIVE_INFINITY;
+		_force = new PVector();
 	}
 	
 	public boolean detect(MassedBeing being1, MassedBeing being2) {
 		if(being1 == being2) // no self-interaction
 			return false;
-		PVector r = PVector.sub(being1.getPosition(), being2.getPosition());
-		float d_squared = r.dot(r);
+		PVector p1 = being1.getPosition();
+		PVector p2 = being2.getPosition();
+		float dx = p1.x - p2.x;
+		float dy = p1.y - p2.y;
+		float d_squared = dx*dx + dy*dy;
 		// check if the distance is within the maximum range
 		return d_squared <= _maxRangeSquared && d_squared != 0;
 	}
 
 	public void handle(MassedBeing being1, MassedBeing being2) {
-		// F = k * q1 * q2 / r^2
-		PVector r = PVector.sub(being2.getPosition(), being1.getPosition());
-		double d_squared = (double)r.dot(r);
-		double F = _k * beingFactor(being1) * beingFactor(being2) / d_squared;
-		r.normalize();
-		PVector force = PVector.mult(r, (float)F);
-		being2.addForce(force);
-		being1.addForce(reverse(force));
+		// F = k * q1 * q2 / r^2, along the unit vector from being1 to being2
+		PVector p1 = being1.getPosition();
+		PVector p2 = being2.getPosition();
+		double dx = p2.x - p1.x;
+		double dy = p2.y - p1.y;
+		double d_squared = dx*dx + dy*dy;
+		double F = _k * beingFactor(being1) * beingFactor(being2) / (d_squared * Math.sqrt(d_squared));
+		_force.set((float)(F * dx), (float)(F * dy), 0);
+		being2.addForce(_force);
+		_force.set((float)(-F * dx), (float)(-F * dy), 0);
+		being1.addForce(_force);
+	}
+	
+	/**
+	 * Batched version of <code>handle</code> for every pair in a group, working on packed arrays.
+	 * Each pair is computed once and the equal and opposite forces are added to <code>fx</code> and <code>fy</code>
+	 * (they are not cleared first). Pairs that are out of range or at the same position are skipped.
+	 * <p>
+	 * Uses the Vector API to compute several pairs at once when Hermes was built with it and the JVM was started
+	 * with <code>--add-modules jdk.incubator.vector</code> (Java 16 or later); otherwise one pair at a time.
+	 * @param x		x positions
+	 * @param y		y positions
+	 * @param q		the <code>beingFactor</code> of each being
+	 * @param count	the number of beings packed in the arrays
+	 * @param fx	receives the x component of each being's force
+	 * @param fy	receives the y component of each being's force
+	 */
+	public void accumulateForces(float[] x, float[] y, float[] q, int count, float[] fx, float[] fy) {
+		KERNEL.accumulate(_k, _maxRangeSquared, x, y, q, count, fx, fy);
+	}
+	
+	/**
+	 * Batched version of <code>handle</code> for every pair between two groups, working on packed arrays.
+	 * Forces are added to the output arrays (they are not cleared first).
+	 * @param x1	x positions of the first group
+	 * @param y1	y positions of the first group
+	 * @param q1	the <code>beingFactor</code> of each being in the first group
+	 * @param count1	the number of beings in the first group
+	 * @param x2	x positions of the second group
+	 * @param y2	y positions of the second group
+	 * @param q2	the <code>beingFactor</code> of each being in the second group
+	 * @param count2	the number of beings in the second group
+	 * @param fx1	receives the x component of the forces on the first group
+	 * @param fy1	receives the y component of the forces on the first group
+	 * @param fx2	receives the x component of the forces on the second group
+	 * @param fy2	receives the y component of the forces on the second group
+	 */
+	public void accumulateForces(float[] x1, float[] y1, float[] q1, int count1,
+			float[] x2, float[] y2, float[] q2, int count2,
+			float[] fx1, float[] fy1, float[] fx2, float[] fy2) {
+		KERNEL.accumulate(_k, _maxRangeSquared, x1, y1, q1, count1, x2, y2, q2, count2, fx1, fy1, fx2, fy2);
+	}
+	
+	/**
+	 * Loads the SIMD force kernel, which is only there when Hermes was built with Java 16 or later, and only
+	 * works when the JVM has the Vector API module.
+	 */
+	private static ForceKernel loadKernel() {
+		try {
+			return (ForceKernel)Class.forName("hermes.physics.simd.VectorForceKernel").getDeclaredConstructor().newInstance();
+		} catch (Throwable e) {
+			return new ScalarForceKernel(); // not built, or no Vector API in this JVM
+		}
+	}
+	
+	/**
+	 * @return	the force constant factor (k in the Coloumb equation)
+	 */
+	public float getFactor() {
+		return _k;
+	}
+	
+	/**
+	 * @return	the square of the maximum interaction range (infinity if there is no range limit)
+	 */
+	public float getMaxRangeSquared() {
+		return _maxRangeSquared;
 	}
 	
 	/**
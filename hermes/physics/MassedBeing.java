@@ -241,7 +241,7 @@ public abstract class MassedBeing extends Being {
 	
 	/**
 	 * Updates the being's position and velocity based on the forces applied
-	 * 	since the last step, using Euler-Cromer integration.
+	 * 	since the last step, using the being's integrator, or Euler-Cromer integration if it has none.
 	 */
 	public void step() {
 		if(_sampleLength != 0) {
@@ -251,8 +251,7 @@ public abstract class MassedBeing extends Being {
 		double dt = ((double)updateTime()) / 1e9 * Hermes.getTimeScale();
 		applyImpulse();
 		applyDisplacement();
-		EulerIntegrateVelocity(dt);
-		EulerIntegratePosition(dt);
+		integrate(dt);
 		clearForce();
 		clearCollisions();
 	}
@@ -266,19 +265,19 @@ public abstract class MassedBeing extends Being {
 		applyDisplacement();
 		PVector v0 = cloneVector(_velocity);
 		PVector x0 = cloneVector(_position);
-		EulerIntegrateVelocity(dt);
-		EulerIntegratePosition(dt);
+		double lastStep = _lastStep;
+		integrate(dt);
 		PVector deltaX = PVector.sub(_position, x0);
 		// check if we need to multisample
 		float deltaX_sq = mag2(deltaX);
 		if(deltaX_sq > _sampleLength*_sampleLength) {
 			float dx = (float)Math.sqrt(deltaX_sq);
-			_position = x0; // reset position
-			_velocity = v0; // reset velocity
+			setPosition(x0); // reset position (in place, so the shape stays in sync)
+			setVelocity(v0); // reset velocity
+			_lastStep = lastStep;
 			dt *= _sampleLength / dx;
 			_time = t0 + (long)(dt * 1e9);
-			EulerIntegrateVelocity(dt);
-			EulerIntegratePosition(dt);
+			integrate(dt);
 			_samples++;
 			if(_samples < _maxSamples) {
 				setDone(false); // this will cause us to keep updating
@@ -321,6 +320,38 @@ public abstract class MassedBeing extends Being {
 		zeroVector(_displacement);
 	}
 	
+	/**
+	 * Moves the being forward by <code>dt</code> using its integrator,
+	 * 	or Euler-Cromer integration if it has none.
+	 * @param dt	the time step
+	 */
+	@Override
+	protected void integrate(double dt) {
+		Integrator integrator = getIntegrator();
+		if(integrator == null) {
+			EulerIntegrateVelocity(dt);
+			EulerIntegratePosition(dt);
+		} else {
+			integrator.integrate(this, dt);
+		}
+	}
+	
+	/**
+	 * Computes the being's acceleration at the given position and velocity, used by integrators.
+	 * By default this is the force accumulated since the last step divided by the mass,
+	 * 	which does not depend on the position or velocity.
+	 * <p>
+	 * Override (adding to the result of this method) for forces that depend on position or velocity,
+	 * 	such as a spring to a fixed point, so that integrators can re-evaluate them within a step.
+	 * @param position		the position to evaluate at
+	 * @param velocity		the velocity to evaluate at
+	 * @param result		vector the acceleration is stored in
+	 */
+	@Override
+	protected void acceleration(PVector position, PVector velocity, PVector result) {
+		result.set(_force.x / _mass, _force.y / _mass, _force.z / _mass);
+	}
+	
 	/**
 	 * Integrates velocity on acceleration using Euler-Cromer.
 	 * @param dt	the time step
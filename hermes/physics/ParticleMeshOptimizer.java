@@ -0,0 +1,399 @@
+package hermes.physics;
+
+import hermes.GenericGroup;
+import hermes.InteractionHandler;
+import hermes.Optimizer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import processing.core.PVector;
+
+/**
+ * An <code>Optimizer</code> that computes an <code>InverseSquareInteractor</code> on a grid, for very large groups.
+ * <p>
+ * On each update the <code>beingFactor</code> of every being is deposited onto a square grid covering the group
+ * 	(cloud-in-cell weighting). The long-range field is found by convolving that grid with the inverse-square force
+ * 	kernel using FFTs, and interpolated back onto each being with <code>MassedBeing.addForce</code>.
+ * 	The kernel is zero-padded so the grid has open (not periodic) boundaries.
+ * <p>
+ * The grid cannot resolve beings that are close together. Pairs closer than <code>cutoff</code> grid cells
+ * 	are found with a cell list, the grid's approximation of their force is subtracted, and they are handled
+ * 	exactly by the interactor's own <code>detect</code> and <code>handle</code> through the
+ * 	<code>InteractionHandler</code>. Larger cutoffs are more accurate but handle more pairs directly.
+ * <p>
+ * The cost of an update is O(n + g^2 log g) for a grid of g by g cells, plus the close pairs.
+ * 	The grid is stretched to span the groups on every update, so a more spread out group gets coarser cells;
+ * 	raise the grid size to keep the cells small. The interactor's range limit only applies to the close pairs.
+ *
+ * @param <A>	the type of MassedBeing the groups contain
+ */
+public class ParticleMeshOptimizer<A extends MassedBeing>
+				implements Optimizer<A, A, GenericGroup<A,?>, GenericGroup<A,?>> {
+
+	public static final int DEFAULT_GRID_SIZE = 128;
+	public static final float DEFAULT_CUTOFF = 3;
+
+	private static final int EMPTY = -1;	// ends cell lists
+
+	private InverseSquareInteractor _interactor;	// the interaction being computed
+	private int _gridSize;		// grid points per side
+	private float _cutoff;		// short-range cutoff, in grid cells
+
+	private FFT2D _fft;				// transform over the zero-padded grid
+	private double[] _kernelRe;		// transform of the force kernel, x component + i * y component
+	private double[] _kernelIm;
+	private double[] _fieldRe;		// density, then the x component of the field
+	private double[] _fieldIm;		// zero, then the y component of the field
+
+	// grid placement for the current update
+	private float _originX;
+	private float _originY;
+	private float _cellSize;
+
+	// the beings of one group, packed
+	private MassedBeing[] _beings;
+	private float[] _bodyX;
+	private float[] _bodyY;
+	private float[] _bodyQ;
+	private int _bodyCount;
+
+	// cell list used to find close pairs
+	private int[] _cellHead;
+	private int[] _cellNext;
+	private int[] _bodyCell;
+	private int _cellColumns;
+	private int _cellRows;
+
+	private PVector _force;			// scratch vector passed to addForce
+
+	/**
+	 * Creates a particle-mesh optimizer for the given interactor.
+	 * @param interactor	the interactor this optimizer is registered with
+	 * @param gridSize		the number of grid points per side, must be a power of two
+	 * @param cutoff		distance in grid cells under which pairs are handled directly, must be positive
+	 */
+	public ParticleMeshOptimizer(InverseSquareInteractor interactor, int gridSize, float cutoff) {
+		assert interactor != null : "ParticleMeshOptimizer constructor: interactor must be a valid InverseSquareInteractor";
+		assert gridSize >= 4 && (gridSize & (gridSize - 1)) == 0 : "ParticleMeshOptimizer constructor: gridSize must be a power of two, at least 4";
+		assert cutoff > 0 : "ParticleMeshOptimizer constructor: cutoff must be positive";
+
+		_interactor = interactor;
+		_gridSize = gridSize;
+		_cutoff = cutoff;
+
+		int n = 2 * gridSize;
+		_fft = new FFT2D(n);
+		_fieldRe = new double[n * n];
+		_fieldIm = new double[n * n];
+		buildKernel();
+
+		allocateBodies(16);
+		_cellHead = new int[16];
+		_force = new PVector();
+	}
+
+	/**
+	 * Creates a particle-mesh optimizer with the default grid size and cutoff.
+	 * @param interactor	the interactor this optimizer is registered with
+	 */
+	public ParticleMeshOptimizer(InverseSquareInteractor interactor) {
+		this(interactor, DEFAULT_GRID_SIZE, DEFAULT_CUTOFF);
+	}
+
+	/**
+	 * Computes the transform of the force kernel d/|d|^3, in grid units.
+	 * The kernel only depends on the grid size, so this is done once.
+	 */
+	private void buildKernel() {
+		int n = _fft.size();
+		_kernelRe = new double[n * n];
+		_kernelIm = new double[n * n];
+		for(int row = 0; row < n; row++) {
+			int dy = row < _gridSize ? row : row - n;
+			for(int col = 0; col < n; col++) {
+				int dx = col < _gridSize ? col : col - n;
+				double d_squared = dx*dx + dy*dy;
+				if(d_squared == 0)
+					continue;
+				double scale = 1 / (d_squared * Math.sqrt(d_squared));
+				_kernelRe[row * n + col] = dx * scale;
+				_kernelIm[row * n + col] = dy * scale;
+			}
+		}
+		_fft.transform(_kernelRe, _kernelIm, false);
+	}
+
+	public void detect(GenericGroup<A,?> group1, GenericGroup<A,?> group2, InteractionHandler<A,A> handler) {
+		if(!place(group1, group2))
+			return;
+		pack(group2);
+		solve();
+		applyField(group1);
+		if(group1 != group2) {
+			pack(group1);
+			solve();
+			applyField(group2);
+			pack(group2);
+		}
+		handleClosePairs(group1, group2, handler);
+	}
+
+	/**
+	 * Places the grid over both groups.
+	 * @return	false if the groups are empty
+	 */
+	private boolean place(GenericGroup<A,?> group1, GenericGroup<A,?> group2) {
+		float minX = Float.POSITIVE_INFINITY;
+		float minY = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY;
+		float maxY = Float.NEGATIVE_INFINITY;
+		for(int i = 0; i < 2; i++) {
+			GenericGroup<A,?> group = (i == 0 ? group1 : group2);
+			for(Iterator<A> iter = group.iterator(); iter.hasNext(); ) {
+				PVector position = iter.next().getPosition();
+				if(position.x < minX) minX = position.x;
+				if(position.x > maxX) maxX = position.x;
+				if(position.y < minY) minY = position.y;
+				if(position.y > maxY) maxY = position.y;
+			}
+			if(group1 == group2)
+				break;
+		}
+		if(minX > maxX)
+			return false;
+		float size = Math.max(maxX - minX, maxY - minY);
+		if(size <= 0)
+			size = 1;
+		// leave a spare point on the far side for the cloud-in-cell weights
+		_cellSize = size / (_gridSize - 2);
+		_originX = minX;
+		_originY = minY;
+		return true;
+	}
+
+	private void pack(GenericGroup<A,?> group) {
+		int n = group.size();
+		if(_beings.length < n) {
+			allocateBodies(Math.max(n, 2 * _beings.length));
+		}
+		_bodyCount = 0;
+		for(Iterator<A> iter = group.iterator(); iter.hasNext(); ) {
+			A being = iter.next();
+			PVector position = being.getPosition();
+			int i = _bodyCount++;
+			_beings[i] = being;
+			_bodyX[i] = position.x;
+			_bodyY[i] = position.y;
+			_bodyQ[i] = _interactor.beingFactor(being);
+		}
+		for(int i = _bodyCount; i < _beings.length && _beings[i] != null; i++) {
+			_beings[i] = null;
+		}
+	}
+
+	/**
+	 * Deposits the packed beings onto the grid and convolves with the kernel,
+	 * 	leaving the field components in _fieldRe and _fieldIm.
+	 */
+	private void solve() {
+		int n = _fft.size();
+		Arrays.fill(_fieldRe, 0);
+		Arrays.fill(_fieldIm, 0);
+		for(int i = 0; i < _bodyCount; i++) {
+			float gx = (_bodyX[i] - _originX) / _cellSize;
+			float gy = (_bodyY[i] - _originY) / _cellSize;
+			int col = Math.min((int)gx, _gridSize - 2);
+			int row = Math.min((int)gy, _gridSize - 2);
+			double fx = gx - col;
+			double fy = gy - row;
+			double q = _bodyQ[i];
+			int index = row * n + col;
+			_fieldRe[index] += q * (1 - fx) * (1 - fy);
+			_fieldRe[index + 1] += q * fx * (1 - fy);
+			_fieldRe[index + n] += q * (1 - fx) * fy;
+			_fieldRe[index + n + 1] += q * fx * fy;
+		}
+
+		_fft.transform(_fieldRe, _fieldIm, false);
+		for(int i = 0; i < n * n; i++) {
+			double a = _fieldRe[i];
+			double b = _fieldIm[i];
+			double c = _kernelRe[i];
+			double d = _kernelIm[i];
+			_fieldRe[i] = a * c - b * d;
+			_fieldIm[i] = a * d + b * c;
+		}
+		_fft.transform(_fieldRe, _fieldIm, true);
+	}
+
+	/**
+	 * Interpolates the current field onto each being in a group and adds the resulting force.
+	 * @param group	the group
+	 */
+	private void applyField(GenericGroup<A,?> group) {
+		int n = _fft.size();
+		// the kernel is in grid units, so scale the field back into world units
+		double scale = _interactor.getFactor() / ((double)_cellSize * _cellSize);
+		for(Iterator<A> iter = group.iterator(); iter.hasNext(); ) {
+			A being = iter.next();
+			PVector position = being.getPosition();
+			float gx = (position.x - _originX) / _cellSize;
+			float gy = (position.y - _originY) / _cellSize;
+			int col = Math.min((int)gx, _gridSize - 2);
+			int row = Math.min((int)gy, _gridSize - 2);
+			double fx = gx - col;
+			double fy = gy - row;
+			int index = row * n + col;
+			double w00 = (1 - fx) * (1 - fy);
+			double w10 = fx * (1 - fy);
+			double w01 = (1 - fx) * fy;
+			double w11 = fx * fy;
+			double ex = w00 * _fieldRe[index] + w10 * _fieldRe[index + 1] +
+					w01 * _fieldRe[index + n] + w11 * _fieldRe[index + n + 1];
+			double ey = w00 * _fieldIm[index] + w10 * _fieldIm[index + 1] +
+					w01 * _fieldIm[index + n] + w11 * _fieldIm[index + n + 1];
+			double F = scale * _interactor.beingFactor(being);
+			_force.set((float)(F * ex), (float)(F * ey), 0);
+			being.addForce(_force);
+		}
+	}
+
+	/**
+	 * Finds pairs within the cutoff using a cell list over the packed beings (group2),
+	 * 	and passes them to <code>closePair</code>.
+	 */
+	private void handleClosePairs(GenericGroup<A,?> group1, GenericGroup<A,?> group2, InteractionHandler<A,A> handler) {
+		float cutoff = _cutoff * _cellSize;
+		float cutoffSquared = cutoff * cutoff;
+		float span = _cellSize * (_gridSize - 2);
+		_cellColumns = (int)(span / cutoff) + 1;
+		_cellRows = _cellColumns;
+		int cells = _cellColumns * _cellRows;
+		if(_cellHead.length < cells) {
+			_cellHead = new int[cells];
+		}
+		Arrays.fill(_cellHead, 0, cells, EMPTY);
+		for(int i = _bodyCount - 1; i >= 0; i--) {
+			int cell = cellOf(_bodyX[i], _bodyY[i], cutoff);
+			_bodyCell[i] = cell;
+			_cellNext[i] = _cellHead[cell];
+			_cellHead[cell] = i;
+		}
+
+		if(group1 == group2) {
+			// each pair once: later beings in the same cell, then half of the neighboring cells
+			for(int i = 0; i < _bodyCount; i++) {
+				int cell = _bodyCell[i];
+				int column = cell % _cellColumns;
+				int row = cell / _cellColumns;
+				for(int j = _cellNext[i]; j != EMPTY; j = _cellNext[j]) {
+					if(distanceSquared(i, _bodyX[j], _bodyY[j]) < cutoffSquared)
+						closePair(_beings[i], _bodyX[i], _bodyY[i], _bodyQ[i], j, handler);
+				}
+				for(int neighbor = 0; neighbor < 4; neighbor++) {
+					int c = column + (neighbor == 0 ? 1 : neighbor - 2);
+					int r = row + (neighbor == 0 ? 0 : 1);
+					if(c < 0 || c >= _cellColumns || r >= _cellRows)
+						continue;
+					for(int j = _cellHead[r * _cellColumns + c]; j != EMPTY; j = _cellNext[j]) {
+						if(distanceSquared(i, _bodyX[j], _bodyY[j]) < cutoffSquared)
+							closePair(_beings[i], _bodyX[i], _bodyY[i], _bodyQ[i], j, handler);
+					}
+				}
+			}
+		} else {
+			for(Iterator<A> iter = group1.iterator(); iter.hasNext(); ) {
+				A being = iter.next();
+				PVector position = being.getPosition();
+				float q = _interactor.beingFactor(being);
+				int cell = cellOf(position.x, position.y, cutoff);
+				int column = cell % _cellColumns;
+				int row = cell / _cellColumns;
+				for(int r = Math.max(row - 1, 0); r <= Math.min(row + 1, _cellRows - 1); r++) {
+					for(int c = Math.max(column - 1, 0); c <= Math.min(column + 1, _cellColumns - 1); c++) {
+						for(int j = _cellHead[r * _cellColumns + c]; j != EMPTY; j = _cellNext[j]) {
+							float dx = position.x - _bodyX[j];
+							float dy = position.y - _bodyY[j];
+							if(dx*dx + dy*dy < cutoffSquared)
+								closePair(being, position.x, position.y, q, j, handler);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the grid's approximation of the force between a being and a packed being,
+	 * 	and passes the pair to the handler to be handled exactly.
+	 */
+	@SuppressWarnings("unchecked")
+	private void closePair(MassedBeing being, float x, float y, float q, int j, InteractionHandler<A,A> handler) {
+		MassedBeing other = _beings[j];
+		if(being == other)
+			return;
+		// the grid force is the kernel summed over both beings' cloud-in-cell weights
+		float gx1 = (x - _originX) / _cellSize;
+		float gy1 = (y - _originY) / _cellSize;
+		float gx2 = (_bodyX[j] - _originX) / _cellSize;
+		float gy2 = (_bodyY[j] - _originY) / _cellSize;
+		int col1 = Math.min((int)gx1, _gridSize - 2);
+		int row1 = Math.min((int)gy1, _gridSize - 2);
+		int col2 = Math.min((int)gx2, _gridSize - 2);
+		int row2 = Math.min((int)gy2, _gridSize - 2);
+		double fx1 = gx1 - col1;
+		double fy1 = gy1 - row1;
+		double fx2 = gx2 - col2;
+		double fy2 = gy2 - row2;
+		double ex = 0;
+		double ey = 0;
+		for(int a = 0; a < 4; a++) {
+			int dxa = a & 1;
+			int dya = a >> 1;
+			double wa = (dxa == 0 ? 1 - fx1 : fx1) * (dya == 0 ? 1 - fy1 : fy1);
+			for(int b = 0; b < 4; b++) {
+				int dxb = b & 1;
+				int dyb = b >> 1;
+				double wb = (dxb == 0 ? 1 - fx2 : fx2) * (dyb == 0 ? 1 - fy2 : fy2);
+				int dx = col1 + dxa - col2 - dxb;
+				int dy = row1 + dya - row2 - dyb;
+				double d_squared = dx*dx + dy*dy;
+				if(d_squared == 0)
+					continue;
+				double scale = wa * wb / (d_squared * Math.sqrt(d_squared));
+				ex += dx * scale;
+				ey += dy * scale;
+			}
+		}
+		double F = _interactor.getFactor() * q * _bodyQ[j] / ((double)_cellSize * _cellSize);
+		_force.set((float)(-F * ex), (float)(-F * ey), 0);
+		being.addForce(_force);
+		_force.set((float)(F * ex), (float)(F * ey), 0);
+		other.addForce(_force);
+
+		handler.interactionHandler((A)being, (A)other);
+	}
+
+	private int cellOf(float x, float y, float cellSize) {
+		int column = Math.min(Math.max((int)((x - _originX) / cellSize), 0), _cellColumns - 1);
+		int row = Math.min(Math.max((int)((y - _originY) / cellSize), 0), _cellRows - 1);
+		return row * _cellColumns + column;
+	}
+
+	private float distanceSquared(int i, float x, float y) {
+		float dx = _bodyX[i] - x;
+		float dy = _bodyY[i] - y;
+		return dx*dx + dy*dy;
+	}
+
+	private void allocateBodies(int capacity) {
+		_beings = new MassedBeing[capacity];
+		_bodyX = new float[capacity];
+		_bodyY = new float[capacity];
+		_bodyQ = new float[capacity];
+		_cellNext = new int[capacity];
+		_bodyCell = new int[capacity];
+	}
+
+}
@@ -0,0 +1,85 @@
+package hermes.physics;
+
+import hermes.Being;
+import hermes.Integrator;
+
+import processing.core.PVector;
+
+/**
+ * Classical fourth order Runge-Kutta integration.
+ * <p>
+ * The acceleration is evaluated four times per step. Forces from interactions are constant over the
+ * 	step, so the extra accuracy only applies to forces computed in an overridden <code>Being.acceleration</code>.
+ * 	RK4 is not symplectic: it is very accurate over short times, but energy slowly drifts over long runs.
+ */
+public class RK4Integrator extends Integrator {
+
+	// scratch vectors
+	private PVector _x0, _v0;		// state at the start of the step
+	private PVector _x, _v, _a;		// trial state and its acceleration
+	private PVector _dx, _dv;		// weighted sums of the derivatives
+
+	public RK4Integrator() {
+		_x0 = new PVector();
+		_v0 = new PVector();
+		_x = new PVector();
+		_v = new PVector();
+		_a = new PVector();
+		_dx = new PVector();
+		_dv = new PVector();
+	}
+
+	public void integrate(Being being, double dt) {
+		PVector position = being.getPosition();
+		PVector velocity = being.getVelocity();
+		float h = (float)dt;
+		_x0.set(position.x, position.y, position.z);
+		_v0.set(velocity.x, velocity.y, velocity.z);
+
+		// k1
+		acceleration(being, _x0, _v0, _a);
+		_dx.set(_v0.x, _v0.y, _v0.z);
+		_dv.set(_a.x, _a.y, _a.z);
+		// k2, at the midpoint using k1
+		stage(being, _v0, _a, h / 2);
+		accumulate(2);
+		// k3, at the midpoint using k2
+		stage(being, _v, _a, h / 2);
+		accumulate(2);
+		// k4, at the end using k3
+		stage(being, _v, _a, h);
+		accumulate(1);
+
+		float scale = h / 6;
+		position.x = _x0.x + _dx.x * scale;
+		position.y = _x0.y + _dx.y * scale;
+		position.z = _x0.z + _dx.z * scale;
+		velocity.x = _v0.x + _dv.x * scale;
+		velocity.y = _v0.y + _dv.y * scale;
+		velocity.z = _v0.z + _dv.z * scale;
+		setLastStep(being, 0);
+	}
+
+	/**
+	 * Moves the trial state to start + h * (dxdt, dvdt) and evaluates its acceleration.
+	 */
+	private void stage(Being being, PVector dxdt, PVector dvdt, float h) {
+		float vx = _v0.x + dvdt.x * h, vy = _v0.y + dvdt.y * h, vz = _v0.z + dvdt.z * h;
+		_x.set(_x0.x + dxdt.x * h, _x0.y + dxdt.y * h, _x0.z + dxdt.z * h);
+		_v.set(vx, vy, vz);
+		acceleration(being, _x, _v, _a);
+	}
+
+	/**
+	 * Adds the derivatives of the trial state to the sums with the given weight.
+	 */
+	private void accumulate(float weight) {
+		_dx.x += _v.x * weight;
+		_dx.y += _v.y * weight;
+		_dx.z += _v.z * weight;
+		_dv.x += _a.x * weight;
+		_dv.y += _a.y * weight;
+		_dv.z += _a.z * weight;
+	}
+
+}
@@ -0,0 +1,60 @@
+package hermes.physics;
+
+/**
+ * The force kernel used when the Vector API is not available: one pair at a time.
+ */
+class ScalarForceKernel implements ForceKernel {
+
+	public void accumulate(float k, float rangeSquared, float[] x, float[] y, float[] q, int count, float[] fx, float[] fy) {
+		for(int i = 0; i < count - 1; i++) {
+			float xi = x[i];
+			float yi = y[i];
+			float kq = k * q[i];
+			float fxi = 0;
+			float fyi = 0;
+			for(int j = i + 1; j < count; j++) {
+				float dx = xi - x[j];
+				float dy = yi - y[j];
+				float d_squared = dx*dx + dy*dy;
+				float F = (d_squared > 0 && d_squared <= rangeSquared) ? 
+						kq * q[j] / (d_squared * (float)Math.sqrt(d_squared)) : 0;
+				float px = F * dx;
+				float py = F * dy;
+				fxi += px;
+				fyi += py;
+				fx[j] -= px;
+				fy[j] -= py;
+			}
+			fx[i] += fxi;
+			fy[i] += fyi;
+		}
+	}
+
+	public void accumulate(float k, float rangeSquared, float[] x1, float[] y1, float[] q1, int count1,
+			float[] x2, float[] y2, float[] q2, int count2,
+			float[] fx1, float[] fy1, float[] fx2, float[] fy2) {
+		for(int i = 0; i < count1; i++) {
+			float xi = x1[i];
+			float yi = y1[i];
+			float kq = k * q1[i];
+			float fxi = 0;
+			float fyi = 0;
+			for(int j = 0; j < count2; j++) {
+				float dx = xi - x2[j];
+				float dy = yi - y2[j];
+				float d_squared = dx*dx + dy*dy;
+				float F = (d_squared > 0 && d_squared <= rangeSquared) ? 
+						kq * q2[j] / (d_squared * (float)Math.sqrt(d_squared)) : 0;
+				float px = F * dx;
+				float py = F * dy;
+				fxi += px;
+				fyi += py;
+				fx2[j] -= px;
+				fy2[j] -= py;
+			}
+			fx1[i] += fxi;
+			fy1[i] += fyi;
+		}
+	}
+
+}
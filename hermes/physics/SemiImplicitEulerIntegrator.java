@@ -0,0 +1,38 @@
+package hermes.physics;
+
+import hermes.Being;
+import hermes.Integrator;
+
+import processing.core.PVector;
+
+/**
+ * Semi-implicit (symplectic) Euler integration: the velocity is updated from the acceleration,
+ * 	then the position from the new velocity.
+ * <p>
+ * This is the same scheme beings use when no integrator is set, but it takes the acceleration from
+ * 	<code>Being.acceleration</code>, so overridden forces are included. It is first order, but 
+ * 	being symplectic it keeps the energy of orbits and springs bounded rather than drifting.
+ */
+public class SemiImplicitEulerIntegrator extends Integrator {
+
+	private PVector _acceleration;	// scratch vector
+
+	public SemiImplicitEulerIntegrator() {
+		_acceleration = new PVector();
+	}
+
+	public void integrate(Being being, double dt) {
+		PVector position = being.getPosition();
+		PVector velocity = being.getVelocity();
+		float h = (float)dt;
+		acceleration(being, position, velocity, _acceleration);
+		velocity.x += _acceleration.x * h;
+		velocity.y += _acceleration.y * h;
+		velocity.z += _acceleration.z * h;
+		position.x += velocity.x * h;
+		position.y += velocity.y * h;
+		position.z += velocity.z * h;
+		setLastStep(being, 0);
+	}
+
+}
@@ -0,0 +1,45 @@
+package hermes.physics;
+
+import hermes.Being;
+import hermes.Integrator;
+
+import processing.core.PVector;
+
+/**
+ * Velocity Verlet (kick-drift-kick leapfrog) integration.
+ * <p>
+ * Velocity Verlet needs the acceleration at the start and at the end of each step. Interactions only
+ * 	compute forces once per update, after beings have moved, so each step is split across two updates:
+ * 	the velocity gets half of the step's acceleration before the being moves, and the other half,
+ * 	from the forces at the new position, at the start of the following step.
+ * 	So between updates the velocity lags half a step behind its synchronized value.
+ * <p>
+ * This is second order and symplectic, with a single force evaluation per step, which makes it a good
+ * 	choice for orbits and springs with a larger time step.
+ */
+public class VelocityVerletIntegrator extends Integrator {
+
+	private PVector _acceleration;	// scratch vector
+
+	public VelocityVerletIntegrator() {
+		_acceleration = new PVector();
+	}
+
+	public void integrate(Being being, double dt) {
+		PVector position = being.getPosition();
+		PVector velocity = being.getVelocity();
+		acceleration(being, position, velocity, _acceleration);
+		// finish the last step's kick, and do the first half of this one
+		float kick = (float)((getLastStep(being) + dt) / 2);
+		velocity.x += _acceleration.x * kick;
+		velocity.y += _acceleration.y * kick;
+		velocity.z += _acceleration.z * kick;
+		// drift
+		float h = (float)dt;
+		position.x += velocity.x * h;
+		position.y += velocity.y * h;
+		position.z += velocity.z * h;
+		setLastStep(being, dt);
+	}
+
+}
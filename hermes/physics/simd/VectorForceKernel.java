@@ -0,0 +1,86 @@
+package hermes.physics.simd;
+
+import hermes.physics.ForceKernel;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Computes inverse square forces several pairs at a time with the Vector API.
+ * <p>
+ * For each being, the inner loop takes as many of the other beings as fit in the widest vector the CPU has,
+ * 	masks out the pairs that are out of range or at the same position, and adds the forces on those beings
+ * 	back to the output arrays. The beings left over at the end are done one at a time. The forces are summed
+ * 	in a different order than the scalar kernel, so they can differ from it by rounding.
+ * <p>
+ * Needs Java 16 or later, and <code>--add-modules jdk.incubator.vector</code> when compiling and running.
+ * 	This package is compiled separately from the rest of Hermes, and <code>InverseSquareInteractor</code>
+ * 	only uses it if it can be loaded.
+ */
+public class VectorForceKernel implements ForceKernel {
+
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+	public void accumulate(float k, float rangeSquared, float[] x, float[] y, float[] q, int count, float[] fx, float[] fy) {
+		for(int i = 0; i < count - 1; i++) {
+			accumulateRow(k * q[i], x[i], y[i], rangeSquared, x, y, q, i + 1, count, fx, fy, fx, fy, i);
+		}
+	}
+
+	public void accumulate(float k, float rangeSquared, float[] x1, float[] y1, float[] q1, int count1,
+			float[] x2, float[] y2, float[] q2, int count2,
+			float[] fx1, float[] fy1, float[] fx2, float[] fy2) {
+		for(int i = 0; i < count1; i++) {
+			accumulateRow(k * q1[i], x1[i], y1[i], rangeSquared, x2, y2, q2, 0, count2, fx2, fy2, fx1, fy1, i);
+		}
+	}
+
+	/**
+	 * Subtracts the force between one being and each of beings <code>from</code> to <code>to</code> from their
+	 * 	entries in <code>fx</code> and <code>fy</code>, and adds the total to the one being's entry, <code>i</code>,
+	 * 	in <code>fxOut</code> and <code>fyOut</code>.
+	 */
+	private static void accumulateRow(float kq, float xi, float yi, float rangeSquared,
+			float[] x, float[] y, float[] q, int from, int to, float[] fx, float[] fy,
+			float[] fxOut, float[] fyOut, int i) {
+		FloatVector zero = FloatVector.zero(SPECIES);
+		FloatVector sumX = zero;
+		FloatVector sumY = zero;
+		int j = from;
+		for(int bound = from + SPECIES.loopBound(to - from); j < bound; j += SPECIES.length()) {
+			FloatVector dx = FloatVector.fromArray(SPECIES, x, j).neg().add(xi);
+			FloatVector dy = FloatVector.fromArray(SPECIES, y, j).neg().add(yi);
+			FloatVector d_squared = dx.mul(dx).add(dy.mul(dy));
+			VectorMask<Float> inRange = d_squared.compare(VectorOperators.GT, 0)
+					.and(d_squared.compare(VectorOperators.LE, rangeSquared));
+			FloatVector F = FloatVector.fromArray(SPECIES, q, j).mul(kq).div(d_squared.mul(d_squared.sqrt()));
+			F = zero.blend(F, inRange);
+			FloatVector px = F.mul(dx);
+			FloatVector py = F.mul(dy);
+			sumX = sumX.add(px);
+			sumY = sumY.add(py);
+			FloatVector.fromArray(SPECIES, fx, j).sub(px).intoArray(fx, j);
+			FloatVector.fromArray(SPECIES, fy, j).sub(py).intoArray(fy, j);
+		}
+		float fxi = sumX.reduceLanes(VectorOperators.ADD);
+		float fyi = sumY.reduceLanes(VectorOperators.ADD);
+		for(; j < to; j++) {
+			float dx = xi - x[j];
+			float dy = yi - y[j];
+			float d_squared = dx*dx + dy*dy;
+			float F = (d_squared > 0 && d_squared <= rangeSquared) ? 
+					kq * q[j] / (d_squared * (float)Math.sqrt(d_squared)) : 0;
+			float px = F * dx;
+			float py = F * dy;
+			fxi += px;
+			fyi += py;
+			fx[j] -= px;
+			fy[j] -= py;
+		}
+		fxOut[i] += fxi;
+		fyOut[i] += fyi;
+	}
+
+}
@@ -0,0 +1,140 @@
+package hermes.postoffice;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Delivers game events, posted by objects during an update, to the subscribers to their types.
+ * <p>
+ * Internal -- used by <code>PostOffice</code> on the World's thread. Events posted during an update are
+ * 	delivered together when the PostOffice next checks its mail, in the order they were posted, and to each
+ * 	type's subscribers in the order they subscribed. Events posted while delivering are delivered next time.
+ * <p>
+ * Each type of event has its own array of subscribers and pool of events, which delivered events are
+ * 	returned to, so once the pools have filled nothing is allocated to post and deliver events.
+ */
+class EventBus {
+
+	private static final int MAX_POOLED = 1024;	// events kept for reuse, of each type
+
+	/**
+	 * The subscribers to one type of event, and its unused events.
+	 */
+	private static class EventType {
+		EventSubscriber<?>[] subs = new EventSubscriber<?>[0];
+		ArrayList<Message> pool = new ArrayList<Message>();
+	}
+
+	private HashMap<Class<?>, EventType> _types = new HashMap<Class<?>, EventType>();
+	private Message[] _posted = new Message[16];		// events posted since the last delivery
+	private int _postedCount = 0;
+	private Message[] _delivering = new Message[16];	// events being delivered
+
+	/**
+	 * Gets an event to fill in and post, reusing a delivered one if there is one.
+	 * @param type	the type of event, which must have a public constructor with no arguments
+	 * @return		the event
+	 */
+	<E extends Message> E obtain(Class<E> type) {
+		ArrayList<Message> pool = typeOf(type).pool;
+		if(!pool.isEmpty())
+			return type.cast(pool.remove(pool.size() - 1));
+		try {
+			return type.getDeclaredConstructor().newInstance();
+		} catch (Exception e) {
+			assert false : "PostOffice.obtainEvent: " + type.getName() + " must have a public constructor with no arguments";
+			return null;
+		}
+	}
+
+	/**
+	 * Queues an event to be delivered.
+	 */
+	void post(Message event) {
+		if(_postedCount == _posted.length)
+			_posted = Arrays.copyOf(_posted, _postedCount * 2);
+		_posted[_postedCount++] = event;
+	}
+
+	/**
+	 * Delivers the events posted since the last delivery, and returns them to their pools.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	void deliver() {
+		int count = _postedCount;
+		if(count == 0)
+			return;
+		// swap the queues, so events posted by subscribers wait for the next delivery
+		Message[] events = _posted;
+		_posted = _delivering.length >= events.length ? _delivering : new Message[events.length];
+		_delivering = events;
+		_postedCount = 0;
+		for(int i = 0; i < count; i++) {
+			Message event = events[i];
+			events[i] = null;
+			EventType type = typeOf(event.getClass());
+			EventSubscriber[] subs = type.subs;
+			for(int j = 0; j < subs.length; j++)
+				subs[j].receive(event);
+			if(type.pool.size() < MAX_POOLED)
+				type.pool.add(event);
+		}
+	}
+
+	/**
+	 * Adds a subscriber to a type of event, unless it's already subscribed.
+	 * The arrays are replaced rather than changed, so subscribing while events are delivered is safe.
+	 * @return	true if the subscription is new
+	 */
+	boolean subscribe(EventSubscriber<?> sub, Class<?> type) {
+		EventType t = typeOf(type);
+		for(EventSubscriber<?> s : t.subs) {
+			if(s == sub)
+				return false;
+		}
+		EventSubscriber<?>[] subs = Arrays.copyOf(t.subs, t.subs.length + 1);
+		subs[subs.length - 1] = sub;
+		t.subs = subs;
+		return true;
+	}
+
+	/**
+	 * Removes a subscriber from a type of event.
+	 * @return	true if it was subscribed
+	 */
+	boolean unsubscribe(Object sub, Class<?> type) {
+		EventType t = _types.get(type);
+		if(t == null)
+			return false;
+		EventSubscriber<?>[] subs = t.subs;
+		for(int i = 0; i < subs.length; i++) {
+			if(subs[i] == sub) {
+				EventSubscriber<?>[] rest = new EventSubscriber<?>[subs.length - 1];
+				System.arraycopy(subs, 0, rest, 0, i);
+				System.arraycopy(subs, i + 1, rest, i, subs.length - i - 1);
+				t.subs = rest;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes every subscription, keeping the pools.
+	 */
+	void clearSubscriptions() {
+		for(EventType t : _types.values())
+			t.subs = new EventSubscriber<?>[0];
+	}
+
+	private EventType typeOf(Class<?> type) {
+		EventType t = _types.get(type);
+		if(t == null) {
+			t = new EventType();
+			_types.put(type, t);
+		}
+		return t;
+	}
+
+}
@@ -0,0 +1,17 @@
+package hermes.postoffice;
+
+/**
+ * Must be implemented by any object that wants to receive events posted with <code>PostOffice.post</code>.
+ * <p>
+ * To receive several types of event, implement <code>EventSubscriber&lt;Message&gt;</code> and subscribe to each type.
+ *
+ * @param <E>	the type of event received
+ */
+public interface EventSubscriber<E extends Message> {
+	/**
+	 * Receives and handles an event posted during the last update.
+	 * The event is reused once it has been delivered, so it must not be kept.
+	 * @param event	the event
+	 */
+	public void receive(E event);
+}
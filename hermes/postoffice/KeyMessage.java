@@ -3,6 +3,9 @@ package hermes.postoffice;
 /**
  * Message representing a key stroke.
  * The type of the key message is determined by the key it corresponds to.
+ * <p>
+ * Messages from the PostOffice are reused once <code>receive</code> returns, so copy out
+ * 	any values that need to be kept rather than keeping the message.
  */
 public class KeyMessage implements Message {
 
@@ -27,6 +30,15 @@ public class KeyMessage implements Message {
 		_isPressed = isPressed;
 	}
 
+	/**
+	 * Refills the message, so it can be reused.
+	 */
+	void set(int keyCode, char keyChar, boolean isPressed) {
+		_keyCode = keyCode;
+		_keyChar = keyChar;
+		_isPressed = isPressed;
+	}
+
 	/**
 	 * Gets code listed in POConstants corresponding to key
 	 * @return integer corresponding to key
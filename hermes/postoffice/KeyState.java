@@ -0,0 +1,87 @@
+package hermes.postoffice;
+
+import java.util.Arrays;
+
+/**
+ * Which keys are held down, and which went down or up since the last update, as bitsets indexed by key code.
+ * <p>
+ * Internal -- updated by <code>PostOffice.checkMail</code> on the World's thread.
+ * 	Queries are a shift and a mask, with no boxing, so they are cheap to call from every being's update.
+ * 	Presses and releases are collected until <code>nextUpdate</code>, so those delivered between updates
+ * 	are seen by the next one.
+ */
+class KeyState {
+
+	private long[] _held = new long[4];		// keys currently down
+	private long[] _down = new long[4];		// keys that went down before this update
+	private long[] _up = new long[4];		// keys that went up before this update
+	private long[] _nextDown = new long[4];	// keys that have gone down since, for the next update
+	private long[] _nextUp = new long[4];	// keys that have gone up since, for the next update
+
+	/**
+	 * Starts a new update, making the presses and releases collected since the last one its edges.
+	 */
+	void nextUpdate() {
+		long[] down = _down, up = _up;
+		_down = _nextDown;
+		_up = _nextUp;
+		_nextDown = down;
+		_nextUp = up;
+		for(int i = 0; i < down.length; i++) {
+			down[i] = 0;
+			up[i] = 0;
+		}
+	}
+
+	/**
+	 * Records a press. Repeated presses while a key is held (from key repeat) are not new edges.
+	 */
+	void press(int keyCode) {
+		if(keyCode < 0)
+			return;
+		ensure(keyCode);
+		if(!get(_held, keyCode))
+			_nextDown[keyCode >>> 6] |= 1L << keyCode;
+		_held[keyCode >>> 6] |= 1L << keyCode;
+	}
+
+	void release(int keyCode) {
+		if(keyCode < 0)
+			return;
+		ensure(keyCode);
+		_nextUp[keyCode >>> 6] |= 1L << keyCode;
+		_held[keyCode >>> 6] &= ~(1L << keyCode);
+	}
+
+	boolean isHeld(int keyCode) {
+		return get(_held, keyCode);
+	}
+
+	boolean wentDown(int keyCode) {
+		return get(_down, keyCode);
+	}
+
+	boolean wentUp(int keyCode) {
+		return get(_up, keyCode);
+	}
+
+	private static boolean get(long[] bits, int keyCode) {
+		return keyCode >= 0 && (keyCode >>> 6) < bits.length && (bits[keyCode >>> 6] & (1L << keyCode)) != 0;
+	}
+
+	/**
+	 * Grows the bitsets to hold the key code.
+	 */
+	private void ensure(int keyCode) {
+		int words = (keyCode >>> 6) + 1;
+		if(words <= _held.length)
+			return;
+		words = Math.max(words, _held.length * 2);
+		_held = Arrays.copyOf(_held, words);
+		_down = Arrays.copyOf(_down, words);
+		_up = Arrays.copyOf(_up, words);
+		_nextDown = Arrays.copyOf(_nextDown, words);
+		_nextUp = Arrays.copyOf(_nextUp, words);
+	}
+
+}
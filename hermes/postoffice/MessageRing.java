@@ -0,0 +1,94 @@
+package hermes.postoffice;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed size queue of reusable messages, passed from one thread to another without locking.
+ * <p>
+ * Internal -- used by <code>PostOffice</code> for input events, and by <code>OscSender</code> for outgoing packets.
+ * 	One thread (e.g. Processing's event thread) fills messages with <code>claim</code> and <code>publish</code>,
+ * 	and one thread (e.g. the World's) reads them with <code>peek</code> and <code>release</code>. A message is only
+ * 	overwritten after it has been released, so the reader can hand it on without copying, and nothing is
+ * 	allocated once the ring is made.
+ *
+ * @param <M>	the type of message
+ */
+class MessageRing<M> {
+
+	private final Object[] _slots;
+	private final int _mask;
+
+	// positions only ever increase; a slot is _slots[position & _mask]
+	private final AtomicLong _head = new AtomicLong();	// next message to read, written by the reader
+	private final AtomicLong _tail = new AtomicLong();	// next message to write, written by the writer
+	private long _headCache = 0;	// the writer's last view of _head
+	private long _tailCache = 0;	// the reader's last view of _tail
+
+	private volatile int _dropped = 0;	// messages that didn't fit
+
+	/**
+	 * Creates a ring holding the given messages, whose number must be a power of two.
+	 * @param slots		the messages to reuse
+	 */
+	MessageRing(M[] slots) {
+		assert slots.length > 0 && (slots.length & (slots.length - 1)) == 0 : "MessageRing constructor: number of slots must be a power of two";
+
+		_slots = slots;
+		_mask = slots.length - 1;
+	}
+
+	/**
+	 * Writer: gets the next free message to fill in. It is not seen by the reader until <code>publish</code> is called.
+	 * @return	the message, or null if the ring is full (the message is counted as dropped)
+	 */
+	@SuppressWarnings("unchecked")
+	M claim() {
+		long tail = _tail.get();
+		if(tail - _headCache >= _slots.length) {
+			_headCache = _head.get();
+			if(tail - _headCache >= _slots.length) {
+				_dropped++;
+				return null;
+			}
+		}
+		return (M)_slots[(int)tail & _mask];
+	}
+
+	/**
+	 * Writer: makes the message returned by the last <code>claim</code> available to the reader.
+	 */
+	void publish() {
+		_tail.lazySet(_tail.get() + 1);
+	}
+
+	/**
+	 * Reader: gets a message without removing it.
+	 * @param ahead		how many messages past the next to look, 0 for the next
+	 * @return			the message, or null if there aren't that many
+	 */
+	@SuppressWarnings("unchecked")
+	M peek(int ahead) {
+		long position = _head.get() + ahead;
+		if(position >= _tailCache) {
+			_tailCache = _tail.get();
+			if(position >= _tailCache)
+				return null;
+		}
+		return (M)_slots[(int)position & _mask];
+	}
+
+	/**
+	 * Reader: finishes with the next message, so it can be reused by the writer.
+	 */
+	void release() {
+		_head.lazySet(_head.get() + 1);
+	}
+
+	/**
+	 * @return	the number of messages dropped because the ring was full
+	 */
+	int getDropped() {
+		return _dropped;
+	}
+
+}
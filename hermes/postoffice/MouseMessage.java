@@ -9,6 +9,9 @@ import processing.core.PVector;
  * <p>
  * Subscription to a mouse button gets you press, release, and drag events;
  * subscription to POConstants.Button.NO gets you mouse moved messages.
+ * <p>
+ * Messages from the PostOffice are reused once <code>receive</code> returns, so copy out
+ * 	any values that need to be kept rather than keeping the message.
  */
 public class MouseMessage implements Message {
 
@@ -34,6 +37,16 @@ public class MouseMessage implements Message {
 		_y = y;
 	}
 	
+	/**
+	 * Refills the message, so it can be reused.
+	 */
+	void set(POCodes.Button buttonClicked, POCodes.Click actionType, int x, int y) {
+		_buttonClicked = buttonClicked;
+		_actionType = actionType;
+		_x = x;
+		_y = y;
+	}
+	
 	/**
 	 * Gets the button pressed on the mouse.
 	 * Use constants defined in POCodes.Button
@@ -0,0 +1,167 @@
+package hermes.postoffice;
+
+import hermes.Pair;
+import hermes.hshape.HRectangle;
+import hermes.hshape.HShape;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import processing.core.PVector;
+
+/**
+ * The mouse subscriptions for one button, with the regions of region subscriptions
+ * 	in a hashed grid of their bounding boxes.
+ * <p>
+ * Internal -- used by <code>PostOffice</code>, so that each mouse message only tests
+ * 	the regions whose bounding boxes contain the mouse. The grid is rebuilt when the
+ * 	subscriptions change, or when a region has moved since it was built.
+ */
+class MouseRegionIndex {
+
+	// subscriptions with no region, which get every message
+	private ArrayList<MouseSubscriber> _unbounded = new ArrayList<MouseSubscriber>();
+
+	// region subscriptions, their bounding boxes (minX minY maxX maxY) and positions when indexed
+	private MouseSubscriber[] _subs = new MouseSubscriber[0];
+	private HShape[] _regions = new HShape[0];
+	private float[] _boxes = new float[0];
+	private float[] _positions = new float[0];
+	private int _count = 0;
+
+	private float _cellSize = 1;
+
+	// hash chains of entries, one entry for each cell a region's box overlaps
+	private int[] _head = new int[0];
+	private long[] _entryCell = new long[0];
+	private int[] _entryRegion = new int[0];
+	private int[] _entryNext = new int[0];
+
+	/**
+	 * Replaces the indexed subscriptions.
+	 * @param subs	pairs of subscriber and region (null for the whole screen)
+	 */
+	void set(Collection<Pair<MouseSubscriber,HShape>> subs) {
+		_unbounded.clear();
+		for(int i = 0; i < _count; i++) {	// don't hold on to old subscribers
+			_subs[i] = null;
+			_regions[i] = null;
+		}
+		_count = 0;
+		if(_subs.length < subs.size()) {
+			_subs = new MouseSubscriber[subs.size()];
+			_regions = new HShape[subs.size()];
+			_boxes = new float[4 * subs.size()];
+			_positions = new float[2 * subs.size()];
+		}
+		for(Pair<MouseSubscriber,HShape> p : subs) {
+			if(p.getSecond() == null) {
+				_unbounded.add(p.getFirst());
+			} else {
+				_subs[_count] = p.getFirst();
+				_regions[_count] = p.getSecond();
+				_count++;
+			}
+		}
+		build();
+	}
+
+	/**
+	 * Rebuilds the grid if any region has moved since it was built.
+	 */
+	void refresh() {
+		for(int i = 0; i < _count; i++) {
+			PVector position = _regions[i].getPosition();
+			if(position.x != _positions[2 * i] || position.y != _positions[2 * i + 1]) {
+				build();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Sends a message to the subscribers with no region, and those whose region contains the message's location.
+	 */
+	void deliver(MouseMessage m) {
+		for(int i = 0; i < _unbounded.size(); i++)
+			_unbounded.get(i).receive(m);
+		if(_count == 0)
+			return;
+		float x = m.getX(), y = m.getY();
+		long cell = key(cell(x), cell(y));
+		for(int e = _head[slot(cell)]; e != -1; e = _entryNext[e]) {
+			if(_entryCell[e] != cell)
+				continue;
+			int r = _entryRegion[e];
+			int b = 4 * r;
+			if(x < _boxes[b] || y < _boxes[b + 1] || x > _boxes[b + 2] || y > _boxes[b + 3])
+				continue;
+			if(_regions[r].contains(x, y))
+				_subs[r].receive(m);
+		}
+	}
+
+	private void build() {
+		// record the boxes, and use cells the size of a typical region
+		float size = 0;
+		for(int i = 0; i < _count; i++) {
+			HRectangle box = _regions[i].getBoundingBox();
+			PVector min = box.getAbsMin(), max = box.getAbsMax();
+			int b = 4 * i;
+			_boxes[b] = min.x;
+			_boxes[b + 1] = min.y;
+			_boxes[b + 2] = max.x;
+			_boxes[b + 3] = max.y;
+			PVector position = _regions[i].getPosition();
+			_positions[2 * i] = position.x;
+			_positions[2 * i + 1] = position.y;
+			size += Math.max(max.x - min.x, max.y - min.y);
+		}
+		_cellSize = _count == 0 || size <= 0 ? 1 : size / _count;
+
+		int entries = 0;
+		for(int i = 0; i < _count; i++) {
+			int b = 4 * i;
+			entries += (cell(_boxes[b + 2]) - cell(_boxes[b]) + 1) * (cell(_boxes[b + 3]) - cell(_boxes[b + 1]) + 1);
+		}
+		int tableSize = Integer.highestOneBit(Math.max(entries, 1) * 2);
+		if(_head.length != tableSize)
+			_head = new int[tableSize];
+		for(int i = 0; i < tableSize; i++)
+			_head[i] = -1;
+		if(_entryCell.length < entries) {
+			_entryCell = new long[entries];
+			_entryRegion = new int[entries];
+			_entryNext = new int[entries];
+		}
+		// add entries in reverse so each chain lists regions in subscription order
+		int e = 0;
+		for(int i = _count - 1; i >= 0; i--) {
+			int b = 4 * i;
+			for(int cx = cell(_boxes[b]); cx <= cell(_boxes[b + 2]); cx++) {
+				for(int cy = cell(_boxes[b + 1]); cy <= cell(_boxes[b + 3]); cy++) {
+					long cell = key(cx, cy);
+					int slot = slot(cell);
+					_entryCell[e] = cell;
+					_entryRegion[e] = i;
+					_entryNext[e] = _head[slot];
+					_head[slot] = e++;
+				}
+			}
+		}
+	}
+
+	private int cell(float coordinate) {
+		return (int)Math.floor(coordinate / _cellSize);
+	}
+
+	private static long key(int cx, int cy) {
+		return ((long)cx << 32) | (cy & 0xFFFFFFFFL);
+	}
+
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32)) & (_head.length - 1);
+	}
+
+}
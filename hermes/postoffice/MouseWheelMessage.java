@@ -3,6 +3,9 @@ package hermes.postoffice;
 /**
  * Message representing a movement of the Mouse Wheel.
  * All MouseWheelMessages are of the same type.
+ * <p>
+ * Messages from the PostOffice are reused once <code>receive</code> returns, so copy out
+ * 	any values that need to be kept rather than keeping the message.
  */
 public class MouseWheelMessage implements Message {
 	
@@ -17,6 +20,13 @@ public class MouseWheelMessage implements Message {
 		_wheelRotation = wheelRotation;
 	}
 	
+	/**
+	 * Refills the message, so it can be reused.
+	 */
+	void set(int wheelRotation) {
+		_wheelRotation = wheelRotation;
+	}
+	
 	/**
 	 * Gets the amount the wheel has been rotated.
 	 */
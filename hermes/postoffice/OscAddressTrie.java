@@ -0,0 +1,237 @@
+package hermes.postoffice;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * OSC subscriptions, by address or address pattern, in a trie with one level for each part of the address.
+ * <p>
+ * Internal -- used by <code>PostOffice</code>. Subscriptions can use the OSC 1.0 pattern syntax in any part:
+ * 	'?' matches any one character, '*' any run of characters, "[abc]" or "[a-z]" one of a set ("[!abc]" one
+ * 	not in it), and "{foo,bar}" any of the strings listed. Patterns never match across a '/'.
+ * <p>
+ * Parts with no pattern characters are looked up in a hash map, so matching an address only tests the
+ * 	patterns on the trie's branches it follows, and takes time in proportion to the address's length rather
+ * 	than the number of subscriptions. The subscribers for each address are cached until the subscriptions change.
+ *
+ * @param <S>	the type of subscriber
+ */
+class OscAddressTrie<S> {
+
+	private static final int MAX_CACHED_ADDRESSES = 4096;
+
+	/**
+	 * One part of an address, and the subscriptions that end there.
+	 */
+	private static class Node<S> {
+		HashMap<String, Node<S>> literals = new HashMap<String, Node<S>>();	// children with plain names
+		ArrayList<String> patterns = new ArrayList<String>();				// children with patterns
+		ArrayList<Node<S>> patternNodes = new ArrayList<Node<S>>();
+		LinkedHashSet<S> subs = new LinkedHashSet<S>();
+	}
+
+	private Node<S> _root = new Node<S>();
+	private HashMap<String, List<S>> _cache = new HashMap<String, List<S>>();
+
+	/**
+	 * Adds a subscription.
+	 * @param pattern	address or address pattern, starting with '/'
+	 * @param sub		the subscriber
+	 * @return			true if the subscription is new
+	 */
+	boolean add(String pattern, S sub) {
+		Node<S> node = _root;
+		for(String part : split(pattern)) {
+			Node<S> child;
+			if(isPattern(part)) {
+				int index = node.patterns.indexOf(part);
+				if(index < 0) {
+					child = new Node<S>();
+					node.patterns.add(part);
+					node.patternNodes.add(child);
+				} else {
+					child = node.patternNodes.get(index);
+				}
+			} else {
+				child = node.literals.get(part);
+				if(child == null) {
+					child = new Node<S>();
+					node.literals.put(part, child);
+				}
+			}
+			node = child;
+		}
+		if(!node.subs.add(sub))
+			return false;
+		_cache.clear();
+		return true;
+	}
+
+	/**
+	 * Removes all subscriptions.
+	 */
+	void clear() {
+		_root = new Node<S>();
+		_cache.clear();
+	}
+
+	/**
+	 * Removes a subscription.
+	 * @param pattern	the address or pattern subscribed to
+	 * @param sub		the subscriber
+	 * @return			true if the subscription was present and removed
+	 */
+	boolean remove(String pattern, Object sub) {
+		Node<S> node = _root;
+		for(String part : split(pattern)) {
+			if(isPattern(part)) {
+				int index = node.patterns.indexOf(part);
+				node = index < 0 ? null : node.patternNodes.get(index);
+			} else {
+				node = node.literals.get(part);
+			}
+			if(node == null)
+				return false;
+		}
+		if(!node.subs.remove(sub))
+			return false;
+		_cache.clear();
+		return true;
+	}
+
+	/**
+	 * Finds the subscribers whose address or pattern matches an address.
+	 * @param address	the address of a received message
+	 * @return			the subscribers, which must not be modified
+	 */
+	List<S> match(String address) {
+		List<S> subs = _cache.get(address);
+		if(subs != null)
+			return subs;
+
+		ArrayList<Node<S>> nodes = new ArrayList<Node<S>>();
+		ArrayList<Node<S>> next = new ArrayList<Node<S>>();
+		nodes.add(_root);
+		for(String part : split(address)) {
+			for(Node<S> node : nodes) {
+				Node<S> literal = node.literals.get(part);
+				if(literal != null)
+					next.add(literal);
+				for(int i = 0; i < node.patterns.size(); i++) {
+					if(matches(node.patterns.get(i), 0, part, 0))
+						next.add(node.patternNodes.get(i));
+				}
+			}
+			ArrayList<Node<S>> swap = nodes;
+			nodes = next;
+			next = swap;
+			next.clear();
+			if(nodes.isEmpty())
+				break;
+		}
+		LinkedHashSet<S> found = new LinkedHashSet<S>();
+		for(Node<S> node : nodes)
+			found.addAll(node.subs);
+		subs = found.isEmpty() ? Collections.<S>emptyList() : Collections.unmodifiableList(new ArrayList<S>(found));
+
+		if(_cache.size() >= MAX_CACHED_ADDRESSES)
+			_cache.clear();
+		_cache.put(address, subs);
+		return subs;
+	}
+
+	/**
+	 * Splits an address into its parts, e.g. "/sensor/1/x" into "sensor", "1" and "x".
+	 */
+	private static String[] split(String address) {
+		return (address.startsWith("/") ? address.substring(1) : address).split("/", -1);
+	}
+
+	private static boolean isPattern(String part) {
+		for(int i = 0; i < part.length(); i++) {
+			switch(part.charAt(i)) {
+			case '*': case '?': case '[': case '{':
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether the rest of a string, from s, matches the rest of a pattern, from p.
+	 */
+	static boolean matches(String pattern, int p, String string, int s) {
+		while(p < pattern.length()) {
+			char c = pattern.charAt(p);
+			switch(c) {
+			case '*':
+				// skip repeated stars, then try the rest of the pattern at each position
+				while(p < pattern.length() && pattern.charAt(p) == '*')
+					p++;
+				if(p == pattern.length())
+					return true;
+				for(int i = s; i <= string.length(); i++) {
+					if(matches(pattern, p, string, i))
+						return true;
+				}
+				return false;
+			case '?':
+				if(s >= string.length())
+					return false;
+				p++;
+				s++;
+				break;
+			case '[': {
+				int close = pattern.indexOf(']', p + 1);
+				if(close < 0 || s >= string.length())
+					return false;
+				if(!inSet(pattern, p + 1, close, string.charAt(s)))
+					return false;
+				p = close + 1;
+				s++;
+				break;
+			}
+			case '{': {
+				int close = pattern.indexOf('}', p + 1);
+				if(close < 0)
+					return false;
+				String rest = pattern.substring(close + 1);
+				for(String option : pattern.substring(p + 1, close).split(",", -1)) {
+					if(string.startsWith(option, s) && matches(rest, 0, string, s + option.length()))
+						return true;
+				}
+				return false;
+			}
+			default:
+				if(s >= string.length() || string.charAt(s) != c)
+					return false;
+				p++;
+				s++;
+			}
+		}
+		return s == string.length();
+	}
+
+	/**
+	 * Checks whether a character is in the set between the brackets at start and end, e.g. "a-z" or "!0-9".
+	 */
+	private static boolean inSet(String pattern, int start, int end, char c) {
+		boolean negate = start < end && pattern.charAt(start) == '!';
+		if(negate)
+			start++;
+		boolean found = false;
+		for(int i = start; i < end; i++) {
+			if(i + 2 < end && pattern.charAt(i + 1) == '-') {
+				found |= c >= pattern.charAt(i) && c <= pattern.charAt(i + 2);
+				i += 2;
+			} else {
+				found |= c == pattern.charAt(i);
+			}
+		}
+		return found != negate;
+	}
+
+}
@@ -0,0 +1,154 @@
+package hermes.postoffice;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * A bounded queue of received OSC messages, which can keep only the latest messages on chosen addresses.
+ * <p>
+ * Internal -- filled by <code>PostOffice.acceptMessage</code> on the OSC thread, and drained by
+ * 	<code>checkMail</code> on the World's. Messages are delivered in the order they arrived. For an address
+ * 	that keeps the last N messages, an older message still waiting is dropped when a new one arrives.
+ * 	Once the inbox holds its capacity, new messages are dropped. Both kinds of drop are counted, by address
+ * 	for addresses with a keep policy and for the first <code>MAX_DROP_ADDRESSES</code> others, so a sender
+ * 	using ever new addresses can't grow the counts without bound.
+ */
+class OscInbox {
+
+	static final int DEFAULT_CAPACITY = 4096;
+	static final int MAX_DROP_ADDRESSES = 256;	// most addresses without a keep policy that drops are counted for
+
+	/**
+	 * A waiting message, or the place of one that was dropped for a newer one.
+	 */
+	private static class Entry {
+		OscMessage message;
+		Entry(OscMessage message) {
+			this.message = message;
+		}
+	}
+
+	private int _capacity = DEFAULT_CAPACITY;
+	private ArrayDeque<Entry> _entries = new ArrayDeque<Entry>();	// in order of arrival
+	private int _waiting = 0;	// entries with messages
+	private int _replaced = 0;	// entries whose messages were dropped
+
+	// number of messages kept for each address that doesn't keep all, and their waiting entries
+	private HashMap<String, Integer> _keep = new HashMap<String, Integer>();
+	private HashMap<String, ArrayDeque<Entry>> _kept = new HashMap<String, ArrayDeque<Entry>>();
+
+	private int _dropped = 0;
+	private HashMap<String, int[]> _droppedByAddress = new HashMap<String, int[]>();
+	private int _droppedAddresses = 0;	// addresses in _droppedByAddress without a keep policy
+
+	/**
+	 * Sets how many of the latest messages on an address are kept between updates.
+	 * @param address	the address
+	 * @param count		number of messages to keep, or 0 to keep them all
+	 */
+	synchronized void setKeep(String address, int count) {
+		if(count == 0) {
+			_keep.remove(address);
+			_kept.remove(address);
+		} else {
+			_keep.put(address, count);
+		}
+	}
+
+	/**
+	 * Sets the most messages that can wait between updates.
+	 */
+	synchronized void setCapacity(int capacity) {
+		_capacity = capacity;
+	}
+
+	/**
+	 * Adds a received message, dropping it or an older message as the policies require.
+	 */
+	synchronized void add(OscMessage m) {
+		String address = m.getAddress();
+		Integer keep = _keep.get(address);
+		ArrayDeque<Entry> kept = null;
+		if(keep != null) {
+			kept = _kept.get(address);
+			if(kept == null) {
+				kept = new ArrayDeque<Entry>();
+				_kept.put(address, kept);
+			}
+			while(kept.size() >= keep) {
+				kept.poll().message = null;
+				_waiting--;
+				_replaced++;
+				drop(address);
+			}
+		}
+		if(_waiting >= _capacity) {
+			drop(address);
+			return;
+		}
+		Entry e = new Entry(m);
+		_entries.add(e);
+		_waiting++;
+		if(kept != null)
+			kept.add(e);
+		// clear out the places of dropped messages once they outnumber the waiting ones
+		if(_replaced > _waiting + 64)
+			compact();
+	}
+
+	/**
+	 * Moves the waiting messages, in the order they arrived, into a list.
+	 */
+	synchronized void drain(ArrayList<OscMessage> out) {
+		for(Entry e : _entries) {
+			if(e.message != null)
+				out.add(e.message);
+		}
+		_entries.clear();
+		for(ArrayDeque<Entry> kept : _kept.values())
+			kept.clear();
+		_waiting = 0;
+		_replaced = 0;
+	}
+
+	private void drop(String address) {
+		_dropped++;
+		int[] count = _droppedByAddress.get(address);
+		if(count == null) {
+			if(!_keep.containsKey(address)) {
+				if(_droppedAddresses >= MAX_DROP_ADDRESSES)
+					return;
+				_droppedAddresses++;
+			}
+			count = new int[1];
+			_droppedByAddress.put(address, count);
+		}
+		count[0]++;
+	}
+
+	private void compact() {
+		for(Iterator<Entry> iter = _entries.iterator(); iter.hasNext(); ) {
+			if(iter.next().message == null)
+				iter.remove();
+		}
+		_replaced = 0;
+	}
+
+	/**
+	 * @return	the number of messages dropped
+	 */
+	synchronized int getDropped() {
+		return _dropped;
+	}
+
+	/**
+	 * @return	the number of messages on an address dropped, or 0 if it was not counted
+	 */
+	synchronized int getDropped(String address) {
+		int[] count = _droppedByAddress.get(address);
+		return count == null ? 0 : count[0];
+	}
+
+}
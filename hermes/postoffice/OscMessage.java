@@ -1,5 +1,8 @@
 package hermes.postoffice;
 
+import java.math.BigInteger;
+import java.util.Arrays;
+
 
 /**
  * Message representing an OSC message.
@@ -12,6 +15,13 @@ package hermes.postoffice;
  * <br/>Next, you would call "getAndRemoveString()" which would return string B.
  * <br/>Lastly, you would call getAndRemoveFloat()" which would return string C.
  * <br/>Take great care!!!! You should be well-aware of how many arguments a message will contain, and what types it has.
+ * <p>
+ * Arguments can also be read in any order by index, e.g. <code>getFloat(2)</code>, and their types found with
+ * <code>getType</code>. Arguments are stored unboxed: each has an OSC type tag, numbers and booleans are packed
+ * into an array of longs, and strings and other objects are kept in a separate array, so none of the accessors allocate.
+ * <p>
+ * To send a message, build it with the typed add methods and pass it to <code>PostOffice.send</code>:
+ * <br/><code>postOffice.send(new OscMessage("/being/1").addFloat(x).addFloat(y));</code>
  */
 
 public class OscMessage implements Message {
@@ -19,12 +29,27 @@ public class OscMessage implements Message {
 	//Address of OSCMessage
 	private String _address;
 
-	//Contents of OSCMessage
-	private Object[] _contents;
+	//Contents of OSCMessage: a type tag for each argument (as in OSC, e.g. 'i' int, 'f' float, 's' string),
+	//the value of numbers and booleans (floats and doubles by their bits), and anything else
+	private int _count = 0;
+	private char[] _types;
+	private long[] _values;
+	private Object[] _objects; //null until an argument needs it
 	
 	//used to internally keep track of how many "getAndRemove" calls the user has made
 	private int _indexToRetrieveFrom = 0;  
 	//
+
+	/**
+	 * Constructor for a message with no arguments yet, which can be added with the add methods.
+	 * @param address	Address of OSCMessage
+	 */
+	public OscMessage(String address) {
+		assert address != null : "OscMessage constructor: address must be a valid String";
+		_address = address;
+		_types = new char[4];
+		_values = new long[4];
+	}
 	
 	/**
 	 * Basic constructor for unpacked OSCMessage.
@@ -33,7 +58,11 @@ public class OscMessage implements Message {
 	 */
 	public OscMessage(String address, Object[] contents) {
 		_address = address;
-		_contents = contents;
+		_types = new char[Math.max(contents.length, 1)];
+		_values = new long[_types.length];
+		for(Object o : contents) {
+			addObject(o);
+		}
 	}
 	
 	/**
@@ -41,17 +70,284 @@ public class OscMessage implements Message {
 	 * @param message	a packed OSCMessage in illposed's format
 	 */
 	protected OscMessage(com.illposed.osc.OSCMessage message) {
-		_address = message.getAddress();
-		_contents = message.getArguments();
+		this(message.getAddress(), message.getArguments());
 	}
 	
+	//////////////////////////////
+	//Methods for building messages
+
+	/**
+	 * Adds an int argument (type 'i').
+	 * @param value		the argument
+	 * @return			this message, so adds can be chained
+	 */
+	public OscMessage addInt(int value) {
+		add('i', value);
+		return this;
+	}
+
+	/**
+	 * Adds a float argument (type 'f').
+	 * @param value		the argument
+	 * @return			this message, so adds can be chained
+	 */
+	public OscMessage addFloat(float value) {
+		add('f', Float.floatToRawIntBits(value));
+		return this;
+	}
+
+	/**
+	 * Adds a double argument (type 'd').
+	 * @param value		the argument
+	 * @return			this message, so adds can be chained
+	 */
+	public OscMessage addDouble(double value) {
+		add('d', Double.doubleToRawLongBits(value));
+		return this;
+	}
+
+	/**
+	 * Adds a long argument (type 'h').
+	 * @param value		the argument
+	 * @return			this message, so adds can be chained
+	 */
+	public OscMessage addLong(long value) {
+		add('h', value);
+		return this;
+	}
+
+	/**
+	 * Adds a boolean argument (type 'T' or 'F').
+	 * @param value		the argument
+	 * @return			this message, so adds can be chained
+	 */
+	public OscMessage addBoolean(boolean value) {
+		add(value ? 'T' : 'F', value ? 1 : 0);
+		return this;
+	}
+
+	/**
+	 * Adds a String argument (type 's').
+	 * @param value		the argument
+	 * @return			this message, so adds can be chained
+	 */
+	public OscMessage addString(String value) {
+		assert value != null : "OscMessage.addString: value must be a valid String";
+		add('s', 0);
+		setObject(_count - 1, value);
+		return this;
+	}
+
+	/**
+	 * Adds a char argument (type 'c').
+	 * @param value		the argument
+	 * @return			this message, so adds can be chained
+	 */
+	public OscMessage addChar(char value) {
+		add('c', value);
+		return this;
+	}
+
+	/**
+	 * Adds a blob argument (type 'b'). The bytes are not copied.
+	 * @param value		the argument
+	 * @return			this message, so adds can be chained
+	 */
+	public OscMessage addBlob(byte[] value) {
+		assert value != null : "OscMessage.addBlob: value must be a valid byte array";
+		add('b', 0);
+		setObject(_count - 1, value);
+		return this;
+	}
+
+	/**
+	 * Adds a null argument (type 'N').
+	 * @return			this message, so adds can be chained
+	 */
+	public OscMessage addNull() {
+		add('N', 0);
+		return this;
+	}
+
+	/**
+	 * Adds an argument of any supported type: Integer, Float, Double, Long, BigInteger, Boolean, String,
+	 * Character, byte[] (a blob) or null. Other objects are kept, but can't be sent.
+	 */
+	private void addObject(Object o) {
+		if(o instanceof Integer) {
+			addInt((Integer)o);
+		} else if(o instanceof Float) {
+			addFloat((Float)o);
+		} else if(o instanceof String) {
+			addString((String)o);
+		} else if(o instanceof Double) {
+			addDouble((Double)o);
+		} else if(o instanceof Long) {
+			addLong((Long)o);
+		} else if(o instanceof BigInteger) {
+			addLong(((BigInteger)o).longValue());
+		} else if(o instanceof Boolean) {
+			addBoolean((Boolean)o);
+		} else if(o instanceof Character) {
+			addChar((Character)o);
+		} else if(o instanceof byte[]) {
+			addBlob((byte[])o);
+		} else if(o == null) {
+			addNull();
+		} else {
+			add('\0', 0);
+			setObject(_count - 1, o);
+		}
+	}
+
+	private void add(char type, long value) {
+		if(_count == _types.length) {
+			_types = Arrays.copyOf(_types, _count * 2);
+			_values = Arrays.copyOf(_values, _count * 2);
+		}
+		_types[_count] = type;
+		_values[_count++] = value;
+	}
+
+	private void setObject(int index, Object o) {
+		if(_objects == null) {
+			_objects = new Object[_types.length];
+		} else if(_objects.length < _types.length) {
+			_objects = Arrays.copyOf(_objects, _types.length);
+		}
+		_objects[index] = o;
+	}
+
+	/**
+	 * Empties the message so it can be reused for another, e.g. by <code>PostOffice</code> when batching sends.
+	 * @param address	the new address
+	 */
+	void reset(String address) {
+		_address = address;
+		if(_objects != null) {
+			Arrays.fill(_objects, 0, _count, null);
+		}
+		_count = 0;
+		_indexToRetrieveFrom = 0;
+	}
+
+	//////////////////////////////
+	//Methods for reading by index
+
+	/**
+	 * @return	the number of arguments in the message, whether or not they have been removed
+	 */
+	public int getArgumentCount() {
+		return _count;
+	}
+
+	/**
+	 * Gets the OSC type tag of an argument: 'i' int, 'f' float, 's' string, 'd' double, 'h' long,
+	 * 'T' true, 'F' false, 'c' char, 'b' blob or 'N' null.
+	 * @param index		the argument
+	 * @return			its type tag, or 0 for an object OSC can't send
+	 */
+	public char getType(int index) {
+		assert index >= 0 && index < _count : "OscMessage.getType: index must be less than the number of arguments";
+		return _types[index];
+	}
+
+	/**
+	 * Gets an int argument (type 'i' or 'c').
+	 * @param index		the argument
+	 * @return			its value
+	 */
+	public int getInt(int index) {
+		assert index >= 0 && index < _count : "OscMessage.getInt: index must be less than the number of arguments";
+		assert _types[index] == 'i' || _types[index] == 'c' : "OscMessage.getInt: argument " + index + " is not an int, it has type " + _types[index];
+		return (int)_values[index];
+	}
+
+	/**
+	 * Gets a float argument (type 'f'). Int and double arguments are converted.
+	 * @param index		the argument
+	 * @return			its value
+	 */
+	public float getFloat(int index) {
+		assert index >= 0 && index < _count : "OscMessage.getFloat: index must be less than the number of arguments";
+		switch(_types[index]) {
+		case 'i':
+			return (int)_values[index];
+		case 'd':
+			return (float)Double.longBitsToDouble(_values[index]);
+		default:
+			assert _types[index] == 'f' : "OscMessage.getFloat: argument " + index + " is not a number, it has type " + _types[index];
+			return Float.intBitsToFloat((int)_values[index]);
+		}
+	}
+
+	/**
+	 * Gets a double argument (type 'd'). Float arguments are converted.
+	 * @param index		the argument
+	 * @return			its value
+	 */
+	public double getDouble(int index) {
+		assert index >= 0 && index < _count : "OscMessage.getDouble: index must be less than the number of arguments";
+		if(_types[index] == 'f') {
+			return Float.intBitsToFloat((int)_values[index]);
+		}
+		assert _types[index] == 'd' : "OscMessage.getDouble: argument " + index + " is not a double, it has type " + _types[index];
+		return Double.longBitsToDouble(_values[index]);
+	}
+
+	/**
+	 * Gets a long argument (type 'h'). Int arguments are converted.
+	 * @param index		the argument
+	 * @return			its value
+	 */
+	public long getLong(int index) {
+		assert index >= 0 && index < _count : "OscMessage.getLong: index must be less than the number of arguments";
+		assert _types[index] == 'h' || _types[index] == 'i' : "OscMessage.getLong: argument " + index + " is not a long, it has type " + _types[index];
+		return _values[index];
+	}
+
+	/**
+	 * Gets a boolean argument (type 'T' or 'F'). Int arguments are true if they aren't zero.
+	 * @param index		the argument
+	 * @return			its value
+	 */
+	public boolean getBoolean(int index) {
+		assert index >= 0 && index < _count : "OscMessage.getBoolean: index must be less than the number of arguments";
+		assert _types[index] == 'T' || _types[index] == 'F' || _types[index] == 'i' : "OscMessage.getBoolean: argument " + index + " is not a boolean, it has type " + _types[index];
+		return _values[index] != 0;
+	}
+
+	/**
+	 * Gets a String argument (type 's').
+	 * @param index		the argument
+	 * @return			its value
+	 */
+	public String getString(int index) {
+		assert index >= 0 && index < _count : "OscMessage.getString: index must be less than the number of arguments";
+		assert _types[index] == 's' : "OscMessage.getString: argument " + index + " is not a String, it has type " + _types[index];
+		return (String)_objects[index];
+	}
+
+	/**
+	 * Gets a blob argument (type 'b').
+	 * @param index		the argument
+	 * @return			its bytes, which are not copied
+	 */
+	public byte[] getBlob(int index) {
+		assert index >= 0 && index < _count : "OscMessage.getBlob: index must be less than the number of arguments";
+		assert _types[index] == 'b' : "OscMessage.getBlob: argument " + index + " is not a blob, it has type " + _types[index];
+		return (byte[])_objects[index];
+	}
+
+	//////////////////////////////
+	//Methods for reading in order
 	
 	/**
 	 * Returns the number of arguments available for extraction from this OSCMessage.
 	 * @return		the number of arguments left to extract from this OSCMessage
 	 */
 	public int getNumberOfRemainingArguments() {
-		return _contents.length - _indexToRetrieveFrom;
+		return _count - _indexToRetrieveFrom;
 	}
 	
 	/**
@@ -59,7 +355,7 @@ public class OscMessage implements Message {
 	 * @return		true if the message has remaining arguments
 	 */
 	public boolean hasRemainingArguments() {
-		return (_indexToRetrieveFrom <= _contents.length - 1);
+		return (_indexToRetrieveFrom <= _count - 1);
 	}
 	
 	
@@ -76,11 +372,10 @@ public class OscMessage implements Message {
 		assert hasRemainingArguments() : "OSCmessage error: You tried to call getAndRemoveInt(), but this OSCmessage has no arguments. Be careful with OSCmessages!";
 	
 		//make sure the type is correct
-		assert _contents[_indexToRetrieveFrom] instanceof Integer : "OSCmessage error: You tried to call getAndRemoveInt(), but the current argument is not of type int!! \n" +
-				"it is of type: " + _contents[_indexToRetrieveFrom].getClass().getName();
+		assert _types[_indexToRetrieveFrom] == 'i' : "OSCmessage error: You tried to call getAndRemoveInt(), but the current argument is not of type int!! \n" +
+				"it has type tag: " + _types[_indexToRetrieveFrom];
 		
-		//cast it
-		int intToReturn = (Integer)_contents[_indexToRetrieveFrom];
+		int intToReturn = (int)_values[_indexToRetrieveFrom];
 		
 		_indexToRetrieveFrom++;
 		
@@ -102,11 +397,10 @@ public class OscMessage implements Message {
 		assert hasRemainingArguments() : "OSCmessage error: You tried to call getAndRemoveString(), but this OSCmessage has no arguments. Be careful with OSCmessages!";
 	
 		//make sure the type is correct
-		assert _contents[_indexToRetrieveFrom] instanceof String : "OSCmessage error: You tried to call getAndRemoveString(), but the current argument is not of type String!! \n" +
-				"it is of type: " + _contents[_indexToRetrieveFrom].getClass().getName();
+		assert _types[_indexToRetrieveFrom] == 's' : "OSCmessage error: You tried to call getAndRemoveString(), but the current argument is not of type String!! \n" +
+				"it has type tag: " + _types[_indexToRetrieveFrom];
 		
-		//cast it
-		String stringToReturn = (String)_contents[_indexToRetrieveFrom];
+		String stringToReturn = (String)_objects[_indexToRetrieveFrom];
 		
 		_indexToRetrieveFrom++;
 		
@@ -127,11 +421,10 @@ public class OscMessage implements Message {
 		assert hasRemainingArguments() : "OSCmessage error: You tried to call getAndRemoveFloat(), but this OSCmessage has no arguments. Be careful with OSCmessages!";
 	
 		//make sure the type is correct
-		assert _contents[_indexToRetrieveFrom] instanceof Float : "OSCmessage error: You tried to call getAndRemoveFloat(), but the current argument is not of type Float!! \n" +
-				"it is of type: " + _contents[_indexToRetrieveFrom].getClass().getName();
+		assert _types[_indexToRetrieveFrom] == 'f' : "OSCmessage error: You tried to call getAndRemoveFloat(), but the current argument is not of type Float!! \n" +
+				"it has type tag: " + _types[_indexToRetrieveFrom];
 		
-		//cast it
-		float floatToReturn = (Float)_contents[_indexToRetrieveFrom];
+		float floatToReturn = Float.intBitsToFloat((int)_values[_indexToRetrieveFrom]);
 		
 		_indexToRetrieveFrom++;
 		
@@ -142,6 +435,7 @@ public class OscMessage implements Message {
 
 	/**
 	 * Get the typetag of the next argument in this OSCMessage. This means: "i" for int, "f" for float, and "s" for string.
+	 * Other OSC types give their tags too, e.g. "d" for double, as listed in <code>getType</code>.
 	 * <br>NOTE: if you have extracted all the arguments from this OSCMessage, calling this method will give an error.
 	 * @return		the typetag of the next argument in this OSCmessage
 	 */
@@ -151,14 +445,18 @@ public class OscMessage implements Message {
 		
 		String typeTag;
 		
-		if(_contents[_indexToRetrieveFrom] instanceof Integer) {
-			typeTag = "i";
-		} else if (_contents[_indexToRetrieveFrom] instanceof Float){
-			typeTag =  "f";
-		} else if(_contents[_indexToRetrieveFrom] instanceof String) {
-			typeTag = "s";
-		} else {
-			typeTag = null;
+		switch(_types[_indexToRetrieveFrom]) {
+		case 'i': typeTag = "i"; break;
+		case 'f': typeTag = "f"; break;
+		case 's': typeTag = "s"; break;
+		case 'd': typeTag = "d"; break;
+		case 'h': typeTag = "h"; break;
+		case 'T': typeTag = "T"; break;
+		case 'F': typeTag = "F"; break;
+		case 'c': typeTag = "c"; break;
+		case 'b': typeTag = "b"; break;
+		case 'N': typeTag = "N"; break;
+		default: typeTag = null;
 		}
 		
 		//Shouldn't happen... but just in case!
@@ -180,10 +478,24 @@ public class OscMessage implements Message {
 	/**
 	 * Gets an object[] of the inner contents of an OSCMessage.
 	 * Be very careful using this! Please use getAndRemove methods instead! 
+	 * <br>The arguments are boxed into a new array each time this is called.
 	 * @return      contents of message
 	 */
 	protected Object[] getContents() {
-		return _contents;
+		Object[] contents = new Object[_count];
+		for(int i = 0; i < _count; i++) {
+			switch(_types[i]) {
+			case 'i': contents[i] = (int)_values[i]; break;
+			case 'f': contents[i] = Float.intBitsToFloat((int)_values[i]); break;
+			case 'd': contents[i] = Double.longBitsToDouble(_values[i]); break;
+			case 'h': contents[i] = _values[i]; break;
+			case 'T': case 'F': contents[i] = _values[i] != 0; break;
+			case 'c': contents[i] = (char)_values[i]; break;
+			case 'N': contents[i] = null; break;
+			default: contents[i] = _objects[i];
+			}
+		}
+		return contents;
 	}
 	
 	/**
@@ -191,7 +503,7 @@ public class OscMessage implements Message {
 	 * @return      An illposed equivalent of this message
 	 */
 	protected com.illposed.osc.OSCMessage toIllposed() {
-		com.illposed.osc.OSCMessage m = new com.illposed.osc.OSCMessage(_address,_contents);
+		com.illposed.osc.OSCMessage m = new com.illposed.osc.OSCMessage(_address,getContents());
 		return m;
 	}
 	
@@ -0,0 +1,44 @@
+package hermes.postoffice;
+
+import java.net.SocketException;
+import java.util.Date;
+
+import com.illposed.osc.OSCBundle;
+import com.illposed.osc.OSCListener;
+import com.illposed.osc.OSCMessage;
+import com.illposed.osc.OSCPacket;
+import com.illposed.osc.utility.OSCPacketDispatcher;
+
+/**
+ * An illposed OSC port that passes every message it receives to one listener.
+ * <p>
+ * Internal -- used by <code>PostOffice</code>, which matches addresses itself. The illposed dispatcher only
+ * 	matches exact addresses, comparing each message against every address registered with it.
+ */
+class OscPortIn extends com.illposed.osc.OSCPortIn {
+
+	/**
+	 * Creates a port, which starts receiving when <code>startListening</code> is called.
+	 * @param port		port to receive messages on
+	 * @param listener	listener for every message received
+	 */
+	OscPortIn(int port, final OSCListener listener) throws SocketException {
+		super(port);
+		dispatcher = new OSCPacketDispatcher() {
+			public void dispatchPacket(OSCPacket packet) {
+				dispatchPacket(packet, null);
+			}
+
+			public void dispatchPacket(OSCPacket packet, Date time) {
+				if(packet instanceof OSCBundle) {
+					OSCBundle bundle = (OSCBundle)packet;
+					for(OSCPacket p : bundle.getPackets())
+						dispatchPacket(p, bundle.getTimestamp());
+				} else {
+					listener.acceptMessage(time, (OSCMessage)packet);
+				}
+			}
+		};
+	}
+
+}
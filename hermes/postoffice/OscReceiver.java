@@ -0,0 +1,244 @@
+package hermes.postoffice;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+
+/**
+ * Receives OSC messages over UDP without allocating, for high rate streams such as sensor data.
+ * <p>
+ * Packets are read from a non-blocking <code>DatagramChannel</code> into a single reused direct buffer,
+ * 	and each message is passed to its address's subscribers as an <code>OscView</code> over that buffer.
+ * 	Addresses are matched against the raw bytes, and messages no one subscribes to are skipped
+ * 	without parsing their arguments. Bundles (including nested bundles) are unpacked.
+ * <p>
+ * Nothing happens until <code>receive</code> is called, which reads every packet waiting and delivers
+ * 	them on the calling thread. Add the receiver to a <code>PostOffice</code> with <code>addOscReceiver</code>
+ * 	to have this done in <code>checkMail</code>, on the World's thread. Subscriptions should be made from the
+ * 	same thread.
+ */
+public class OscReceiver {
+
+	private static final int MAX_PACKET_SIZE = 65536;	// larger than any UDP datagram
+	private static final byte[] BUNDLE = { '#', 'b', 'u', 'n', 'd', 'l', 'e', 0 };
+
+	private DatagramChannel _channel;
+	private ByteBuffer _buffer;
+	private OscView _view = new OscView();
+
+	// subscribed addresses, as strings and bytes with the string's hash code, and their subscribers
+	private String[] _addresses = new String[0];
+	private byte[][] _addressBytes = new byte[0][];
+	private int[] _hashes = new int[0];
+	private OscViewSubscriber[][] _subs = new OscViewSubscriber[0][];
+
+	private int _packets = 0;		// packets received
+	private int _malformed = 0;		// packets that could not be parsed
+
+	/**
+	 * Creates a receiver listening on a port on all interfaces.
+	 * @param port	port to receive messages on, or 0 for any free port
+	 */
+	public OscReceiver(int port) {
+		this(new InetSocketAddress(port));
+	}
+
+	/**
+	 * Creates a receiver listening on a specific address, e.g. the loopback interface.
+	 * @param address	address and port to receive messages on
+	 */
+	public OscReceiver(SocketAddress address) {
+		assert address != null : "OscReceiver constructor: address must be a valid SocketAddress";
+
+		_buffer = ByteBuffer.allocateDirect(MAX_PACKET_SIZE);
+		try {
+			_channel = DatagramChannel.open();
+			_channel.configureBlocking(false);
+			_channel.socket().setReceiveBufferSize(1 << 20); // room for bursts between updates
+			_channel.socket().bind(address);
+		} catch (IOException e) {
+			assert false : "OscReceiver Error: could not listen on " + address;
+		}
+	}
+
+	/**
+	 * @return	the port the receiver is listening on
+	 */
+	public int getPort() {
+		return _channel.socket().getLocalPort();
+	}
+
+	/**
+	 * Registers a subscription to messages received on a specific OSC address.
+	 * @param sub		the OscViewSubscriber signing up
+	 * @param address	the address whose messages the subscriber wants
+	 */
+	public void subscribe(OscViewSubscriber sub, String address) {
+		assert sub != null : "OscReceiver.subscribe: sub must be a valid OscViewSubscriber";
+		assert address != null : "OscReceiver.subscribe: address must be a valid String";
+
+		int index = Arrays.asList(_addresses).indexOf(address);
+		if(index < 0) {
+			index = _addresses.length;
+			_addresses = Arrays.copyOf(_addresses, index + 1);
+			_addressBytes = Arrays.copyOf(_addressBytes, index + 1);
+			_hashes = Arrays.copyOf(_hashes, index + 1);
+			_subs = Arrays.copyOf(_subs, index + 1);
+			_addresses[index] = address;
+			_addressBytes[index] = address.getBytes(OscView.ASCII);
+			_hashes[index] = address.hashCode();
+			_subs[index] = new OscViewSubscriber[0];
+		}
+		for(OscViewSubscriber s : _subs[index]) {
+			if(s == sub)
+				return;
+		}
+		OscViewSubscriber[] subs = Arrays.copyOf(_subs[index], _subs[index].length + 1);
+		subs[subs.length - 1] = sub;
+		_subs[index] = subs;
+	}
+
+	/**
+	 * Removes a subscriber from all the addresses it subscribed to.
+	 * @param sub	the subscriber to be removed
+	 * @return		true if subscriber was present and removed, false otherwise
+	 */
+	public boolean removeSubscriptions(OscViewSubscriber sub) {
+		boolean removed = false;
+		for(int i = 0; i < _subs.length; i++) {
+			OscViewSubscriber[] subs = _subs[i];
+			for(int j = 0; j < subs.length; j++) {
+				if(subs[j] == sub) {
+					OscViewSubscriber[] rest = new OscViewSubscriber[subs.length - 1];
+					System.arraycopy(subs, 0, rest, 0, j);
+					System.arraycopy(subs, j + 1, rest, j, subs.length - j - 1);
+					_subs[i] = rest;
+					removed = true;
+					break;
+				}
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Reads all the packets waiting, and delivers their messages to subscribers.
+	 * @return	the number of messages delivered
+	 */
+	public int receive() {
+		int delivered = 0;
+		try {
+			while(true) {
+				_buffer.clear();
+				if(_channel.receive(_buffer) == null)
+					break;
+				_packets++;
+				int messages = deliver(0, _buffer.position(), 1);
+				if(messages < 0)
+					_malformed++;
+				else
+					delivered += messages;
+			}
+		} catch (IOException e) {
+			assert false : "OscReceiver Error: could not receive on port " + getPort();
+		}
+		return delivered;
+	}
+
+	/**
+	 * Delivers the message, or the messages in the bundle, between start and end.
+	 * @return	the number of messages delivered, or -1 if the packet is malformed
+	 */
+	private int deliver(int start, int end, long timeTag) {
+		if(isBundle(start, end)) {
+			if(end - start < 16)
+				return -1;
+			timeTag = _buffer.getLong(start + 8);
+			int delivered = 0;
+			for(int position = start + 16; position < end; ) {
+				// compared with the space left, as position + 4 + size can overflow
+				int size = end - position >= 4 ? _buffer.getInt(position) : -1;
+				if(size < 0 || size > end - position - 4)
+					return -1;
+				int messages = deliver(position + 4, position + 4 + size, timeTag);
+				if(messages < 0)
+					return -1;
+				delivered += messages;
+				position += 4 + size;
+			}
+			return delivered;
+		}
+
+		int index = findAddress(start, end);
+		if(index < 0 || _subs[index].length == 0)
+			return 0;
+		if(!_view.wrap(_buffer, start, end, timeTag))
+			return -1;
+		_view.setAddress(_addresses[index]);
+		OscViewSubscriber[] subs = _subs[index];
+		for(int i = 0; i < subs.length; i++)
+			subs[i].receive(_view);
+		return 1;
+	}
+
+	private boolean isBundle(int start, int end) {
+		if(end - start < BUNDLE.length)
+			return false;
+		for(int i = 0; i < BUNDLE.length; i++) {
+			if(_buffer.get(start + i) != BUNDLE[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the subscribed address matching the message's address.
+	 * @return	its index, or -1 if it is not subscribed to
+	 */
+	private int findAddress(int start, int end) {
+		// hash the address the way String.hashCode does, which is the same for ASCII
+		int hash = 0, length = 0;
+		for(int position = start; position < end && _buffer.get(position) != 0; position++, length++)
+			hash = 31 * hash + (_buffer.get(position) & 0xFF);
+		for(int i = 0; i < _hashes.length; i++) {
+			if(_hashes[i] != hash || _addressBytes[i].length != length)
+				continue;
+			byte[] bytes = _addressBytes[i];
+			int j = 0;
+			while(j < length && bytes[j] == _buffer.get(start + j))
+				j++;
+			if(j == length)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return	the number of packets received
+	 */
+	public int getPacketCount() {
+		return _packets;
+	}
+
+	/**
+	 * @return	the number of packets that could not be parsed, and were dropped
+	 */
+	public int getMalformedCount() {
+		return _malformed;
+	}
+
+	/**
+	 * Stops listening, and frees the port.
+	 */
+	public void close() {
+		try {
+			_channel.close();
+		} catch (IOException e) {
+			assert false : "OscReceiver Error: could not close port " + getPort();
+		}
+	}
+
+}
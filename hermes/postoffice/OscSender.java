@@ -0,0 +1,243 @@
+package hermes.postoffice;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Collects outgoing OSC messages into bundles, and sends them from a background thread.
+ * <p>
+ * Internal -- used by <code>PostOffice</code> when OSC batching is on. Messages are encoded into a bundle
+ * 	until the next one would make it larger than the packet size, when the bundle is passed to the send
+ * 	thread through a <code>MessageRing</code> of reused buffers. <code>flush</code> passes on the last,
+ * 	partly filled bundle; the World calls it at the end of each update. Messages must all be added from
+ * 	one thread, usually the World's.
+ * <p>
+ * If the send thread falls so far behind that the ring is full, messages are dropped and counted.
+ */
+class OscSender implements Runnable {
+
+	private static final int RING_SIZE = 64;	// bundles waiting to be sent
+	private static final int MAX_CACHED_ADDRESSES = 1024;
+	private static final byte[] BUNDLE = { '#', 'b', 'u', 'n', 'd', 'l', 'e', 0 };
+	private static final long IMMEDIATELY = 1;	// OSC time tag meaning "on arrival"
+
+	private DatagramChannel _channel;
+	private SocketAddress _target;
+	private int _packetSize;
+
+	private MessageRing<ByteBuffer> _ring;
+	private ByteBuffer _bundle = null;	// the bundle being filled, claimed from the ring
+	private ByteBuffer _message;		// the message being encoded
+	private HashMap<String, byte[]> _addresses = new HashMap<String, byte[]>(); // encoded addresses
+
+	private Thread _thread;
+	private volatile boolean _closed = false;
+	private AtomicInteger _sent = new AtomicInteger();		// packets sent
+	private AtomicInteger _failed = new AtomicInteger();	// packets that could not be sent
+
+	/**
+	 * Creates a sender and starts its thread.
+	 * @param target		where to send messages
+	 * @param packetSize	largest bundle to send, in bytes
+	 */
+	OscSender(SocketAddress target, int packetSize) {
+		assert target != null : "OscSender constructor: target must be a valid SocketAddress";
+		assert packetSize >= 64 : "OscSender constructor: packetSize must be at least 64 bytes";
+
+		_target = target;
+		_packetSize = packetSize;
+		ByteBuffer[] slots = new ByteBuffer[RING_SIZE];
+		for(int i = 0; i < RING_SIZE; i++)
+			slots[i] = ByteBuffer.allocateDirect(packetSize);
+		_ring = new MessageRing<ByteBuffer>(slots);
+		_message = ByteBuffer.allocate(packetSize);
+		try {
+			_channel = DatagramChannel.open();
+		} catch (IOException e) {
+			assert false : "OscSender Error: could not open a channel to " + target;
+		}
+		_thread = new Thread(this, "Hermes OSC sender");
+		_thread.setDaemon(true);
+		_thread.start();
+	}
+
+	/**
+	 * Adds a message to the bundle being filled. The message is encoded straight away, so it can be reused.
+	 * Arguments that OSC can't send are sent as nulls.
+	 * @param m		the message
+	 */
+	void add(OscMessage m) {
+		encode(m);
+		int length = _message.position();
+		if(BUNDLE.length + 12 + length > _packetSize) {
+			// too large to bundle, so send it on its own now
+			_message.flip();
+			sendNow(_message);
+			return;
+		}
+		if(_bundle != null && _bundle.remaining() < 4 + length)
+			flush();
+		if(_bundle == null) {
+			_bundle = _ring.claim();
+			if(_bundle == null)
+				return; // dropped, and counted by the ring
+			_bundle.clear();
+			_bundle.put(BUNDLE);
+			_bundle.putLong(IMMEDIATELY);
+		}
+		_bundle.putInt(length);
+		_bundle.put(_message.array(), 0, length);
+	}
+
+	/**
+	 * Passes the bundle being filled to the send thread.
+	 */
+	void flush() {
+		if(_bundle == null)
+			return;
+		_bundle.flip();
+		_bundle = null;
+		_ring.publish();
+		LockSupport.unpark(_thread);
+	}
+
+	/**
+	 * Sends the bundles passed on by <code>flush</code>, waiting when there are none.
+	 */
+	public void run() {
+		while(true) {
+			ByteBuffer bundle = _ring.peek(0);
+			if(bundle == null) {
+				if(_closed)
+					return;
+				LockSupport.park(this);
+				continue;
+			}
+			sendNow(bundle);
+			_ring.release();
+		}
+	}
+
+	private void sendNow(ByteBuffer packet) {
+		try {
+			_channel.send(packet, _target);
+			_sent.incrementAndGet();
+		} catch (IOException e) {
+			_failed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Encodes a message into <code>_message</code>, growing it if it is too small.
+	 */
+	private void encode(OscMessage m) {
+		int count = m.getArgumentCount();
+		while(true) {
+			_message.clear();
+			try {
+				putString(addressBytes(m.getAddress()));
+				_message.put((byte)',');
+				for(int i = 0; i < count; i++)
+					_message.put((byte)typeTag(m.getType(i)));
+				_message.put((byte)0);
+				pad(count + 2);
+				for(int i = 0; i < count; i++)
+					putArgument(m, i);
+				return;
+			} catch (BufferOverflowException e) {
+				_message = ByteBuffer.allocate(_message.capacity() * 2);
+			}
+		}
+	}
+
+	private byte[] addressBytes(String address) {
+		byte[] bytes = _addresses.get(address);
+		if(bytes == null) {
+			bytes = address.getBytes(OscView.ASCII);
+			if(_addresses.size() < MAX_CACHED_ADDRESSES)
+				_addresses.put(address, bytes);
+		}
+		return bytes;
+	}
+
+	private static char typeTag(char type) {
+		assert type != 0 : "OscSender.add: cannot send an object that isn't an OSC type";
+		return type == 0 ? 'N' : type;
+	}
+
+	private void putArgument(OscMessage m, int i) {
+		switch(m.getType(i)) {
+		case 'i': case 'c':
+			_message.putInt(m.getInt(i));
+			break;
+		case 'f':
+			_message.putFloat(m.getFloat(i));
+			break;
+		case 'd':
+			_message.putDouble(m.getDouble(i));
+			break;
+		case 'h':
+			_message.putLong(m.getLong(i));
+			break;
+		case 's':
+			putString(m.getString(i).getBytes(OscView.ASCII));
+			break;
+		case 'b':
+			byte[] blob = m.getBlob(i);
+			_message.putInt(blob.length);
+			_message.put(blob);
+			pad(blob.length);
+			break;
+		}
+	}
+
+	/**
+	 * Puts a null terminated string, padded to 4 bytes.
+	 */
+	private void putString(byte[] bytes) {
+		_message.put(bytes);
+		_message.put((byte)0);
+		pad(bytes.length + 1);
+	}
+
+	private void pad(int length) {
+		for(; (length & 3) != 0; length++)
+			_message.put((byte)0);
+	}
+
+	/**
+	 * @return	the number of packets sent
+	 */
+	int getSentCount() {
+		return _sent.get();
+	}
+
+	/**
+	 * @return	the number of messages dropped because the send thread fell behind, plus packets that could not be sent
+	 */
+	int getDroppedCount() {
+		return _ring.getDropped() + _failed.get();
+	}
+
+	/**
+	 * Sends the bundle being filled, stops the send thread once it has sent everything, and closes the channel.
+	 */
+	void close() {
+		flush();
+		_closed = true;
+		LockSupport.unpark(_thread);
+		try {
+			_thread.join();
+			_channel.close();
+		} catch (Exception e) {
+			assert false : "OscSender Error: could not close channel to " + _target;
+		}
+	}
+
+}
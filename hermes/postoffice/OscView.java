@@ -0,0 +1,286 @@
+package hermes.postoffice;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A read-only view of an OSC message inside a receive buffer, used by <code>OscReceiver</code>.
+ * <p>
+ * Unlike <code>OscMessage</code>, nothing is copied or boxed: arguments are read straight from the buffer
+ * 	by index with typed accessors, e.g. <code>getFloat(0)</code>. The view is reused for the next message once
+ * 	<code>receive</code> returns, so copy out any values that need to be kept rather than keeping the view.
+ * <p>
+ * Type tags follow the OSC 1.0 specification: 'i' int, 'f' float, 's' and 'S' string, 'b' blob,
+ * 	'h' long, 'd' double, 't' time tag, 'c' char, 'r' color, 'm' MIDI, and 'T', 'F', 'N', 'I' with no data.
+ */
+public class OscView {
+
+	static final Charset ASCII = Charset.forName("US-ASCII");
+
+	private ByteBuffer _buffer;		// the packet
+	private String _address;		// the address subscribed to
+	private long _timeTag;			// the enclosing bundle's time tag, or 1 (immediately) if not in a bundle
+	private int _count;				// number of arguments
+	private char[] _types = new char[16];	// each argument's type tag
+	private int[] _offsets = new int[16];	// position of each argument's data
+
+	/**
+	 * Points the view at a message in the buffer.
+	 * @param start		position of the message
+	 * @param end		position after the message
+	 * @return			false if the message is malformed
+	 */
+	boolean wrap(ByteBuffer buffer, int start, int end, long timeTag) {
+		_buffer = buffer;
+		_address = null;
+		_timeTag = timeTag;
+		_count = 0;
+		int position = skipString(buffer, start, end);
+		if(position < 0 || position >= end || buffer.get(position) != ',')
+			return false;
+		int tagsEnd = skipString(buffer, position, end);
+		if(tagsEnd < 0)
+			return false;
+		// find where each argument's data starts
+		int data = tagsEnd;
+		for(int t = position + 1; buffer.get(t) != 0; t++) {
+			char type = (char)buffer.get(t);
+			if(type == '[' || type == ']') // array markers have no data and aren't arguments
+				continue;
+			if(_count == _offsets.length) {
+				_types = Arrays.copyOf(_types, _count * 2);
+				_offsets = Arrays.copyOf(_offsets, _count * 2);
+			}
+			_types[_count] = type;
+			_offsets[_count++] = data;
+			switch(type) {
+			case 'i': case 'f': case 'c': case 'r': case 'm':
+				data += 4;
+				break;
+			case 'h': case 'd': case 't':
+				data += 8;
+				break;
+			case 's': case 'S':
+				data = skipString(buffer, data, end);
+				break;
+			case 'b':
+				// compared with the space left, as data + 4 + length can overflow
+				if(end - data < 4)
+					return false;
+				int length = buffer.getInt(data);
+				if(length < 0 || length > end - data - 4)
+					return false;
+				data += 4 + ((length + 3) & ~3);
+				break;
+			case 'T': case 'F': case 'N': case 'I':
+				break;
+			default:
+				return false;
+			}
+			if(data < 0 || data > end)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Sets the address reported by <code>getAddress</code>, which is the one that was subscribed to.
+	 */
+	void setAddress(String address) {
+		_address = address;
+	}
+
+	/**
+	 * Finds the position after a null terminated string padded to 4 bytes.
+	 * @return	the position, or -1 if the string isn't terminated before end
+	 */
+	static int skipString(ByteBuffer buffer, int position, int end) {
+		int start = position;
+		while(position < end && buffer.get(position) != 0)
+			position++;
+		if(position >= end)
+			return -1;
+		return start + ((position - start + 4) & ~3);
+	}
+
+	/**
+	 * Gets the OSC address that this message was sent to.
+	 * @return	address
+	 */
+	public String getAddress() {
+		return _address;
+	}
+
+	/**
+	 * Gets the time tag of the bundle this message arrived in, in NTP format (seconds since 1900 in the upper
+	 * 	32 bits and fractions of a second in the lower). A value of 1 means immediately, which is also used
+	 * 	for messages that were not in a bundle.
+	 * @return	the time tag
+	 */
+	public long getTimeTag() {
+		return _timeTag;
+	}
+
+	/**
+	 * @return	the number of arguments in the message
+	 */
+	public int getArgumentCount() {
+		return _count;
+	}
+
+	/**
+	 * Gets the type tag of an argument, e.g. 'i' for int, 'f' for float and 's' for string.
+	 * @param index		the argument
+	 * @return			its type tag
+	 */
+	public char getType(int index) {
+		assert index >= 0 && index < _count : "OscView.getType: index must be less than the number of arguments";
+		return _types[index];
+	}
+
+	/**
+	 * Gets an int argument (type 'i', 'c', 'r' or 'm').
+	 * @param index		the argument
+	 * @return			its value
+	 */
+	public int getInt(int index) {
+		assert index >= 0 && index < _count : "OscView.getInt: index must be less than the number of arguments";
+		return _buffer.getInt(_offsets[index]);
+	}
+
+	/**
+	 * Gets a float argument (type 'f'). Int and double arguments are converted.
+	 * @param index		the argument
+	 * @return			its value
+	 */
+	public float getFloat(int index) {
+		assert index >= 0 && index < _count : "OscView.getFloat: index must be less than the number of arguments";
+		switch(getType(index)) {
+		case 'i':
+			return _buffer.getInt(_offsets[index]);
+		case 'd':
+			return (float)_buffer.getDouble(_offsets[index]);
+		default:
+			return _buffer.getFloat(_offsets[index]);
+		}
+	}
+
+	/**
+	 * Gets a long argument (type 'h' or 't').
+	 * @param index		the argument
+	 * @return			its value
+	 */
+	public long getLong(int index) {
+		assert index >= 0 && index < _count : "OscView.getLong: index must be less than the number of arguments";
+		return _buffer.getLong(_offsets[index]);
+	}
+
+	/**
+	 * Gets a double argument (type 'd'). Float arguments are converted.
+	 * @param index		the argument
+	 * @return			its value
+	 */
+	public double getDouble(int index) {
+		assert index >= 0 && index < _count : "OscView.getDouble: index must be less than the number of arguments";
+		if(getType(index) == 'f')
+			return _buffer.getFloat(_offsets[index]);
+		return _buffer.getDouble(_offsets[index]);
+	}
+
+	/**
+	 * Gets a boolean argument (type 'T' or 'F'). Int arguments are true if they aren't zero.
+	 * @param index		the argument
+	 * @return			its value
+	 */
+	public boolean getBoolean(int index) {
+		assert index >= 0 && index < _count : "OscView.getBoolean: index must be less than the number of arguments";
+		char type = getType(index);
+		if(type == 'i')
+			return _buffer.getInt(_offsets[index]) != 0;
+		return type == 'T';
+	}
+
+	/**
+	 * Gets a string argument (type 's' or 'S'). This allocates a new String.
+	 * @param index		the argument
+	 * @return			its value
+	 */
+	public String getString(int index) {
+		assert index >= 0 && index < _count : "OscView.getString: index must be less than the number of arguments";
+		int start = _offsets[index], end = start;
+		while(_buffer.get(end) != 0)
+			end++;
+		byte[] bytes = new byte[end - start];
+		for(int i = 0; i < bytes.length; i++)
+			bytes[i] = _buffer.get(start + i);
+		return new String(bytes, ASCII);
+	}
+
+	/**
+	 * Gets the length of a blob argument (type 'b').
+	 * @param index		the argument
+	 * @return			its length in bytes
+	 */
+	public int getBlobLength(int index) {
+		assert index >= 0 && index < _count : "OscView.getBlobLength: index must be less than the number of arguments";
+		return _buffer.getInt(_offsets[index]);
+	}
+
+	/**
+	 * Copies a blob argument (type 'b') into an array.
+	 * @param index			the argument
+	 * @param destination	array to copy into, which must have room for <code>getBlobLength(index)</code> bytes
+	 * @param offset		where in the array to start
+	 */
+	public void getBlob(int index, byte[] destination, int offset) {
+		assert index >= 0 && index < _count : "OscView.getBlob: index must be less than the number of arguments";
+		int start = _offsets[index] + 4;
+		int length = _buffer.getInt(_offsets[index]);
+		for(int i = 0; i < length; i++)
+			destination[offset + i] = _buffer.get(start + i);
+	}
+
+	/**
+	 * Copies the message into an <code>OscMessage</code>, for keeping or passing to <code>OscSubscriber</code>s.
+	 * Blobs become byte arrays, and arguments with no data become Booleans (T, F) or null.
+	 * @return	the copy
+	 */
+	public OscMessage toOscMessage() {
+		OscMessage m = new OscMessage(_address);
+		for(int i = 0; i < _count; i++) {
+			switch(getType(i)) {
+			case 'i': case 'r': case 'm':
+				m.addInt(getInt(i));
+				break;
+			case 'c':
+				m.addChar((char)getInt(i));
+				break;
+			case 'f':
+				m.addFloat(getFloat(i));
+				break;
+			case 'h': case 't':
+				m.addLong(getLong(i));
+				break;
+			case 'd':
+				m.addDouble(getDouble(i));
+				break;
+			case 's': case 'S':
+				m.addString(getString(i));
+				break;
+			case 'b':
+				byte[] blob = new byte[getBlobLength(i)];
+				getBlob(i, blob, 0);
+				m.addBlob(blob);
+				break;
+			case 'T': case 'F':
+				m.addBoolean(getBoolean(i));
+				break;
+			default:
+				m.addNull();
+			}
+		}
+		return m;
+	}
+
+}
@@ -0,0 +1,12 @@
+package hermes.postoffice;
+
+/**
+ * Must be implemented by any object that wants to receive OSC messages from an <code>OscReceiver</code>.
+ */
+public interface OscViewSubscriber {
+    /**
+     * Receives and handles an OSC message. The view is only valid until this returns.
+     * @param m	a view of the message
+     */
+	public void receive(OscView m);
+}
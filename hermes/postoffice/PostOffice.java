@@ -6,15 +6,17 @@ import hermes.HObject;
 import hermes.hshape.HShape;
 
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.Set;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
 import javax.swing.SwingUtilities;
 
 import processing.core.PApplet;
@@ -38,21 +40,41 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	//OSCPorts for listening and receiving
 	private com.illposed.osc.OSCPortIn _receive;
 	private com.illposed.osc.OSCPortOut _send;
+	private InetSocketAddress _sendAddress; //where _send sends to
+
+	//Bundles outgoing OSC messages and sends them from its own thread, when batching is on
+	private OscSender _oscSender;
+	private OscMessage _oscOutgoing = new OscMessage("/"); //reused by the send methods when batching
+
+	//Default largest bundle when batching, the largest UDP payload that fits an Ethernet frame
+	private static final int DEFAULT_OSC_PACKET_SIZE = 1472;
 
 	//Maps that associate subscribers with messages they want to receive
-	private HashMultimap<Integer, KeySubscriber> _keySubs;
+	private KeySubscriber[][] _keySubs; //indexed by key code, null where there are none
 	private HashMultimap<POCodes.Button, Pair<MouseSubscriber,HShape>> _mouseSubs;
 	private ArrayList<MouseWheelSubscriber> _mouseWheelSubs;
-	private HashMultimap<String, OscSubscriber> _oscSubs;
+	private OscAddressTrie<OscSubscriber> _oscSubs; //by address or address pattern
+
+	//Each subscriber's subscriptions, so they can be removed without searching the maps above
+	private IdentityHashMap<Object, Subscriptions> _subscriptions;
+
+	//Mouse subscriptions for each button, with their regions indexed by location
+	private EnumMap<POCodes.Button, MouseRegionIndex> _mouseIndex;
+	private boolean _mouseSubsChanged; //whether the indexes need to be rebuilt from _mouseSubs
 
 	//Stores messages as they are received, which are then picked off by checkMail()
-	private LinkedList<KeyMessage> _keyQueue;
-	private LinkedList<MouseMessage> _mouseQueue;
-	private LinkedList<MouseWheelMessage> _mouseWheelQueue;
-	private LinkedList<OscMessage> _oscQueue;
+	//Input messages are reused, and pass from Processing's thread to the World's without locking
+	private MessageRing<KeyMessage> _keyQueue;
+	private MessageRing<MouseMessage> _mouseQueue;
+	private MessageRing<MouseWheelMessage> _mouseWheelQueue;
+	private OscInbox _oscQueue; //bounded, and may keep only the latest messages on some addresses
+	private ArrayList<OscMessage> _oscMail = new ArrayList<OscMessage>(); //messages taken from _oscQueue in checkMail
 
-	//Keeps track of which keys are pressed for quick tracking
-	private HashSet<Integer> _pressedKeys;
+	//Number of input messages each queue holds; more than this between updates are dropped
+	private static final int INPUT_QUEUE_SIZE = 1024;
+
+	//Keeps track of which keys are held, pressed and released for quick tracking
+	private KeyState _keyState;
 
 	//Keeps track of mouse location for quick tracking
 	private PVector _mouseLocation;
@@ -61,10 +83,32 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	//Boolean stating whether osc is on or off
 	private boolean _onOSC;
 
+	//Native OSC receivers, read in checkMail
+	private ArrayList<OscReceiver> _oscReceivers = new ArrayList<OscReceiver>();
+
+	//Whether consecutive mouse moves are merged into one message per update
+	private boolean _coalesceMouseMoves = false;
+
+	//Subscriptions delivered straight away on the thread that receives the input, rather than in checkMail
+	private CopyOnWriteArrayList<Pair<KeySubscriber,Integer>> _directKeySubs = new CopyOnWriteArrayList<Pair<KeySubscriber,Integer>>();
+	private CopyOnWriteArrayList<Pair<MouseSubscriber,POCodes.Button>> _directMouseSubs = new CopyOnWriteArrayList<Pair<MouseSubscriber,POCodes.Button>>();
+	private final OscAddressTrie<OscSubscriber> _directOscSubs = new OscAddressTrie<OscSubscriber>(); //locked on itself
+	private KeyMessage _directKeyMessage = new KeyMessage(0, (char)0, false); //reused on Processing's event thread
+	private MouseMessage _directMouseMessage = new MouseMessage(POCodes.Button.NO, POCodes.Click.MOVED, 0, 0);
+
+	//Events posted by objects to each other, delivered in checkMail
+	private EventBus _events = new EventBus();
+
+	//Thread to wake when input arrives, e.g. a World waiting for its next update
+	private volatile Thread _waiter;
+
 	/* See bottom for key constants */
 
 	/**
 	 * Constructor with no OSC.
+	 * <p>
+	 * If Hermes has no PApplet (see <code>Hermes.isHeadless</code>), the PostOffice gets no keyboard or
+	 * 	mouse input, though input can still be simulated by calling <code>keyEvent</code> and <code>mouseEvent</code>.
 	 */
 	public PostOffice() {
 		_onOSC = false;
@@ -85,7 +129,7 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 		POInit();
 		//Start OSC and set listener
 		try {
-			_receive = new com.illposed.osc.OSCPortIn(portIn);
+			_receive = new OscPortIn(portIn, this);
 			_receive.startListening();
 		} catch (SocketException e) {
 			//throw new OscServerException("OSC Port In on " + portIn + " could not start");
@@ -93,6 +137,7 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 		}
 		try {
 			_send = new com.illposed.osc.OSCPortOut(InetAddress.getLocalHost(),portOut);
+			_sendAddress = new InetSocketAddress(InetAddress.getLocalHost(), portOut);
 		} catch (UnknownHostException e) {
 			//throw new OscServerException("OSC Port Out on " + portOut + " could not start");
 			assert false : "PostOffice Error: OSC Port In on " + portIn + " could not start";
@@ -117,7 +162,7 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 		POInit();
 		//Start OSC and set listener
 		try {
-			_receive = new com.illposed.osc.OSCPortIn(portIn);
+			_receive = new OscPortIn(portIn, this);
 			_receive.startListening();
 		} catch (SocketException e) {
 		//	throw new OscServerException("OSC Port In on " + portIn + " could not start");
@@ -125,6 +170,7 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 		}
 		try {
 			_send = new com.illposed.osc.OSCPortOut(InetAddress.getByName(netAddress), portOut);
+			_sendAddress = new InetSocketAddress(InetAddress.getByName(netAddress), portOut);
 		} catch (UnknownHostException e) {
 			//throw new OscServerException("OSC Port Out on " + portOut + ", net address " + netAddress + " could not start");
 			assert false : "PostOffice Error: OSC Port In on " + portIn + " could not start";
@@ -139,22 +185,36 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	 * Sets PO as listener on PApplet, and initializes internal lists.
 	 */
 	private void POInit() {
-		//Set PostOffice to listen for events
-		Hermes.getPApplet().registerMethod("keyEvent", this);
-		Hermes.getPApplet().registerMethod("mouseEvent", this);
+		//Set PostOffice to listen for events, unless running headless
+		PApplet applet = Hermes.getPApplet();
+		if(applet != null) {
+			applet.registerMethod("keyEvent", this);
+			applet.registerMethod("mouseEvent", this);
+		}
 
 		//Initialize subscription list and message queue
-		_keySubs = HashMultimap.create();
-		_pressedKeys = new HashSet<Integer>();
+		_keySubs = new KeySubscriber[0][];
+		_subscriptions = new IdentityHashMap<Object, Subscriptions>();
+		_keyState = new KeyState();
 		_mouseSubs = HashMultimap.create();
+		_mouseIndex = new EnumMap<POCodes.Button, MouseRegionIndex>(POCodes.Button.class);
+		_mouseSubsChanged = true;
 		_mouseLocation = new PVector(-100,-100,0);
 		_mouseWheelSubs = new ArrayList<MouseWheelSubscriber>();
-		_keyQueue = new LinkedList<KeyMessage>();
-		_mouseQueue = new LinkedList<MouseMessage>();
-		_mouseWheelQueue = new LinkedList<MouseWheelMessage>();
+		KeyMessage[] keyMessages = new KeyMessage[INPUT_QUEUE_SIZE];
+		MouseMessage[] mouseMessages = new MouseMessage[INPUT_QUEUE_SIZE];
+		MouseWheelMessage[] mouseWheelMessages = new MouseWheelMessage[INPUT_QUEUE_SIZE];
+		for(int i = 0; i < INPUT_QUEUE_SIZE; i++) {
+			keyMessages[i] = new KeyMessage(0, POCodes.Key.CHAR_UNDEFINED, false);
+			mouseMessages[i] = new MouseMessage(POCodes.Button.NO, POCodes.Click.MOVED, 0, 0);
+			mouseWheelMessages[i] = new MouseWheelMessage(0);
+		}
+		_keyQueue = new MessageRing<KeyMessage>(keyMessages);
+		_mouseQueue = new MessageRing<MouseMessage>(mouseMessages);
+		_mouseWheelQueue = new MessageRing<MouseWheelMessage>(mouseWheelMessages);
 		if(_onOSC) {
-			_oscSubs = HashMultimap.create();
-			_oscQueue = new LinkedList<OscMessage>();
+			_oscSubs = new OscAddressTrie<OscSubscriber>();
+			_oscQueue = new OscInbox();
 		}
 	}
 
@@ -168,7 +228,7 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	 */
 	public void subscribe(KeySubscriber sub, int key) {
 		assert sub != null : "PostOffice.registerKeySubscription: sub must be a valid KeySubscriber";
-		_keySubs.put(key, sub);
+		addKeySubscription(sub, key);
 	}
 
 	/**
@@ -178,8 +238,33 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	 */
 	public void subscribe(KeySubscriber sub, char key) {
 		assert sub != null : "PostOffice.registerKeySubscription: sub must be a valid KeySubscriber";
-		Integer keyCode = Character.getNumericValue(key);
-		_keySubs.put(keyCode, sub);
+		int keyCode = Character.getNumericValue(key);
+		addKeySubscription(sub, keyCode);
+	}
+
+	/**
+	 * Adds a subscriber to the array for a key code, unless it's already there.
+	 * The arrays are replaced rather than changed, so subscribing while messages are delivered is safe.
+	 */
+	private void addKeySubscription(KeySubscriber sub, int keyCode) {
+		if(keyCode < 0) //no key has this code, so there's nothing to receive
+			return;
+		if(keyCode >= _keySubs.length)
+			_keySubs = Arrays.copyOf(_keySubs, Math.max(keyCode + 1, _keySubs.length * 2));
+		KeySubscriber[] subs = _keySubs[keyCode];
+		if(subs == null) {
+			_keySubs[keyCode] = new KeySubscriber[] { sub };
+			subscriptionsOf(sub).keys.add(keyCode);
+			return;
+		}
+		for(KeySubscriber s : subs) {
+			if(s == sub)
+				return;
+		}
+		subs = Arrays.copyOf(subs, subs.length + 1);
+		subs[subs.length - 1] = sub;
+		_keySubs[keyCode] = subs;
+		subscriptionsOf(sub).keys.add(keyCode);
 	}
 
 	/**
@@ -192,7 +277,10 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	 */
 	public void subscribe(MouseSubscriber sub, POCodes.Button button) {
 		assert sub != null : "PostOffice.registerMouseSubscription: sub must be a valid MouseSubscriber";
-		_mouseSubs.put(button, new Pair<MouseSubscriber, HShape>(sub, null));
+		Pair<MouseSubscriber, HShape> subscription = new Pair<MouseSubscriber, HShape>(sub, null);
+		_mouseSubs.put(button, subscription);
+		subscriptionsOf(sub).mouse.add(new Pair<POCodes.Button, Pair<MouseSubscriber, HShape>>(button, subscription));
+		_mouseSubsChanged = true;
 	}
 
 	/**
@@ -205,7 +293,10 @@ public class PostOffice implements com.illposed.osc.OSCListener {
     public void subscribe(MouseSubscriber sub, POCodes.Button button, HShape region) {
         assert sub != null : "PostOffice.registerMouseSubscription: sub must be a valid MouseSubscriber";
         assert region != null : "PostOffice.registerMouseSubscription: region must be a valid Shape";
-        _mouseSubs.put(button, new Pair<MouseSubscriber, HShape>(sub, region));
+        Pair<MouseSubscriber, HShape> subscription = new Pair<MouseSubscriber, HShape>(sub, region);
+        _mouseSubs.put(button, subscription);
+        subscriptionsOf(sub).mouse.add(new Pair<POCodes.Button, Pair<MouseSubscriber, HShape>>(button, subscription));
+        _mouseSubsChanged = true;
     }
 
 	/**
@@ -215,19 +306,177 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	public void subscribe(MouseWheelSubscriber sub) {
 		assert sub != null : "PostOffice.registerMouseWheelSubscription: sub must be a valid MouseWheelSubscriber";
 		_mouseWheelSubs.add(sub);
+		subscriptionsOf(sub).mouseWheel++;
 	}
 
 	/**
-	 * Registers a subscription to messages received on a specific OSC address.
+	 * Registers a subscription to messages received on a specific OSC address, or on any address matching
+	 * an OSC 1.0 address pattern. In a pattern, '?' matches any one character, '*' any run of characters,
+	 * "[abc]" or "[a-z]" one of a set of characters, and "{foo,bar}" any of the listed strings, all within
+	 * one part of the address. For example, "/sensor/*&#47;x" gets "/sensor/1/x" and "/sensor/left/x".
 	 * @param sub		the OscSubscriber signing up
-	 * @param address	the address whose messages the subscriber wants
+	 * @param address	the address or address pattern whose messages the subscriber wants
 	 */
 	public void subscribe(OscSubscriber sub, String address) {
 		assert _onOSC : "PostOffice.registerOscSubscription: cannot register an OSC subscription unless OSC is on";
 		assert sub != null : "PostOffice.registerOscSubscription: sub must be a valid OscSubscriber";
-		assert address != null : "PostOffice.registerOscSubscription: address must be a valid String";
-		_oscSubs.put(address, sub);
-		_receive.addListener(address, this);
+		assert address != null && address.startsWith("/") : "PostOffice.registerOscSubscription: address must be a valid String starting with '/'";
+		if(_oscSubs.add(address, sub))
+			subscriptionsOf(sub).osc.add(address);
+	}
+
+	/**
+	 * Registers a subscription to a type of event posted with <code>post</code>. The subscriber gets
+	 * events of exactly that type, not of its subclasses.
+	 * @param sub	the EventSubscriber signing up
+	 * @param type	the class of the events the subscriber wants
+	 */
+	public <E extends Message> void subscribe(EventSubscriber<? super E> sub, Class<E> type) {
+		assert sub != null : "PostOffice.subscribe: sub must be a valid EventSubscriber";
+		assert type != null : "PostOffice.subscribe: type must be a valid Class";
+		if(_events.subscribe(sub, type))
+			subscriptionsOf(sub).events.add(type);
+	}
+
+	/**
+	 * Gets an event to fill in and post, reusing one that has been delivered if possible, so posting
+	 * events every update doesn't create garbage.
+	 * @param type	the class of event, which must have a public constructor with no arguments
+	 * @return		the event, whose fields still hold whatever they did when it was last delivered
+	 */
+	public <E extends Message> E obtainEvent(Class<E> type) {
+		assert type != null : "PostOffice.obtainEvent: type must be a valid Class";
+		return _events.obtain(type);
+	}
+
+	/**
+	 * Posts an event, to be delivered to the subscribers to its type in the next <code>checkMail</code>.
+	 * Events are delivered in the order they were posted, and to subscribers in the order they subscribed.
+	 * Events posted while delivering events are delivered in the following <code>checkMail</code>.
+	 * <p>
+	 * Events must be posted from the World's thread, e.g. in <code>update</code> or <code>receive</code>.
+	 * After delivery the event is reused by <code>obtainEvent</code>, so it must not be posted twice or kept.
+	 * @param event	the event, usually from <code>obtainEvent</code>
+	 */
+	public void post(Message event) {
+		assert event != null : "PostOffice.post: event must be a valid Message";
+		_events.post(event);
+	}
+
+	/**
+	 * Registers a direct subscription to a keyboard key. Its messages are given to the subscriber as soon
+	 * as they arrive, on Processing's event thread, rather than by <code>checkMail</code> on the World's.
+	 * This is the lowest latency there is, but the subscriber must be safe to call from another thread.
+	 * The message is reused, so it must not be kept.
+	 * @param sub	the KeySubscriber signing up
+	 * @param key	the code of the keyboard key whose messages the subscriber wants
+	 */
+	public void subscribeDirect(KeySubscriber sub, int key) {
+		assert sub != null : "PostOffice.subscribeDirect: sub must be a valid KeySubscriber";
+		for(Pair<KeySubscriber,Integer> p : _directKeySubs) {
+			if(p.getFirst() == sub && p.getSecond() == key)
+				return;
+		}
+		_directKeySubs.add(new Pair<KeySubscriber,Integer>(sub, key));
+		subscriptionsOf(sub).direct = true;
+	}
+
+	/**
+	 * Registers a direct subscription to a mouse button, as for keys. Direct subscriptions can't be limited to a region.
+	 * @param sub		the MouseSubscriber signing up
+	 * @param button	the button whose messages the subscriber wants
+	 */
+	public void subscribeDirect(MouseSubscriber sub, POCodes.Button button) {
+		assert sub != null : "PostOffice.subscribeDirect: sub must be a valid MouseSubscriber";
+		for(Pair<MouseSubscriber,POCodes.Button> p : _directMouseSubs) {
+			if(p.getFirst() == sub && p.getSecond() == button)
+				return;
+		}
+		_directMouseSubs.add(new Pair<MouseSubscriber,POCodes.Button>(sub, button));
+		subscriptionsOf(sub).direct = true;
+	}
+
+	/**
+	 * Registers a direct subscription to an OSC address or address pattern, as for keys. Its messages are
+	 * given to the subscriber on the OSC thread.
+	 * @param sub		the OscSubscriber signing up
+	 * @param address	the address or address pattern whose messages the subscriber wants
+	 */
+	public void subscribeDirect(OscSubscriber sub, String address) {
+		assert _onOSC : "PostOffice.subscribeDirect: cannot register an OSC subscription unless OSC is on";
+		assert sub != null : "PostOffice.subscribeDirect: sub must be a valid OscSubscriber";
+		assert address != null && address.startsWith("/") : "PostOffice.subscribeDirect: address must be a valid String starting with '/'";
+		synchronized(_directOscSubs) {
+			if(_directOscSubs.add(address, sub))
+				subscriptionsOf(sub).directOsc.add(address);
+		}
+		subscriptionsOf(sub).direct = true;
+	}
+
+	/**
+	 * Removes all of a subscriber's direct subscriptions.
+	 * @param sub	the subscriber to be removed
+	 * @return		true if subscriber had direct subscriptions that were removed, false otherwise
+	 */
+	public boolean removeDirectSubscriptions(Object sub) {
+		Subscriptions subs = _subscriptions.get(sub);
+		if(subs == null || !subs.direct) {
+			return false;
+		}
+		for(Pair<KeySubscriber,Integer> p : _directKeySubs) {
+			if(p.getFirst() == sub)
+				_directKeySubs.remove(p);
+		}
+		for(Pair<MouseSubscriber,POCodes.Button> p : _directMouseSubs) {
+			if(p.getFirst() == sub)
+				_directMouseSubs.remove(p);
+		}
+		synchronized(_directOscSubs) {
+			for(String address : subs.directOsc) {
+				_directOscSubs.remove(address, sub);
+			}
+		}
+		subs.directOsc.clear();
+		subs.direct = false;
+		forget(sub, subs);
+		return true;
+	}
+
+	/**
+	 * Removes all of a subscriber's event subscriptions.
+	 * @param sub	the subscriber to be removed
+	 * @return		true if subscriber had event subscriptions that were removed, false otherwise
+	 */
+	public boolean removeEventSubscriptions(Object sub) {
+		Subscriptions subs = _subscriptions.get(sub);
+		if(subs == null || subs.events.isEmpty()) {
+			return false;
+		}
+		for(Class<?> type : subs.events) {
+			_events.unsubscribe(sub, type);
+		}
+		subs.events.clear();
+		forget(sub, subs);
+		return true;
+	}
+
+	/**
+	 * Adds a native OSC receiver, whose messages will be delivered to its subscribers in <code>checkMail</code>.
+	 * This works whether or not the PostOffice's own OSC is on.
+	 * @param receiver	the receiver to read
+	 */
+	public void addOscReceiver(OscReceiver receiver) {
+		assert receiver != null : "PostOffice.addOscReceiver: receiver must be a valid OscReceiver";
+		_oscReceivers.add(receiver);
+	}
+
+	/**
+	 * Stops reading a native OSC receiver. The receiver is not closed.
+	 * @param receiver	the receiver to stop reading
+	 * @return			true if the receiver was being read
+	 */
+	public boolean removeOscReceiver(OscReceiver receiver) {
+		return _oscReceivers.remove(receiver);
 	}
 
 	/**
@@ -236,26 +485,17 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	 * @return      true if subscriber was present and removed, false otherwise
 	 */
 	public boolean removeMouseSubscriptions(MouseSubscriber sub) {
-	  if(_mouseSubs.containsValue(sub)) {
-	    // Find key-value pairs containing sub
-	    Set<Map.Entry<POCodes.Button, Pair<MouseSubscriber,HShape>>> all = _mouseSubs.entries();
-	    Set<Map.Entry<POCodes.Button, Pair<MouseSubscriber,HShape>>> toRemove = new HashSet<Map.Entry<POCodes.Button, Pair<MouseSubscriber,HShape>>>();
-	    for(Iterator<Map.Entry<POCodes.Button, Pair<MouseSubscriber,HShape>>> iter = all.iterator(); iter.hasNext(); ) {
-	      Map.Entry<POCodes.Button, Pair<MouseSubscriber,HShape>> next = iter.next();
-	      if(next.getValue().getFirst() == sub) {
-	        toRemove.add(next);
-	      }
-	    }
-
-	    // Remove references
-	    for(Iterator<Map.Entry<POCodes.Button, Pair<MouseSubscriber,HShape>>> iter = toRemove.iterator(); iter.hasNext(); ) {
-	      Map.Entry<POCodes.Button, Pair<MouseSubscriber,HShape>> next = iter.next();
-	      _mouseSubs.remove(next.getKey(), next.getValue());
-	    }
-	    return true;
-	  } else {
+	  Subscriptions subs = _subscriptions.get(sub);
+	  if(subs == null || subs.mouse.isEmpty()) {
 	    return false;
 	  }
+	  for(Pair<POCodes.Button, Pair<MouseSubscriber,HShape>> subscription : subs.mouse) {
+	    _mouseSubs.remove(subscription.getFirst(), subscription.getSecond());
+	  }
+	  subs.mouse.clear();
+	  forget(sub, subs);
+	  _mouseSubsChanged = true;
+	  return true;
 	}
 
 	/**
@@ -264,26 +504,29 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	 * @return      true if subscriber was present and removed, false otherwise
 	 */
 	 public boolean removeKeySubscriptions(KeySubscriber sub) {
-	   if(_keySubs.containsValue(sub)) {
- 	    // Find key-value pairs containing sub
- 	    Set<Map.Entry<Integer, KeySubscriber>> all = _keySubs.entries();
- 	    Set<Map.Entry<Integer, KeySubscriber>> toRemove = new HashSet<Map.Entry<Integer, KeySubscriber>>();
- 	    for(Iterator<Map.Entry<Integer, KeySubscriber>> iter = all.iterator(); iter.hasNext(); ) {
- 	      Map.Entry<Integer, KeySubscriber> next = iter.next();
- 	      if(next.getValue() == sub) {
- 	        toRemove.add(next);
- 	      }
- 	    }
-
- 	    // Remove references
- 	    for(Iterator<Map.Entry<Integer, KeySubscriber>> iter = toRemove.iterator(); iter.hasNext(); ) {
- 	      Map.Entry<Integer, KeySubscriber> next = iter.next();
- 	      _keySubs.remove(next.getKey(), next.getValue());
- 	    }
- 	    return true;
- 	  } else {
- 	    return false;
- 	  }
+	   Subscriptions subs = _subscriptions.get(sub);
+	   if(subs == null || subs.keys.isEmpty()) {
+	     return false;
+	   }
+	   for(int keyCode : subs.keys) {
+	     KeySubscriber[] keySubs = _keySubs[keyCode];
+	     for(int i = 0; i < keySubs.length; i++) {
+	       if(keySubs[i] == sub) {
+	         // Replace the array without sub
+	         KeySubscriber[] rest = null;
+	         if(keySubs.length > 1) {
+	           rest = new KeySubscriber[keySubs.length - 1];
+	           System.arraycopy(keySubs, 0, rest, 0, i);
+	           System.arraycopy(keySubs, i + 1, rest, i, keySubs.length - i - 1);
+	         }
+	         _keySubs[keyCode] = rest;
+	         break;
+	       }
+	     }
+	   }
+	   subs.keys.clear();
+	   forget(sub, subs);
+	   return true;
 	 }
 
 	 /**
@@ -292,7 +535,15 @@ public class PostOffice implements com.illposed.osc.OSCListener {
  	 * @return      true if subscriber was present and removed, false otherwise
  	 */
  	 public boolean removeMouseWheelSubscriptions(KeySubscriber sub) {
- 	   return _mouseWheelSubs.remove(sub);
+ 	   Subscriptions subs = _subscriptions.get(sub);
+ 	   if(subs == null || subs.mouseWheel == 0) {
+ 	     return false;
+ 	   }
+ 	   for(; subs.mouseWheel > 0; subs.mouseWheel--) {
+ 	     _mouseWheelSubs.remove(sub);
+ 	   }
+ 	   forget(sub, subs);
+ 	   return true;
  	 }
 
  	 /**
@@ -301,44 +552,37 @@ public class PostOffice implements com.illposed.osc.OSCListener {
  	 * @return      true if subscriber was present and removed, false otherwise
  	 */
  	 public boolean removeOSCSubscriptions(KeySubscriber sub) {
- 	   if(_onOSC) {
- 	     if(_oscSubs.containsValue(sub)) {
-  	       // Find key-value pairs containing sub
-  	       Set<Map.Entry<String, OscSubscriber>> all = _oscSubs.entries();
-  	       Set<Map.Entry<String, OscSubscriber>> toRemove = new HashSet<Map.Entry<String, OscSubscriber>>();
-  	       for(Iterator<Map.Entry<String, OscSubscriber>> iter = all.iterator(); iter.hasNext(); ) {
-  	         Map.Entry<String, OscSubscriber> next = iter.next();
-  	         if(next.getValue() == sub) {
-  	           toRemove.add(next);
-  	         }
-  	       }
-
-  	       // Remove references
-  	       for(Iterator<Map.Entry<String, OscSubscriber>> iter = toRemove.iterator(); iter.hasNext(); ) {
-  	         Map.Entry<String, OscSubscriber> next = iter.next();
-  	         _oscSubs.remove(next.getKey(), next.getValue());
-  	       }
-  	       return true;
-  	     } else {
-  	       return false;
-  	     }
- 	   } else {
+ 	   Subscriptions subs = _subscriptions.get(sub);
+ 	   if(!_onOSC || subs == null || subs.osc.isEmpty()) {
  	     return false;
  	   }
+ 	   for(String address : subs.osc) {
+ 	     _oscSubs.remove(address, sub);
+ 	   }
+ 	   subs.osc.clear();
+ 	   forget(sub, subs);
+ 	   return true;
  	 }
 
  	 /**
  	  * Helper method to remove all subscriptions for given HObject
+ 	  * <p>
+ 	  * Only the object's own subscriptions are looked at, so this is cheap for objects with none.
  	  * @param sub    HObject to remove from PostOffice
  	  * @return       true if HObject had subscriptions that were removed, false otherwise
  	  */
  	 public boolean removeAllSubscriptions(HObject sub) {
+ 	   if(!_subscriptions.containsKey(sub)) {
+ 	     return false;
+ 	   }
  	   boolean key = removeKeySubscriptions(sub);
  	   boolean mouse = removeMouseSubscriptions(sub);
  	   boolean mouseWheel = removeMouseWheelSubscriptions(sub);
  	   boolean osc = removeOSCSubscriptions(sub);
+ 	   boolean direct = removeDirectSubscriptions(sub);
+ 	   boolean events = removeEventSubscriptions(sub);
 
- 	   if(key || mouse || mouseWheel || osc) {
+ 	   if(key || mouse || mouseWheel || osc || direct || events) {
  	     return true;
  	   } else {
  	     return false;
@@ -350,23 +594,151 @@ public class PostOffice implements com.illposed.osc.OSCListener {
  	  * Use if passing subscriptions between Worlds
  	  */
  	public void resetSubscriptions() {
- 	  _keySubs = HashMultimap.create();
+ 	  _keySubs = new KeySubscriber[0][];
 		_mouseSubs = HashMultimap.create();
+		_mouseSubsChanged = true;
 		_mouseWheelSubs = new ArrayList<MouseWheelSubscriber>();
 		if(_onOSC) {
-			_oscSubs = HashMultimap.create();
+			_oscSubs = new OscAddressTrie<OscSubscriber>();
+		}
+		_directKeySubs.clear();
+		_directMouseSubs.clear();
+		synchronized(_directOscSubs) {
+			_directOscSubs.clear();
 		}
+		_events.clearSubscriptions();
+		_subscriptions.clear();
  	}
+
+	/**
+	 * The subscriptions held by one subscriber.
+	 */
+	private static class Subscriptions {
+		ArrayList<Integer> keys = new ArrayList<Integer>(); //key codes
+		ArrayList<Pair<POCodes.Button, Pair<MouseSubscriber,HShape>>> mouse = new ArrayList<Pair<POCodes.Button, Pair<MouseSubscriber,HShape>>>();
+		int mouseWheel = 0; //number of times subscribed to the mouse wheel
+		ArrayList<String> osc = new ArrayList<String>(); //addresses
+		boolean direct = false; //whether there are any direct subscriptions
+		ArrayList<String> directOsc = new ArrayList<String>(); //addresses of direct OSC subscriptions
+		ArrayList<Class<?>> events = new ArrayList<Class<?>>(); //types of event
+
+		boolean isEmpty() {
+			return keys.isEmpty() && mouse.isEmpty() && mouseWheel == 0 && osc.isEmpty() && !direct && events.isEmpty();
+		}
+	}
+
+	/**
+	 * Gets the record of a subscriber's subscriptions, making one if it has none.
+	 */
+	private Subscriptions subscriptionsOf(Object sub) {
+		Subscriptions subs = _subscriptions.get(sub);
+		if(subs == null) {
+			subs = new Subscriptions();
+			_subscriptions.put(sub, subs);
+		}
+		return subs;
+	}
+
+	/**
+	 * Drops the record of a subscriber once it has no subscriptions left.
+	 */
+	private void forget(Object sub, Subscriptions subs) {
+		if(subs.isEmpty())
+			_subscriptions.remove(sub);
+	}
+
+	/**
+	 * Sets whether consecutive mouse moves (or drags with the same button) received between
+	 * 	updates are merged into a single message, at the latest location.
+	 * <p>
+	 * Off by default. Turning it on means subscribers see at most one move per update between
+	 * 	presses and releases, rather than one for every move the mouse reports.
+	 * @param coalesce	true to merge mouse moves
+	 */
+	public void setMouseMoveCoalescing(boolean coalesce) {
+		_coalesceMouseMoves = coalesce;
+	}
+
+	/**
+	 * @return	whether consecutive mouse moves are merged into one message per update
+	 */
+	public boolean isMouseMoveCoalescing() {
+		return _coalesceMouseMoves;
+	}
+
+	/**
+	 * Sets how many OSC messages received on an address are delivered each update. When more arrive
+	 * 	between updates, only the latest are kept, so e.g. a sensor streaming faster than the World
+	 * 	updates doesn't flood its subscribers with stale values.
+	 * <p>
+	 * By default every message is delivered. The address must match exactly, not as a pattern.
+	 * @param address	the address
+	 * @param count		number of the latest messages to keep, 1 for only the latest, or 0 to keep them all
+	 */
+	public void setOscKeepLatest(String address, int count) {
+		assert _onOSC : "PostOffice.setOscKeepLatest: cannot set an OSC policy unless OSC is on";
+		assert address != null : "PostOffice.setOscKeepLatest: address must be a valid String";
+		assert count >= 0 : "PostOffice.setOscKeepLatest: count must not be negative";
+		_oscQueue.setKeep(address, count);
+	}
+
+	/**
+	 * Sets the most OSC messages that can wait to be delivered between updates. Further messages are dropped.
+	 * 	The default is 4096.
+	 * @param capacity	number of messages
+	 */
+	public void setOscInboxCapacity(int capacity) {
+		assert _onOSC : "PostOffice.setOscInboxCapacity: cannot set the OSC capacity unless OSC is on";
+		assert capacity > 0 : "PostOffice.setOscInboxCapacity: capacity must be positive";
+		_oscQueue.setCapacity(capacity);
+	}
+
+	/**
+	 * @return	the number of received OSC messages that were dropped, because the inbox was full or newer
+	 * 			messages replaced them
+	 */
+	public int getOscInboxDropCount() {
+		return _onOSC ? _oscQueue.getDropped() : 0;
+	}
+
+	/**
+	 * Drops are counted for every address with a keep policy, but only for the first 256 other addresses
+	 * 	that have drops, so a sender can't fill memory by using ever new addresses.
+	 * @param address	the address
+	 * @return			the number of received OSC messages on the address that were dropped
+	 */
+	public int getOscInboxDropCount(String address) {
+		return _onOSC ? _oscQueue.getDropped(address) : 0;
+	}
 	//////////////////////////////////
 	//Utilities for checking key presses and mouse location quickly
 
 	/**
-	 * Utility for checking if key is pressed
+	 * Utility for checking if key is held down
 	 * @param keyCode	the key being checked
-	 * @return			true if pressed, false otherwise
+	 * @return			true if pressed and not yet released, false otherwise
 	 */
 	public boolean isKeyPressed(int keyCode) {
-		return _pressedKeys.contains(keyCode);
+		return _keyState.isHeld(keyCode);
+	}
+
+	/**
+	 * Utility for checking if key went down since the last update
+	 * (key repeats while the key is held don't count)
+	 * @param keyCode	the key being checked
+	 * @return			true if the key was pressed since the last update
+	 */
+	public boolean isKeyJustPressed(int keyCode) {
+		return _keyState.wentDown(keyCode);
+	}
+
+	/**
+	 * Utility for checking if key went up since the last update
+	 * @param keyCode	the key being checked
+	 * @return			true if the key was released since the last update
+	 */
+	public boolean isKeyJustReleased(int keyCode) {
+		return _keyState.wentUp(keyCode);
 	}
 
 	/**
@@ -378,6 +750,14 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 			return region.contains(_mouseLocation);
 	}
 
+	/**
+	 * Utility for checking whether input is being lost
+	 * @return	the number of key, mouse and mouse wheel messages dropped because more arrived between updates than could be held
+	 */
+	public int getDroppedInputCount() {
+		return _keyQueue.getDropped() + _mouseQueue.getDropped() + _mouseWheelQueue.getDropped();
+	}
+
 	/**
 	 * Utility for obtaining current mouse location
 	 * @return	mouse location
@@ -405,6 +785,10 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	public void sendInt(String address, int send) {
 		assert _onOSC : "PostOffice.sendInt: cannot send an OSC message while OSC is off";
 		assert address != null : "PostOffice.sendInt: address must be a valid String";
+		if(_oscSender != null) {
+			_oscSender.add(outgoing(address).addInt(send));
+			return;
+		}
 		Object[] array = new Object[1];
 		array[0] = (Integer) send;
 		com.illposed.osc.OSCMessage mail = new com.illposed.osc.OSCMessage(address, array);
@@ -426,6 +810,10 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	public void sendFloat(String address, float send)  {
 		assert _onOSC : "PostOffice.sendFloat: cannot send an OSC message while OSC is off";
 		assert address != null : "PostOffice.sendFloat: address must be a valid String";
+		if(_oscSender != null) {
+			_oscSender.add(outgoing(address).addFloat(send));
+			return;
+		}
 		Object[] array = new Object[1];
 		array[0] = (Float) send;
 		com.illposed.osc.OSCMessage mail = new com.illposed.osc.OSCMessage(address, array);
@@ -447,6 +835,10 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	public void sendBoolean(String address, boolean send) {
 		assert _onOSC : "PostOffice.sendBoolean: cannot send an OSC message while OSC is off";
 		assert address != null : "PostOffice.sendBoolean: address must be a valid String";
+		if(_oscSender != null) {
+			_oscSender.add(outgoing(address).addBoolean(send));
+			return;
+		}
 		Object[] array = new Object[1];
 		array[0] = (Boolean) send;
 		com.illposed.osc.OSCMessage mail = new com.illposed.osc.OSCMessage(address, array);
@@ -474,6 +866,10 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 		for(int i = 0; i < size; i++) {
 			array[i] = send.get(i);
 		}
+		if(_oscSender != null) {
+			_oscSender.add(new OscMessage(address, array));
+			return;
+		}
 		com.illposed.osc.OSCMessage mail = new com.illposed.osc.OSCMessage(address, array);
 		try {
 			_send.send(mail);
@@ -491,6 +887,89 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 		}
 	}
 
+	/**
+	 * Sends an OscMessage, e.g. one built with its add methods:
+	 * <br/><code>send(new OscMessage("/being/1").addFloat(x).addFloat(y))</code>
+	 * @param m		message to be sent
+	 */
+	public void send(OscMessage m) {
+		assert _onOSC : "PostOffice.send: cannot send an OSC message while OSC is off";
+		assert m != null : "PostOffice.send: m must be a valid OscMessage";
+		if(_oscSender != null) {
+			_oscSender.add(m);
+			return;
+		}
+		try {
+			_send.send(m.toIllposed());
+		}
+		catch(Exception e) {
+			assert false : "send Error: Error sending message on " + m.getAddress();
+		}
+	}
+
+	/**
+	 * Empties the reused outgoing message, for sending one value while batching without allocating.
+	 */
+	private OscMessage outgoing(String address) {
+		_oscOutgoing.reset(address);
+		return _oscOutgoing;
+	}
+
+	/**
+	 * Turns batched OSC sending on or off. When it is on, the send methods don't send right away:
+	 * messages are collected into OSC bundles of up to 1472 bytes (what fits in one Ethernet frame),
+	 * which are sent from a background thread. The last bundle of each update is sent by
+	 * <code>flushOsc</code>, which the World calls at the end of <code>update</code>.
+	 * <p>
+	 * Batched messages must all be sent from one thread, usually the World's. Booleans are sent with
+	 * the OSC 1.0 'T' and 'F' type tags, and doubles and longs with 'd' and 'h'.
+	 * @param batch		true to batch messages, false to send each one as it is given
+	 */
+	public void setOscBatching(boolean batch) {
+		setOscBatching(batch, DEFAULT_OSC_PACKET_SIZE);
+	}
+
+	/**
+	 * Turns batched OSC sending on or off, with bundles of up to the given size.
+	 * @param batch			true to batch messages, false to send each one as it is given
+	 * @param packetSize	largest bundle to send, in bytes
+	 */
+	public void setOscBatching(boolean batch, int packetSize) {
+		assert _onOSC : "PostOffice.setOscBatching: cannot batch OSC messages while OSC is off";
+		assert packetSize >= 64 : "PostOffice.setOscBatching: packetSize must be at least 64 bytes";
+		if(_oscSender != null) {
+			_oscSender.close();
+			_oscSender = null;
+		}
+		if(batch)
+			_oscSender = new OscSender(_sendAddress, packetSize);
+	}
+
+	/**
+	 * @return	true if OSC messages are being batched
+	 */
+	public boolean isOscBatching() {
+		return _oscSender != null;
+	}
+
+	/**
+	 * Sends the OSC messages batched since the last flush. Does nothing if batching is off.
+	 * <p>
+	 * Called at the end of the update loop.
+	 */
+	public void flushOsc() {
+		if(_oscSender != null)
+			_oscSender.flush();
+	}
+
+	/**
+	 * @return	the number of batched OSC messages that were dropped because the send thread fell behind,
+	 * 			or packets that could not be sent
+	 */
+	public int getDroppedOscCount() {
+		return _oscSender == null ? 0 : _oscSender.getDroppedCount();
+	}
+
 	//////////////////////////////////////////////////////////////////////////
 	/**
 	 * Command that sends all messages queued by the PostOffice to subscribers.
@@ -498,57 +977,112 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	 * Called at end of update loop (for thread safety).
 	 */
 	public void checkMail() {
+		deliverMail();
+		_keyState.nextUpdate();
+	}
+
+	/**
+	 * Sends the messages queued to subscribers without starting a new update, so keys pressed
+	 * and released now are reported by <code>isKeyJustPressed</code> and <code>isKeyJustReleased</code>
+	 * during the next update, along with those delivered by the next <code>checkMail</code>.
+	 * <p>
+	 * Called by a World waiting for its next update, when it wakes on input.
+	 */
+	public void checkMailBetweenUpdates() {
+		deliverMail();
+	}
+
+	/**
+	 * Sets a thread to be woken with <code>LockSupport.unpark</code> whenever input arrives.
+	 * @param thread	the thread, or null to stop waking one
+	 */
+	public void setWakeThread(Thread thread) {
+		_waiter = thread;
+	}
+
+	/**
+	 * Wakes the thread waiting for input, if there is one.
+	 */
+	private void wake() {
+		Thread waiter = _waiter;
+		if(waiter != null) {
+			LockSupport.unpark(waiter);
+		}
+	}
+
+	private void deliverMail() {
 		//Send all the messages in each queue to the corresponding subscribers
-		synchronized(_keyQueue) {
-			_pressedKeys.clear();
-			while(!_keyQueue.isEmpty()) {
-				KeyMessage m = _keyQueue.poll();
-				int key = m.getKeyCode();
-				if(m.isPressed()) { //Add to the pressed key array if pressed
-					_pressedKeys.add(key);
-				}
-				Set<KeySubscriber> subs = _keySubs.get(key);
-				for(KeySubscriber sub : subs) {
-					sub.receive(m);
+		//Input messages are dispatched without holding any lock, and released for reuse afterwards
+		for(KeyMessage m = _keyQueue.peek(0); m != null; m = _keyQueue.peek(0)) {
+			int key = m.getKeyCode();
+			if(m.isPressed()) {
+				_keyState.press(key);
+			} else {
+				_keyState.release(key);
+			}
+			KeySubscriber[] subs = key >= 0 && key < _keySubs.length ? _keySubs[key] : null;
+			if(subs != null) {
+				for(int i = 0; i < subs.length; i++) {
+					subs[i].receive(m);
 				}
 			}
+			_keyQueue.release();
 		}
-		synchronized(_mouseQueue) {
-			while(!_mouseQueue.isEmpty()) {
-				MouseMessage m = _mouseQueue.poll();
-				_mouseLocation.x = m.getX();
-				_mouseLocation.y = m.getY();
-				POCodes.Button button = m.getButton();
-				Set<Pair<MouseSubscriber,HShape>> subs = _mouseSubs.get(button);
-				for(Pair<?, ?> p : subs) {
-				   HShape region = (HShape) p.getSecond();
-					if(region == null || region.contains(m.getX(), m.getY()))
-						((MouseSubscriber) p.getFirst()).receive(m);
-				}
+		if(_mouseQueue.peek(0) != null)
+			updateMouseIndex();
+		for(MouseMessage m = _mouseQueue.peek(0); m != null; m = _mouseQueue.peek(0)) {
+			_mouseLocation.x = m.getX();
+			_mouseLocation.y = m.getY();
+			if(!(_coalesceMouseMoves && isSameMove(m, _mouseQueue.peek(1)))) {
+				MouseRegionIndex index = _mouseIndex.get(m.getButton());
+				if(index != null)
+					index.deliver(m);
 			}
+			_mouseQueue.release();
 		}
-		synchronized(_mouseWheelQueue) {
-			while(!_mouseWheelQueue.isEmpty()) {
-				MouseWheelMessage m = _mouseWheelQueue.poll();
-				for(MouseWheelSubscriber sub : _mouseWheelSubs) {
-					sub.receive(m);
-				}
+		for(MouseWheelMessage m = _mouseWheelQueue.peek(0); m != null; m = _mouseWheelQueue.peek(0)) {
+			for(MouseWheelSubscriber sub : _mouseWheelSubs) {
+				sub.receive(m);
 			}
+			_mouseWheelQueue.release();
+		}
+
+		for(int i = 0; i < _oscReceivers.size(); i++) {
+			_oscReceivers.get(i).receive();
 		}
 
 		if(_onOSC) { //Only check OSC queue is OSC server is running
-			synchronized(_oscQueue) {
-				while(!_oscQueue.isEmpty()) {
-					OscMessage m = _oscQueue.poll();
+			//Take the messages out first, so the OSC thread isn't held up while subscribers run
+			_oscQueue.drain(_oscMail);
+			for(OscMessage m : _oscMail) {
+				String address = m.getAddress();
+				List<OscSubscriber> subs = _oscSubs.match(address);
+
+				for(int i = 0; i < subs.size(); i++) {
+					subs.get(i).receive(m);
+				}
+			}
+			_oscMail.clear();
+		}
 
-					String address = m.getAddress();
-					Set<OscSubscriber> subs = _oscSubs.get(address);
+		_events.deliver();
+	}
 
-					for(OscSubscriber sub : subs) {
-						sub.receive(m);
-					}
-				}
+	/**
+	 * Brings the mouse region indexes up to date with the subscriptions and the regions' locations.
+	 */
+	private void updateMouseIndex() {
+		if(_mouseSubsChanged) {
+			_mouseIndex.clear();
+			for(POCodes.Button button : _mouseSubs.keySet()) {
+				MouseRegionIndex index = new MouseRegionIndex();
+				index.set(_mouseSubs.get(button));
+				_mouseIndex.put(button, index);
 			}
+			_mouseSubsChanged = false;
+		} else {
+			for(MouseRegionIndex index : _mouseIndex.values())
+				index.refresh();
 		}
 	}
 
@@ -562,7 +1096,7 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 		    keyPressed(e);
 		    break;
 		case KeyEvent.RELEASE:
-		    keyPressed(e);
+		    keyReleased(e);
 		    break;
 		default:
 		    break;
@@ -581,19 +1115,13 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	 * users should control this with keyReleased events.
 	 */
 	public void keyPressed(KeyEvent e) {
-		KeyMessage m = new KeyMessage(e.getKeyCode(), e.getKey(), true);
-		synchronized(_keyQueue) {
-			_keyQueue.add(m);
-		}
+		postKey(e.getKeyCode(), e.getKey(), true);
 	}
 	/**
 	 * On a key release, make a new KeyMessage and add it to the queue.
 	 */
 	public void keyReleased(KeyEvent e) {
-		KeyMessage m = new KeyMessage(e.getKeyCode(), e.getKey(), false);
-		synchronized(_keyQueue) {
-			_keyQueue.add(m);
-		}
+		postKey(e.getKeyCode(), e.getKey(), false);
 	}
 
 	///////////////////////////////
@@ -630,19 +1158,13 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	 * On a mouse press, make a new MouseMessage and add it to the queue.
 	 */
 	public void mousePressed(MouseEvent e) {
-		MouseMessage m  = new MouseMessage(getMouseButton(e), POCodes.Click.PRESSED, e.getX(), e.getY());
-		synchronized(_mouseQueue) {
-			_mouseQueue.add(m);
-		}
+		postMouse(getMouseButton(e), POCodes.Click.PRESSED, e.getX(), e.getY());
 	}
 	/**
 	 * On a mouse button release, make a new MouseMessage and add it to the queue.
 	 */
 	public void mouseReleased(MouseEvent e) {
-		MouseMessage m  = new MouseMessage(getMouseButton(e), POCodes.Click.RELEASED, e.getX(), e.getY());
-		synchronized(_mouseQueue) {
-			_mouseQueue.add(m);
-		}
+		postMouse(getMouseButton(e), POCodes.Click.RELEASED, e.getX(), e.getY());
 	}
 	/**
 	 * Ignore mouseEntered events.
@@ -663,20 +1185,60 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	 * When the mouse is dragged, create a MouseMessage and add it to the group.
 	 */
 	public void mouseDragged(MouseEvent e) {
-		MouseMessage m  = new MouseMessage(getMouseButton(e), POCodes.Click.DRAGGED, e.getX(), e.getY());
-		synchronized(_mouseQueue) {
-			_mouseQueue.add(m);
-		}
+		postMouse(getMouseButton(e), POCodes.Click.DRAGGED, e.getX(), e.getY());
 	}
 	/**
 	 * When the mouse is moved, create a MouseMessage and add it to the queue.
 	 */
 	public void mouseMoved(MouseEvent e) {
-		MouseMessage m  = new MouseMessage(getMouseButton(e), POCodes.Click.MOVED, e.getX(), e.getY());
-		synchronized(_mouseQueue) {
-			_mouseQueue.add(m);
+		postMouse(getMouseButton(e), POCodes.Click.MOVED, e.getX(), e.getY());
+
+	}
+
+	/**
+	 * Fills in the next key message and passes it to the World's thread, after giving it to direct subscribers.
+	 */
+	private void postKey(int keyCode, char key, boolean pressed) {
+		if(!_directKeySubs.isEmpty()) {
+			_directKeyMessage.set(keyCode, key, pressed);
+			for(Pair<KeySubscriber,Integer> p : _directKeySubs) {
+				if(p.getSecond() == keyCode)
+					p.getFirst().receive(_directKeyMessage);
+			}
 		}
+		KeyMessage m = _keyQueue.claim();
+		if(m != null) {
+			m.set(keyCode, key, pressed);
+			_keyQueue.publish();
+			wake();
+		}
+	}
+
+	/**
+	 * Fills in the next mouse message and passes it to the World's thread, after giving it to direct subscribers.
+	 */
+	private void postMouse(POCodes.Button button, POCodes.Click action, int x, int y) {
+		if(!_directMouseSubs.isEmpty()) {
+			_directMouseMessage.set(button, action, x, y);
+			for(Pair<MouseSubscriber,POCodes.Button> p : _directMouseSubs) {
+				if(p.getSecond() == button)
+					p.getFirst().receive(_directMouseMessage);
+			}
+		}
+		MouseMessage m = _mouseQueue.claim();
+		if(m != null) {
+			m.set(button, action, x, y);
+			_mouseQueue.publish();
+			wake();
+		}
+	}
 
+	/**
+	 * Checks if a message is followed by the same kind of move, which replaces it when coalescing mouse moves.
+	 */
+	private static boolean isSameMove(MouseMessage m, MouseMessage next) {
+		return next != null && (m.getAction() == POCodes.Click.MOVED || m.getAction() == POCodes.Click.DRAGGED)
+				&& next.getAction() == m.getAction() && next.getButton() == m.getButton();
 	}
 
 	//////////////////////////
@@ -685,9 +1247,11 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	 * When the mouse wheel is moved, create a MouseWheelMessage and add it to the queue.
 	 */
 	public void mouseWheelMoved(MouseEvent e) {
-		MouseWheelMessage m = new MouseWheelMessage((int)e.getAmount());
-		synchronized(_mouseWheelQueue) {
-			_mouseWheelQueue.add(m);
+		MouseWheelMessage m = _mouseWheelQueue.claim();
+		if(m != null) {
+			m.set((int)e.getAmount());
+			_mouseWheelQueue.publish();
+			wake();
 		}
 	}
 
@@ -698,10 +1262,16 @@ public class PostOffice implements com.illposed.osc.OSCListener {
 	 * Called from within illposed library.
 	 */
 	public void acceptMessage(Date time, com.illposed.osc.OSCMessage message) {
-		OscMessage m = new OscMessage(message);
-		synchronized(_oscQueue) {
-			_oscQueue.add(m);
+		List<OscSubscriber> direct;
+		synchronized(_directOscSubs) {
+			direct = _directOscSubs.match(message.getAddress());
+		}
+		for(int i = 0; i < direct.size(); i++) {
+			direct.get(i).receive(new OscMessage(message)); //each gets its own, as reading arguments removes them
 		}
+		OscMessage m = new OscMessage(message);
+		_oscQueue.add(m);
+		wake();
 	}
 
 	/**
@@ -0,0 +1,95 @@
+package hermesBenchmark.physics;
+
+import static hermes.HermesMath.*;
+
+import hermes.Hermes;
+import hermes.hshape.HCircle;
+import hermes.physics.GravityInteractor;
+import hermes.physics.MassedBeing;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares applying gravity to every pair in a group through <code>detect</code> and
+ * 	<code>handle</code>, one pair at a time, with the batched <code>accumulateForces</code> kernel.
+ * <p>
+ * Each operation is one whole group, so divide by count*(count-1)/2 for the time per pair.
+ * <p>
+ * The kernel is the scalar one unless the benchmark JVMs are started with
+ * 	<code>--add-modules jdk.incubator.vector</code>, so run it both ways to compare the two.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InverseSquareBenchmark {
+
+	@Param({"64", "256", "1024"})
+	public int count;
+
+	private GravityInteractor _interactor;
+	private MassedBeing[] _beings;
+	private float[] _x, _y, _q, _fx, _fy;
+
+	/**
+	 * A being with nothing but a mass.
+	 */
+	static class Body extends MassedBeing {
+		Body(float x, float y, float mass) {
+			super(new HCircle(makeVector(x, y), 1), zeroVector(), mass, 1);
+		}
+
+		public void draw() {}
+	}
+
+	@Setup
+	public void setup() {
+		Hermes.setPApplet(null);
+		Random random = new Random(28);
+		_interactor = new GravityInteractor(1, 200);
+		_beings = new MassedBeing[count];
+		_x = new float[count];
+		_y = new float[count];
+		_q = new float[count];
+		_fx = new float[count];
+		_fy = new float[count];
+		for(int i = 0; i < count; i++) {
+			// spread so that some pairs are out of range
+			float x = random.nextFloat() * 1000;
+			float y = random.nextFloat() * 1000;
+			float mass = 1 + random.nextFloat() * 4;
+			_beings[i] = new Body(x, y, mass);
+			_x[i] = x;
+			_y[i] = y;
+			_q[i] = mass;
+		}
+	}
+
+	@Benchmark
+	public MassedBeing[] handle() {
+		MassedBeing[] beings = _beings;
+		for(int i = 0; i < beings.length; i++) {
+			for(int j = i + 1; j < beings.length; j++) {
+				if(_interactor.detect(beings[i], beings[j]))
+					_interactor.handle(beings[i], beings[j]);
+			}
+		}
+		return beings;
+	}
+
+	@Benchmark
+	public float[] kernel() {
+		_interactor.accumulateForces(_x, _y, _q, count, _fx, _fy);
+		return _fx;
+	}
+
+}
@@ -0,0 +1,68 @@
+package hermesBenchmark.shapes;
+
+import hermes.hshape.HShape;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import processing.core.PVector;
+
+/**
+ * Measures how the narrow phase of polygons scales with their number of sides, against rectangles,
+ * 	circles and other polygons. Kept apart from <code>ShapeCollisionBenchmark</code> so the pairs without
+ * 	a polygon aren't run once for every vertex count.
+ * @see ShapePairs
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PolygonVerticesBenchmark {
+
+	@Param({"RECTANGLE", "CIRCLE", "POLYGON"})
+	public String other;
+
+	@Param({"4", "8", "32"})
+	public int vertices;
+
+	@Param({"0", "0.5", "1"})
+	public float hitRatio;
+
+	private HShape[] _polygons, _others;
+	private PVector[] _points;
+	private ShapePairs _pairs;
+
+	@Setup
+	public void setup() {
+		_pairs = new ShapePairs("POLYGON", other, vertices, hitRatio);
+		_polygons = _pairs.first;
+		_others = _pairs.second;
+		_points = _pairs.points;
+	}
+
+	@Benchmark
+	public PVector projectionVector() {
+		int i = _pairs.next();
+		return _polygons[i].projectionVector(_others[i]);
+	}
+
+	@Benchmark
+	public boolean collide() {
+		int i = _pairs.next();
+		return _polygons[i].collide(_others[i]);
+	}
+
+	@Benchmark
+	public boolean contains() {
+		int i = _pairs.next();
+		return _polygons[i].contains(_points[i]);
+	}
+
+}
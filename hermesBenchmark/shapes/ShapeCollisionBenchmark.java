@@ -0,0 +1,71 @@
+package hermesBenchmark.shapes;
+
+import hermes.hshape.HShape;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import processing.core.PVector;
+
+/**
+ * Measures the narrow phase: <code>projectionVector</code>, <code>collide</code> and <code>contains</code>
+ * 	for every ordered pair of rectangles, circles, polygons, compound shapes and tile maps.
+ * <p>
+ * The polygons are octagons; <code>PolygonVerticesBenchmark</code> varies their number of sides.
+ * 	Tile maps never collide with each other, so that pair only measures the call.
+ * 	Run with <code>ant benchmark</code>, which reports ns/op, and bytes/op from the GC profiler.
+ * @see ShapePairs
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ShapeCollisionBenchmark {
+
+	@Param({"RECTANGLE", "CIRCLE", "POLYGON", "COMPOUND", "TILEMAP"})
+	public String first;
+
+	@Param({"RECTANGLE", "CIRCLE", "POLYGON", "COMPOUND", "TILEMAP"})
+	public String second;
+
+	@Param({"0", "0.5", "1"})
+	public float hitRatio;
+
+	private HShape[] _first, _second;
+	private PVector[] _points;
+	private ShapePairs _pairs;
+
+	@Setup
+	public void setup() {
+		_pairs = new ShapePairs(first, second, 8, hitRatio);
+		_first = _pairs.first;
+		_second = _pairs.second;
+		_points = _pairs.points;
+	}
+
+	@Benchmark
+	public PVector projectionVector() {
+		int i = _pairs.next();
+		return _first[i].projectionVector(_second[i]);
+	}
+
+	@Benchmark
+	public boolean collide() {
+		int i = _pairs.next();
+		return _first[i].collide(_second[i]);
+	}
+
+	@Benchmark
+	public boolean contains() {
+		int i = _pairs.next();
+		return _first[i].contains(_points[i]);
+	}
+
+}
@@ -0,0 +1,101 @@
+package hermesBenchmark.shapes;
+
+import static hermes.HermesMath.*;
+
+import hermes.Hermes;
+import hermes.hshape.HCircle;
+import hermes.hshape.HCompoundShape;
+import hermes.hshape.HPolygon;
+import hermes.hshape.HRectangle;
+import hermes.hshape.HShape;
+import hermes.hshape.HTileMap;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import processing.core.PVector;
+
+/**
+ * A fixed set of pairs of shapes for the narrow phase benchmarks to work through, a <code>hitRatio</code>
+ * 	of which overlap, so branch prediction can't learn the answer.
+ * <p>
+ * Each shape fits in a circle of radius <code>SIZE</code> around its position: a square, a circle, a regular
+ * 	polygon, a compound of a bar and two circles, or a 4x4 tile map.
+ */
+class ShapePairs {
+
+	static final int PAIRS = 1024; 	// a power of two, so the index can wrap with a mask
+	static final float SIZE = 10;	// the shapes' radius, or half width
+
+	final HShape[] first = new HShape[PAIRS];
+	final HShape[] second = new HShape[PAIRS];
+	final PVector[] points = new PVector[PAIRS];
+	private int _next = 0;
+
+	/**
+	 * @param firstType		the type of the first shape in each pair, as <code>makeShape</code> takes
+	 * @param secondType	the type of the second shape in each pair
+	 * @param vertices		the number of sides of the polygons
+	 * @param hitRatio		the fraction of pairs that overlap, and of points inside the first shape
+	 */
+	ShapePairs(String firstType, String secondType, int vertices, float hitRatio) {
+		Hermes.setPApplet(null);
+		Random random = new Random(47);
+		for(int i = 0; i < PAIRS; i++) {
+			boolean hit = random.nextFloat() < hitRatio;
+			double angle = random.nextDouble() * 2 * Math.PI;
+			// hits overlap by half their size, misses are well clear of each other
+			float distance = hit ? SIZE : SIZE * 5;
+			PVector offset = makeVector((float)Math.cos(angle) * distance, (float)Math.sin(angle) * distance);
+			first[i] = makeShape(firstType, zeroVector(), vertices);
+			second[i] = makeShape(secondType, offset, vertices);
+			// points right by the first shape's position, or outside its bounding box
+			points[i] = PVector.mult(offset, hit ? 0.2f / SIZE : 1);
+		}
+	}
+
+	/**
+	 * @return	the index of the next pair to use
+	 */
+	int next() {
+		int i = _next;
+		_next = (i + 1) & (PAIRS - 1);
+		return i;
+	}
+
+	/**
+	 * @param type		RECTANGLE, CIRCLE, POLYGON, COMPOUND or TILEMAP
+	 * @param position	the shape's position, at its center
+	 * @param vertices	the number of sides, for a polygon
+	 */
+	static HShape makeShape(String type, PVector position, int vertices) {
+		if(type.equals("RECTANGLE"))
+			return new HRectangle(position, makeVector(-SIZE, -SIZE), makeVector(SIZE, SIZE));
+		if(type.equals("CIRCLE"))
+			return new HCircle(position, SIZE);
+		if(type.equals("POLYGON")) {
+			ArrayList<PVector> points = new ArrayList<PVector>();
+			for(int i = 0; i < vertices; i++) {
+				double angle = 2 * Math.PI * i / vertices;
+				points.add(makeVector((float)Math.cos(angle) * SIZE, (float)Math.sin(angle) * SIZE));
+			}
+			return new HPolygon(position, points);
+		}
+		if(type.equals("COMPOUND")) {
+			return new HCompoundShape(position,
+					new HRectangle(zeroVector(), makeVector(-SIZE, -SIZE / 2), makeVector(SIZE, SIZE / 2)),
+					new HCircle(makeVector(0, -SIZE / 2), SIZE / 2),
+					new HCircle(makeVector(0, SIZE / 2), SIZE / 2));
+		}
+		if(type.equals("TILEMAP")) {
+			// the grid's position is its corner, so it is moved to be centered like the others
+			return new HTileMap(PVector.sub(position, makeVector(SIZE, SIZE)), SIZE / 2, SIZE / 2, "#",
+					" ## ",
+					"####",
+					"####",
+					" ## ");
+		}
+		throw new IllegalArgumentException("ShapePairs: unknown shape " + type);
+	}
+
+}
@@ -0,0 +1,245 @@
+package hermesBenchmark.world;
+
+import static hermes.HermesMath.*;
+
+import hermes.Being;
+import hermes.Collider;
+import hermes.Group;
+import hermes.NeighborListOptimizer;
+import hermes.SelfInteractionOptimizer;
+import hermes.StaticIndexOptimizer;
+import hermes.World;
+import hermes.hshape.HCircle;
+import hermes.hshape.HRectangle;
+import hermes.hshape.HShape;
+import hermes.physics.BarnesHutOptimizer;
+import hermes.physics.BatchedInverseSquareOptimizer;
+import hermes.physics.GravityInteractor;
+import hermes.physics.MassedBeing;
+import hermes.physics.MassedCollider;
+import hermes.physics.ParticleMeshOptimizer;
+
+import java.util.Random;
+
+import processing.core.PVector;
+
+/**
+ * Generates the scenes the World is benchmarked with, at any number of beings.
+ * <p>
+ * Each scene spreads its beings over an area that grows with their number, so the density, and so the
+ * 	number of interacting pairs per being, stays the same as the scene grows. Each can be built with
+ * 	several optimizers; <code>NONE</code> checks every pair, and is only run on small scenes.
+ */
+public enum Scene {
+
+	/**
+	 * Many fast bullets, wrapping around the screen, and a few ships they collide with.
+	 */
+	BULLET_CURTAIN("NONE", "NEIGHBOR_LIST") {
+		void build(World world, int beings, String optimizer, Random random) {
+			float side = side(beings, 20);
+			Group<Body> bullets = new Group<Body>(world);
+			Group<Body> ships = new Group<Body>(world);
+			for(int i = 0; i < beings; i++) {
+				double angle = Math.PI / 4 + random.nextDouble() * Math.PI / 2;
+				float speed = 50 + random.nextFloat() * 100;
+				PVector velocity = makeVector((float)Math.cos(angle) * speed, (float)Math.sin(angle) * speed);
+				Body bullet = new Body(new HCircle(randomPoint(random, side), 2), velocity, 1, side);
+				bullets.add(bullet);
+				world.register(bullet);
+			}
+			for(int i = 0; i < Math.max(1, beings / 1000); i++) {
+				Body ship = new Body(new HCircle(randomPoint(random, side), 10), zeroVector(), 1, side);
+				ships.add(ship);
+				world.register(ship);
+			}
+			if(optimizer.equals("NONE"))
+				world.register(ships, bullets, new HitCounter());
+			else
+				world.register(ships, bullets, new HitCounter(), new NeighborListOptimizer<Body,Body>(12, 4));
+		}
+
+		int maxBeings(String optimizer) {
+			return optimizer.equals("NONE") ? 100000 : Integer.MAX_VALUE;
+		}
+	},
+
+	/**
+	 * A cluster of bodies attracting each other with gravity.
+	 */
+	GRAVITY_CLUSTER("SELF", "BATCHED", "BARNES_HUT", "PARTICLE_MESH") {
+		void build(World world, int beings, String optimizer, Random random) {
+			float radius = side(beings, 10) / 2;
+			Group<Body> bodies = new Group<Body>(world);
+			for(int i = 0; i < beings; i++) {
+				PVector position = makeVector((float)random.nextGaussian() * radius, (float)random.nextGaussian() * radius);
+				Body body = new Body(new HCircle(position, 1), zeroVector(), 1 + random.nextFloat() * 4, 0);
+				bodies.add(body);
+				world.register(body);
+			}
+			GravityInteractor gravity = new GravityInteractor(1);
+			if(optimizer.equals("SELF"))
+				world.register(bodies, bodies, gravity, new SelfInteractionOptimizer<Body>());
+			else if(optimizer.equals("BATCHED"))
+				world.register(bodies, bodies, gravity, new BatchedInverseSquareOptimizer<Body>(gravity));
+			else if(optimizer.equals("BARNES_HUT"))
+				world.register(bodies, bodies, gravity, new BarnesHutOptimizer<Body>(gravity));
+			else
+				world.register(bodies, bodies, gravity, new ParticleMeshOptimizer<Body>(gravity));
+		}
+
+		int maxBeings(String optimizer) {
+			if(optimizer.equals("SELF"))
+				return 5000;
+			if(optimizer.equals("BATCHED"))
+				return 20000;
+			return Integer.MAX_VALUE;
+		}
+	},
+
+	/**
+	 * Falling, running characters landing on a level of static platforms, one for every ten characters.
+	 */
+	PLATFORMER("NONE", "STATIC_INDEX") {
+		void build(World world, int beings, String optimizer, Random random) {
+			float side = side(beings, 30);
+			Group<Body> actors = new Group<Body>(world);
+			Group<Body> level = new Group<Body>(world);
+			for(int i = 0; i < beings; i++) {
+				PVector velocity = makeVector(random.nextFloat() * 60 - 30, 0);
+				Body actor = new Body(box(randomPoint(random, side), 4), velocity, 1, side);
+				actor.setGravity(100);
+				actors.add(actor);
+				world.register(actor);
+			}
+			for(int i = 0; i < Math.max(1, beings / 10); i++) {
+				PVector position = randomPoint(random, side);
+				Body platform = new Body(new HRectangle(position, makeVector(-20, -4), makeVector(20, 4)), zeroVector(), INFINITY, 0);
+				platform.setStatic(true);
+				level.add(platform);
+				world.register(platform, false);
+			}
+			if(optimizer.equals("NONE"))
+				world.register(actors, level, new MassedCollider(0));
+			else
+				world.register(actors, level, new MassedCollider(0), new StaticIndexOptimizer<Body,Body>(40));
+		}
+
+		int maxBeings(String optimizer) {
+			return optimizer.equals("NONE") ? 20000 : Integer.MAX_VALUE;
+		}
+	},
+
+	/**
+	 * Boxes stacked in piles on the floor, under gravity, touching their neighbors.
+	 */
+	RESTING_PILE("SELF", "NEIGHBOR_LIST") {
+		void build(World world, int beings, String optimizer, Random random) {
+			int columns = (int)Math.ceil(Math.sqrt(beings));
+			Group<Body> boxes = new Group<Body>(world);
+			Group<Body> floor = new Group<Body>(world);
+			for(int i = 0; i < beings; i++) {
+				PVector position = makeVector((i % columns) * 8, -(i / columns) * 8 - 4);
+				Body box = new Body(box(position, 4), zeroVector(), 1, 0);
+				box.setGravity(100);
+				boxes.add(box);
+				world.register(box);
+			}
+			Body ground = new Body(new HRectangle(zeroVector(), makeVector(-8, 0), makeVector(columns * 8, 8)), zeroVector(), INFINITY, 0);
+			ground.setStatic(true);
+			floor.add(ground);
+			world.register(ground, false);
+			if(optimizer.equals("SELF"))
+				world.register(boxes, boxes, new MassedCollider(0), new SelfInteractionOptimizer<Body>());
+			else
+				world.register(boxes, boxes, new MassedCollider(0), new NeighborListOptimizer<Body,Body>(12, 2));
+			world.register(boxes, floor, new MassedCollider(0));
+		}
+
+		int maxBeings(String optimizer) {
+			return optimizer.equals("SELF") ? 5000 : Integer.MAX_VALUE;
+		}
+	};
+
+	private String[] _optimizers;
+
+	private Scene(String... optimizers) {
+		_optimizers = optimizers;
+	}
+
+	/**
+	 * @return	the names of the optimizers the scene can be built with
+	 */
+	public String[] getOptimizers() {
+		return _optimizers;
+	}
+
+	/**
+	 * Adds the scene's beings, groups and interactions to a world.
+	 * @param world		an empty world
+	 * @param beings	the number of moving beings
+	 * @param optimizer	one of <code>getOptimizers</code>
+	 * @param random	the source of the beings' positions and velocities
+	 */
+	abstract void build(World world, int beings, String optimizer, Random random);
+
+	/**
+	 * @return	the largest scene worth running with an optimizer, as larger ones take minutes per update
+	 */
+	abstract int maxBeings(String optimizer);
+
+	/**
+	 * The side of a square holding a number of beings, each with an area of spacing squared.
+	 */
+	private static float side(int beings, float spacing) {
+		return (float)Math.sqrt(beings) * spacing;
+	}
+
+	private static PVector randomPoint(Random random, float side) {
+		return makeVector(random.nextFloat() * side, random.nextFloat() * side);
+	}
+
+	private static HRectangle box(PVector position, float halfSize) {
+		return new HRectangle(position, makeVector(-halfSize, -halfSize), makeVector(halfSize, halfSize));
+	}
+
+	/**
+	 * A being with a mass, optionally falling under gravity and wrapping around a square.
+	 */
+	static class Body extends MassedBeing {
+		private float _wrap;	// side of the square to wrap around, or 0
+		private PVector _gravity = zeroVector();
+
+		Body(HShape shape, PVector velocity, float mass, float wrap) {
+			super(shape, velocity, mass, 1);
+			_wrap = wrap;
+		}
+
+		void setGravity(float g) {
+			_gravity.y = g * getMass();
+		}
+
+		protected void update() {
+			addForce(_gravity);
+			if(_wrap > 0) {
+				PVector p = getPosition();
+				if(p.x < 0 || p.x > _wrap || p.y < 0 || p.y > _wrap)
+					setPosition((p.x + _wrap) % _wrap, (p.y + _wrap) % _wrap);
+			}
+		}
+
+		public void draw() {}
+	}
+
+	/**
+	 * Counts the bullets that hit ships.
+	 */
+	static class HitCounter extends Collider<Body,Body> {
+		int hits = 0;
+
+		public void handle(Body ship, Body bullet) {
+			hits++;
+		}
+	}
+
+}
@@ -0,0 +1,184 @@
+package hermesBenchmark.world;
+
+import hermes.HCamera;
+import hermes.Hermes;
+import hermes.World;
+import hermes.WorldStats;
+import hermes.WorldStats.Metric;
+import hermes.postoffice.PostOffice;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures how <code>World.update</code> scales with the number of beings, for each <code>Scene</code> and optimizer.
+ * <p>
+ * Each combination is built into a headless World with a fixed time step, so every run simulates the same thing
+ * 	however fast it goes. After some warm-up updates, each update is timed separately, and one row of results
+ * 	is appended to a CSV file: percentiles of the update time, the bytes allocated per update, and the mean
+ * 	of each of the World's own statistics (see <code>WorldStats</code>), such as the time of each phase.
+ * 	The label column tells runs apart, e.g. give it the version being measured, so they can be charted together.
+ * <p>
+ * Options, all optional:
+ * <pre>
+ *  -scenes BULLET_CURTAIN,RESTING_PILE   scenes to run (default all)
+ *  -optimizers NONE,BARNES_HUT           optimizers to run, of those each scene has (default all)
+ *  -beings 100,1000,10000                scene sizes (default 100 to 1000000 in steps of 10)
+ *  -warmup 50 -updates 200               updates before and during timing
+ *  -seconds 60                           stop timing a combination after this long
+ *  -label dev -out scaling.csv           label for the rows, and the file to add them to
+ * </pre>
+ * Combinations larger than <code>Scene.maxBeings</code> allows are skipped.
+ */
+public class WorldScaling {
+
+	private static final String HEADER;
+	static {
+		StringBuilder header = new StringBuilder("label,scene,optimizer,beings,updates,mean_ms,p50_ms,p90_ms,p99_ms,max_ms,bytes_per_update");
+		for(Metric metric : Metric.values())
+			header.append(',').append(metric.name().toLowerCase()).append(metric.isTime() ? "_ms" : "");
+		HEADER = header.toString();
+	}
+
+	private String[] _scenes = null;
+	private String[] _optimizers = null;
+	private int[] _beings = { 100, 1000, 10000, 100000, 1000000 };
+	private int _warmup = 50;
+	private int _updates = 200;
+	private long _maxNanos = 60 * 1000000000L;
+	private String _label = "dev";
+	private String _out = "scaling.csv";
+
+	public static void main(String[] args) throws IOException {
+		WorldScaling scaling = new WorldScaling();
+		scaling.parse(args);
+		scaling.run();
+	}
+
+	private void parse(String[] args) {
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			if(args[i].equals("-scenes")) {
+				_scenes = value.split(",");
+			} else if(args[i].equals("-optimizers")) {
+				_optimizers = value.split(",");
+			} else if(args[i].equals("-beings")) {
+				String[] sizes = value.split(",");
+				_beings = new int[sizes.length];
+				for(int j = 0; j < sizes.length; j++)
+					_beings[j] = Integer.parseInt(sizes[j]);
+			} else if(args[i].equals("-warmup")) {
+				_warmup = Integer.parseInt(value);
+			} else if(args[i].equals("-updates")) {
+				_updates = Integer.parseInt(value);
+			} else if(args[i].equals("-seconds")) {
+				_maxNanos = Long.parseLong(value) * 1000000000L;
+			} else if(args[i].equals("-label")) {
+				_label = value;
+			} else if(args[i].equals("-out")) {
+				_out = value;
+			} else {
+				throw new IllegalArgumentException("WorldScaling: unknown option " + args[i]);
+			}
+		}
+	}
+
+	private void run() throws IOException {
+		Hermes.setPApplet(null);
+		Hermes.setTimeStep(1 / 60.0);
+
+		File file = new File(_out);
+		boolean header = !file.exists() || file.length() == 0;
+		PrintWriter out = new PrintWriter(new FileWriter(file, true));
+		if(header)
+			out.println(HEADER);
+		System.out.println(HEADER);
+		try {
+			for(Scene scene : Scene.values()) {
+				if(_scenes != null && !Arrays.asList(_scenes).contains(scene.name()))
+					continue;
+				for(String optimizer : scene.getOptimizers()) {
+					if(_optimizers != null && !Arrays.asList(_optimizers).contains(optimizer))
+						continue;
+					for(int beings : _beings) {
+						if(beings > scene.maxBeings(optimizer))
+							continue;
+						String row = measure(scene, optimizer, beings);
+						out.println(row);
+						out.flush();
+						System.out.println(row);
+					}
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Builds and runs one combination, and returns its row of results.
+	 */
+	private String measure(Scene scene, String optimizer, int beings) {
+		World world = new World(new PostOffice(), new HCamera(0, 0, 800, 600));
+		world.unlockUpdateRate();
+		scene.build(world, beings, optimizer, new Random(48));
+		world.resolveGroupQueues();
+
+		long end = System.nanoTime() + _maxNanos;
+		for(int i = 0; i < _warmup && System.nanoTime() < end; i++)
+			world.update();
+
+		world.setStatsEnabled(true);
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long[] times = new long[_updates];
+		int count = 0;
+		long allocated = allocatedBytes(threads);
+		for(; count < _updates && System.nanoTime() < end; count++) {
+			long start = System.nanoTime();
+			world.update();
+			times[count] = System.nanoTime() - start;
+		}
+		allocated = allocatedBytes(threads) - allocated;
+		WorldStats stats = world.getStats();
+		StringBuilder means = new StringBuilder();
+		for(Metric metric : Metric.values()) {
+			double mean = stats.getMean(metric);
+			means.append(',').append(metric.isTime() ? millis((long)mean) : String.format("%.1f", mean));
+		}
+		world.setStatsEnabled(false);
+
+		times = Arrays.copyOf(times, Math.max(count, 1));
+		Arrays.sort(times);
+		long total = 0;
+		for(long t : times)
+			total += t;
+		return _label + "," + scene + "," + optimizer + "," + beings + "," + count + ","
+				+ millis(total / times.length) + "," + millis(percentile(times, 0.5)) + ","
+				+ millis(percentile(times, 0.9)) + "," + millis(percentile(times, 0.99)) + ","
+				+ millis(times[times.length - 1]) + "," + (allocated < 0 || count == 0 ? "" : allocated / count) + means;
+	}
+
+	private static long percentile(long[] sorted, double p) {
+		return sorted[Math.min(sorted.length - 1, (int)(p * sorted.length))];
+	}
+
+	private static String millis(long nanos) {
+		return String.format("%.4f", nanos / 1e6);
+	}
+
+	/**
+	 * The bytes allocated by this thread so far, or -1 if the JVM can't tell.
+	 */
+	private static long allocatedBytes(ThreadMXBean threads) {
+		if(threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1;
+	}
+
+}
@@ -0,0 +1,113 @@
+package hermesTest.core;
+
+import static hermes.HermesMath.*;
+import static org.junit.Assert.*;
+
+import hermes.Being;
+import hermes.Group;
+import hermes.HCamera;
+import hermes.Hermes;
+import hermes.Interactor;
+import hermes.World;
+import hermes.hshape.HRectangle;
+import hermes.postoffice.PostOffice;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+
+/**
+ * Tests the Flight Recorder events a World records while it updates. Needs Java 11 or later.
+ */
+public class FlightRecorderTest {
+
+	static class Box extends Being {
+		Box(float x) {
+			super(new HRectangle(makeVector(x, 0), zeroVector(), makeVector(1, 1)));
+		}
+	}
+
+	static class LeftOf extends Interactor<Box, Box> {
+		LeftOf() {
+			super(false, false);
+		}
+
+		public boolean detect(Box being1, Box being2) {
+			return being1.getX() < being2.getX();
+		}
+
+		public void handle(Box being1, Box being2) {}
+	}
+
+	static class Apart extends Interactor<Box, Box> {
+		Apart() {
+			super(false, false);
+		}
+
+		public boolean detect(Box being1, Box being2) {
+			return being1.getX() != being2.getX();
+		}
+
+		public void handle(Box being1, Box being2) {}
+	}
+
+	@Test
+	public void test_events() throws Exception {
+		Hermes.setPApplet(null);
+		World world = new World(new PostOffice(), new HCamera(0, 0, 100, 100));
+		world.unlockUpdateRate();
+		Group<Box> group = new Group<Box>(world);
+		for(int i = 0; i < 4; i++)
+			group.add(new Box(i * 10));
+		world.register(group, group, new LeftOf());
+		world.register(group, group, new Apart());
+		world.update(); // nothing is recorded yet
+
+		Recording recording = new Recording();
+		recording.enable("hermes.WorldUpdate").withoutThreshold();
+		recording.enable("hermes.Detect").withoutThreshold();
+		recording.enable("hermes.Handle").withoutThreshold();
+		recording.enable("hermes.ResolveQueues").withoutThreshold();
+		recording.start();
+		world.update();
+		world.update();
+		recording.stop();
+		File file = File.createTempFile("hermes", ".jfr");
+		file.deleteOnExit();
+		recording.dump(file.toPath());
+		recording.close();
+
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		Map<String, Integer> handles = new HashMap<String, Integer>();
+		for(RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+			String name = event.getEventType().getName();
+			counts.put(name, counts.containsKey(name) ? counts.get(name) + 1 : 1);
+			if(name.equals("hermes.Detect") && event.getClass("interactor").getName().equals(LeftOf.class.getName())) {
+				assertEquals(4, event.getInt("sizeA"));
+				assertEquals(6, event.getLong("pairs"));
+				assertEquals(6, event.getLong("hits"));
+			} else if(name.equals("hermes.Handle")) {
+				String interactor = event.getClass("interactor").getName();
+				handles.put(interactor, handles.containsKey(interactor) ? handles.get(interactor) + 1 : 1);
+				assertEquals(4, event.getInt("sizeA"));
+				assertEquals(4, event.getInt("sizeB"));
+				assertEquals(6, event.getInt("handled"));
+			}
+		}
+		assertEquals(2, (int)counts.get("hermes.WorldUpdate"));
+		// the boxes both ways, and the camera against itself
+		assertEquals(6, (int)counts.get("hermes.Detect"));
+		// one for each interaction's deferred pairs each update
+		assertEquals(4, (int)counts.get("hermes.Handle"));
+		assertEquals(2, (int)handles.get(LeftOf.class.getName()));
+		assertEquals(2, (int)handles.get(Apart.class.getName()));
+		assertEquals(2, (int)counts.get("hermes.ResolveQueues"));
+	}
+
+}
@@ -0,0 +1,105 @@
+package hermesTest.core;
+
+import static hermes.HermesMath.*;
+import static org.junit.Assert.*;
+
+import hermes.Being;
+import hermes.HCamera;
+import hermes.Hermes;
+import hermes.World;
+import hermes.hshape.HRectangle;
+import hermes.postoffice.KeyMessage;
+import hermes.postoffice.KeySubscriber;
+import hermes.postoffice.POCodes;
+import hermes.postoffice.PostOffice;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import processing.event.KeyEvent;
+
+/**
+ * Tests running a World without a PApplet.
+ */
+public class HeadlessTest {
+
+	class Mover extends Being implements KeySubscriber {
+		int keys = 0;
+
+		Mover() {
+			super(new HRectangle(zeroVector(), 1.0f, 1.0f), makeVector(10, 0));
+		}
+
+		public void receive(KeyMessage m) {
+			keys++;
+		}
+	}
+
+	@Before
+	public void setUp() {
+		Hermes.setPApplet(null);
+		Hermes.setTimeStep(0.5);
+	}
+
+	@After
+	public void tearDown() {
+		Hermes.setTimeStep(0);
+	}
+
+	@Test
+	public void test_headless() {
+		assertTrue(Hermes.isHeadless());
+		assertNull(Hermes.getPApplet());
+
+		HRectangle rect = new HRectangle(10, 20, 30, 40);
+		assertEquals(0, rect.getMin().x, 1e-6);
+		assertEquals(30, rect.getMax().x, 1e-6);
+
+		PostOffice po = new PostOffice();
+		World world = new World(po, new HCamera(0, 0, 100, 100));
+		world.unlockUpdateRate();
+		Mover mover = new Mover();
+		world.register(mover);
+		world.subscribe(mover, POCodes.Key.A);
+
+		// input can still be simulated
+		po.keyEvent(new KeyEvent(null, 0, KeyEvent.PRESS, 0, 'a', POCodes.Key.A));
+		for(int i = 0; i < 4; i++)
+			world.update();
+		assertEquals(1, mover.keys);
+
+		// half a second per update, whatever time actually passed; the mover was made at the time
+		// of the first update, so it moves in the three after it
+		assertEquals(15, mover.getX(), 1e-3);
+	}
+
+	@Test
+	public void test_worldsKeepTheirOwnTime() throws Exception {
+		final World a = new World(new PostOffice(), new HCamera(0, 0, 100, 100));
+		final World b = new World(new PostOffice(), new HCamera(0, 0, 100, 100));
+		a.unlockUpdateRate();
+		b.unlockUpdateRate();
+		Mover moverA = new Mover(), moverB = new Mover();
+		a.register(moverA);
+		b.register(moverB);
+
+		// updated at the same time on two threads, as started Worlds are
+		Thread other = new Thread() {
+			public void run() {
+				for(int i = 0; i < 400; i++)
+					b.update();
+			}
+		};
+		other.start();
+		for(int i = 0; i < 200; i++)
+			a.update();
+		other.join();
+
+		assertEquals(200 * 500000000L, a.getSimulatedTime());
+		assertEquals(400 * 500000000L, b.getSimulatedTime());
+		assertEquals(199 * 5, moverA.getX(), 1e-2);
+		assertEquals(399 * 5, moverB.getX(), 1e-2);
+	}
+
+}
@@ -9,6 +9,7 @@ import org.junit.*;
 
 import processing.core.PApplet;
 import processing.core.PGraphics;
+import processing.core.PVector;
 import static org.junit.Assert.*;
 
 
@@ -102,4 +103,240 @@ public class OptimizerTest {
 		elapsed = System.nanoTime() - time;
 		System.out.println("Time for 10000 optimized rectangle collisions: " + elapsed);
 	}
+
+	class RangeInter extends Interactor<OptTestBeing, OptTestBeing> {
+
+		float range;
+		int handles = 0;
+
+		RangeInter(float range) {
+			this.range = range;
+		}
+
+		public boolean detect(OptTestBeing being1, OptTestBeing being2) {
+			return HermesMath.mag2(PVector.sub(being1.getPosition(), being2.getPosition())) <= range * range;
+		}
+
+		public void handle(OptTestBeing being1, OptTestBeing being2) {
+			handles++;
+		}
+
+	}
+
+	private int bruteForce(Group<OptTestBeing> group1, Group<OptTestBeing> group2, RangeInter inter) {
+		int count = 0;
+		for(int i = 0; i < group1.size(); i++) {
+			for(int j = group1 == group2 ? i + 1 : 0; j < group2.size(); j++) {
+				if(inter.detect(group1.get(i), group2.get(j)))
+					count++;
+			}
+		}
+		return count;
+	}
+
+	private void jiggle(Group<OptTestBeing> group, Random r) {
+		for(OptTestBeing being : group.getObjects()) {
+			being.setPosition(being.getX() + r.nextFloat() - 0.5f, being.getY() + r.nextFloat() - 0.5f);
+		}
+	}
+
+	@Test
+	public void test_NeighborListOptimizer() {
+		Random r = new Random(30);
+		World world = new World(new PostOffice(), new HCamera());
+		Group<OptTestBeing> group = new Group<OptTestBeing>(world);
+		for(int i = 0; i < 500; i++) {
+			group.add(new OptTestBeing());
+		}
+		world.update();
+		RangeInter inter = new RangeInter(5);
+		NeighborListOptimizer<OptTestBeing,OptTestBeing> optimizer = new NeighborListOptimizer<OptTestBeing,OptTestBeing>(5, 2);
+		world.register(group, group, inter, optimizer);
+		for(int frame = 0; frame < 50; frame++) {
+			inter.handles = 0;
+			world.update();
+			assertEquals(bruteForce(group, group, inter), inter.handles);
+			jiggle(group, r);
+		}
+		assertTrue(optimizer.getRebuilds() < 50);
+
+		// changing the group forces a rebuild
+		int rebuilds = optimizer.getRebuilds();
+		group.add(new OptTestBeing());
+		inter.handles = 0;
+		world.update();
+		world.update();
+		assertTrue(optimizer.getRebuilds() > rebuilds);
+	}
+
+	@Test
+	public void test_NeighborListOptimizer_twoGroups() {
+		Random r = new Random(31);
+		World world = new World(new PostOffice(), new HCamera());
+		Group<OptTestBeing> group1 = new Group<OptTestBeing>(world);
+		Group<OptTestBeing> group2 = new Group<OptTestBeing>(world);
+		for(int i = 0; i < 200; i++) {
+			group1.add(new OptTestBeing());
+			group2.add(new OptTestBeing());
+		}
+		world.update();
+		RangeInter inter = new RangeInter(8);
+		world.register(group1, group2, inter, new NeighborListOptimizer<OptTestBeing,OptTestBeing>(8, 1));
+		for(int frame = 0; frame < 20; frame++) {
+			inter.handles = 0;
+			world.update();
+			assertEquals(bruteForce(group1, group2, inter), inter.handles);
+			jiggle(group1, r);
+			jiggle(group2, r);
+		}
+	}
+
+	static class BoxBeing extends Being {
+
+		BoxBeing(float x, float y, float size) {
+			super(new HRectangle(new PVector(x, y), new PVector(0, 0), new PVector(size, size)));
+		}
+
+	}
+
+	class CountingCollider extends Collider<BoxBeing, BoxBeing> {
+
+		int detects = 0;
+		int handles = 0;
+
+		public boolean detect(BoxBeing being1, BoxBeing being2) {
+			detects++;
+			return super.detect(being1, being2);
+		}
+
+		public void handle(BoxBeing being1, BoxBeing being2) {
+			handles++;
+		}
+
+	}
+
+	private int countCollisions(Group<BoxBeing> group1, Group<BoxBeing> group2) {
+		int count = 0;
+		for(int i = 0; i < group1.size(); i++) {
+			for(int j = group1 == group2 ? i + 1 : 0; j < group2.size(); j++) {
+				BoxBeing being1 = group1.get(i), being2 = group2.get(j);
+				if(!(being1.isStatic() && being2.isStatic()) && being1.getShape().collide(being2.getShape()))
+					count++;
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void test_StaticIndexOptimizer() {
+		Random r = new Random(33);
+		World world = new World(new PostOffice(), new HCamera());
+		Group<BoxBeing> level = new Group<BoxBeing>(world);
+		level.setStatic(true);
+		for(int x = 0; x < 40; x++) {
+			for(int y = 0; y < 40; y += 4) {
+				level.add(new BoxBeing(x * 10, y * 10, 10));
+			}
+		}
+		Group<BoxBeing> actors = new Group<BoxBeing>(world);
+		for(int i = 0; i < 50; i++) {
+			actors.add(new BoxBeing(r.nextFloat() * 400, r.nextFloat() * 400, 5));
+		}
+		world.update();
+		assertTrue(level.get(0).isStatic());
+		assertFalse(actors.get(0).isStatic());
+
+		// a group against itself, mixing static and dynamic beings
+		Group<BoxBeing> mixed = new Group<BoxBeing>(world);
+		mixed.addAll(level);
+		mixed.addAll(actors);
+		world.update();
+		CountingCollider self = new CountingCollider();
+		CountingCollider cross = new CountingCollider();
+		world.register(mixed, mixed, self, new StaticIndexOptimizer<BoxBeing,BoxBeing>(10));
+		world.register(actors, level, cross, new StaticIndexOptimizer<BoxBeing,BoxBeing>(10));
+		world.update();
+		assertEquals(countCollisions(mixed, mixed), self.handles);
+		assertEquals(countCollisions(actors, level), cross.handles);
+		// far fewer checks than the 50 * 400 pairs
+		assertTrue(cross.detects < 1000);
+
+		// adding a static being is picked up
+		BoxBeing block = new BoxBeing(actors.get(0).getX(), actors.get(0).getY(), 3);
+		level.add(block);
+		world.update();
+		cross.handles = 0;
+		world.update();
+		assertEquals(countCollisions(actors, level), cross.handles);
+	}
+
+	@Test
+	public void test_StaticIndexOptimizerMargin() {
+		World world = new World(new PostOffice(), new HCamera());
+		Group<OptTestBeing> dynamic = new Group<OptTestBeing>(world);
+		Group<OptTestBeing> statics = new Group<OptTestBeing>(world);
+		statics.setStatic(true);
+		for(int i = 0; i < 100; i++) {
+			dynamic.add(new OptTestBeing());
+			statics.add(new OptTestBeing());
+		}
+		world.update();
+		RangeInter inter = new RangeInter(8);
+		world.register(dynamic, statics, inter, new StaticIndexOptimizer<OptTestBeing,OptTestBeing>(4, 8));
+		world.update();
+		// pairs up to the range apart are found, not only overlapping ones
+		int expected = bruteForce(dynamic, statics, inter);
+		assertTrue(expected > 0);
+		assertEquals(expected, inter.handles);
+	}
+
+	@Test
+	public void test_staticFromGroups() {
+		World world = new World(new PostOffice(), new HCamera());
+		Group<BoxBeing> level = new Group<BoxBeing>(world);
+		level.setStatic(true);
+		Group<BoxBeing> all = new Group<BoxBeing>(world);
+		BoxBeing box = new BoxBeing(0, 0, 5);
+		all.add(box);
+		world.update();
+		int modifications = all.getModifications();
+		
+		// joining a static group makes it static, and its other groups see the change
+		level.add(box);
+		world.update();
+		assertTrue(box.isStatic());
+		assertTrue(all.getModifications() > modifications);
+		
+		// leaving it, or the group no longer being static, makes it dynamic again
+		level.remove(box);
+		world.update();
+		assertFalse(box.isStatic());
+		level.add(box);
+		world.update();
+		level.setStatic(false);
+		assertFalse(box.isStatic());
+		
+		// unless it was set itself
+		level.setStatic(true);
+		box.setStatic(true);
+		level.remove(box);
+		world.update();
+		assertTrue(box.isStatic());
+	}
+
+	@Test
+	public void test_staticPairsSkipped() {
+		World world = new World(new PostOffice(), new HCamera());
+		Group<BoxBeing> group = new Group<BoxBeing>(world);
+		for(int i = 0; i < 10; i++) {
+			group.add(new BoxBeing(i, 0, 5));
+		}
+		world.update();
+		group.get(0).setStatic(true);
+		group.get(1).setStatic(true);
+		CountingCollider collider = new CountingCollider();
+		world.register(group, group, collider);
+		world.update();
+		assertEquals(45 - 1, collider.detects);
+	}
 }
@@ -0,0 +1,212 @@
+package hermesTest.core;
+
+import static org.junit.Assert.*;
+
+import hermes.*;
+import hermes.hshape.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.*;
+
+import processing.core.PApplet;
+import processing.core.PGraphics;
+import processing.core.PVector;
+
+public class WorldQueryTest {
+
+	World w;
+	ArrayList<Being> beings;
+	
+	/**
+	 * Collects the beings visited, stopping after limit of them.
+	 */
+	class Collector implements BeingVisitor, RayVisitor {
+		ArrayList<Being> found = new ArrayList<Being>();
+		ArrayList<Float> distances = new ArrayList<Float>();
+		int limit = Integer.MAX_VALUE;
+		
+		public boolean visit(Being being) {
+			found.add(being);
+			return found.size() < limit;
+		}
+		
+		public boolean visit(Being being, float distance) {
+			distances.add(distance);
+			return visit(being);
+		}
+	}
+	
+	@Before
+	public void setup() {
+		PApplet applet = new PApplet();
+		applet.g = new PGraphics();
+		Hermes.setPApplet(applet);
+		
+		w = new World();
+		w.setQueryCellSize(20);
+		beings = new ArrayList<Being>();
+		// circles of radius 4 scattered over a 400x400 area
+		Random random = new Random(7);
+		for(int i = 0; i < 200; i++) {
+			Being being = new Being(new HCircle(new PVector(random.nextFloat() * 400, random.nextFloat() * 400), 4)) {};
+			beings.add(being);
+			w.register(being);
+		}
+		w.resolveGroupQueues();
+	}
+	
+	private static boolean overlaps(Being being, float minX, float minY, float maxX, float maxY) {
+		HRectangle box = being.getBoundingBox();
+		return box.getAbsMin().x <= maxX && box.getAbsMax().x >= minX
+				&& box.getAbsMin().y <= maxY && box.getAbsMax().y >= minY;
+	}
+	
+	@Test
+	public void test_queryRect() {
+		Collector c = new Collector();
+		w.queryRect(50, 80, 120, 60, c);
+		int expected = 0;
+		for(Being being : beings) {
+			if(overlaps(being, 50, 80, 170, 140)) {
+				expected++;
+				assertTrue(c.found.contains(being));
+			}
+		}
+		assertTrue(expected > 0);
+		assertEquals(expected, c.found.size());
+		
+		// stopping early
+		c = new Collector();
+		c.limit = 2;
+		w.queryRect(0, 0, 400, 400, c);
+		assertEquals(2, c.found.size());
+	}
+	
+	@Test
+	public void test_queryCircle() {
+		Collector c = new Collector();
+		w.queryCircle(200, 200, 60, c);
+		int expected = 0;
+		for(Being being : beings) {
+			if(PVector.dist(being.getPosition(), new PVector(200,200)) < 60) {
+				expected++;
+				assertTrue(c.found.contains(being));
+			}
+		}
+		assertTrue(expected > 0);
+		// boxes are tested, so some beings just outside may be found too
+		assertTrue(c.found.size() >= expected);
+		for(Being being : c.found)
+			assertTrue(PVector.dist(being.getPosition(), new PVector(200,200)) < 60 + 4 * Math.sqrt(2) + 1e-3);
+	}
+	
+	@Test
+	public void test_queryPoint() {
+		Being target = beings.get(10);
+		Collector c = new Collector();
+		w.queryPoint(target.getX() + 1, target.getY() - 1, c);
+		assertTrue(c.found.contains(target));
+		for(Being being : c.found)
+			assertTrue(being.getShape().contains(target.getX() + 1, target.getY() - 1));
+		
+		// a point in a box's corner, but outside the circle
+		c = new Collector();
+		w.queryPoint(-3.5f + target.getX(), -3.5f + target.getY(), c);
+		assertFalse(c.found.contains(target));
+	}
+	
+	/**
+	 * The distance from a point to the nearest point of a being's bounding box.
+	 */
+	private static float boxDistance(Being being, PVector point) {
+		HRectangle box = being.getBoundingBox();
+		float dx = Math.max(Math.max(box.getAbsMin().x - point.x, point.x - box.getAbsMax().x), 0);
+		float dy = Math.max(Math.max(box.getAbsMin().y - point.y, point.y - box.getAbsMax().y), 0);
+		return (float)Math.sqrt(dx * dx + dy * dy);
+	}
+	
+	@Test
+	public void test_nearest() {
+		float[][] points = {{200, 200}, {3, 397}, {-500, 1000}};
+		for(float[] p : points) {
+			Collector c = new Collector();
+			w.nearest(p[0], p[1], 5, c);
+			assertEquals(5, c.found.size());
+			
+			// compare with sorting by distance
+			ArrayList<Being> sorted = new ArrayList<Being>(beings);
+			final PVector point = new PVector(p[0], p[1]);
+			java.util.Collections.sort(sorted, new java.util.Comparator<Being>() {
+				public int compare(Being a, Being b) {
+					return Float.compare(boxDistance(a, point), boxDistance(b, point));
+				}
+			});
+			for(int i = 0; i < 5; i++)
+				assertEquals(boxDistance(sorted.get(i), point), boxDistance(c.found.get(i), point), 1e-4);
+			assertEquals(boxDistance(sorted.get(0), point), boxDistance(w.nearest(p[0], p[1]), point), 1e-4);
+		}
+		
+		// more than there are
+		Collector c = new Collector();
+		w.nearest(0, 0, 500, c);
+		assertEquals(200, c.found.size());
+	}
+	
+	@Test
+	public void test_nearestOffsetShape() {
+		// a circle far from its being's position, which is right next to the point
+		Being offset = new Being(new HCircle(new PVector(600, 600), new PVector(200, 0), 4)) {};
+		Being near = new Being(new HCircle(new PVector(700, 620), 4)) {};
+		w.register(offset);
+		w.register(near);
+		w.resolveGroupQueues();
+		w.update();
+		assertSame(near, w.nearest(700, 600));
+		assertSame(offset, w.nearest(800, 600));
+	}
+	
+	@Test
+	public void test_raycast() {
+		// every being hit, in order, with the same distances as the shapes give
+		Collector c = new Collector();
+		w.raycast(-10, 10, 1, 0.9f, 1000, c);
+		float length = (float)Math.sqrt(1 + 0.9f * 0.9f);
+		float dx = 1 / length, dy = 0.9f / length;
+		int expected = 0;
+		for(Being being : beings) {
+			float hit = being.getShape().raycast(-10, 10, dx, dy, 1000);
+			if(hit >= 0) {
+				expected++;
+				assertEquals(hit, c.distances.get(c.found.indexOf(being)), 1e-3);
+			}
+		}
+		assertTrue(expected > 0);
+		assertEquals(expected, c.found.size());
+		for(int i = 1; i < c.distances.size(); i++)
+			assertTrue(c.distances.get(i - 1) <= c.distances.get(i));
+		
+		// the first hit, and a ray that misses everything
+		assertSame(c.found.get(0), w.raycast(-10, 10, 1, 0.9f, 1000));
+		assertNull(w.raycast(-10, 10, -1, 0, 1000));
+		assertNull(w.raycast(-10, 10, 1, 0.9f, c.distances.get(0) - 1));
+	}
+	
+	@Test
+	public void test_indexFollowsUpdates() {
+		Being target = beings.get(0);
+		Collector c = new Collector();
+		w.queryPoint(1000, 1000, c);
+		assertEquals(0, c.found.size());
+		
+		// moved beings are found in their new place after the next update
+		target.setPosition(1000, 1000);
+		w.unlockUpdateRate();
+		w.update();
+		w.queryPoint(1000, 1000, c);
+		assertEquals(1, c.found.size());
+		assertSame(target, c.found.get(0));
+	}
+	
+}
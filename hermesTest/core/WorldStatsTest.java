@@ -0,0 +1,160 @@
+package hermesTest.core;
+
+import static hermes.HermesMath.*;
+import static org.junit.Assert.*;
+
+import hermes.Being;
+import hermes.Group;
+import hermes.HCamera;
+import hermes.Hermes;
+import hermes.Interactor;
+import hermes.World;
+import hermes.WorldStats;
+import hermes.WorldStats.Metric;
+import hermes.hshape.HRectangle;
+import hermes.postoffice.PostOffice;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the statistics a World keeps about its updates.
+ */
+public class WorldStatsTest {
+
+	static class Box extends Being {
+		Box(float x) {
+			super(new HRectangle(makeVector(x, 0), zeroVector(), makeVector(1, 1)));
+		}
+	}
+
+	/**
+	 * Detects every pair whose first being is left of the second.
+	 */
+	static class LeftOf extends Interactor<Box, Box> {
+		LeftOf(boolean immediate) {
+			super(immediate, false);
+		}
+
+		public boolean detect(Box being1, Box being2) {
+			return being1.getX() < being2.getX();
+		}
+
+		public void handle(Box being1, Box being2) {}
+	}
+
+	World _world;
+
+	@Before
+	public void setUp() {
+		Hermes.setPApplet(null);
+		_world = new World(new PostOffice(), new HCamera(0, 0, 100, 100));
+		_world.unlockUpdateRate();
+		Group<Box> group = new Group<Box>(_world);
+		for(int i = 0; i < 4; i++)
+			group.add(new Box(i * 10));
+		_world.register(group, group, new LeftOf(true));
+		_world.register(group, group, new LeftOf(false));
+	}
+
+	@After
+	public void tearDown() {
+		_world.setStatsEnabled(false); // unregisters them from JMX
+	}
+
+	@Test
+	public void test_counts() {
+		assertNull(_world.getStats());
+		_world.setStatsEnabled(true);
+		WorldStats stats = _world.getStats();
+		_world.update();
+		assertEquals(1, stats.getUpdates());
+		// the boxes, and the camera's three groups
+		assertEquals(7, stats.getLast(Metric.QUEUED_CHANGES));
+
+		_world.update();
+		assertEquals(0, stats.getLast(Metric.QUEUED_CHANGES));
+		// each interaction tests the 6 pairs of boxes once, and detects them all; the camera is tested against itself
+		assertEquals(13, stats.getLast(Metric.PAIRS_TESTED));
+		assertEquals(12, stats.getLast(Metric.HITS));
+		assertEquals(6, stats.getLast(Metric.DEFERRED));
+		assertEquals(0, stats.getLast(Metric.MULTISAMPLE_ROUNDS));
+		assertTrue(stats.getLast(Metric.UPDATE) > 0);
+		assertTrue(stats.getLast(Metric.UPDATE) >= stats.getLast(Metric.DETECT));
+		assertEquals(2, stats.getUpdates());
+		assertEquals(13, stats.getMean(Metric.PAIRS_TESTED), 1e-9);
+		assertEquals(13, stats.getMax(Metric.PAIRS_TESTED));
+		assertEquals(3.5, stats.getMean(Metric.QUEUED_CHANGES), 1e-9);
+		assertEquals(0, stats.getPercentile(Metric.QUEUED_CHANGES, 0));
+
+		// 0 in bucket 0, 7 in bucket 3 (4 to 7)
+		int[] histogram = stats.getHistogram(Metric.QUEUED_CHANGES);
+		assertEquals(4, histogram.length);
+		assertEquals(1, histogram[0]);
+		assertEquals(1, histogram[3]);
+	}
+
+	@Test
+	public void test_window() {
+		_world.setStatsEnabled(true);
+		for(int i = 0; i < WorldStats.DEFAULT_WINDOW + 1; i++)
+			_world.update();
+		WorldStats stats = _world.getStats();
+		assertEquals(WorldStats.DEFAULT_WINDOW + 1, stats.getUpdates());
+		// the first update, with the queued changes, has left the window
+		assertEquals(0, stats.getMax(Metric.QUEUED_CHANGES));
+		assertEquals(13, stats.getPercentile(Metric.PAIRS_TESTED, 0.5));
+	}
+
+	@Test
+	public void test_jmx() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("hermes:type=World,name=" + ObjectName.quote(_world.getName()));
+		assertFalse(server.isRegistered(name));
+
+		_world.setStatsEnabled(true);
+		assertTrue(server.isRegistered(name));
+		_world.update();
+		_world.update();
+		assertEquals(2L, server.getAttribute(name, "Updates"));
+		Map<String, Double> last = _world.getStats().getLast();
+		assertEquals(13.0, last.get("PAIRS_TESTED"), 1e-9);
+		assertNotNull(server.getAttribute(name, "P99"));
+		// the histograms are a table of arrays keyed by the metric's name
+		TabularData histograms = (TabularData)server.getAttribute(name, "Histogram");
+		int[] histogram = (int[])histograms.get(new Object[] {"QUEUED_CHANGES"}).get("value");
+		assertArrayEquals(new int[] {1, 0, 0, 1}, histogram);
+
+		_world.setStatsEnabled(false);
+		assertNull(_world.getStats());
+		assertFalse(server.isRegistered(name));
+	}
+
+	@Test
+	public void test_sameName() throws Exception {
+		World other = new World(new PostOffice(), new HCamera(0, 0, 100, 100));
+		other.setName(_world.getName());
+		_world.setStatsEnabled(true);
+		other.setStatsEnabled(true);
+		// only one can be registered with JMX, but both keep statistics
+		assertNotNull(other.getStats());
+		other.unlockUpdateRate();
+		other.update();
+		assertEquals(1, other.getStats().getUpdates());
+
+		// disabling the unregistered one leaves the other registered
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("hermes:type=World,name=" + ObjectName.quote(_world.getName()));
+		other.setStatsEnabled(false);
+		assertTrue(server.isRegistered(name));
+	}
+
+}
@@ -0,0 +1,108 @@
+package hermesTest.physicsTest;
+
+import hermes.GenericGroup;
+import hermes.hshape.HCircle;
+import hermes.physics.BarnesHutOptimizer;
+import hermes.physics.GravityInteractor;
+import hermes.physics.MassedBeing;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.*;
+
+import static hermes.HermesMath.*;
+import static org.junit.Assert.*;
+import processing.core.PVector;
+
+public class BarnesHutOptimizerTest {
+
+	public class TestBeing extends MassedBeing {
+
+		public TestBeing(PVector position, float mass) {
+			super(new HCircle(position, 1), zeroVector(), mass, 1);
+		}
+
+		public void draw() {}
+
+	}
+
+	static final int N = 400;
+
+	ArrayList<TestBeing> exact, approx;
+	GravityInteractor inter;
+
+	@Before
+	public void setup() {
+		Random r = new Random(26);
+		exact = new ArrayList<TestBeing>();
+		approx = new ArrayList<TestBeing>();
+		for(int i = 0; i < N; i++) {
+			float x = r.nextFloat() * 1000;
+			float y = r.nextFloat() * 1000;
+			float mass = 1 + r.nextFloat() * 4;
+			exact.add(new TestBeing(makeVector(x, y), mass));
+			approx.add(new TestBeing(makeVector(x, y), mass));
+		}
+		inter = new GravityInteractor(1);
+		// exact pairwise forces
+		for(int i = 0; i < N; i++) {
+			for(int j = i + 1; j < N; j++) {
+				inter.handle(exact.get(i), exact.get(j));
+			}
+		}
+	}
+
+	/**
+	 * Mean relative error of the approximated forces against the exact pairwise forces.
+	 */
+	double meanError() {
+		double total = 0;
+		for(int i = 0; i < N; i++) {
+			PVector expected = exact.get(i).getForce();
+			PVector error = PVector.sub(approx.get(i).getForce(), expected);
+			total += error.mag() / expected.mag();
+		}
+		return total / N;
+	}
+
+	@Test
+	public void test_thetaZeroIsExact() {
+		GenericGroup<TestBeing, ArrayList<TestBeing>> group = new GenericGroup<TestBeing, ArrayList<TestBeing>>(approx, null);
+		new BarnesHutOptimizer<TestBeing>(inter, 0).detect(group, group, null);
+		assertEquals(0, meanError(), 1e-4);
+	}
+
+	@Test
+	public void test_accuracy() {
+		GenericGroup<TestBeing, ArrayList<TestBeing>> group = new GenericGroup<TestBeing, ArrayList<TestBeing>>(approx, null);
+		new BarnesHutOptimizer<TestBeing>(inter, 0.5f).detect(group, group, null);
+		assertTrue(meanError() < 0.02);
+	}
+
+	@Test
+	public void test_twoGroups() {
+		ArrayList<TestBeing> first = new ArrayList<TestBeing>(approx.subList(0, N / 2));
+		ArrayList<TestBeing> second = new ArrayList<TestBeing>(approx.subList(N / 2, N));
+		GenericGroup<TestBeing, ArrayList<TestBeing>> group1 = new GenericGroup<TestBeing, ArrayList<TestBeing>>(first, null);
+		GenericGroup<TestBeing, ArrayList<TestBeing>> group2 = new GenericGroup<TestBeing, ArrayList<TestBeing>>(second, null);
+		BarnesHutOptimizer<TestBeing> optimizer = new BarnesHutOptimizer<TestBeing>(inter, 0.5f);
+		optimizer.detect(group1, group1, null);
+		optimizer.detect(group2, group2, null);
+		optimizer.detect(group1, group2, null);
+		assertTrue(meanError() < 0.02);
+	}
+
+	@Test
+	public void test_coincidentBeings() {
+		ArrayList<TestBeing> beings = new ArrayList<TestBeing>();
+		beings.add(new TestBeing(makeVector(5, 5), 1));
+		beings.add(new TestBeing(makeVector(5, 5), 1));
+		beings.add(new TestBeing(makeVector(6, 5), 1));
+		GenericGroup<TestBeing, ArrayList<TestBeing>> group = new GenericGroup<TestBeing, ArrayList<TestBeing>>(beings, null);
+		new BarnesHutOptimizer<TestBeing>(inter).detect(group, group, null);
+		assertEquals(1, beings.get(0).getForce().x, 1e-5);
+		assertEquals(-2, beings.get(2).getForce().x, 1e-5);
+	}
+
+}
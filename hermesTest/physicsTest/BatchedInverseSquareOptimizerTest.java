@@ -0,0 +1,85 @@
+package hermesTest.physicsTest;
+
+import hermes.GenericGroup;
+import hermes.hshape.HCircle;
+import hermes.physics.BatchedInverseSquareOptimizer;
+import hermes.physics.GravityInteractor;
+import hermes.physics.MassedBeing;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.*;
+
+import static hermes.HermesMath.*;
+import static org.junit.Assert.*;
+import processing.core.PVector;
+
+public class BatchedInverseSquareOptimizerTest {
+
+	public class TestBeing extends MassedBeing {
+
+		public TestBeing(PVector position, float mass) {
+			super(new HCircle(position, 1), zeroVector(), mass, 1);
+		}
+
+		public void draw() {}
+
+	}
+
+	static final int N = 100;
+
+	ArrayList<TestBeing> exact, batched;
+	GravityInteractor inter;
+
+	@Before
+	public void setup() {
+		Random r = new Random(28);
+		exact = new ArrayList<TestBeing>();
+		batched = new ArrayList<TestBeing>();
+		for(int i = 0; i < N; i++) {
+			float x = r.nextFloat() * 100;
+			float y = r.nextFloat() * 100;
+			float mass = 1 + r.nextFloat() * 4;
+			exact.add(new TestBeing(makeVector(x, y), mass));
+			batched.add(new TestBeing(makeVector(x, y), mass));
+		}
+		inter = new GravityInteractor(1, 50);
+		for(int i = 0; i < N; i++) {
+			for(int j = i + 1; j < N; j++) {
+				if(inter.detect(exact.get(i), exact.get(j)))
+					inter.handle(exact.get(i), exact.get(j));
+			}
+		}
+	}
+
+	void assertMatches() {
+		for(int i = 0; i < N; i++) {
+			PVector expected = exact.get(i).getForce();
+			PVector actual = batched.get(i).getForce();
+			assertEquals(expected.x, actual.x, 1e-4 * expected.mag());
+			assertEquals(expected.y, actual.y, 1e-4 * expected.mag());
+		}
+	}
+
+	@Test
+	public void test_sameGroup() {
+		GenericGroup<TestBeing, ArrayList<TestBeing>> group = new GenericGroup<TestBeing, ArrayList<TestBeing>>(batched, null);
+		new BatchedInverseSquareOptimizer<TestBeing>(inter).detect(group, group, null);
+		assertMatches();
+	}
+
+	@Test
+	public void test_twoGroups() {
+		GenericGroup<TestBeing, ArrayList<TestBeing>> group1 = new GenericGroup<TestBeing, ArrayList<TestBeing>>(
+				new ArrayList<TestBeing>(batched.subList(0, N / 2)), null);
+		GenericGroup<TestBeing, ArrayList<TestBeing>> group2 = new GenericGroup<TestBeing, ArrayList<TestBeing>>(
+				new ArrayList<TestBeing>(batched.subList(N / 2, N)), null);
+		BatchedInverseSquareOptimizer<TestBeing> optimizer = new BatchedInverseSquareOptimizer<TestBeing>(inter);
+		optimizer.detect(group1, group1, null);
+		optimizer.detect(group2, group2, null);
+		optimizer.detect(group1, group2, null);
+		assertMatches();
+	}
+
+}
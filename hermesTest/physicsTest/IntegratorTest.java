@@ -0,0 +1,161 @@
+package hermesTest.physicsTest;
+
+import hermes.Group;
+import hermes.HCamera;
+import hermes.Hermes;
+import hermes.Integrator;
+import hermes.World;
+import hermes.hshape.HCircle;
+import hermes.physics.MassedBeing;
+import hermes.physics.RK4Integrator;
+import hermes.physics.SemiImplicitEulerIntegrator;
+import hermes.physics.VelocityVerletIntegrator;
+import hermes.postoffice.PostOffice;
+
+import org.junit.*;
+
+import static hermes.HermesMath.*;
+import static org.junit.Assert.*;
+import processing.core.PApplet;
+import processing.core.PGraphics;
+import processing.core.PVector;
+
+public class IntegratorTest {
+
+	/**
+	 * A unit mass on a unit spring anchored at the origin, period 2 pi.
+	 */
+	public class SpringBeing extends MassedBeing {
+
+		public SpringBeing() {
+			super(new HCircle(makeVector(1, 0), 1), zeroVector(), 1, 1);
+		}
+
+		protected void acceleration(PVector position, PVector velocity, PVector result) {
+			super.acceleration(position, velocity, result);
+			result.x -= position.x;
+			result.y -= position.y;
+		}
+
+		public void draw() {}
+
+		float energy() {
+			return (mag2(getPosition()) + mag2(getVelocity())) / 2;
+		}
+
+	}
+
+	static final double DT = 0.1;
+
+	/**
+	 * Runs the spring for the given time, returning the largest energy error seen.
+	 */
+	float run(SpringBeing being, Integrator integrator, double time) {
+		float maxError = 0;
+		for(int i = 0; i < (int)Math.round(time / DT); i++) {
+			integrator.integrate(being, DT);
+			maxError = Math.max(maxError, Math.abs(being.energy() - 0.5f));
+		}
+		return maxError;
+	}
+
+	@Test
+	public void test_semiImplicitEuler() {
+		SpringBeing being = new SpringBeing();
+		float error = run(being, new SemiImplicitEulerIntegrator(), 1000);
+		// symplectic, so the energy error stays bounded at O(dt)
+		assertTrue(error < 0.05);
+	}
+
+	@Test
+	public void test_velocityVerlet() {
+		SpringBeing being = new SpringBeing();
+		VelocityVerletIntegrator integrator = new VelocityVerletIntegrator();
+		// the velocity lags by half a step, so check the position after one period
+		run(being, integrator, 2 * Math.PI);
+		assertEquals(1, being.getX(), 0.05);
+		assertEquals(0, being.getY(), 1e-6);
+		// and the energy stays bounded over a long run
+		float maxX = 0;
+		for(int i = 0; i < 10000; i++) {
+			integrator.integrate(being, DT);
+			maxX = Math.max(maxX, Math.abs(being.getX()));
+		}
+		assertEquals(1, maxX, 0.05);
+	}
+
+	@Test
+	public void test_RK4() {
+		SpringBeing being = new SpringBeing();
+		run(being, new RK4Integrator(), 2 * Math.PI);
+		assertEquals(Math.cos(Math.round(2 * Math.PI / DT) * DT), being.getX(), 1e-4);
+		assertEquals(-Math.sin(Math.round(2 * Math.PI / DT) * DT), being.getVelocityX(), 1e-4);
+	}
+
+	@Test
+	public void test_constantForce() {
+		// with only interaction forces, every integrator moves a being exactly under constant acceleration
+		Integrator[] integrators = { new SemiImplicitEulerIntegrator(), new RK4Integrator() };
+		for(Integrator integrator : integrators) {
+			MassedBeing being = new MassedBeing(new HCircle(zeroVector(), 1), makeVector(1, 0), 2, 1) {};
+			being.addForce(makeVector(0, 4));
+			integrator.integrate(being, 0.5);
+			assertEquals(0.5, being.getX(), 1e-6);
+			assertEquals(1, being.getVelocityY(), 1e-6);
+		}
+	}
+
+	@Test
+	public void test_selection() {
+		PApplet applet = new PApplet();
+		applet.g = new PGraphics();
+		Hermes.setPApplet(applet);
+		World world = new World(new PostOffice(), new HCamera());
+		Group<SpringBeing> group = new Group<SpringBeing>(world);
+		SpringBeing being = new SpringBeing();
+		group.add(being);
+		world.resolveGroupQueues();
+		assertNull(being.getIntegrator());
+
+		Integrator worldIntegrator = new RK4Integrator();
+		world.setIntegrator(worldIntegrator);
+		assertSame(worldIntegrator, being.getIntegrator());
+
+		Integrator groupIntegrator = new VelocityVerletIntegrator();
+		group.setIntegrator(groupIntegrator);
+		assertSame(groupIntegrator, being.getIntegrator());
+
+		Integrator beingIntegrator = new SemiImplicitEulerIntegrator();
+		being.setIntegrator(beingIntegrator);
+		assertSame(beingIntegrator, being.getIntegrator());
+	}
+
+	@Test
+	public void test_selectionCached() {
+		Hermes.setPApplet(null);
+		World world = new World(new PostOffice(), new HCamera(0, 0, 100, 100));
+		Group<SpringBeing> group = new Group<SpringBeing>(world);
+		SpringBeing being = new SpringBeing();
+		group.add(being);
+		world.resolveGroupQueues();
+		Integrator worldIntegrator = new RK4Integrator();
+		world.setIntegrator(worldIntegrator);
+		assertSame(worldIntegrator, being.getIntegrator());
+
+		// leaving or joining a group with an integrator is seen
+		Group<SpringBeing> other = new Group<SpringBeing>(world);
+		Integrator groupIntegrator = new VelocityVerletIntegrator();
+		other.setIntegrator(groupIntegrator);
+		other.add(being);
+		world.resolveGroupQueues();
+		assertSame(groupIntegrator, being.getIntegrator());
+		other.remove(being);
+		world.resolveGroupQueues();
+		assertSame(worldIntegrator, being.getIntegrator());
+
+		// as is changing the world's
+		world.setIntegrator(null);
+		assertNull(being.getIntegrator());
+	}
+
+}
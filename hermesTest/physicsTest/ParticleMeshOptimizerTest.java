@@ -0,0 +1,93 @@
+package hermesTest.physicsTest;
+
+import hermes.Group;
+import hermes.HCamera;
+import hermes.Hermes;
+import hermes.World;
+import hermes.hshape.HCircle;
+import hermes.physics.GravityInteractor;
+import hermes.physics.MassedBeing;
+import hermes.physics.ParticleMeshOptimizer;
+import hermes.postoffice.PostOffice;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.*;
+
+import static hermes.HermesMath.*;
+import static org.junit.Assert.*;
+import processing.core.PApplet;
+import processing.core.PGraphics;
+import processing.core.PVector;
+
+public class ParticleMeshOptimizerTest {
+
+	public class TestBeing extends MassedBeing {
+
+		public TestBeing(PVector position, float mass) {
+			super(new HCircle(position, 1), zeroVector(), mass, 1);
+		}
+
+		public void draw() {}
+
+	}
+
+	static final int N = 400;
+
+	@Before
+	public void setup() {
+		PApplet applet = new PApplet();
+		applet.g = new PGraphics();
+		Hermes.setPApplet(applet);
+	}
+
+	@Test
+	public void test_accuracy() {
+		Random r = new Random(27);
+		World world = new World(new PostOffice(), new HCamera());
+		Group<TestBeing> group = new Group<TestBeing>(world);
+		ArrayList<TestBeing> exact = new ArrayList<TestBeing>();
+		for(int i = 0; i < N; i++) {
+			float x = r.nextFloat() * 1000;
+			float y = r.nextFloat() * 1000;
+			float mass = 1 + r.nextFloat() * 4;
+			exact.add(new TestBeing(makeVector(x, y), mass));
+			group.add(new TestBeing(makeVector(x, y), mass));
+		}
+		world.update();
+
+		GravityInteractor inter = new GravityInteractor(1);
+		for(int i = 0; i < N; i++) {
+			for(int j = i + 1; j < N; j++) {
+				inter.handle(exact.get(i), exact.get(j));
+			}
+		}
+		world.register(group, group, inter, new ParticleMeshOptimizer<TestBeing>(inter, 128, 4));
+		world.update();
+
+		double total = 0;
+		for(int i = 0; i < N; i++) {
+			PVector expected = exact.get(i).getForce();
+			PVector error = PVector.sub(group.get(i).getForce(), expected);
+			total += error.mag() / expected.mag();
+		}
+		assertTrue(total / N < 0.02);
+	}
+
+	@Test
+	public void test_closePairsAreExact() {
+		World world = new World(new PostOffice(), new HCamera());
+		Group<TestBeing> group = new Group<TestBeing>(world);
+		group.add(new TestBeing(makeVector(0, 0), 1));
+		group.add(new TestBeing(makeVector(1, 0), 1));
+		group.add(new TestBeing(makeVector(1000, 1000), 1));
+		world.update();
+		GravityInteractor inter = new GravityInteractor(1);
+		world.register(group, group, inter, new ParticleMeshOptimizer<TestBeing>(inter));
+		world.update();
+		assertEquals(1, group.get(0).getForce().x, 1e-3);
+		assertEquals(-1, group.get(1).getForce().x, 1e-3);
+	}
+
+}
@@ -0,0 +1,92 @@
+package hermesTest.physicsTest;
+
+import static org.junit.Assert.*;
+
+import hermes.physics.simd.VectorForceKernel;
+
+import java.util.Random;
+
+import org.junit.*;
+
+/**
+ * Tests the SIMD force kernel against the force computed one pair at a time. Needs Java 16 or later,
+ * 	run with <code>--add-modules jdk.incubator.vector</code>.
+ */
+public class VectorForceKernelTest {
+
+	static final int N = 37; // not a multiple of any vector length, so the leftover beings are tested too
+	static final float K = 2;
+	static final float RANGE_SQUARED = 40 * 40;
+
+	float[] x, y, q;
+
+	@Before
+	public void setup() {
+		Random r = new Random(28);
+		x = new float[N];
+		y = new float[N];
+		q = new float[N];
+		for(int i = 0; i < N; i++) {
+			x[i] = r.nextFloat() * 100;
+			y[i] = r.nextFloat() * 100;
+			q[i] = 1 + r.nextFloat() * 4;
+		}
+		x[5] = x[4]; // two at the same position, which don't interact
+		y[5] = y[4];
+	}
+
+	/**
+	 * The x and y force on being i from being j, or zero if they don't interact.
+	 */
+	double[] force(float[] x1, float[] y1, float[] q1, int i, float[] x2, float[] y2, float[] q2, int j) {
+		double dx = x1[i] - x2[j];
+		double dy = y1[i] - y2[j];
+		double d_squared = dx*dx + dy*dy;
+		if(d_squared == 0 || d_squared > RANGE_SQUARED)
+			return new double[] { 0, 0 };
+		double F = K * q1[i] * q2[j] / (d_squared * Math.sqrt(d_squared));
+		return new double[] { F * dx, F * dy };
+	}
+
+	@Test
+	public void test_self() {
+		float[] fx = new float[N];
+		float[] fy = new float[N];
+		new VectorForceKernel().accumulate(K, RANGE_SQUARED, x, y, q, N, fx, fy);
+		for(int i = 0; i < N; i++) {
+			double ex = 0, ey = 0;
+			for(int j = 0; j < N; j++) {
+				double[] f = force(x, y, q, i, x, y, q, j);
+				ex += f[0];
+				ey += f[1];
+			}
+			assertEquals(ex, fx[i], 1e-4);
+			assertEquals(ey, fy[i], 1e-4);
+		}
+	}
+
+	@Test
+	public void test_groups() {
+		int n1 = 11;
+		int n2 = N - n1;
+		float[] x2 = new float[n2], y2 = new float[n2], q2 = new float[n2];
+		System.arraycopy(x, n1, x2, 0, n2);
+		System.arraycopy(y, n1, y2, 0, n2);
+		System.arraycopy(q, n1, q2, 0, n2);
+		float[] fx1 = new float[n1], fy1 = new float[n1], fx2 = new float[n2], fy2 = new float[n2];
+		new VectorForceKernel().accumulate(K, RANGE_SQUARED, x, y, q, n1, x2, y2, q2, n2, fx1, fy1, fx2, fy2);
+		for(int i = 0; i < n1; i++) {
+			double ex = 0;
+			for(int j = 0; j < n2; j++)
+				ex += force(x, y, q, i, x2, y2, q2, j)[0];
+			assertEquals(ex, fx1[i], 1e-4);
+		}
+		for(int j = 0; j < n2; j++) {
+			double ey = 0;
+			for(int i = 0; i < n1; i++)
+				ey += force(x2, y2, q2, j, x, y, q, i)[1];
+			assertEquals(ey, fy2[j], 1e-4);
+		}
+	}
+
+}
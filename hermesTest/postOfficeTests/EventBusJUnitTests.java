@@ -0,0 +1,161 @@
+package hermesTest.postOfficeTests;
+
+import static org.junit.Assert.*;
+import hermes.Being;
+import hermes.Hermes;
+import hermes.World;
+import hermes.hshape.HCircle;
+import hermes.postoffice.EventSubscriber;
+import hermes.postoffice.Message;
+import hermes.postoffice.PostOffice;
+
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import processing.core.PApplet;
+import processing.core.PGraphics;
+import processing.core.PVector;
+
+/**
+ * Tests posting events between objects.
+ */
+public class EventBusJUnitTests {
+
+	PostOffice _po;
+
+	public static class Hit implements Message {
+		int damage;
+	}
+
+	public static class Scored implements Message {
+		int points;
+	}
+
+	/**
+	 * Records the events it receives, and the order it received them in.
+	 */
+	class Recorder implements EventSubscriber<Message> {
+		ArrayList<String> log;
+		String name;
+
+		Recorder(String name, ArrayList<String> log) {
+			this.name = name;
+			this.log = log;
+		}
+
+		public void receive(Message event) {
+			if(event instanceof Hit)
+				log.add(name + " hit " + ((Hit)event).damage);
+			else
+				log.add(name + " scored " + ((Scored)event).points);
+		}
+	}
+
+	class Target extends Being implements EventSubscriber<Hit> {
+		int received = 0;
+
+		Target() {
+			super(new HCircle(new PVector(0, 0), 1));
+		}
+
+		public void receive(Hit event) {
+			received++;
+		}
+
+		public void draw() {}
+	}
+
+	@Before
+	public void setUp() {
+		PApplet applet = new PApplet();
+		applet.g = new PGraphics();
+		Hermes.setPApplet(applet);
+		_po = new PostOffice();
+	}
+
+	private void post(int damage) {
+		Hit hit = _po.obtainEvent(Hit.class);
+		hit.damage = damage;
+		_po.post(hit);
+	}
+
+	@Test
+	public void test_Order() {
+		ArrayList<String> log = new ArrayList<String>();
+		Recorder a = new Recorder("a", log);
+		Recorder b = new Recorder("b", log);
+		_po.subscribe(a, Hit.class);
+		_po.subscribe(b, Hit.class);
+		_po.subscribe(b, Scored.class);
+		_po.subscribe(a, Hit.class); // already subscribed
+
+		post(1);
+		Scored scored = _po.obtainEvent(Scored.class);
+		scored.points = 10;
+		_po.post(scored);
+		post(2);
+		assertTrue(log.isEmpty());
+
+		_po.checkMail();
+		String[] expected = { "a hit 1", "b hit 1", "b scored 10", "a hit 2", "b hit 2" };
+		assertArrayEquals(expected, log.toArray());
+
+		log.clear();
+		_po.checkMail();
+		assertTrue(log.isEmpty());
+	}
+
+	@Test
+	public void test_Pooling() {
+		_po.subscribe(new Recorder("a", new ArrayList<String>()), Hit.class);
+		Hit first = _po.obtainEvent(Hit.class);
+		_po.post(first);
+		assertNotSame(first, _po.obtainEvent(Hit.class));
+		_po.checkMail();
+		assertSame(first, _po.obtainEvent(Hit.class));
+	}
+
+	@Test
+	public void test_PostDuringDelivery() {
+		final ArrayList<String> log = new ArrayList<String>();
+		_po.subscribe(new EventSubscriber<Hit>() {
+			public void receive(Hit event) {
+				if(event.damage > 0)
+					post(event.damage - 1);
+			}
+		}, Hit.class);
+		_po.subscribe(new Recorder("a", log), Hit.class);
+
+		post(2);
+		_po.checkMail();
+		assertEquals(1, log.size());
+		assertEquals("a hit 2", log.get(0));
+		_po.checkMail();
+		assertEquals("a hit 1", log.get(1));
+		_po.checkMail();
+		_po.checkMail();
+		assertEquals(3, log.size());
+	}
+
+	@Test
+	public void test_RemovedOnDelete() {
+		World world = new World(_po);
+		Target target = new Target();
+		world.register(target);
+		world.subscribe(target, Hit.class);
+
+		post(1);
+		_po.checkMail();
+		assertEquals(1, target.received);
+
+		world.delete(target);
+		world.resolveGroupQueues();
+		post(1);
+		_po.checkMail();
+		assertEquals(1, target.received);
+		assertFalse(_po.removeEventSubscriptions(target));
+	}
+
+}
@@ -0,0 +1,156 @@
+package hermesTest.postOfficeTests;
+
+import static org.junit.Assert.*;
+import hermes.Hermes;
+import hermes.postoffice.KeyMessage;
+import hermes.postoffice.KeySubscriber;
+import hermes.postoffice.PostOffice;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import processing.core.PApplet;
+import processing.event.KeyEvent;
+
+public class KeyJUnitTests {
+
+	PApplet _sketch;
+	PostOffice _po;
+	
+	/**
+	 * Records the key codes and presses it receives.
+	 */
+	class Recorder implements KeySubscriber {
+		ArrayList<Integer> codes = new ArrayList<Integer>();
+		ArrayList<Boolean> pressed = new ArrayList<Boolean>();
+		
+		public void receive(KeyMessage m) {
+			codes.add(m.getKeyCode());
+			pressed.add(m.isPressed());
+		}
+	}
+	
+	@Before
+	public void setUp() {
+		_sketch = new PApplet();
+		Hermes.setPApplet(_sketch);
+		_po = new PostOffice();
+	}
+	
+	@After
+	public void tearDown() {
+		_sketch = null;
+		Hermes.setPApplet(null);
+	}
+	
+	private void key(int action, int keyCode) {
+		_po.keyEvent(new KeyEvent(null, 0, action, 0, (char)keyCode, keyCode));
+	}
+	
+	@Test
+	public void testKeyState() {
+		key(KeyEvent.PRESS, 65);
+		_po.checkMail();
+		assertTrue(_po.isKeyPressed(65));
+		assertTrue(_po.isKeyJustPressed(65));
+		assertFalse(_po.isKeyJustReleased(65));
+		assertFalse(_po.isKeyPressed(66));
+		
+		// held through an update with only key repeats
+		_po.checkMail();
+		assertTrue(_po.isKeyPressed(65));
+		assertFalse(_po.isKeyJustPressed(65));
+		key(KeyEvent.PRESS, 65);
+		_po.checkMail();
+		assertTrue(_po.isKeyPressed(65));
+		assertFalse(_po.isKeyJustPressed(65));
+		
+		key(KeyEvent.RELEASE, 65);
+		_po.checkMail();
+		assertFalse(_po.isKeyPressed(65));
+		assertTrue(_po.isKeyJustReleased(65));
+		_po.checkMail();
+		assertFalse(_po.isKeyJustReleased(65));
+		
+		// a tap within one update, and codes past the first words of the bitset
+		key(KeyEvent.PRESS, 1000);
+		key(KeyEvent.RELEASE, 1000);
+		_po.checkMail();
+		assertFalse(_po.isKeyPressed(1000));
+		assertTrue(_po.isKeyJustPressed(1000));
+		assertTrue(_po.isKeyJustReleased(1000));
+		assertFalse(_po.isKeyPressed(-1));
+		assertFalse(_po.isKeyPressed(100000));
+	}
+	
+	@Test
+	public void testSubscriptions() {
+		Recorder a = new Recorder(), b = new Recorder();
+		_po.subscribe(a, 65);
+		_po.subscribe(a, 65); // only once
+		_po.subscribe(b, 65);
+		_po.subscribe(b, 300);
+		
+		key(KeyEvent.PRESS, 65);
+		key(KeyEvent.PRESS, 300);
+		key(KeyEvent.RELEASE, 65);
+		key(KeyEvent.PRESS, 66);
+		_po.checkMail();
+		assertEquals(2, a.codes.size());
+		assertTrue(a.pressed.get(0));
+		assertFalse(a.pressed.get(1));
+		assertEquals(3, b.codes.size());
+		assertEquals(300, (int)b.codes.get(1));
+		
+		assertTrue(_po.removeKeySubscriptions(b));
+		assertFalse(_po.removeKeySubscriptions(b));
+		key(KeyEvent.PRESS, 300);
+		key(KeyEvent.PRESS, 65);
+		_po.checkMail();
+		assertEquals(3, b.codes.size());
+		assertEquals(3, a.codes.size());
+	}
+	
+	@Test
+	public void testRemoveAllSubscriptions() {
+		// a key and mouse subscriber among many others
+		class Both extends Recorder implements hermes.postoffice.MouseSubscriber {
+			int mouse = 0;
+			public void receive(hermes.postoffice.MouseMessage m) {
+				mouse++;
+			}
+		}
+		ArrayList<Recorder> others = new ArrayList<Recorder>();
+		for(int i = 0; i < 100; i++) {
+			Recorder other = new Recorder();
+			_po.subscribe(other, 65 + i % 10);
+			others.add(other);
+		}
+		Both both = new Both();
+		_po.subscribe(both, 65);
+		_po.subscribe(both, 70);
+		_po.subscribe(both, hermes.postoffice.POCodes.Button.NO);
+		
+		assertTrue(_po.removeMouseSubscriptions(both));
+		assertTrue(_po.removeKeySubscriptions(both));
+		assertFalse(_po.removeKeySubscriptions(both));
+		assertFalse(_po.removeMouseSubscriptions(both));
+		
+		key(KeyEvent.PRESS, 65);
+		key(KeyEvent.PRESS, 70);
+		_po.checkMail();
+		assertEquals(0, both.codes.size());
+		for(int i = 0; i < others.size(); i++)
+			assertEquals(i % 10 == 0 || i % 10 == 5 ? 1 : 0, others.get(i).codes.size());
+		
+		// subscribing again after removal works
+		_po.subscribe(both, 65);
+		key(KeyEvent.PRESS, 65);
+		_po.checkMail();
+		assertEquals(1, both.codes.size());
+	}
+	
+}
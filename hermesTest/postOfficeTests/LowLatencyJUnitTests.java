@@ -0,0 +1,152 @@
+package hermesTest.postOfficeTests;
+
+import static org.junit.Assert.*;
+import hermes.Hermes;
+import hermes.World;
+import hermes.postoffice.KeyMessage;
+import hermes.postoffice.KeySubscriber;
+import hermes.postoffice.MouseMessage;
+import hermes.postoffice.MouseSubscriber;
+import hermes.postoffice.POCodes;
+import hermes.postoffice.PostOffice;
+
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import processing.core.PApplet;
+import processing.core.PGraphics;
+import processing.event.KeyEvent;
+import processing.event.MouseEvent;
+
+/**
+ * Tests delivering input between updates and on the receiving thread.
+ */
+public class LowLatencyJUnitTests {
+
+	PApplet _sketch;
+	PostOffice _po;
+	
+	/**
+	 * Counts the key messages it receives, and when the last arrived.
+	 */
+	class Counter implements KeySubscriber, MouseSubscriber {
+		volatile int received = 0;
+		volatile long time = 0;
+		volatile Thread thread;
+		
+		public void receive(KeyMessage m) {
+			time = System.nanoTime();
+			thread = Thread.currentThread();
+			received++;
+		}
+		
+		public void receive(MouseMessage m) {
+			received++;
+		}
+	}
+	
+	@Before
+	public void setUp() {
+		_sketch = new PApplet();
+		_sketch.g = new PGraphics();
+		Hermes.setPApplet(_sketch);
+		_po = new PostOffice();
+	}
+	
+	@After
+	public void tearDown() {
+		_sketch = null;
+		Hermes.setPApplet(null);
+	}
+	
+	private void key(int action, int keyCode) {
+		_po.keyEvent(new KeyEvent(null, 0, action, 0, (char)keyCode, keyCode));
+	}
+	
+	@Test
+	public void testBetweenUpdates() {
+		Counter c = new Counter();
+		_po.subscribe(c, 65);
+		key(KeyEvent.PRESS, 65);
+		_po.checkMailBetweenUpdates();
+		assertEquals(1, c.received);
+		assertTrue(_po.isKeyPressed(65));
+		// the press is reported by the next update, not before it
+		assertFalse(_po.isKeyJustPressed(65));
+		key(KeyEvent.RELEASE, 65);
+		_po.checkMailBetweenUpdates();
+		_po.checkMail();
+		assertEquals(2, c.received);
+		assertTrue(_po.isKeyJustPressed(65));
+		assertTrue(_po.isKeyJustReleased(65));
+		_po.checkMail();
+		assertFalse(_po.isKeyJustPressed(65));
+	}
+	
+	@Test
+	public void testDirect() {
+		Counter direct = new Counter(), queued = new Counter();
+		_po.subscribeDirect(direct, 65);
+		_po.subscribeDirect(direct, 65);
+		_po.subscribeDirect(direct, POCodes.Button.LEFT);
+		_po.subscribe(queued, 65);
+		key(KeyEvent.PRESS, 65);
+		key(KeyEvent.PRESS, 66);
+		_po.mouseEvent(new MouseEvent(null, 0, MouseEvent.PRESS, 0, 5, 5, PApplet.LEFT, 1));
+		assertEquals(2, direct.received);
+		assertEquals(0, queued.received);
+		_po.checkMail();
+		assertEquals(2, direct.received);
+		assertEquals(1, queued.received);
+		
+		assertTrue(_po.removeDirectSubscriptions(direct));
+		assertFalse(_po.removeDirectSubscriptions(direct));
+		key(KeyEvent.RELEASE, 65);
+		assertEquals(2, direct.received);
+	}
+	
+	@Test
+	public void testWakeThread() throws Exception {
+		_po.setWakeThread(Thread.currentThread());
+		new Thread() {
+			public void run() {
+				try {
+					Thread.sleep(20);
+				} catch (InterruptedException e) {}
+				key(KeyEvent.PRESS, 65);
+			}
+		}.start();
+		long start = System.nanoTime();
+		LockSupport.parkNanos(5000000000L);
+		assertTrue(System.nanoTime() - start < 2000000000L);
+		_po.setWakeThread(null);
+	}
+	
+	@Test
+	public void testWorldWakesOnInput() throws Exception {
+		final World world = new World(_po);
+		world.lockUpdateRate(1); // a second between updates
+		world.setWakeOnInput(true);
+		Counter c = new Counter();
+		world.subscribe(c, 65);
+		Thread updater = new Thread() {
+			public void run() {
+				world.update();
+			}
+		};
+		updater.start();
+		Thread.sleep(100);
+		long sent = System.nanoTime();
+		key(KeyEvent.PRESS, 65);
+		for(int i = 0; i < 100 && c.received == 0; i++)
+			Thread.sleep(5);
+		assertEquals(1, c.received);
+		assertSame(updater, c.thread);
+		assertTrue(c.time - sent < 200000000L); // well before the update ends
+		updater.join();
+	}
+	
+}
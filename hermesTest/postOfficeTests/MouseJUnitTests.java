@@ -0,0 +1,173 @@
+package hermesTest.postOfficeTests;
+
+import static org.junit.Assert.*;
+import hermes.Hermes;
+import hermes.hshape.HCircle;
+import hermes.hshape.HRectangle;
+import hermes.postoffice.MouseMessage;
+import hermes.postoffice.MouseSubscriber;
+import hermes.postoffice.POCodes;
+import hermes.postoffice.PostOffice;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import processing.core.PApplet;
+import processing.core.PGraphics;
+import processing.core.PVector;
+import processing.event.MouseEvent;
+
+public class MouseJUnitTests {
+
+	PApplet _sketch;
+	PostOffice _po;
+	
+	/**
+	 * Records copies of the messages it receives (the messages themselves are reused).
+	 */
+	class Recorder implements MouseSubscriber {
+		ArrayList<MouseMessage> received = new ArrayList<MouseMessage>();
+		
+		public void receive(MouseMessage m) {
+			received.add(new MouseMessage(m.getButton(), m.getAction(), m.getX(), m.getY()));
+		}
+	}
+	
+	@Before
+	public void setUp() {
+		_sketch = new PApplet();
+		_sketch.g = new PGraphics();
+		Hermes.setPApplet(_sketch);
+		_po = new PostOffice();
+	}
+	
+	@After
+	public void tearDown() {
+		_sketch = null;
+		Hermes.setPApplet(null);
+	}
+	
+	private void mouse(int action, int x, int y, int button) {
+		_po.mouseEvent(new MouseEvent(null, 0, action, 0, x, y, button, 1));
+	}
+	
+	@Test
+	public void testRegions() {
+		// a 20x20 grid of 10x10 cells, and one circle
+		Recorder[][] cells = new Recorder[20][20];
+		for(int i = 0; i < 20; i++) {
+			for(int j = 0; j < 20; j++) {
+				cells[i][j] = new Recorder();
+				_po.subscribe(cells[i][j], POCodes.Button.LEFT, new HRectangle(new PVector(i * 10, j * 10), 10, 10));
+			}
+		}
+		Recorder circle = new Recorder();
+		_po.subscribe(circle, POCodes.Button.LEFT, new HCircle(new PVector(100, 100), 5));
+		Recorder everywhere = new Recorder();
+		_po.subscribe(everywhere, POCodes.Button.LEFT);
+		Recorder right = new Recorder();
+		_po.subscribe(right, POCodes.Button.RIGHT, new HRectangle(new PVector(0, 0), 200, 200));
+		
+		mouse(MouseEvent.PRESS, 35, 72, PApplet.LEFT);
+		mouse(MouseEvent.PRESS, 103, 103, PApplet.LEFT);
+		mouse(MouseEvent.PRESS, 500, 500, PApplet.LEFT);
+		_po.checkMail();
+		
+		assertEquals(1, cells[3][7].received.size());
+		assertEquals(35, cells[3][7].received.get(0).getX());
+		assertEquals(1, cells[10][10].received.size());
+		assertEquals(1, circle.received.size());
+		assertEquals(3, everywhere.received.size());
+		assertEquals(0, right.received.size());
+		int total = 0;
+		for(int i = 0; i < 20; i++)
+			for(int j = 0; j < 20; j++)
+				total += cells[i][j].received.size();
+		assertEquals(2, total);
+		
+		// a point in the circle's bounding box, but not the circle
+		mouse(MouseEvent.PRESS, 96, 96, PApplet.LEFT);
+		_po.checkMail();
+		assertEquals(1, circle.received.size());
+	}
+	
+	@Test
+	public void testMovingRegion() {
+		Recorder sub = new Recorder();
+		HRectangle region = new HRectangle(new PVector(0, 0), 10, 10);
+		_po.subscribe(sub, POCodes.Button.LEFT, region);
+		mouse(MouseEvent.PRESS, 5, 5, PApplet.LEFT);
+		_po.checkMail();
+		assertEquals(1, sub.received.size());
+		
+		region.getPosition().x = 50;
+		region.getPosition().y = 50;
+		mouse(MouseEvent.PRESS, 5, 5, PApplet.LEFT);
+		mouse(MouseEvent.PRESS, 55, 55, PApplet.LEFT);
+		_po.checkMail();
+		assertEquals(2, sub.received.size());
+		assertEquals(55, sub.received.get(1).getX());
+		
+		// unsubscribing takes effect on the next message
+		assertTrue(_po.removeMouseSubscriptions(sub));
+		mouse(MouseEvent.PRESS, 55, 55, PApplet.LEFT);
+		_po.checkMail();
+		assertEquals(2, sub.received.size());
+	}
+	
+	@Test
+	public void testCoalescing() {
+		Recorder sub = new Recorder();
+		_po.subscribe(sub, POCodes.Button.NO);
+		_po.subscribe(sub, POCodes.Button.LEFT);
+		
+		// without coalescing every move is delivered
+		for(int i = 0; i < 5; i++)
+			mouse(MouseEvent.MOVE, i, i, 0);
+		_po.checkMail();
+		assertEquals(5, sub.received.size());
+		
+		// with it, runs of moves become their last move, but presses are kept in order
+		sub.received.clear();
+		_po.setMouseMoveCoalescing(true);
+		for(int i = 0; i < 5; i++)
+			mouse(MouseEvent.MOVE, i, i, 0);
+		mouse(MouseEvent.PRESS, 4, 4, PApplet.LEFT);
+		for(int i = 0; i < 5; i++)
+			mouse(MouseEvent.DRAG, 10 + i, 10, PApplet.LEFT);
+		_po.checkMail();
+		assertEquals(3, sub.received.size());
+		assertEquals(POCodes.Click.MOVED, sub.received.get(0).getAction());
+		assertEquals(4, sub.received.get(0).getX());
+		assertEquals(POCodes.Click.PRESSED, sub.received.get(1).getAction());
+		assertEquals(POCodes.Click.DRAGGED, sub.received.get(2).getAction());
+		assertEquals(14, sub.received.get(2).getX());
+		assertEquals(14, (int)_po.getMouseLocation().x);
+	}
+	
+	@Test
+	public void testQueueFull() {
+		Recorder sub = new Recorder();
+		_po.subscribe(sub, POCodes.Button.NO);
+		
+		// messages beyond the queue's size are dropped and counted, the rest arrive in order
+		for(int i = 0; i < 1100; i++)
+			mouse(MouseEvent.MOVE, i, 0, 0);
+		_po.checkMail();
+		assertEquals(1024, sub.received.size());
+		assertEquals(1023, sub.received.get(1023).getX());
+		assertEquals(76, _po.getDroppedInputCount());
+		
+		// after checking mail there's room again
+		for(int i = 0; i < 1024; i++)
+			mouse(MouseEvent.MOVE, i, 1, 0);
+		_po.checkMail();
+		assertEquals(2048, sub.received.size());
+		assertEquals(1, sub.received.get(2047).getY());
+		assertEquals(76, _po.getDroppedInputCount());
+	}
+	
+}
@@ -1,6 +1,9 @@
 package hermesTest.postOfficeTests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import hermes.Hermes;
 import hermes.postoffice.OscMessage;
@@ -147,5 +150,55 @@ public class OSCMessageJUnitTests {
 		
 	}
 	
+	@Test
+	public void testBuilder() {
+		byte[] blob = { 1, 2, 3 };
+		OscMessage message = new OscMessage("/DummyAddress").addInt(10).addFloat(1.5f).addString("Oh hai")
+				.addDouble(0.25).addLong(1L << 40).addBoolean(true).addChar('x').addBlob(blob).addNull();
+		
+		assertEquals(9, message.getArgumentCount());
+		assertEquals("ifsdhTcbN", typesOf(message));
+		assertEquals(10, message.getInt(0));
+		assertEquals(1.5f, message.getFloat(1), 0);
+		assertEquals("Oh hai", message.getString(2));
+		assertEquals(0.25, message.getDouble(3), 0);
+		assertEquals(1L << 40, message.getLong(4));
+		assertTrue(message.getBoolean(5));
+		assertEquals('x', message.getInt(6));
+		assertSame(blob, message.getBlob(7));
+		
+		//numbers convert where nothing is lost
+		assertEquals(10f, message.getFloat(0), 0);
+		assertEquals(1.5, message.getDouble(1), 0);
+		
+		//and the old way still works
+		assertEquals(10, message.getAndRemoveInt());
+		assertEquals(1.5f, message.getAndRemoveFloat(), 0);
+		assertEquals("Oh hai", message.getAndRemoveString());
+		assertEquals("d", message.getTypeTagOfNextArgument());
+	}
+	
+	@Test
+	public void testObjectTypes() {
+		Object[] testObjects = { 2.5, 7L, false, 'c', null };
+		OscMessage message = new OscMessage("/DummyAddress", testObjects);
+		assertEquals("dhFcN", typesOf(message));
+		assertEquals(2.5, message.getDouble(0), 0);
+		assertEquals(7L, message.getLong(1));
+		assertFalse(message.getBoolean(2));
+		
+		try {
+			message.getInt(0);
+		    fail( "Should throw AssertionError because the argument is a double" );
+		} catch (AssertionError expectedException) {
+		}
+	}
+	
+	private static String typesOf(OscMessage message) {
+		String types = "";
+		for(int i = 0; i < message.getArgumentCount(); i++)
+			types += message.getType(i);
+		return types;
+	}
 	
 }
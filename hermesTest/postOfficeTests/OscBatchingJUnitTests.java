@@ -0,0 +1,160 @@
+package hermesTest.postOfficeTests;
+
+import static org.junit.Assert.*;
+import hermes.Hermes;
+import hermes.postoffice.OscMessage;
+import hermes.postoffice.OscReceiver;
+import hermes.postoffice.OscView;
+import hermes.postoffice.OscViewSubscriber;
+import hermes.postoffice.PostOffice;
+
+import java.net.DatagramSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import processing.core.PApplet;
+
+/**
+ * Sends batched OSC messages from a PostOffice to an OscReceiver.
+ */
+public class OscBatchingJUnitTests {
+
+	PApplet _sketch;
+	PostOffice _po;
+	OscReceiver _receiver;
+	
+	/**
+	 * Records the values and time tags of the messages it receives.
+	 */
+	class Recorder implements OscViewSubscriber {
+		ArrayList<Object> values = new ArrayList<Object>();
+		ArrayList<Long> timeTags = new ArrayList<Long>();
+		
+		public void receive(OscView m) {
+			for(int i = 0; i < m.getArgumentCount(); i++) {
+				switch(m.getType(i)) {
+				case 'i': values.add(m.getInt(i)); break;
+				case 'f': values.add(m.getFloat(i)); break;
+				case 'T': case 'F': values.add(m.getBoolean(i)); break;
+				case 's': values.add(m.getString(i)); break;
+				case 'h': values.add(m.getLong(i)); break;
+				case 'd': values.add(m.getDouble(i)); break;
+				}
+			}
+			timeTags.add(m.getTimeTag());
+		}
+	}
+	
+	@Before
+	public void setUp() throws Exception {
+		_sketch = new PApplet();
+		Hermes.setPApplet(_sketch);
+		_receiver = new OscReceiver(0);
+		DatagramSocket free = new DatagramSocket(0);
+		int portIn = free.getLocalPort();
+		free.close();
+		_po = new PostOffice(portIn, _receiver.getPort());
+		_po.setOscBatching(true);
+	}
+	
+	@After
+	public void tearDown() {
+		_po.setOscBatching(false);
+		_receiver.close();
+		_sketch = null;
+		Hermes.setPApplet(null);
+	}
+	
+	/**
+	 * Receives until the expected number of messages have arrived, or a second has passed.
+	 */
+	private int receive(int expected) throws InterruptedException {
+		int received = 0;
+		for(int i = 0; i < 100 && received < expected; i++) {
+			received += _receiver.receive();
+			if(received < expected)
+				Thread.sleep(10);
+		}
+		return received;
+	}
+	
+	@Test
+	public void testBatching() throws Exception {
+		Recorder r = new Recorder();
+		_receiver.subscribe(r, "/value");
+		assertTrue(_po.isOscBatching());
+		
+		_po.sendInt("/value", 4);
+		_po.sendFloat("/value", 2.5f);
+		_po.sendBoolean("/value", true);
+		ArrayList<Object> list = new ArrayList<Object>();
+		list.add("name");
+		list.add(7L);
+		list.add(0.25);
+		_po.sendList("/value", list);
+		
+		// nothing is sent until the flush
+		Thread.sleep(50);
+		assertEquals(0, _receiver.receive());
+		_po.flushOsc();
+		assertEquals(4, receive(4));
+		assertEquals(1, _receiver.getPacketCount());
+		
+		assertEquals(4, r.values.get(0));
+		assertEquals(2.5f, r.values.get(1));
+		assertEquals(true, r.values.get(2));
+		assertEquals("name", r.values.get(3));
+		assertEquals(7L, r.values.get(4));
+		assertEquals(0.25, r.values.get(5));
+		assertEquals(1L, (long)r.timeTags.get(0));
+		assertEquals(0, _po.getDroppedOscCount());
+	}
+	
+	@Test
+	public void testPacketSize() throws Exception {
+		Recorder r = new Recorder();
+		_receiver.subscribe(r, "/value");
+		_po.setOscBatching(true, 64);
+		
+		// each message is 16 bytes, plus 4 for its size, so two fit after the 16 byte bundle header
+		for(int i = 0; i < 5; i++)
+			_po.sendInt("/value", i);
+		_po.flushOsc();
+		assertEquals(5, receive(5));
+		assertEquals(3, _receiver.getPacketCount());
+		for(int i = 0; i < 5; i++)
+			assertEquals(i, r.values.get(i));
+	}
+	
+	@Test
+	public void testSendMessage() throws Exception {
+		Recorder r = new Recorder();
+		_receiver.subscribe(r, "/value");
+		OscMessage m = new OscMessage("/value").addInt(3).addFloat(0.5f);
+		_po.send(m);
+		_po.flushOsc();
+		_po.setOscBatching(false);
+		_po.send(m);
+		assertEquals(2, receive(2));
+		assertEquals(2, _receiver.getPacketCount());
+		assertEquals(Arrays.asList((Object)3, 0.5f, 3, 0.5f), r.values);
+	}
+	
+	@Test
+	public void testUnbatched() throws Exception {
+		Recorder r = new Recorder();
+		_receiver.subscribe(r, "/value");
+		_po.setOscBatching(false);
+		assertFalse(_po.isOscBatching());
+		
+		_po.sendInt("/value", 1);
+		_po.sendInt("/value", 2);
+		assertEquals(2, receive(2));
+		assertEquals(2, _receiver.getPacketCount());
+	}
+	
+}
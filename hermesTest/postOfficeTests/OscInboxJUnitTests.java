@@ -0,0 +1,155 @@
+package hermesTest.postOfficeTests;
+
+import static org.junit.Assert.*;
+import hermes.Hermes;
+import hermes.postoffice.OscMessage;
+import hermes.postoffice.OscSubscriber;
+import hermes.postoffice.PostOffice;
+
+import java.net.DatagramSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import processing.core.PApplet;
+
+/**
+ * Passes OSC messages straight to a PostOffice's acceptMessage, to test its inbox.
+ */
+public class OscInboxJUnitTests {
+
+	PApplet _sketch;
+	PostOffice _po;
+	
+	/**
+	 * Records the values it receives.
+	 */
+	class Recorder implements OscSubscriber {
+		ArrayList<Integer> values = new ArrayList<Integer>();
+		
+		public void receive(OscMessage m) {
+			values.add(m.getAndRemoveInt());
+		}
+	}
+	
+	@Before
+	public void setUp() throws Exception {
+		_sketch = new PApplet();
+		Hermes.setPApplet(_sketch);
+		_po = new PostOffice(freePort(), freePort());
+	}
+	
+	@After
+	public void tearDown() {
+		_sketch = null;
+		Hermes.setPApplet(null);
+	}
+	
+	private static int freePort() throws Exception {
+		DatagramSocket socket = new DatagramSocket(0);
+		int port = socket.getLocalPort();
+		socket.close();
+		return port;
+	}
+	
+	private void accept(String address, int value) {
+		_po.acceptMessage(null, new com.illposed.osc.OSCMessage(address, new Object[] { value }));
+	}
+	
+	@Test
+	public void testDeliverAll() {
+		Recorder r = new Recorder();
+		_po.subscribe(r, "/accel");
+		for(int i = 0; i < 5; i++)
+			accept("/accel", i);
+		_po.checkMail();
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4), r.values);
+		assertEquals(0, _po.getOscInboxDropCount());
+		_po.checkMail();
+		assertEquals(5, r.values.size());
+	}
+	
+	@Test
+	public void testKeepLatest() {
+		Recorder accel = new Recorder(), button = new Recorder();
+		_po.subscribe(accel, "/accel");
+		_po.subscribe(button, "/button");
+		_po.setOscKeepLatest("/accel", 1);
+		// enough to need the dropped messages' places cleared out
+		for(int i = 0; i < 500; i++) {
+			accept("/accel", i);
+			if(i % 100 == 0)
+				accept("/button", i);
+		}
+		_po.checkMail();
+		assertEquals(Arrays.asList(499), accel.values);
+		assertEquals(Arrays.asList(0, 100, 200, 300, 400), button.values);
+		assertEquals(499, _po.getOscInboxDropCount("/accel"));
+		assertEquals(0, _po.getOscInboxDropCount("/button"));
+		
+		// and again on the next update
+		accept("/accel", 1);
+		accept("/accel", 2);
+		_po.checkMail();
+		assertEquals(Arrays.asList(499, 2), accel.values);
+	}
+	
+	@Test
+	public void testKeepLast() {
+		Recorder accel = new Recorder(), button = new Recorder();
+		_po.subscribe(accel, "/accel");
+		_po.subscribe(button, "/button");
+		_po.setOscKeepLatest("/accel", 3);
+		accept("/accel", 1);
+		accept("/button", 10);
+		accept("/accel", 2);
+		accept("/accel", 3);
+		accept("/accel", 4);
+		accept("/button", 20);
+		_po.checkMail();
+		assertEquals(Arrays.asList(2, 3, 4), accel.values);
+		assertEquals(Arrays.asList(10, 20), button.values);
+		
+		_po.setOscKeepLatest("/accel", 0);
+		for(int i = 0; i < 5; i++)
+			accept("/accel", i);
+		_po.checkMail();
+		assertEquals(8, accel.values.size());
+	}
+	
+	@Test
+	public void testCapacity() {
+		Recorder r = new Recorder();
+		_po.subscribe(r, "/accel");
+		_po.setOscInboxCapacity(10);
+		for(int i = 0; i < 25; i++)
+			accept("/accel", i);
+		_po.checkMail();
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), r.values);
+		assertEquals(15, _po.getOscInboxDropCount());
+		assertEquals(15, _po.getOscInboxDropCount("/accel"));
+		assertEquals(0, _po.getOscInboxDropCount("/other"));
+	}
+	
+	@Test
+	public void testDropAddressesBounded() {
+		_po.setOscKeepLatest("/kept", 1);
+		_po.setOscInboxCapacity(1);
+		accept("/first", 0);
+		for(int i = 0; i < 300; i++)
+			accept("/unique/" + i, i);
+		accept("/kept", 0);
+		accept("/kept", 1);
+		_po.checkMail();
+		// every drop is in the total, but only the first 256 addresses without a policy are counted
+		assertEquals(302, _po.getOscInboxDropCount());
+		assertEquals(1, _po.getOscInboxDropCount("/unique/0"));
+		assertEquals(1, _po.getOscInboxDropCount("/unique/255"));
+		assertEquals(0, _po.getOscInboxDropCount("/unique/256"));
+		assertEquals(2, _po.getOscInboxDropCount("/kept"));
+	}
+	
+}
@@ -0,0 +1,141 @@
+package hermesTest.postOfficeTests;
+
+import static org.junit.Assert.*;
+import hermes.Hermes;
+import hermes.postoffice.OscMessage;
+import hermes.postoffice.OscSubscriber;
+import hermes.postoffice.PostOffice;
+
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import processing.core.PApplet;
+
+import com.illposed.osc.OSCBundle;
+import com.illposed.osc.OSCPacket;
+import com.illposed.osc.OSCPortOut;
+
+/**
+ * Sends OSC messages to a PostOffice subscribed to address patterns.
+ */
+public class OscPatternJUnitTests {
+
+	PApplet _sketch;
+	PostOffice _po;
+	OSCPortOut _out;
+	int _received;
+	
+	/**
+	 * Records the addresses it receives messages on.
+	 */
+	class Recorder implements OscSubscriber {
+		ArrayList<String> addresses = new ArrayList<String>();
+		
+		public void receive(OscMessage m) {
+			addresses.add(m.getAddress());
+			_received++;
+		}
+	}
+	
+	@Before
+	public void setUp() throws Exception {
+		_sketch = new PApplet();
+		Hermes.setPApplet(_sketch);
+		int portIn = freePort(), portOut = freePort();
+		_po = new PostOffice(portIn, portOut);
+		_out = new OSCPortOut(InetAddress.getLocalHost(), portIn);
+		_received = 0;
+	}
+	
+	@After
+	public void tearDown() {
+		_out.close();
+		_sketch = null;
+		Hermes.setPApplet(null);
+	}
+	
+	private static int freePort() throws Exception {
+		DatagramSocket socket = new DatagramSocket(0);
+		int port = socket.getLocalPort();
+		socket.close();
+		return port;
+	}
+	
+	private void send(String... addresses) throws Exception {
+		for(String address : addresses)
+			_out.send(new com.illposed.osc.OSCMessage(address, new Object[] { 1 }));
+	}
+	
+	/**
+	 * Checks mail until the expected number of messages have been received, or a second has passed.
+	 */
+	private void checkMail(int expected) throws InterruptedException {
+		for(int i = 0; i < 100 && _received < expected; i++) {
+			Thread.sleep(10);
+			_po.checkMail();
+		}
+		Thread.sleep(20);
+		_po.checkMail();
+	}
+	
+	@Test
+	public void testPatterns() throws Exception {
+		Recorder star = new Recorder(), set = new Recorder(), options = new Recorder(), one = new Recorder(), exact = new Recorder();
+		_po.subscribe(star, "/sensor/*/x");
+		_po.subscribe(set, "/sensor/[0-4]/y");
+		_po.subscribe(options, "/sensor/{left,right}/*");
+		_po.subscribe(one, "/sensor/?/x");
+		_po.subscribe(exact, "/sensor/left/x");
+		
+		send("/sensor/1/x", "/sensor/left/x", "/sensor/12/x", "/sensor/1/x/more",
+				"/sensor/3/y", "/sensor/7/y", "/sensor/right/z", "/sensor/up/z", "/other/1/x");
+		checkMail(8);
+		
+		assertEquals(Arrays.asList("/sensor/1/x", "/sensor/left/x", "/sensor/12/x"), star.addresses);
+		assertEquals(Arrays.asList("/sensor/3/y"), set.addresses);
+		assertEquals(Arrays.asList("/sensor/left/x", "/sensor/right/z"), options.addresses);
+		assertEquals(Arrays.asList("/sensor/1/x"), one.addresses);
+		assertEquals(Arrays.asList("/sensor/left/x"), exact.addresses);
+	}
+	
+	@Test
+	public void testBundle() throws Exception {
+		Recorder r = new Recorder();
+		_po.subscribe(r, "/a/*");
+		_out.send(new OSCBundle(new OSCPacket[] {
+				new com.illposed.osc.OSCMessage("/a/1", new Object[] { 1 }),
+				new com.illposed.osc.OSCMessage("/b/1", new Object[] { 1 }),
+				new com.illposed.osc.OSCMessage("/a/2", new Object[] { 1 }) }));
+		checkMail(2);
+		assertEquals(Arrays.asList("/a/1", "/a/2"), r.addresses);
+	}
+	
+	@Test
+	public void testSubscribeTwiceAndRemove() throws Exception {
+		Recorder r = new Recorder();
+		_po.subscribe(r, "/a/*");
+		_po.subscribe(r, "/a/*");
+		_po.subscribe(r, "/a/[!0-9]");
+		Recorder direct = new Recorder();
+		_po.subscribeDirect(direct, "/a/1");
+		send("/a/1", "/a/b");
+		checkMail(3);
+		// one message each, even though "/a/b" matches two subscriptions
+		assertEquals(Arrays.asList("/a/1", "/a/b"), r.addresses);
+		assertEquals(Arrays.asList("/a/1"), direct.addresses);
+		
+		// direct subscriptions are cleared too, in the same trie the OSC thread reads
+		_po.resetSubscriptions();
+		send("/a/1");
+		checkMail(4);
+		assertEquals(2, r.addresses.size());
+		assertEquals(1, direct.addresses.size());
+	}
+	
+}
@@ -0,0 +1,198 @@
+package hermesTest.postOfficeTests;
+
+import static org.junit.Assert.*;
+import hermes.postoffice.OscMessage;
+import hermes.postoffice.OscReceiver;
+import hermes.postoffice.OscView;
+import hermes.postoffice.OscViewSubscriber;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.illposed.osc.OSCBundle;
+import com.illposed.osc.OSCPacket;
+import com.illposed.osc.OSCPortOut;
+
+/**
+ * Sends OSC packets to an OscReceiver over the loopback interface.
+ */
+public class OscReceiverJUnitTests {
+
+	OscReceiver _receiver;
+	OSCPortOut _out;
+	
+	/**
+	 * Copies the messages it receives.
+	 */
+	class Recorder implements OscViewSubscriber {
+		ArrayList<OscMessage> received = new ArrayList<OscMessage>();
+		ArrayList<Long> timeTags = new ArrayList<Long>();
+		
+		public void receive(OscView m) {
+			received.add(m.toOscMessage());
+			timeTags.add(m.getTimeTag());
+		}
+	}
+	
+	@Before
+	public void setUp() throws Exception {
+		_receiver = new OscReceiver(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0));
+		_out = new OSCPortOut(InetAddress.getByName("127.0.0.1"), _receiver.getPort());
+	}
+	
+	@After
+	public void tearDown() {
+		_receiver.close();
+		_out.close();
+	}
+	
+	/**
+	 * Receives until the expected number of messages have arrived, or a second has passed.
+	 */
+	private int receive(int expected) throws InterruptedException {
+		int received = 0;
+		for(int i = 0; i < 100 && received < expected; i++) {
+			received += _receiver.receive();
+			if(received < expected)
+				Thread.sleep(10);
+		}
+		return received;
+	}
+	
+	@Test
+	public void testMessages() throws Exception {
+		Recorder a = new Recorder(), b = new Recorder();
+		_receiver.subscribe(a, "/sensor/1");
+		_receiver.subscribe(b, "/sensor/2");
+		
+		_out.send(new com.illposed.osc.OSCMessage("/sensor/1", new Object[] { 3, 1.5f, "hello" }));
+		_out.send(new com.illposed.osc.OSCMessage("/unsubscribed", new Object[] { 1 }));
+		_out.send(new com.illposed.osc.OSCMessage("/sensor/2", new Object[] { -7 }));
+		assertEquals(2, receive(2));
+		
+		assertEquals(1, a.received.size());
+		OscMessage m = a.received.get(0);
+		assertEquals("/sensor/1", m.getAddress());
+		assertEquals(3, m.getAndRemoveInt());
+		assertEquals(1.5f, m.getAndRemoveFloat(), 0);
+		assertEquals("hello", m.getAndRemoveString());
+		assertEquals(-7, b.received.get(0).getAndRemoveInt());
+		assertEquals(1L, (long)a.timeTags.get(0));
+		assertEquals(3, _receiver.getPacketCount());
+	}
+	
+	@Test
+	public void testBundle() throws Exception {
+		Recorder a = new Recorder();
+		_receiver.subscribe(a, "/x");
+		OSCBundle bundle = new OSCBundle(new OSCPacket[] {
+				new com.illposed.osc.OSCMessage("/x", new Object[] { 1 }),
+				new com.illposed.osc.OSCMessage("/y", new Object[] { 2 }),
+				new com.illposed.osc.OSCMessage("/x", new Object[] { 3 }) });
+		_out.send(bundle);
+		assertEquals(2, receive(2));
+		assertEquals(1, a.received.get(0).getAndRemoveInt());
+		assertEquals(3, a.received.get(1).getAndRemoveInt());
+	}
+	
+	@Test
+	public void testTypedAccessors() throws Exception {
+		final double[] d = new double[1];
+		final boolean[] flags = new boolean[2];
+		final char[] types = new char[5];
+		_receiver.subscribe(new OscViewSubscriber() {
+			public void receive(OscView m) {
+				for(int i = 0; i < 5; i++)
+					types[i] = m.getType(i);
+				d[0] = m.getDouble(0);
+				flags[0] = m.getBoolean(1);
+				flags[1] = m.getBoolean(2);
+				assertEquals(123456789012L, m.getLong(3));
+				assertEquals(3, m.getBlobLength(4));
+				byte[] blob = new byte[3];
+				m.getBlob(4, blob, 0);
+				assertEquals(9, blob[2]);
+			}
+		}, "/typed");
+		
+		// built by hand: a double, true, false, a long and a blob
+		ByteBuffer packet = ByteBuffer.allocate(64);
+		packet.put("/typed\0\0".getBytes("US-ASCII"));
+		packet.put(",dTFhb\0\0".getBytes("US-ASCII"));
+		packet.putDouble(2.25);
+		packet.putLong(123456789012L);
+		packet.putInt(3).put(new byte[] { 7, 8, 9, 0 });
+		send(packet);
+		// and a truncated copy, which is dropped
+		packet.position(packet.position() - 6);
+		send(packet);
+		
+		assertEquals(1, receive(1));
+		Thread.sleep(50);
+		assertEquals(0, _receiver.receive());
+		assertEquals("dTFhb", new String(types));
+		assertEquals(2.25, d[0], 0);
+		assertTrue(flags[0]);
+		assertFalse(flags[1]);
+		assertEquals(1, _receiver.getMalformedCount());
+	}
+	
+	@Test
+	public void testOversizedLengths() throws Exception {
+		Recorder a = new Recorder();
+		_receiver.subscribe(a, "/x");
+		
+		// a bundle element whose size would overflow when added to its position
+		ByteBuffer bundle = ByteBuffer.allocate(24);
+		bundle.put("#bundle\0".getBytes("US-ASCII"));
+		bundle.putLong(1);
+		bundle.putInt(0x7FFFFFF0);
+		send(bundle);
+		// and a blob whose length would
+		ByteBuffer blob = ByteBuffer.allocate(16);
+		blob.put("/x\0\0".getBytes("US-ASCII"));
+		blob.put(",b\0\0".getBytes("US-ASCII"));
+		blob.putInt(0x7FFFFFFE);
+		blob.putInt(0);
+		send(blob);
+		
+		for(int i = 0; i < 100 && _receiver.getMalformedCount() < 2; i++) {
+			assertEquals(0, _receiver.receive());
+			Thread.sleep(10);
+		}
+		assertEquals(2, _receiver.getMalformedCount());
+		assertTrue(a.received.isEmpty());
+	}
+	
+	private void send(ByteBuffer packet) throws Exception {
+		DatagramSocket socket = new DatagramSocket();
+		socket.send(new DatagramPacket(packet.array(), packet.position(), InetAddress.getByName("127.0.0.1"), _receiver.getPort()));
+		socket.close();
+	}
+	
+	@Test
+	public void testRemoveSubscriptions() throws Exception {
+		Recorder a = new Recorder();
+		_receiver.subscribe(a, "/x");
+		_receiver.subscribe(a, "/x"); // only once
+		_out.send(new com.illposed.osc.OSCMessage("/x", new Object[] { 1 }));
+		assertEquals(1, receive(1));
+		assertEquals(1, a.received.size());
+		
+		assertTrue(_receiver.removeSubscriptions(a));
+		assertFalse(_receiver.removeSubscriptions(a));
+		_out.send(new com.illposed.osc.OSCMessage("/x", new Object[] { 1 }));
+		Thread.sleep(50);
+		assertEquals(0, _receiver.receive());
+		assertEquals(1, a.received.size());
+	}
+	
+}
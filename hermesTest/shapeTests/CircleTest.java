@@ -219,4 +219,15 @@ public class HCircleTest {
 		HRectangle noCollide = new HRectangle(no, width, height);
 		assertEquals(c1.projectionVector(noCollide), null);
 	}
+	
+	@Test
+	public void test_raycast() {
+		HCircle c = new HCircle(new PVector(10,0), 2);
+		// straight at it, from inside, away from it, past it and out of range
+		assertEquals(8, c.raycast(0, 0, 1, 0, 100), 1e-4);
+		assertEquals(0, c.raycast(10, 1, 0, 1, 100), 1e-4);
+		assertEquals(-1, c.raycast(0, 0, -1, 0, 100), 1e-4);
+		assertEquals(-1, c.raycast(0, 3, 1, 0, 100), 1e-4);
+		assertEquals(-1, c.raycast(0, 0, 1, 0, 5), 1e-4);
+	}
 }
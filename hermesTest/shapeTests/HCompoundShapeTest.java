@@ -0,0 +1,157 @@
+package hermesTest.shapeTests;
+
+import static org.junit.Assert.*;
+
+import hermes.hshape.*;
+
+import java.util.ArrayList;
+
+import org.junit.*;
+
+import processing.core.PVector;
+
+
+public class HCompoundShapeTest {
+
+	/**
+	 * An L shape, 20x20 with the top right 10x10 quadrant missing (y down).
+	 */
+	private HCompoundShape makeL(PVector position) {
+		ArrayList<PVector> outline = new ArrayList<PVector>();
+		outline.add(new PVector(0,0));
+		outline.add(new PVector(10,0));
+		outline.add(new PVector(10,10));
+		outline.add(new PVector(20,10));
+		outline.add(new PVector(20,20));
+		outline.add(new PVector(0,20));
+		return HCompoundShape.createFromOutline(position, outline);
+	}
+
+	private float area(HPolygon polygon) {
+		ArrayList<PVector> points = polygon.getPoints();
+		float area = 0;
+		for(int i = 0; i < points.size(); i++) {
+			PVector a = points.get(i), b = points.get((i + 1) % points.size());
+			area += a.x * b.y - b.x * a.y;
+		}
+		return Math.abs(area) / 2;
+	}
+
+	@Test
+	public void test_createFromOutline() {
+		HCompoundShape l = makeL(new PVector(0,0));
+		// an L needs exactly two convex pieces
+		assertEquals(2, l.size());
+		float area = 0;
+		for(int i = 0; i < l.size(); i++) {
+			area += area((HPolygon)l.getShape(i));
+		}
+		assertEquals(300, area, 1e-3);
+
+		// a comb with three teeth, outline given clockwise
+		ArrayList<PVector> comb = new ArrayList<PVector>();
+		comb.add(new PVector(0,0));
+		comb.add(new PVector(0,30));
+		comb.add(new PVector(50,30));
+		comb.add(new PVector(50,0));
+		comb.add(new PVector(40,0));
+		comb.add(new PVector(40,20));
+		comb.add(new PVector(30,20));
+		comb.add(new PVector(30,0));
+		comb.add(new PVector(20,0));
+		comb.add(new PVector(20,20));
+		comb.add(new PVector(10,20));
+		comb.add(new PVector(10,0));
+		HCompoundShape shape = HCompoundShape.createFromOutline(new PVector(0,0), comb);
+		area = 0;
+		for(int i = 0; i < shape.size(); i++) {
+			area += area((HPolygon)shape.getShape(i));
+		}
+		assertEquals(50 * 30 - 2 * 10 * 20, area, 1e-3);
+		assertTrue(shape.contains(5, 5));
+		assertFalse(shape.contains(15, 5));
+		assertTrue(shape.contains(15, 25));
+	}
+
+	@Test
+	public void test_contains() {
+		HCompoundShape l = makeL(new PVector(100,100));
+		assertTrue(l.contains(105, 105));
+		assertTrue(l.contains(115, 115));
+		assertFalse(l.contains(115, 105));	// in the notch
+		assertFalse(l.contains(5, 5));
+
+		// moving the position moves the children
+		l.getPosition().set(0, 0, 0);
+		assertTrue(l.contains(5, 5));
+		assertFalse(l.contains(105, 105));
+	}
+
+	@Test
+	public void test_getBoundingBox() {
+		HCompoundShape l = makeL(new PVector(100,100));
+		HRectangle box = l.getBoundingBox();
+		assertEquals(100, box.getAbsMin().x, 1e-4);
+		assertEquals(100, box.getAbsMin().y, 1e-4);
+		assertEquals(120, box.getAbsMax().x, 1e-4);
+		assertEquals(120, box.getAbsMax().y, 1e-4);
+	}
+
+	@Test
+	public void test_projectionVectorHCircle() {
+		HCompoundShape l = makeL(new PVector(0,0));
+		// sits in the notch without touching
+		HCircle inNotch = new HCircle(new PVector(15,5), 4);
+		assertNull(l.projectionVector(inNotch));
+		assertNull(inNotch.projectionVector(l));
+		assertFalse(l.collide(inNotch));
+
+		// overlaps the top of the lower arm by 1
+		HCircle overlapping = new HCircle(new PVector(15,6), 5);
+		PVector projection = l.projectionVector(overlapping);
+		assertNotNull(projection);
+		assertEquals(0, projection.x, 1e-4);
+		assertEquals(-1, projection.y, 1e-4);
+		// double dispatch through HShape gives the reverse
+		PVector reverse = overlapping.projectionVector((HShape)l);
+		assertEquals(1, reverse.y, 1e-4);
+		assertTrue(overlapping.collide(l));
+	}
+
+	@Test
+	public void test_projectionVectorHRectangle() {
+		HCompoundShape l = makeL(new PVector(0,0));
+		HRectangle far = new HRectangle(new PVector(50,50), new PVector(0,0), new PVector(5,5));
+		assertNull(l.projectionVector(far));
+		HRectangle overlapping = new HRectangle(new PVector(18,12), new PVector(0,0), new PVector(5,5));
+		assertNotNull(l.projectionVector(overlapping));
+		assertNotNull(overlapping.projectionVector((HShape)l));
+	}
+
+	@Test
+	public void test_projectionVectorHCompoundShape() {
+		HCompoundShape l1 = makeL(new PVector(0,0));
+		// a second L whose lower arm sits in the first's notch, so their bounding boxes overlap but they don't
+		HCompoundShape l2 = makeL(new PVector(11,-12));
+		assertNull(l1.projectionVector(l2));
+		l2.getPosition().set(11, -5, 0);
+		assertNotNull(l1.projectionVector(l2));
+		assertNotNull(l2.projectionVector((HShape)l1));
+		assertNull(l1.projectionVector(l1));
+	}
+
+	@Test
+	public void test_addShape() {
+		HCompoundShape dumbbell = new HCompoundShape(new PVector(0,0),
+				new HCircle(new PVector(-10,0), 3),
+				new HCircle(new PVector(10,0), 3));
+		dumbbell.addShape(new HRectangle(new PVector(-10,-1), new PVector(0,0), new PVector(20,2)));
+		assertEquals(3, dumbbell.size());
+		assertTrue(dumbbell.contains(-10, 2));
+		assertTrue(dumbbell.contains(0, 0));
+		assertFalse(dumbbell.contains(0, 2));
+		assertTrue(dumbbell.collide(new HCircle(new PVector(10,5), 2.5f)));
+		assertFalse(dumbbell.collide(new HCircle(new PVector(0,5), 2.5f)));
+	}
+
+}
@@ -0,0 +1,148 @@
+package hermesTest.shapeTests;
+
+import static org.junit.Assert.*;
+
+import hermes.Hermes;
+import hermes.TileLayer;
+import hermes.hshape.*;
+
+import org.junit.*;
+
+import processing.core.PVector;
+
+
+public class HTileMapTest {
+
+	HTileMap map;
+
+	@Before
+	public void setup() {
+		// 10x10 tiles, with a floor, a wall on the right and a single block
+		map = new HTileMap(new PVector(0,0), 10, 10, "#",
+				"      #",
+				"      #",
+				"  #   #",
+				"#######");
+	}
+
+	@Test
+	public void test_solid() {
+		assertEquals(7, map.getColumns());
+		assertEquals(4, map.getRows());
+		assertTrue(map.isSolid(0, 3));
+		assertTrue(map.isSolid(2, 2));
+		assertFalse(map.isSolid(1, 2));
+		assertFalse(map.isSolid(-1, 3));
+		assertFalse(map.isSolid(0, 4));
+		map.setSolid(1, 2, true);
+		assertTrue(map.isSolid(1, 2));
+		map.setSolid(1, 2, false);
+		assertFalse(map.isSolid(1, 2));
+
+		// bits past the first word
+		HTileMap big = new HTileMap(new PVector(0,0), 100, 100, 1, 1);
+		big.setSolid(99, 99, true);
+		big.setSolid(63, 0, true);
+		big.setSolid(64, 0, true);
+		assertTrue(big.isSolid(99, 99));
+		assertTrue(big.isSolid(63, 0));
+		assertTrue(big.isSolid(64, 0));
+		assertFalse(big.isSolid(65, 0));
+	}
+
+	@Test
+	public void test_contains() {
+		assertTrue(map.contains(5, 35));
+		assertTrue(map.contains(new PVector(25, 25)));
+		assertFalse(map.contains(15, 25));
+		assertFalse(map.contains(-5, 35));
+	}
+
+	@Test
+	public void test_projectionVectorHRectangle() {
+		// resting 2 units into the floor, across a seam between tiles: pushed straight up
+		HRectangle onFloor = new HRectangle(new PVector(5,22), new PVector(0,0), new PVector(10,10));
+		PVector projection = map.projectionVector(onFloor);
+		assertEquals(0, projection.x, 1e-4);
+		assertEquals(-2, projection.y, 1e-4);
+		// the reverse, through HShape
+		projection = onFloor.projectionVector((HShape)map);
+		assertEquals(2, projection.y, 1e-4);
+
+		// in open space
+		HRectangle floating = new HRectangle(new PVector(31,1), new PVector(0,0), new PVector(5,5));
+		assertNull(map.projectionVector(floating));
+		assertFalse(floating.collide(map));
+
+		// 1 unit into the wall from the left, and well above the floor
+		HRectangle atWall = new HRectangle(new PVector(53,5), new PVector(0,0), new PVector(8,8));
+		projection = map.projectionVector(atWall);
+		assertEquals(-1, projection.x, 1e-4);
+		assertEquals(0, projection.y, 1e-4);
+	}
+
+	@Test
+	public void test_projectionVectorHCircle() {
+		// sitting on top of the block
+		HCircle onBlock = new HCircle(new PVector(25,16), 5);
+		PVector projection = map.projectionVector(onBlock);
+		assertEquals(0, projection.x, 1e-4);
+		assertEquals(-1, projection.y, 1e-4);
+
+		// resting on the floor over a seam
+		HCircle onFloor = new HCircle(new PVector(10,27), 4);
+		projection = map.projectionVector(onFloor);
+		assertEquals(0, projection.x, 1e-4);
+		assertEquals(-1, projection.y, 1e-4);
+		assertTrue(onFloor.collide(map));
+
+		// touching the block's corner diagonally
+		HCircle atCorner = new HCircle(new PVector(33,17), 5);
+		projection = map.projectionVector(atCorner);
+		assertEquals(5 - (float)Math.sqrt(18), projection.mag(), 1e-4);
+		assertTrue(projection.x > 0 && projection.y < 0);
+
+		assertNull(map.projectionVector(new HCircle(new PVector(15,5), 4)));
+	}
+
+	@Test
+	public void test_projectionVectorHCompoundShape() {
+		HCompoundShape compound = new HCompoundShape(new PVector(0,0),
+				new HCircle(new PVector(15,5), 4),
+				new HCircle(new PVector(25,16), 5));
+		assertNotNull(map.projectionVector(compound));
+		assertNotNull(compound.projectionVector((HShape)map));
+	}
+
+	@Test
+	public void test_getBoundingBox() {
+		HRectangle box = map.getBoundingBox();
+		assertEquals(0, box.getAbsMin().x, 1e-4);
+		assertEquals(70, box.getAbsMax().x, 1e-4);
+		assertEquals(40, box.getAbsMax().y, 1e-4);
+	}
+
+	@Test
+	public void test_layerIsStatic() {
+		Hermes.setPApplet(null);
+		TileLayer layer = new TileLayer(map);
+		assertTrue(layer.isStatic());
+		assertSame(map, layer.getTileMap());
+	}
+	@Test
+	public void test_raycast() {
+		// across to the wall, down to the block and the floor, and through an empty row
+		assertEquals(55, map.raycast(5, 5, 1, 0, 100), 1e-4);
+		assertEquals(15, map.raycast(25, 5, 0, 1, 100), 1e-4);
+		assertEquals(25, map.raycast(15, 5, 0, 1, 100), 1e-4);
+		assertEquals(-1, map.raycast(15, 5, 0, 1, 20), 1e-4);
+		assertEquals(-1, map.raycast(-5, 15, -1, 0, 100), 1e-4);
+		// from outside the map, and starting inside a solid tile
+		assertEquals(5, map.raycast(-5, 35, 1, 0, 100), 1e-4);
+		assertEquals(0, map.raycast(25, 25, 0, 1, 100), 1e-4);
+		// diagonally onto the floor
+		float d = (float)Math.sqrt(0.5);
+		assertEquals(15 / d, map.raycast(5, 15, d, d, 100), 1e-3);
+	}
+
+}
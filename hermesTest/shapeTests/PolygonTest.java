@@ -408,4 +408,22 @@ public class HPolygonTest {
 		//Does not contain
 		assertFalse(p1.contains(10,10));
 	}
+	
+	@Test
+	public void test_raycast() {
+		//Triangle
+		ArrayList<PVector> points = new ArrayList<PVector>();
+		points.add(new PVector(0,0));
+		points.add(new PVector(10,0));
+		points.add(new PVector(0,10));
+		HPolygon p = new HPolygon(new PVector(10,0), points);
+		
+		assertEquals(10, p.raycast(0, 5, 1, 0, 100), 1e-4);
+		assertEquals(0, p.raycast(12, 2, 1, 0, 100), 1e-4);
+		//Hits the slanted edge from the far side
+		assertEquals(15, p.raycast(30, 5, -1, 0, 100), 1e-4);
+		//Starts inside the bounding box but outside the triangle, heading away
+		float d = (float)Math.sqrt(0.5);
+		assertEquals(-1, p.raycast(18, 8, d, d, 100), 1e-4);
+	}
 }